@@ -0,0 +1,75 @@
+package com.epam.microservices.benchmark;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.epam.microservices.config.dto.BlockCacheConfig;
+import com.epam.microservices.config.dto.ConcurrencyLimitConfig;
+import com.epam.microservices.config.dto.SingleFlightConfig;
+import com.epam.microservices.config.dto.UploadConfig;
+import com.epam.microservices.config.dto.WarmStoreConfig;
+import com.epam.microservices.service.S3ConcurrencyLimiter;
+import com.epam.microservices.service.S3MultipartUploader;
+import com.epam.microservices.service.S3Processor;
+import com.epam.microservices.service.cache.BlockCache;
+import com.epam.microservices.service.cache.SingleFlightFetcher;
+import com.epam.microservices.service.cache.WarmStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Random;
+
+/**
+ * Wires service beans by hand for benchmarks, without starting a Spring context.
+ */
+final class BenchmarkFixtures {
+    static final String BUCKET = "benchmark-bucket";
+    static final String CONTENT_TYPE = "audio/mpeg";
+
+    private BenchmarkFixtures() {
+    }
+
+    static S3MultipartUploader s3MultipartUploader(AmazonS3 s3) {
+        S3MultipartUploader uploader = new S3MultipartUploader();
+        ReflectionTestUtils.setField(uploader, "s3", s3);
+        ReflectionTestUtils.setField(uploader, "uploadConfig", new UploadConfig());
+        ReflectionTestUtils.setField(uploader, "limiter", s3ConcurrencyLimiter());
+        uploader.init();
+        return uploader;
+    }
+
+    /**
+     * Returns a processor reading straight from {@code s3}, with the block cache, fetch sharing and warm store
+     * disabled.
+     */
+    static S3Processor s3Processor(AmazonS3 s3, S3MultipartUploader uploader) {
+        BlockCache blockCache = new BlockCache();
+        ReflectionTestUtils.setField(blockCache, "config", new BlockCacheConfig());
+        S3Processor s3Processor = new S3Processor();
+        ReflectionTestUtils.setField(s3Processor, "s3", s3);
+        ReflectionTestUtils.setField(s3Processor, "uploader", uploader);
+        ReflectionTestUtils.setField(s3Processor, "blockCache", blockCache);
+        SingleFlightConfig singleFlightConfig = new SingleFlightConfig();
+        singleFlightConfig.setEnabled(false);
+        SingleFlightFetcher singleFlightFetcher = new SingleFlightFetcher();
+        ReflectionTestUtils.setField(singleFlightFetcher, "config", singleFlightConfig);
+        ReflectionTestUtils.setField(s3Processor, "singleFlightFetcher", singleFlightFetcher);
+        WarmStore warmStore = new WarmStore();
+        ReflectionTestUtils.setField(warmStore, "config", new WarmStoreConfig());
+        ReflectionTestUtils.setField(s3Processor, "warmStore", warmStore);
+        ReflectionTestUtils.setField(s3Processor, "limiter", s3ConcurrencyLimiter());
+        ReflectionTestUtils.setField(s3Processor, "meterRegistry", new SimpleMeterRegistry());
+        return s3Processor;
+    }
+
+    static S3ConcurrencyLimiter s3ConcurrencyLimiter() {
+        S3ConcurrencyLimiter limiter = new S3ConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "config", new ConcurrencyLimitConfig());
+        limiter.init();
+        return limiter;
+    }
+
+    static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,67 @@
+package com.epam.microservices.benchmark;
+
+import com.epam.microservices.client.ApiGatewayClient;
+import com.epam.microservices.config.dto.StorageCacheConfig;
+import com.epam.microservices.model.StorageModel;
+import com.epam.microservices.service.BucketNameGetter;
+import com.epam.microservices.service.constant.StorageType;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage selection in {@link BucketNameGetter#getBucketForStorage(String)} with a warm storage cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BucketNameGetterBenchmark {
+    @Param({"STAGING", "PERMANENT"})
+    public StorageType storageType;
+    private BucketNameGetter bucketNameGetter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ApiGatewayClient apiGatewayClient = () -> List.of(
+                storage(1, StorageType.STAGING, "staging-bucket"),
+                storage(2, StorageType.PERMANENT, "permanent-bucket"));
+        bucketNameGetter = new BucketNameGetter();
+        ReflectionTestUtils.setField(bucketNameGetter, "apiGatewayClient", apiGatewayClient);
+        ReflectionTestUtils.setField(bucketNameGetter, "circuitBreakerRegistry", CircuitBreakerRegistry.ofDefaults());
+        ReflectionTestUtils.setField(bucketNameGetter, "storageCacheConfig", new StorageCacheConfig());
+        ReflectionTestUtils.setField(bucketNameGetter, "meterRegistry", new SimpleMeterRegistry());
+        bucketNameGetter.init();
+        bucketNameGetter.getBucketForStorage(storageType.getValue());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bucketNameGetter.shutdown();
+    }
+
+    @Benchmark
+    public String getBucketForStorage() {
+        return bucketNameGetter.getBucketForStorage(storageType.getValue());
+    }
+
+    private static StorageModel storage(int id, StorageType storageType, String bucket) {
+        StorageModel storage = new StorageModel();
+        storage.setId(id);
+        storage.setStorageType(storageType.getValue());
+        storage.setBucket(bucket);
+        return storage;
+    }
+}
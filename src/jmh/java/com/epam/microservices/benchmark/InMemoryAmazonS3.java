@@ -0,0 +1,151 @@
+package com.epam.microservices.benchmark;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * {@link com.amazonaws.services.s3.AmazonS3} stand-in keeping objects in memory, so benchmarks measure the
+ * service code rather than the network. Supports the calls made by {@code S3Processor} and
+ * {@code S3MultipartUploader}; everything else throws {@link UnsupportedOperationException}.
+ */
+public class InMemoryAmazonS3 extends AbstractAmazonS3 {
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final Map<String, SortedMap<Integer, byte[]>> multipartUploads = new ConcurrentHashMap<>();
+
+    public void putBytes(String bucket, String key, byte[] bytes, String contentType) {
+        objects.put(getObjectKey(bucket, key), new StoredObject(bytes, contentType));
+    }
+
+    @Override
+    public PutObjectResult putObject(PutObjectRequest request) {
+        byte[] bytes = readFully(request.getInputStream());
+        putBytes(request.getBucketName(), request.getKey(), bytes, request.getMetadata().getContentType());
+        return new PutObjectResult();
+    }
+
+    @Override
+    public S3Object getObject(String bucket, String key) {
+        return getObject(new GetObjectRequest(bucket, key));
+    }
+
+    @Override
+    public S3Object getObject(GetObjectRequest request) {
+        StoredObject storedObject = getStoredObject(request.getBucketName(), request.getKey());
+        long[] range = request.getRange();
+        int start = range == null ? 0 : (int) range[0];
+        int end = range == null ? storedObject.bytes.length - 1 : (int) Math.min(range[1], storedObject.bytes.length - 1);
+        S3Object s3Object = new S3Object();
+        s3Object.setBucketName(request.getBucketName());
+        s3Object.setKey(request.getKey());
+        s3Object.setObjectMetadata(storedObject.getMetadata(end - start + 1));
+        s3Object.setObjectContent(new ByteArrayInputStream(storedObject.bytes, start, end - start + 1));
+        return s3Object;
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String bucket, String key) {
+        StoredObject storedObject = getStoredObject(bucket, key);
+        return storedObject.getMetadata(storedObject.bytes.length);
+    }
+
+    @Override
+    public void deleteObject(String bucket, String key) {
+        objects.remove(getObjectKey(bucket, key));
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        multipartUploads.put(uploadId, new ConcurrentSkipListMap<>());
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setUploadId(uploadId);
+        return result;
+    }
+
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        multipartUploads.get(request.getUploadId()).put(request.getPartNumber(), readFully(request.getInputStream()));
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(String.valueOf(request.getPartNumber()));
+        return result;
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        multipartUploads.remove(request.getUploadId()).values().forEach(outputStream::writeBytes);
+        putBytes(request.getBucketName(), request.getKey(), outputStream.toByteArray(), null);
+        CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        return result;
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        multipartUploads.remove(request.getUploadId());
+    }
+
+    private StoredObject getStoredObject(String bucket, String key) {
+        StoredObject storedObject = objects.get(getObjectKey(bucket, key));
+        if (storedObject == null) {
+            throw new IllegalArgumentException("No object " + key + " in bucket " + bucket);
+        }
+        return storedObject;
+    }
+
+    private String getObjectKey(String bucket, String key) {
+        return bucket + "/" + key;
+    }
+
+    private byte[] readFully(InputStream inputStream) {
+        try {
+            return IOUtils.toByteArray(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class StoredObject {
+        private final byte[] bytes;
+        private final String contentType;
+
+        private StoredObject(byte[] bytes, String contentType) {
+            this.bytes = bytes;
+            this.contentType = contentType;
+        }
+
+        private ObjectMetadata getMetadata(long contentLength) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(contentLength);
+            metadata.setContentType(contentType);
+            return metadata;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.epam.microservices.benchmark;
+
+import com.epam.microservices.controller.RangeHeaderParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpRange;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the {@code Range} header done by {@code ResourceController.read} for every ranged request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RangeHeaderParserBenchmark {
+    @Param({"bytes=0-1023", "bytes=1024-", "bytes=-1024", "0 - 1024"})
+    public String rangeHeader;
+
+    @Benchmark
+    public HttpRange parse() {
+        return RangeHeaderParser.parse(rangeHeader);
+    }
+}
@@ -0,0 +1,83 @@
+package com.epam.microservices.benchmark;
+
+import com.epam.microservices.config.dto.DeleteConfig;
+import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.repository.ResourceRepository;
+import com.epam.microservices.service.ResourceService;
+import com.epam.microservices.service.S3MultipartUploader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpRange;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.epam.microservices.benchmark.BenchmarkFixtures.BUCKET;
+import static com.epam.microservices.benchmark.BenchmarkFixtures.CONTENT_TYPE;
+
+/**
+ * Range validation and slicing in {@link ResourceService#getResource(Integer, HttpRange)}, including writing the
+ * slice to the response stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ResourceServiceRangeBenchmark {
+    private static final int RESOURCE_ID = 1;
+    @Param({"1048576", "16777216"})
+    public int objectSize;
+    @Param({"bytes=0-65535", "bytes=-65536", "bytes=0-"})
+    public String rangeHeader;
+    private ResourceService service;
+    private S3MultipartUploader uploader;
+    private HttpRange range;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryAmazonS3 s3 = new InMemoryAmazonS3();
+        s3.putBytes(BUCKET, String.valueOf(RESOURCE_ID), BenchmarkFixtures.randomBytes(objectSize), CONTENT_TYPE);
+        uploader = BenchmarkFixtures.s3MultipartUploader(s3);
+
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setId(RESOURCE_ID);
+        fileEntity.setContentType("mp3");
+        fileEntity.setBucket(BUCKET);
+        ResourceRepository repository = new ResourceRepository() {
+            @Override
+            public Optional<FileEntity> read(int id) {
+                return Optional.of(fileEntity);
+            }
+        };
+
+        service = new ResourceService();
+        ReflectionTestUtils.setField(service, "repository", repository);
+        ReflectionTestUtils.setField(service, "s3Processor", BenchmarkFixtures.s3Processor(s3, uploader));
+        ReflectionTestUtils.setField(service, "deleteConfig", new DeleteConfig());
+        range = HttpRange.parseRanges(rangeHeader).get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        uploader.shutdown();
+    }
+
+    @Benchmark
+    public long getResourceRange() throws IOException {
+        try (ResourceContent content = service.getResource(RESOURCE_ID, range)) {
+            content.writeTo(OutputStream.nullOutputStream());
+            return content.getContentLength();
+        }
+    }
+}
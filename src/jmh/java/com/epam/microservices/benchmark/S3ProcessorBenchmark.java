@@ -0,0 +1,67 @@
+package com.epam.microservices.benchmark;
+
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.service.S3MultipartUploader;
+import com.epam.microservices.service.S3Processor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import static com.epam.microservices.benchmark.BenchmarkFixtures.BUCKET;
+import static com.epam.microservices.benchmark.BenchmarkFixtures.CONTENT_TYPE;
+
+/**
+ * Upload and download copy loops of {@link S3Processor} against {@link InMemoryAmazonS3}. Objects above the
+ * multipart threshold go through the multipart upload path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class S3ProcessorBenchmark {
+    private static final int DOWNLOAD_RESOURCE_ID = 1;
+    private static final int UPLOAD_RESOURCE_ID = 2;
+    @Param({"65536", "1048576", "33554432"})
+    public int objectSize;
+    private byte[] bytes;
+    private S3MultipartUploader uploader;
+    private S3Processor s3Processor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryAmazonS3 s3 = new InMemoryAmazonS3();
+        bytes = BenchmarkFixtures.randomBytes(objectSize);
+        s3.putBytes(BUCKET, String.valueOf(DOWNLOAD_RESOURCE_ID), bytes, CONTENT_TYPE);
+        uploader = BenchmarkFixtures.s3MultipartUploader(s3);
+        s3Processor = BenchmarkFixtures.s3Processor(s3, uploader);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        uploader.shutdown();
+    }
+
+    @Benchmark
+    public void putResource() {
+        s3Processor.putResource(new ByteArrayInputStream(bytes), CONTENT_TYPE, BUCKET, UPLOAD_RESOURCE_ID);
+    }
+
+    @Benchmark
+    public long getResource() throws IOException {
+        try (ResourceContent content = s3Processor.getResource(BUCKET, DOWNLOAD_RESOURCE_ID)) {
+            content.writeTo(OutputStream.nullOutputStream());
+            return content.getContentLength();
+        }
+    }
+}
@@ -6,13 +6,40 @@ import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.epam.microservices.config.dto.AsyncClientConfig;
+import com.epam.microservices.config.dto.BlockCacheConfig;
+import com.epam.microservices.config.dto.BulkUploadConfig;
+import com.epam.microservices.config.dto.ConcurrencyLimitConfig;
+import com.epam.microservices.config.dto.CopyConfig;
+import com.epam.microservices.config.dto.CreateConfig;
 import com.epam.microservices.config.dto.Credentials;
+import com.epam.microservices.config.dto.DeleteConfig;
 import com.epam.microservices.config.dto.EndpointConfig;
+import com.epam.microservices.config.dto.EntityCacheConfig;
+import com.epam.microservices.config.dto.ListConfig;
+import com.epam.microservices.config.dto.OutboxConfig;
+import com.epam.microservices.config.dto.PromotionConfig;
+import com.epam.microservices.config.dto.SingleFlightConfig;
+import com.epam.microservices.config.dto.StorageCacheConfig;
+import com.epam.microservices.config.dto.UploadConfig;
+import com.epam.microservices.config.dto.WarmStoreConfig;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.retry.annotation.EnableRetry;
-import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+import java.net.URI;
 
 @Configuration
 @EnableRetry
@@ -35,6 +62,96 @@ public class Config {
         return new EndpointConfig();
     }
 
+    @Bean
+    @ConfigurationProperties(prefix = "aws.upload")
+    public UploadConfig uploadConfig() {
+        return new UploadConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "aws.copy")
+    public CopyConfig copyConfig() {
+        return new CopyConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "aws.async")
+    public AsyncClientConfig asyncClientConfig() {
+        return new AsyncClientConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "aws.concurrency-limit")
+    public ConcurrencyLimitConfig concurrencyLimitConfig() {
+        return new ConcurrencyLimitConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "cache.block")
+    public BlockCacheConfig blockCacheConfig() {
+        return new BlockCacheConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "cache.entity")
+    public EntityCacheConfig entityCacheConfig() {
+        return new EntityCacheConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "cache.storage")
+    public StorageCacheConfig storageCacheConfig() {
+        return new StorageCacheConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "cache.single-flight")
+    public SingleFlightConfig singleFlightConfig() {
+        return new SingleFlightConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "cache.warm")
+    public WarmStoreConfig warmStoreConfig() {
+        return new WarmStoreConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "resource.delete")
+    public DeleteConfig deleteConfig() {
+        return new DeleteConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "resource.create")
+    public CreateConfig createConfig() {
+        return new CreateConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "resource.bulk-upload")
+    public BulkUploadConfig bulkUploadConfig() {
+        return new BulkUploadConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "resource.promotion")
+    public PromotionConfig promotionConfig() {
+        return new PromotionConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "resource.list")
+    public ListConfig listConfig() {
+        return new ListConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "outbox")
+    public OutboxConfig outboxConfig() {
+        return new OutboxConfig();
+    }
+
     @Bean
     public AmazonS3 s3Client() {
         AwsClientBuilder.EndpointConfiguration config =
@@ -46,8 +163,36 @@ public class Config {
                 .build();
     }
 
+    /**
+     * Non-blocking client used by the async storage engine; its Netty event loop serves all transfers.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "aws", name = "engine", havingValue = "async")
+    public S3AsyncClient s3AsyncClient() {
+        Credentials credentials = credentials();
+        return S3AsyncClient.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(credentials.getAccessKey(), credentials.getSecretKey())))
+                .endpointOverride(URI.create(endpointConfig().getEndpoint()))
+                .region(Region.of(endpointConfig().getRegion()))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(asyncClientConfig().getMaxConcurrency())
+                        .connectionAcquisitionTimeout(asyncClientConfig().getConnectionAcquisitionTimeout()))
+                .build();
+    }
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
     @Bean
-    public CommonsMultipartResolver multipartResolver() {
-        return new CommonsMultipartResolver();
+    public ServletFileUpload servletFileUpload(
+            @Value("${spring.servlet.multipart.max-file-size:100MB}") DataSize maxFileSize,
+            @Value("${spring.servlet.multipart.max-request-size:100MB}") DataSize maxRequestSize) {
+        ServletFileUpload servletFileUpload = new ServletFileUpload();
+        servletFileUpload.setFileSizeMax(maxFileSize.toBytes());
+        servletFileUpload.setSizeMax(maxRequestSize.toBytes());
+        return servletFileUpload;
     }
 }
@@ -1,7 +1,7 @@
 package com.epam.microservices.config;
 
-import ch.qos.logback.classic.AsyncAppender;
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.util.Duration;
 import net.logstash.logback.appender.LogstashTcpSocketAppender;
 import net.logstash.logback.encoder.LogstashEncoder;
 import net.logstash.logback.stacktrace.ShortenedThrowableConverter;
@@ -11,23 +11,28 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.net.InetSocketAddress;
 
+/**
+ * Ships logs to Logstash through the ring buffer of the TCP appender. Appending never waits: when Logstash falls
+ * behind and the buffer is full the event is dropped, and the drops are reported by {@link LogstashAppenderMetrics}.
+ */
 @Configuration
 @EnableConfigurationProperties
 @ConditionalOnProperty(value = "logstash.enabled", havingValue = "true")
 @RefreshScope
 public class LogConfig {
     private static final String LOGSTASH_APPENDER_NAME = "LOGSTASH";
-    private static final String ASYNC_LOGSTASH_APPENDER_NAME = "ASYNC_LOGSTASH";
     private final Logger logger = LoggerFactory.getLogger(LogConfig.class);
     private final LoggerContext loggerFactory = (LoggerContext) LoggerFactory.getILoggerFactory();
     private final String appName;
     private final String logstashHost;
     private final Integer logstashPort;
     private final Integer logstashQueueSize;
+    private final LogstashAppenderMetrics appenderMetrics = new LogstashAppenderMetrics();
 
     public LogConfig(
             @Value("${spring.application.name}") String appName,
@@ -41,6 +46,11 @@ public class LogConfig {
         addLogstashAppender(loggerFactory);
     }
 
+    @Bean
+    public LogstashAppenderMetrics logstashAppenderMetrics() {
+        return appenderMetrics;
+    }
+
     private void addLogstashAppender(LoggerContext context) {
         logger.info("Initializing Logstash logging");
         LogstashTcpSocketAppender logstashAppender = new LogstashTcpSocketAppender();
@@ -58,14 +68,18 @@ public class LogConfig {
         logstashEncoder.setCustomFields(customFields);
         logstashAppender.setEncoder(logstashEncoder);
 
+        logstashAppender.setRingBufferSize(toRingBufferSize(this.logstashQueueSize));
+        logstashAppender.setAppendTimeout(Duration.buildByMilliseconds(0));
+        logstashAppender.addListener(appenderMetrics);
+
         logstashAppender.start();
+        context.getLogger("ROOT").addAppender(logstashAppender);
+    }
 
-        AsyncAppender asyncLogstashAppender = new AsyncAppender();
-        asyncLogstashAppender.setContext(context);
-        asyncLogstashAppender.setName(ASYNC_LOGSTASH_APPENDER_NAME);
-        asyncLogstashAppender.setQueueSize(this.logstashQueueSize);
-        asyncLogstashAppender.addAppender(logstashAppender);
-        asyncLogstashAppender.start();
-        context.getLogger("ROOT").addAppender(asyncLogstashAppender);
+    /**
+     * The ring buffer size must be a power of two.
+     */
+    private int toRingBufferSize(int queueSize) {
+        return queueSize <= 1 ? 1 : Integer.highestOneBit(queueSize - 1) << 1;
     }
 }
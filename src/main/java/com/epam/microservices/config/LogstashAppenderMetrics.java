@@ -0,0 +1,84 @@
+package com.epam.microservices.config;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.logstash.logback.appender.listener.TcpAppenderListener;
+
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the events going through the Logstash appender: appended to its ring buffer, dropped because the buffer
+ * was full, sent and failed to send. The events appended but neither sent nor failed yet are reported as queued.
+ */
+public class LogstashAppenderMetrics implements TcpAppenderListener<ILoggingEvent>, MeterBinder {
+    private static final String EVENTS_METER = "resource.log.events";
+    private static final String RESULT_TAG = "result";
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Override
+    public void eventAppended(Appender<ILoggingEvent> appender, ILoggingEvent event, long durationInNanos) {
+        appended.incrementAndGet();
+    }
+
+    @Override
+    public void eventAppendFailed(Appender<ILoggingEvent> appender, ILoggingEvent event, Throwable reason) {
+        dropped.incrementAndGet();
+    }
+
+    @Override
+    public void eventSent(Appender<ILoggingEvent> appender, Socket socket, ILoggingEvent event,
+                          long durationInNanos) {
+        sent.incrementAndGet();
+    }
+
+    @Override
+    public void eventSendFailure(Appender<ILoggingEvent> appender, ILoggingEvent event, Throwable reason) {
+        failed.incrementAndGet();
+    }
+
+    public long getAppendedCount() {
+        return appended.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getQueuedCount() {
+        return Math.max(0, appended.get() - sent.get() - failed.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(EVENTS_METER, this, LogstashAppenderMetrics::getAppendedCount)
+                .tag(RESULT_TAG, "appended")
+                .register(registry);
+        FunctionCounter.builder(EVENTS_METER, this, LogstashAppenderMetrics::getDroppedCount)
+                .tag(RESULT_TAG, "dropped")
+                .register(registry);
+        FunctionCounter.builder(EVENTS_METER, this, LogstashAppenderMetrics::getSentCount)
+                .tag(RESULT_TAG, "sent")
+                .register(registry);
+        FunctionCounter.builder(EVENTS_METER, this, LogstashAppenderMetrics::getFailedCount)
+                .tag(RESULT_TAG, "failed")
+                .register(registry);
+        Gauge.builder("resource.log.queued", this, LogstashAppenderMetrics::getQueuedCount)
+                .register(registry);
+    }
+}
@@ -1,14 +1,17 @@
 package com.epam.microservices.config;
 
+import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RabbitMQConfig {
+    public static final String ENTITY_INVALIDATION_EXCHANGE_NAME = "file_entity_invalidation_exchange";
 
     private static final String QUEUE_NAME = "uploaded_resourcesIds_queue";
     private static final String EXCHANGE_NAME = "uploaded_resourcesIds_exchange";
@@ -24,7 +27,25 @@ public class RabbitMQConfig {
     }
 
     @Bean
-    public Binding binding(Queue queue, DirectExchange exchange) {
-        return BindingBuilder.bind(queue).to(exchange).with(QUEUE_NAME);
+    public Binding binding() {
+        return BindingBuilder.bind(queue()).to(exchange()).with(QUEUE_NAME);
+    }
+
+    /**
+     * Every instance listens on its own auto-deleted queue, so an invalidation reaches all replicas.
+     */
+    @Bean
+    public Queue entityInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public FanoutExchange entityInvalidationExchange() {
+        return new FanoutExchange(ENTITY_INVALIDATION_EXCHANGE_NAME);
+    }
+
+    @Bean
+    public Binding entityInvalidationBinding() {
+        return BindingBuilder.bind(entityInvalidationQueue()).to(entityInvalidationExchange());
     }
 }
@@ -0,0 +1,33 @@
+package com.epam.microservices.config.dto;
+
+import java.time.Duration;
+
+public class AsyncClientConfig {
+    private int maxConcurrency = 1000;
+    private Duration connectionAcquisitionTimeout = Duration.ofSeconds(10);
+    private Duration responseTimeout = Duration.ofMinutes(10);
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Duration getConnectionAcquisitionTimeout() {
+        return connectionAcquisitionTimeout;
+    }
+
+    public void setConnectionAcquisitionTimeout(Duration connectionAcquisitionTimeout) {
+        this.connectionAcquisitionTimeout = connectionAcquisitionTimeout;
+    }
+
+    public Duration getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    public void setResponseTimeout(Duration responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+}
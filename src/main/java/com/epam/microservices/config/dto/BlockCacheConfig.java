@@ -0,0 +1,53 @@
+package com.epam.microservices.config.dto;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+public class BlockCacheConfig {
+    private boolean enabled;
+    private String directory = System.getProperty("java.io.tmpdir") + "/resource-service/blocks";
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+    private DataSize blockSize = DataSize.ofMegabytes(1);
+    private Duration fetchWaitTimeout = Duration.ofSeconds(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(DataSize blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public Duration getFetchWaitTimeout() {
+        return fetchWaitTimeout;
+    }
+
+    public void setFetchWaitTimeout(Duration fetchWaitTimeout) {
+        this.fetchWaitTimeout = fetchWaitTimeout;
+    }
+}
@@ -0,0 +1,22 @@
+package com.epam.microservices.config.dto;
+
+public class BulkUploadConfig {
+    private int concurrency = 4;
+    private int maxFiles = 100;
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getMaxFiles() {
+        return maxFiles;
+    }
+
+    public void setMaxFiles(int maxFiles) {
+        this.maxFiles = maxFiles;
+    }
+}
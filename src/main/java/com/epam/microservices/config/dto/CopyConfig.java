@@ -0,0 +1,33 @@
+package com.epam.microservices.config.dto;
+
+import org.springframework.util.unit.DataSize;
+
+public class CopyConfig {
+    private DataSize multipartThreshold = DataSize.ofMegabytes(256);
+    private DataSize partSize = DataSize.ofMegabytes(64);
+    private int threads = 16;
+
+    public DataSize getMultipartThreshold() {
+        return multipartThreshold;
+    }
+
+    public void setMultipartThreshold(DataSize multipartThreshold) {
+        this.multipartThreshold = multipartThreshold;
+    }
+
+    public DataSize getPartSize() {
+        return partSize;
+    }
+
+    public void setPartSize(DataSize partSize) {
+        this.partSize = partSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+}
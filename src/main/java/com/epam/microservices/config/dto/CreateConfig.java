@@ -0,0 +1,42 @@
+package com.epam.microservices.config.dto;
+
+import java.time.Duration;
+
+public class CreateConfig {
+    private int idBlockSize = 100;
+    private Duration groupCommitWindow = Duration.ofMillis(5);
+    private int groupCommitMaxSize = 100;
+    private Duration insertTimeout = Duration.ofSeconds(30);
+
+    public int getIdBlockSize() {
+        return idBlockSize;
+    }
+
+    public void setIdBlockSize(int idBlockSize) {
+        this.idBlockSize = idBlockSize;
+    }
+
+    public Duration getGroupCommitWindow() {
+        return groupCommitWindow;
+    }
+
+    public void setGroupCommitWindow(Duration groupCommitWindow) {
+        this.groupCommitWindow = groupCommitWindow;
+    }
+
+    public int getGroupCommitMaxSize() {
+        return groupCommitMaxSize;
+    }
+
+    public void setGroupCommitMaxSize(int groupCommitMaxSize) {
+        this.groupCommitMaxSize = groupCommitMaxSize;
+    }
+
+    public Duration getInsertTimeout() {
+        return insertTimeout;
+    }
+
+    public void setInsertTimeout(Duration insertTimeout) {
+        this.insertTimeout = insertTimeout;
+    }
+}
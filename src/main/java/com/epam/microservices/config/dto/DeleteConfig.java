@@ -0,0 +1,33 @@
+package com.epam.microservices.config.dto;
+
+import java.time.Duration;
+
+public class DeleteConfig {
+    private boolean tombstone;
+    private Duration reaperInterval = Duration.ofMinutes(1);
+    private int reaperBatchSize = 1000;
+
+    public boolean isTombstone() {
+        return tombstone;
+    }
+
+    public void setTombstone(boolean tombstone) {
+        this.tombstone = tombstone;
+    }
+
+    public Duration getReaperInterval() {
+        return reaperInterval;
+    }
+
+    public void setReaperInterval(Duration reaperInterval) {
+        this.reaperInterval = reaperInterval;
+    }
+
+    public int getReaperBatchSize() {
+        return reaperBatchSize;
+    }
+
+    public void setReaperBatchSize(int reaperBatchSize) {
+        this.reaperBatchSize = reaperBatchSize;
+    }
+}
@@ -0,0 +1,24 @@
+package com.epam.microservices.config.dto;
+
+import java.time.Duration;
+
+public class EntityCacheConfig {
+    private long maxSize = 10_000;
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+}
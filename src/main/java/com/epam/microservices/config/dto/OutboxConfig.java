@@ -0,0 +1,60 @@
+package com.epam.microservices.config.dto;
+
+import java.time.Duration;
+
+public class OutboxConfig {
+    private Duration publishInterval = Duration.ofSeconds(1);
+    private int batchSize = 100;
+    private Duration confirmTimeout = Duration.ofSeconds(5);
+    private Duration purgeInterval = Duration.ofHours(1);
+    private Duration sentRetention = Duration.ofDays(1);
+    private Duration pendingRetention = Duration.ofDays(1);
+
+    public Duration getPublishInterval() {
+        return publishInterval;
+    }
+
+    public void setPublishInterval(Duration publishInterval) {
+        this.publishInterval = publishInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getConfirmTimeout() {
+        return confirmTimeout;
+    }
+
+    public void setConfirmTimeout(Duration confirmTimeout) {
+        this.confirmTimeout = confirmTimeout;
+    }
+
+    public Duration getPurgeInterval() {
+        return purgeInterval;
+    }
+
+    public void setPurgeInterval(Duration purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+
+    public Duration getSentRetention() {
+        return sentRetention;
+    }
+
+    public void setSentRetention(Duration sentRetention) {
+        this.sentRetention = sentRetention;
+    }
+
+    public Duration getPendingRetention() {
+        return pendingRetention;
+    }
+
+    public void setPendingRetention(Duration pendingRetention) {
+        this.pendingRetention = pendingRetention;
+    }
+}
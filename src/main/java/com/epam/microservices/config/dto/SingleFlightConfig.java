@@ -0,0 +1,31 @@
+package com.epam.microservices.config.dto;
+
+public class SingleFlightConfig {
+    private boolean enabled = true;
+    private String directory = System.getProperty("java.io.tmpdir") + "/resource-service/flights";
+    private int threads = 64;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+}
@@ -0,0 +1,24 @@
+package com.epam.microservices.config.dto;
+
+import java.time.Duration;
+
+public class StorageCacheConfig {
+    private Duration refreshInterval = Duration.ofSeconds(30);
+    private Duration loadTimeout = Duration.ofSeconds(5);
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public Duration getLoadTimeout() {
+        return loadTimeout;
+    }
+
+    public void setLoadTimeout(Duration loadTimeout) {
+        this.loadTimeout = loadTimeout;
+    }
+}
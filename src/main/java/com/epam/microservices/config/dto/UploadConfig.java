@@ -0,0 +1,51 @@
+package com.epam.microservices.config.dto;
+
+import org.springframework.util.unit.DataSize;
+
+public class UploadConfig {
+    private DataSize multipartThreshold = DataSize.ofMegabytes(16);
+    private DataSize partSize = DataSize.ofMegabytes(8);
+    private int maxConcurrentParts = 4;
+    private int threads = 16;
+    private int partMaxAttempts = 3;
+
+    public DataSize getMultipartThreshold() {
+        return multipartThreshold;
+    }
+
+    public void setMultipartThreshold(DataSize multipartThreshold) {
+        this.multipartThreshold = multipartThreshold;
+    }
+
+    public DataSize getPartSize() {
+        return partSize;
+    }
+
+    public void setPartSize(DataSize partSize) {
+        this.partSize = partSize;
+    }
+
+    public int getMaxConcurrentParts() {
+        return maxConcurrentParts;
+    }
+
+    public void setMaxConcurrentParts(int maxConcurrentParts) {
+        this.maxConcurrentParts = maxConcurrentParts;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getPartMaxAttempts() {
+        return partMaxAttempts;
+    }
+
+    public void setPartMaxAttempts(int partMaxAttempts) {
+        this.partMaxAttempts = partMaxAttempts;
+    }
+}
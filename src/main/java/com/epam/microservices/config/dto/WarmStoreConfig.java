@@ -0,0 +1,53 @@
+package com.epam.microservices.config.dto;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+public class WarmStoreConfig {
+    private boolean enabled;
+    private String directory = System.getProperty("java.io.tmpdir") + "/resource-service/warm";
+    private DataSize maxSize = DataSize.ofMegabytes(512);
+    private DataSize maxEntrySize = DataSize.ofMegabytes(32);
+    private Duration expireAfterWrite = Duration.ofMinutes(2);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+}
@@ -0,0 +1,284 @@
+package com.epam.microservices.controller;
+
+import com.epam.microservices.config.dto.AsyncClientConfig;
+import com.epam.microservices.controller.exception.ApiError;
+import com.epam.microservices.controller.exception.ErrorHandler;
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.service.PublishedResourceContent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Writes content opened by the async storage engine through an async servlet response. The request thread is
+ * released as soon as the object is requested; a published body is then written with a {@link WriteListener},
+ * one buffer at a time and only while the connection accepts more, so neither the S3 call nor a slow client holds
+ * a thread.
+ */
+@Component
+public class AsyncContentWriter {
+    private final Logger logger = LoggerFactory.getLogger(AsyncContentWriter.class);
+    @Autowired
+    private AsyncClientConfig config;
+    @Autowired
+    private ErrorHandler errorHandler;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * @param head builds the status and headers of the response once the content is opened
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response,
+                      CompletableFuture<ResourceContent> content,
+                      Function<ResourceContent, ResponseEntity<Void>> head) {
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(config.getResponseTimeout().toMillis());
+        Transfer transfer = new Transfer(asyncContext, response, content);
+        asyncContext.addListener(transfer);
+        content.whenComplete((opened, e) -> {
+            if (e != null) {
+                transfer.fail(e);
+                return;
+            }
+            try {
+                transfer.start(opened, head.apply(opened));
+            } catch (RuntimeException startFailure) {
+                transfer.fail(startFailure);
+            }
+        });
+    }
+
+    private class Transfer implements Subscriber<ByteBuffer>, AsyncListener {
+        private final AsyncContext asyncContext;
+        private final HttpServletResponse response;
+        private final CompletableFuture<ResourceContent> content;
+        private final Object lock = new Object();
+        private Subscription subscription;
+        private ServletOutputStream outputStream;
+        private ByteBuffer pending;
+        private boolean requested;
+        private boolean published;
+        private boolean completed;
+
+        private Transfer(AsyncContext asyncContext, HttpServletResponse response,
+                         CompletableFuture<ResourceContent> content) {
+            this.asyncContext = asyncContext;
+            this.response = response;
+            this.content = content;
+        }
+
+        private void start(ResourceContent opened, ResponseEntity<Void> head) {
+            response.setStatus(head.getStatusCodeValue());
+            head.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+            if (opened instanceof PublishedResourceContent) {
+                ((PublishedResourceContent) opened).subscribe(this);
+                return;
+            }
+            asyncContext.start(() -> {
+                try (opened) {
+                    opened.writeTo(response.getOutputStream());
+                } catch (IOException e) {
+                    logger.warn("Unable to write resource content: {}", e.getMessage());
+                } finally {
+                    complete();
+                }
+            });
+        }
+
+        /**
+         * Answers the failure as {@link ErrorHandler} answers it on the blocking engine.
+         */
+        private void fail(Throwable e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            ResponseEntity<ApiError> error = errorHandler.toResponseEntity(cause);
+            if (error.getStatusCode().is5xxServerError()) {
+                logger.error("Unable to open resource content", cause);
+            }
+            synchronized (lock) {
+                if (!response.isCommitted()) {
+                    response.reset();
+                    response.setStatus(error.getStatusCodeValue());
+                    error.getHeaders().forEach((name, values) ->
+                            values.forEach(value -> response.addHeader(name, value)));
+                    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                    try {
+                        objectMapper.writeValue(response.getOutputStream(), error.getBody());
+                    } catch (IOException | IllegalStateException writeFailure) {
+                        logger.warn("Unable to write error response: {}", writeFailure.getMessage());
+                    }
+                }
+            }
+            complete();
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            synchronized (lock) {
+                subscription = s;
+            }
+            try {
+                outputStream = response.getOutputStream();
+                outputStream.setWriteListener(new BodyWriteListener());
+            } catch (IOException | IllegalStateException e) {
+                logger.warn("Unable to write resource content: {}", e.getMessage());
+                s.cancel();
+                complete();
+            }
+        }
+
+        @Override
+        public void onNext(ByteBuffer byteBuffer) {
+            synchronized (lock) {
+                pending = byteBuffer;
+                requested = false;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            logger.warn("Unable to read resource content: {}", t.getMessage());
+            sendError(HttpStatus.BAD_GATEWAY);
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (lock) {
+                published = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // Completed by the transfer itself
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            logger.warn("Response timed out after {}", config.getResponseTimeout());
+            cancel();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            logger.warn("Response failed: {}", event.getThrowable() != null ? event.getThrowable().getMessage() : null);
+            cancel();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Started once, by the writer
+        }
+
+        /**
+         * Writes what was published while the connection accepts more and asks for the next buffer when it ran out.
+         */
+        private void drain() {
+            boolean requestNext = false;
+            synchronized (lock) {
+                if (outputStream == null || completed) {
+                    return;
+                }
+                try {
+                    while (outputStream.isReady()) {
+                        if (pending != null) {
+                            write(pending);
+                            pending = null;
+                        } else if (published) {
+                            outputStream.flush();
+                            complete();
+                            return;
+                        } else {
+                            requestNext = !requested;
+                            requested = true;
+                            break;
+                        }
+                    }
+                } catch (IOException e) {
+                    logger.warn("Unable to write resource content: {}", e.getMessage());
+                    subscription.cancel();
+                    complete();
+                    return;
+                }
+            }
+            if (requestNext) {
+                subscription.request(1);
+            }
+        }
+
+        private void write(ByteBuffer byteBuffer) throws IOException {
+            if (byteBuffer.hasArray()) {
+                outputStream.write(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(),
+                        byteBuffer.remaining());
+            } else {
+                byte[] bytes = new byte[byteBuffer.remaining()];
+                byteBuffer.get(bytes);
+                outputStream.write(bytes);
+            }
+        }
+
+        private void cancel() {
+            content.cancel(false);
+            synchronized (lock) {
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+            complete();
+        }
+
+        private void sendError(HttpStatus status) {
+            synchronized (lock) {
+                if (!response.isCommitted()) {
+                    response.reset();
+                    response.setStatus(status.value());
+                }
+            }
+            complete();
+        }
+
+        private void complete() {
+            synchronized (lock) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+            }
+            asyncContext.complete();
+        }
+
+        private class BodyWriteListener implements WriteListener {
+            @Override
+            public void onWritePossible() {
+                drain();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                logger.warn("Unable to write resource content: {}", t.getMessage());
+                cancel();
+            }
+        }
+    }
+}
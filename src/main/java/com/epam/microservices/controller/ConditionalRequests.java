@@ -0,0 +1,63 @@
+package com.epam.microservices.controller;
+
+import com.epam.microservices.model.ResourceMetadata;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+
+/**
+ * Evaluates {@code If-None-Match}, {@code If-Modified-Since} (RFC 7232) and {@code If-Range} (RFC 7233)
+ * against the stored validators of a resource, so the answer never needs the content itself.
+ * Resources without validators never match.
+ */
+public final class ConditionalRequests {
+    private static final String ANY_ETAG = "*";
+    private static final String WEAK_ETAG_PREFIX = "W/";
+    private static final String ETAG_QUOTE = "\"";
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Tells whether a cached copy is still current; {@code If-Modified-Since} is ignored when
+     * {@code If-None-Match} is present.
+     */
+    public static boolean isNotModified(HttpHeaders headers, ResourceMetadata metadata) {
+        if (!metadata.hasValidators()) {
+            return false;
+        }
+        List<String> ifNoneMatch = headers.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            return ifNoneMatch.stream()
+                    .anyMatch(eTag -> ANY_ETAG.equals(eTag) || stripWeakPrefix(eTag).equals(metadata.getETag()));
+        }
+        long ifModifiedSince = headers.getIfModifiedSince();
+        return ifModifiedSince >= 0 && metadata.getLastModified().toEpochMilli() <= ifModifiedSince;
+    }
+
+    /**
+     * Tells whether the {@code Range} header may be honoured, that is whether {@code If-Range} is absent or
+     * matches the resource. Entity tags are compared strongly and dates must be exact.
+     */
+    public static boolean isRangeApplicable(HttpHeaders headers, ResourceMetadata metadata) {
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (!metadata.hasValidators()) {
+            return false;
+        }
+        if (ifRange.startsWith(ETAG_QUOTE) || ifRange.startsWith(WEAK_ETAG_PREFIX)) {
+            return ifRange.equals(metadata.getETag());
+        }
+        try {
+            return headers.getFirstDate(HttpHeaders.IF_RANGE) == metadata.getLastModified().toEpochMilli();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String stripWeakPrefix(String eTag) {
+        return eTag.startsWith(WEAK_ETAG_PREFIX) ? eTag.substring(WEAK_ETAG_PREFIX.length()) : eTag;
+    }
+}
@@ -0,0 +1,43 @@
+package com.epam.microservices.controller;
+
+import com.epam.microservices.service.exception.IncorrectRangeException;
+import org.springframework.http.HttpRange;
+
+import java.util.List;
+
+/**
+ * Parses the {@code Range} request header. Standard RFC 7233 values ({@code bytes=0-99},
+ * {@code bytes=100-}, {@code bytes=-100}) are supported alongside the legacy {@code "start - end"}
+ * form, whose end position is exclusive. Only single ranges are accepted.
+ */
+public final class RangeHeaderParser {
+    private static final String BYTES_UNIT_PREFIX = "bytes=";
+    private static final String LEGACY_RANGE_SEPARATOR = "( - )";
+
+    private RangeHeaderParser() {
+    }
+
+    public static HttpRange parse(String rangeHeader) {
+        try {
+            return rangeHeader.startsWith(BYTES_UNIT_PREFIX) ? parseByteRange(rangeHeader) : parseLegacyRange(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            throw new IncorrectRangeException(rangeHeader);
+        }
+    }
+
+    private static HttpRange parseByteRange(String rangeHeader) {
+        List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+        if (ranges.size() != 1) {
+            throw new IncorrectRangeException(rangeHeader);
+        }
+        return ranges.get(0);
+    }
+
+    private static HttpRange parseLegacyRange(String rangeHeader) {
+        String[] positions = rangeHeader.trim().split(LEGACY_RANGE_SEPARATOR);
+        long start = Long.parseLong(positions[0]);
+        return positions.length > 1
+                ? HttpRange.createByteRange(start, Long.parseLong(positions[1]) - 1)
+                : HttpRange.createByteRange(start);
+    }
+}
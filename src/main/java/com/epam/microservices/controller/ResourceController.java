@@ -1,16 +1,54 @@
 package com.epam.microservices.controller;
 
-import com.epam.microservices.service.RabbitMQSender;
+import com.epam.microservices.model.DeletionResult;
+import com.epam.microservices.model.FileRegion;
+import com.epam.microservices.model.PromotionJob;
+import com.epam.microservices.model.PromotionResult;
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.model.ResourceMetadata;
+import com.epam.microservices.model.ResourceQuery;
+import com.epam.microservices.model.ResourceSummary;
+import com.epam.microservices.model.SpooledFile;
+import com.epam.microservices.model.UploadResult;
+import com.epam.microservices.service.BulkPromoter;
+import com.epam.microservices.service.BulkUploader;
+import com.epam.microservices.service.PromotionJobRunner;
 import com.epam.microservices.service.ResourceService;
+import com.epam.microservices.service.exception.IncorrectUploadRequestException;
+import com.epam.microservices.service.exception.TooManyFilesException;
+import com.epam.microservices.service.exception.UnableToSaveFileException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Arrays;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.stream.Collectors.toList;
 
@@ -18,53 +56,334 @@ import static java.util.stream.Collectors.toList;
 @RequestMapping("/resources")
 public class ResourceController {
     private static final String ID = "id";
-    private static final String RANGE = "range";
-    private static final String RANGE_SEPARATOR = "( - )";
+    private static final String BUCKET = "bucket";
+    private static final String NEXT_CURSOR = "nextCursor";
+    private static final String FAILED_ID = "failedId";
+    private static final String BYTES_UNIT = "bytes";
+    private static final String FILE_PART = "file";
+    private static final String RESOURCES = "resources";
+    private static final String FILE_NAME = "fileName";
+    private static final String ERROR = "error";
+    private static final String SPOOL_FILE_PREFIX = "bulk-upload-";
+    private static final String SPOOL_FILE_SUFFIX = ".part";
+    private static final String CONTENT_LENGTH = "contentLength";
+    private static final String CONTENT_TYPE = "contentType";
+    private static final String SHA256 = "sha256";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String JOB_ID = "jobId";
+    private static final String RESOURCE_ID = "resourceId";
+    private static final String STATUS = "status";
+    private static final String ATTEMPTS = "attempts";
+    private static final String CREATED_AT = "createdAt";
+    private static final String UPDATED_AT = "updatedAt";
+    private static final String PROMOTIONS_PATH = "/resources/promotions/";
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private final Logger logger = LoggerFactory.getLogger(ResourceController.class);
     @Autowired
     private ResourceService service;
     @Autowired
-    private RabbitMQSender rabbitMQSender;
+    private BulkUploader bulkUploader;
+    @Autowired
+    private BulkPromoter bulkPromoter;
+    @Autowired
+    private PromotionJobRunner promotionJobRunner;
+    @Autowired
+    private ServletFileUpload servletFileUpload;
+    @Autowired
+    private AsyncContentWriter asyncContentWriter;
+    @Autowired
+    private ObjectMapper objectMapper;
 
+    /**
+     * Reads the multipart body incrementally and pipes the file part straight to the storage while the
+     * request is still arriving, so uploads are never spooled to memory or temp files. The upload event is
+     * published from the outbox in the background.
+     */
     @PostMapping(produces = "application/json")
     @ResponseStatus(HttpStatus.OK)
-    public @ResponseBody Map<String, Integer> create(@RequestParam("file") MultipartFile file) {
-        int createdResourceId = service.create(file);
-        rabbitMQSender.sendUploadedResourceId(createdResourceId);
-        return Map.of(ID, createdResourceId);
+    public @ResponseBody Map<String, Integer> create(HttpServletRequest request) {
+        return Map.of(ID, createFromFilePart(request));
     }
 
-    @GetMapping(value = "/{id}")
+    /**
+     * Creates a resource per file part. The parts are spooled to temporary files while the request is read and
+     * then uploaded concurrently; every file gets its own result.
+     */
+    @PostMapping(value = "/bulk", produces = "application/json")
     @ResponseStatus(HttpStatus.OK)
-    public @ResponseBody ResponseEntity<byte[]> read(@PathVariable(name = "id") Integer id,
-                                                     @RequestHeader(required = false) Map<String, String> headers) {
+    public @ResponseBody Map<String, List<Map<String, Object>>> createAll(HttpServletRequest request) {
+        List<SpooledFile> files = new ArrayList<>();
+        try {
+            spoolFileParts(request, files);
+            List<Map<String, Object>> results = bulkUploader.upload(files).stream()
+                    .map(this::toResultMap)
+                    .collect(toList());
+            return Map.of(RESOURCES, results);
+        } finally {
+            files.forEach(file -> deleteQuietly(file.getPath()));
+        }
+    }
 
-        byte[] fileBytes;
-        ResponseEntity<byte[]> responseEntity;
+    /**
+     * Lists resources in id order, one page per request. The page starts after the id given as {@code after}; the
+     * returned {@code nextCursor} is the {@code after} of the next page and is null on the last one. Resources are
+     * written out as they are read from the database, so a page is never held in memory whatever its size.
+     */
+    @GetMapping(produces = "application/json")
+    public ResponseEntity<StreamingResponseBody> list(@RequestParam(name = "after", required = false) Integer after,
+                                                      @RequestParam(name = "limit", required = false) Integer limit,
+                                                      @RequestParam(name = "bucket", required = false) String bucket,
+                                                      @RequestParam(name = "storageType", required = false)
+                                                      String storageType,
+                                                      @RequestParam(name = "contentType", required = false)
+                                                      String contentType) {
+        ResourceQuery query = service.createQuery(after, limit, bucket, storageType, contentType);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> writePage(query, outputStream));
+    }
 
-        if (!headers.containsKey(RANGE)) {
-            fileBytes = service.getFileBytes(id);
-            responseEntity = new ResponseEntity<>(fileBytes, HttpStatus.OK);
-        } else {
-            List<Integer> range = Arrays.stream(headers.get(RANGE).split(RANGE_SEPARATOR))
-                    .map(Integer::parseInt)
-                    .collect(toList());
-            fileBytes = service.getFileBytes(id, range);
-            responseEntity = new ResponseEntity<>(fileBytes, HttpStatus.PARTIAL_CONTENT);
+    /**
+     * Streams the resource or the requested range. Conditional requests are answered from the stored
+     * validators, so a 304 never reaches the storage. Content held in a local file is sent with sendfile. With
+     * the async storage engine the response is written asynchronously and no entity is returned; the status is then
+     * set by the writer alone.
+     */
+    @GetMapping(value = "/{id}")
+    public @ResponseBody ResponseEntity<StreamingResponseBody> read(@PathVariable(name = "id") Integer id,
+                                                                    @RequestHeader HttpHeaders headers,
+                                                                    HttpServletRequest request,
+                                                                    HttpServletResponse response) {
+        ResourceMetadata metadata = service.getResourceMetadata(id);
+        if (ConditionalRequests.isNotModified(headers, metadata)) {
+            return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), metadata).build();
+        }
+        String rangeHeader = ConditionalRequests.isRangeApplicable(headers, metadata)
+                ? headers.getFirst(HttpHeaders.RANGE)
+                : null;
+        HttpStatus status = rangeHeader == null ? HttpStatus.OK : HttpStatus.PARTIAL_CONTENT;
+
+        if (service.isAsyncEngine()) {
+            CompletableFuture<ResourceContent> content = rangeHeader == null
+                    ? service.getResourceAsync(id)
+                    : service.getResourceAsync(id, RangeHeaderParser.parse(rangeHeader));
+            asyncContentWriter.write(request, response, content,
+                    opened -> contentHeaders(metadata, opened, status).build());
+            return null;
         }
 
-        return responseEntity;
+        ResourceContent content = rangeHeader == null
+                ? service.getResource(id)
+                : service.getResource(id, RangeHeaderParser.parse(rangeHeader));
+        Optional<FileRegion> fileRegion = Sendfile.isSupported(request) ? content.getFileRegion() : Optional.empty();
+        if (fileRegion.isPresent()) {
+            Sendfile.send(request, fileRegion.get());
+            return contentHeaders(metadata, content, status).build();
+        }
+        return contentHeaders(metadata, content, status).body(content::writeTo);
+    }
+
+    /**
+     * Answers from the stored metadata only, the storage is never called.
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> head(@PathVariable(name = "id") Integer id, @RequestHeader HttpHeaders headers) {
+        ResourceMetadata metadata = service.getResourceMetadata(id);
+        if (ConditionalRequests.isNotModified(headers, metadata)) {
+            return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), metadata).build();
+        }
+        return withValidators(ResponseEntity.ok(), metadata)
+                .header(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT)
+                .contentType(getMediaType(metadata, MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                .contentLength(metadata.getContentLength())
+                .build();
+    }
+
+    @GetMapping(value = "/{id}/metadata", produces = "application/json")
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody Map<String, Object> readMetadata(@PathVariable(name = "id") Integer id) {
+        ResourceMetadata metadata = service.getResourceMetadata(id);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(ID, id);
+        result.put(CONTENT_LENGTH, metadata.getContentLength());
+        result.put(CONTENT_TYPE, metadata.getContentType());
+        result.put(SHA256, metadata.getSha256());
+        result.put(LAST_MODIFIED, metadata.getLastModified());
+        return result;
     }
 
     @DeleteMapping(value = "/{id}")
     @ResponseStatus(HttpStatus.OK)
     public @ResponseBody Map<String, List<Integer>> delete(@PathVariable(name = "id") List<Integer> ids) {
-        return Map.of(ID, service.delete(ids));
+        DeletionResult result = service.delete(ids);
+        return Map.of(ID, result.getDeletedIds(), FAILED_ID, result.getFailedIds());
     }
 
-    @PutMapping(value = "/permanent/{id}")
+    /**
+     * Queues the promotion and answers right away with the job, which can be polled at the returned location.
+     */
+    @PutMapping(value = "/permanent/{id}", produces = "application/json")
+    public ResponseEntity<Map<String, Object>> permanentResource(@PathVariable(name = "id") Integer id) {
+        PromotionJob job = promotionJobRunner.submit(id);
+        return ResponseEntity.accepted()
+                .location(URI.create(PROMOTIONS_PATH + job.getId()))
+                .body(toJobMap(job));
+    }
+
+    @GetMapping(value = "/promotions/{jobId}", produces = "application/json")
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody Map<String, Object> readPromotion(@PathVariable(name = "jobId") Long jobId) {
+        return toJobMap(promotionJobRunner.getJob(jobId));
+    }
+
+    /**
+     * Promotes several resources at once; the copies run concurrently and the ones that fail are reported.
+     */
+    @PutMapping(value = "/permanent", produces = "application/json")
     @ResponseStatus(HttpStatus.OK)
-    public void permanentResource(@PathVariable(name = "id") Integer id) {
-        service.permanentResource(id);
+    public @ResponseBody Map<String, List<Integer>> permanentResources(@RequestParam(name = "id") List<Integer> ids) {
+        PromotionResult result = bulkPromoter.promote(ids);
+        return Map.of(ID, result.getPromotedIds(), FAILED_ID, result.getFailedIds());
+    }
+
+    private ResponseEntity.BodyBuilder contentHeaders(ResourceMetadata metadata, ResourceContent content,
+                                                      HttpStatus status) {
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(status)
+                .header(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT)
+                .contentType(getMediaType(metadata, content.getContentType()))
+                .contentLength(content.getContentLength());
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            responseBuilder.header(HttpHeaders.CONTENT_RANGE, content.getRange().toHeaderValue());
+        }
+        return withValidators(responseBuilder, metadata);
+    }
+
+    private <B extends ResponseEntity.HeadersBuilder<B>> B withValidators(B responseBuilder,
+                                                                           ResourceMetadata metadata) {
+        if (metadata.hasValidators()) {
+            responseBuilder.eTag(metadata.getETag())
+                    .lastModified(metadata.getLastModified())
+                    .header(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+        }
+        return responseBuilder;
+    }
+
+    private MediaType getMediaType(ResourceMetadata metadata, String defaultContentType) {
+        return MediaType.parseMediaType(metadata.getContentType() != null
+                ? metadata.getContentType()
+                : defaultContentType);
+    }
+
+    private void spoolFileParts(HttpServletRequest request, List<SpooledFile> files) {
+        if (!ServletFileUpload.isMultipartContent(request)) {
+            throw new IncorrectUploadRequestException(FILE_PART);
+        }
+        try {
+            FileItemIterator items = servletFileUpload.getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                if (item.isFormField() || !FILE_PART.equals(item.getFieldName())) {
+                    continue;
+                }
+                if (files.size() == bulkUploader.getMaxFiles()) {
+                    throw new TooManyFilesException(bulkUploader.getMaxFiles());
+                }
+                Path path = Files.createTempFile(SPOOL_FILE_PREFIX, SPOOL_FILE_SUFFIX);
+                files.add(new SpooledFile(item.getName(), item.getContentType(), path));
+                try (InputStream inputStream = item.openStream()) {
+                    Files.copy(inputStream, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (FileUploadException | IOException e) {
+            throw new UnableToSaveFileException(e);
+        }
+        if (files.isEmpty()) {
+            throw new IncorrectUploadRequestException(FILE_PART);
+        }
+    }
+
+    private void writePage(ResourceQuery query, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(RESOURCES);
+            Optional<Integer> nextCursor;
+            try {
+                nextCursor = service.listResources(query, summary -> writeSummary(generator, summary));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+            generator.writeObjectField(NEXT_CURSOR, nextCursor.orElse(null));
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeSummary(JsonGenerator generator, ResourceSummary summary) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField(ID, summary.getId());
+            generator.writeStringField(BUCKET, summary.getBucket());
+            generator.writeObjectField(CONTENT_LENGTH, summary.getContentLength());
+            generator.writeStringField(CONTENT_TYPE, summary.getContentType());
+            generator.writeStringField(SHA256, summary.getSha256());
+            generator.writeObjectField(LAST_MODIFIED, summary.getLastModified());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> toJobMap(PromotionJob job) {
+        Map<String, Object> jobMap = new LinkedHashMap<>();
+        jobMap.put(JOB_ID, job.getId());
+        jobMap.put(RESOURCE_ID, job.getResourceId());
+        jobMap.put(STATUS, job.getStatus());
+        jobMap.put(ATTEMPTS, job.getAttempts());
+        if (job.getError() != null) {
+            jobMap.put(ERROR, job.getError());
+        }
+        jobMap.put(CREATED_AT, job.getCreatedAt());
+        jobMap.put(UPDATED_AT, job.getUpdatedAt());
+        return jobMap;
+    }
+
+    private Map<String, Object> toResultMap(UploadResult result) {
+        Map<String, Object> resultMap = new LinkedHashMap<>();
+        resultMap.put(FILE_NAME, result.getFileName());
+        if (result.isCreated()) {
+            resultMap.put(ID, result.getId());
+        } else {
+            resultMap.put(ERROR, result.getError());
+        }
+        return resultMap;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Unable to delete spooled file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private int createFromFilePart(HttpServletRequest request) {
+        if (!ServletFileUpload.isMultipartContent(request)) {
+            throw new IncorrectUploadRequestException(FILE_PART);
+        }
+        try {
+            FileItemIterator items = servletFileUpload.getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                if (!item.isFormField() && FILE_PART.equals(item.getFieldName())) {
+                    try (InputStream inputStream = item.openStream()) {
+                        return service.create(item.getName(), item.getContentType(), inputStream);
+                    }
+                }
+            }
+        } catch (FileUploadException | IOException e) {
+            throw new UnableToSaveFileException(e);
+        }
+        throw new IncorrectUploadRequestException(FILE_PART);
     }
 
 }
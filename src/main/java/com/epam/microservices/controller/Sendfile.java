@@ -0,0 +1,30 @@
+package com.epam.microservices.controller;
+
+import com.epam.microservices.model.FileRegion;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Hands a file region over to Tomcat, which writes it to the socket with {@code FileChannel.transferTo} once the
+ * handler returns, so the bytes never pass through the heap. Tomcat offers it on plain-text NIO connectors only;
+ * the response must carry its headers and no body.
+ */
+public final class Sendfile {
+    private static final String SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    private Sendfile() {
+    }
+
+    public static boolean isSupported(HttpServletRequest request) {
+        return Boolean.TRUE.equals(request.getAttribute(SUPPORT_ATTRIBUTE));
+    }
+
+    public static void send(HttpServletRequest request, FileRegion fileRegion) {
+        request.setAttribute(FILENAME_ATTRIBUTE, fileRegion.getPath().toAbsolutePath().toString());
+        request.setAttribute(START_ATTRIBUTE, fileRegion.getPosition());
+        request.setAttribute(END_ATTRIBUTE, fileRegion.getPosition() + fileRegion.getCount());
+    }
+}
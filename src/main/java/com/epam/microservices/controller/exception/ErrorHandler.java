@@ -1,18 +1,37 @@
 package com.epam.microservices.controller.exception;
 
+import com.epam.microservices.service.exception.IncorrectListRequestException;
 import com.epam.microservices.service.exception.IncorrectRangeException;
+import com.epam.microservices.service.exception.IncorrectUploadRequestException;
+import com.epam.microservices.service.exception.PromotionJobNotFoundException;
 import com.epam.microservices.service.exception.ResourceCantBeReachedException;
 import com.epam.microservices.service.exception.ResourceNotFoundException;
+import com.epam.microservices.service.exception.StorageOverloadedException;
+import com.epam.microservices.service.exception.TooManyFilesException;
 import com.epam.microservices.service.exception.UnableToSaveFileException;
+import org.apache.commons.fileupload.FileUploadBase.FileSizeLimitExceededException;
+import org.apache.commons.fileupload.FileUploadBase.SizeLimitExceededException;
+import org.apache.commons.fileupload.FileUploadException;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.lang.reflect.Method;
 
 @RestControllerAdvice
 public class ErrorHandler {
     private static final String ERROR_PROCESSING_REQUEST = "There was an error processing the request";
+    private static final String UNSATISFIED_RANGE = "bytes */";
+    private final ExceptionHandlerMethodResolver handlerMethods =
+            new ExceptionHandlerMethodResolver(ErrorHandler.class);
 
     @ExceptionHandler(ResourceNotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
@@ -21,6 +40,20 @@ public class ErrorHandler {
                 e.getMessage());
     }
 
+    @ExceptionHandler(PromotionJobNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public @ResponseBody ApiError promotionJobNotFoundException(PromotionJobNotFoundException e) {
+        return new ApiError(HttpStatus.NOT_FOUND,
+                e.getMessage());
+    }
+
+    @ExceptionHandler(NoSuchKeyException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public @ResponseBody ApiError noSuchKeyException(NoSuchKeyException e) {
+        return new ApiError(HttpStatus.NOT_FOUND,
+                e.getMessage());
+    }
+
     @ExceptionHandler(ResourceCantBeReachedException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public @ResponseBody ApiError resourceCantBeReachedException(ResourceCantBeReachedException e) {
@@ -29,19 +62,65 @@ public class ErrorHandler {
     }
 
     @ExceptionHandler(IncorrectRangeException.class)
-    @ResponseStatus(HttpStatus.CONFLICT)
-    public @ResponseBody ApiError incorrectRangeException(IncorrectRangeException e) {
-        return new ApiError(HttpStatus.CONFLICT,
+    public ResponseEntity<ApiError> incorrectRangeException(IncorrectRangeException e) {
+        HttpHeaders headers = new HttpHeaders();
+        e.getResourceLength().ifPresent(length -> headers.set(HttpHeaders.CONTENT_RANGE, UNSATISFIED_RANGE + length));
+        return new ResponseEntity<>(new ApiError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, e.getMessage()),
+                headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+
+    @ExceptionHandler(IncorrectUploadRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public @ResponseBody ApiError incorrectUploadRequestException(IncorrectUploadRequestException e) {
+        return new ApiError(HttpStatus.BAD_REQUEST,
                 e.getMessage());
     }
 
-    @ExceptionHandler(UnableToSaveFileException.class)
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    public @ResponseBody ApiError unableToSaveFileException(UnableToSaveFileException e) {
-        return new ApiError(HttpStatus.INTERNAL_SERVER_ERROR,
+    @ExceptionHandler(IncorrectListRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public @ResponseBody ApiError incorrectListRequestException(IncorrectListRequestException e) {
+        return new ApiError(HttpStatus.BAD_REQUEST,
+                e.getMessage());
+    }
+
+    @ExceptionHandler(TooManyFilesException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public @ResponseBody ApiError tooManyFilesException(TooManyFilesException e) {
+        return new ApiError(HttpStatus.BAD_REQUEST,
+                e.getMessage());
+    }
+
+    @ExceptionHandler(StorageOverloadedException.class)
+    public ResponseEntity<ApiError> storageOverloadedException(StorageOverloadedException e) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return new ResponseEntity<>(new ApiError(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()),
+                headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler({FileSizeLimitExceededException.class, SizeLimitExceededException.class})
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public @ResponseBody ApiError sizeLimitExceededException(FileUploadException e) {
+        return new ApiError(HttpStatus.PAYLOAD_TOO_LARGE,
                 e.getMessage());
     }
 
+    /**
+     * Upload size limits are enforced while the body is streamed, so they surface wrapped in the I/O failure
+     * of whatever was reading it.
+     */
+    @ExceptionHandler(UnableToSaveFileException.class)
+    public ResponseEntity<ApiError> unableToSaveFileException(UnableToSaveFileException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof FileSizeLimitExceededException || cause instanceof SizeLimitExceededException) {
+                return new ResponseEntity<>(sizeLimitExceededException((FileUploadException) cause),
+                        HttpStatus.PAYLOAD_TOO_LARGE);
+            }
+        }
+        return new ResponseEntity<>(new ApiError(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage()),
+                HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ApiError otherException() {
@@ -49,4 +128,26 @@ public class ErrorHandler {
                 ERROR_PROCESSING_REQUEST);
     }
 
+    /**
+     * Answers the exception with the handler above that the dispatcher would pick, for responses written outside
+     * of it, e.g. by the async storage engine.
+     */
+    public ResponseEntity<ApiError> toResponseEntity(Throwable e) {
+        Method method = handlerMethods.resolveMethodByThrowable(e);
+        if (method == null) {
+            return new ResponseEntity<>(otherException(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        Object result = method.getParameterCount() == 0
+                ? ReflectionUtils.invokeMethod(method, this)
+                : ReflectionUtils.invokeMethod(method, this, e);
+        if (result instanceof ResponseEntity) {
+            @SuppressWarnings("unchecked")
+            ResponseEntity<ApiError> responseEntity = (ResponseEntity<ApiError>) result;
+            return responseEntity;
+        }
+        ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(method, ResponseStatus.class);
+        return new ResponseEntity<>((ApiError) result,
+                responseStatus != null ? responseStatus.code() : HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
 }
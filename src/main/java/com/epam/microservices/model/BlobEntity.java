@@ -0,0 +1,79 @@
+package com.epam.microservices.model;
+
+import javax.persistence.*;
+import java.util.Objects;
+
+/**
+ * Stored object shared by all resources with the same content in a bucket. The object key is the id of the
+ * resource that uploaded it first ({@code storageId}); a blob whose reference count dropped to zero is garbage
+ * waiting for its object to be removed.
+ */
+@Entity
+@Table(name = "content_blob")
+public class BlobEntity {
+
+    @Id
+    @Column(name="id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+    private String bucket;
+    @Column(name="storage_id")
+    private int storageId;
+    private String sha256;
+    @Column(name="ref_count")
+    private int refCount;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(String bucket) {
+        this.bucket = bucket;
+    }
+
+    public int getStorageId() {
+        return storageId;
+    }
+
+    public void setStorageId(int storageId) {
+        this.storageId = storageId;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BlobEntity that = (BlobEntity) o;
+        return id == that.id && storageId == that.storageId && refCount == that.refCount
+                && Objects.equals(bucket, that.bucket) && Objects.equals(sha256, that.sha256);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, bucket, storageId, sha256, refCount);
+    }
+}
@@ -0,0 +1,39 @@
+package com.epam.microservices.model;
+
+/**
+ * Move of a resource to another bucket: its origin bucket, the hash of its content, or {@code null} when it was
+ * stored before deduplication and owns its object alone, and whether its object was copied to the destination.
+ */
+public class BucketMove {
+    private final FileEntity fileEntity;
+    private final String originBucket;
+    private final String sha256;
+    private final boolean copied;
+
+    public BucketMove(FileEntity fileEntity, String originBucket, String sha256, boolean copied) {
+        this.fileEntity = fileEntity;
+        this.originBucket = originBucket;
+        this.sha256 = sha256;
+        this.copied = copied;
+    }
+
+    public FileEntity getFileEntity() {
+        return fileEntity;
+    }
+
+    public String getOriginBucket() {
+        return originBucket;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public boolean isCopied() {
+        return copied;
+    }
+
+    public boolean isLegacy() {
+        return sha256 == null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.epam.microservices.model;
+
+import java.util.Objects;
+
+/**
+ * Inclusive byte range of a stored resource, as sent in the {@code Content-Range} header.
+ */
+public class ContentRange {
+    private static final String BYTES_UNIT = "bytes";
+    private final long start;
+    private final long end;
+    private final long resourceLength;
+
+    public ContentRange(long start, long end, long resourceLength) {
+        this.start = start;
+        this.end = end;
+        this.resourceLength = resourceLength;
+    }
+
+    public static ContentRange full(long resourceLength) {
+        return new ContentRange(0, resourceLength - 1, resourceLength);
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getResourceLength() {
+        return resourceLength;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    public boolean isFull() {
+        return start == 0 && end == resourceLength - 1;
+    }
+
+    public String toHeaderValue() {
+        return BYTES_UNIT + " " + start + "-" + end + "/" + resourceLength;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ContentRange that = (ContentRange) o;
+        return start == that.start && end == that.end && resourceLength == that.resourceLength;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, end, resourceLength);
+    }
+
+    @Override
+    public String toString() {
+        return toHeaderValue();
+    }
+}
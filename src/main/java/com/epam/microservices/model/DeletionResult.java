@@ -0,0 +1,40 @@
+package com.epam.microservices.model;
+
+import java.util.List;
+import java.util.Objects;
+
+public class DeletionResult {
+    private final List<Integer> deletedIds;
+    private final List<Integer> failedIds;
+
+    public DeletionResult(List<Integer> deletedIds, List<Integer> failedIds) {
+        this.deletedIds = deletedIds;
+        this.failedIds = failedIds;
+    }
+
+    public List<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public List<Integer> getFailedIds() {
+        return failedIds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DeletionResult that = (DeletionResult) o;
+        return deletedIds.equals(that.deletedIds) && failedIds.equals(that.failedIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(deletedIds, failedIds);
+    }
+
+    @Override
+    public String toString() {
+        return "DeletionResult{deletedIds=" + deletedIds + ", failedIds=" + failedIds + "}";
+    }
+}
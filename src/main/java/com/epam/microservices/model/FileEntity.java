@@ -1,6 +1,7 @@
 package com.epam.microservices.model;
 
 import javax.persistence.*;
+import java.time.Instant;
 import java.util.Objects;
 
 @Entity
@@ -9,12 +10,23 @@ public class FileEntity {
 
     @Id
     @Column(name="id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
     @Column(name="content_type")
     private String contentType;
 
     private String bucket;
+    @Column(name="deleted")
+    private boolean deleted;
+    @Column(name="storage_id")
+    private Integer storageId;
+    @Column(name="etag")
+    private String eTag;
+    @Column(name="content_length")
+    private Long contentLength;
+    @Column(name="uploaded_at")
+    private Instant uploadedAt;
+    @Column(name="mime_type")
+    private String mimeType;
 
     public int getId() {
         return id;
@@ -40,6 +52,60 @@ public class FileEntity {
         this.bucket = bucket;
     }
 
+    /**
+     * Returns the key of the stored object holding the content: the id of the resource that uploaded it first.
+     */
+    public int getStorageId() {
+        return storageId != null ? storageId : id;
+    }
+
+    public void setStorageId(Integer storageId) {
+        this.storageId = storageId;
+    }
+
+    /**
+     * Returns the SHA-256 of the content, unquoted.
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public Long getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(Long contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    public Instant getUploadedAt() {
+        return uploadedAt;
+    }
+
+    public void setUploadedAt(Instant uploadedAt) {
+        this.uploadedAt = uploadedAt;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
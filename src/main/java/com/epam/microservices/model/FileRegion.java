@@ -0,0 +1,36 @@
+package com.epam.microservices.model;
+
+import java.nio.file.Path;
+
+/**
+ * Part of a local file holding the content of a resource, which can be sent to the socket without passing
+ * through the heap.
+ */
+public class FileRegion {
+    private final Path path;
+    private final long position;
+    private final long count;
+
+    public FileRegion(Path path, long position, long count) {
+        this.path = path;
+        this.position = position;
+        this.count = count;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return path + "[" + position + "+" + count + "]";
+    }
+}
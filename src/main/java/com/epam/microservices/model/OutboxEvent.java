@@ -0,0 +1,74 @@
+package com.epam.microservices.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Upload event recorded together with its {@link FileEntity}. The event becomes READY once the resource is
+ * stored and SENT once the broker has confirmed it.
+ */
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+
+    public enum Status {
+        PENDING, READY, SENT
+    }
+
+    @Id
+    @Column(name="id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+    @Column(name="resource_id")
+    private int resourceId;
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    @Column(name="created_at")
+    private Instant createdAt;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int getResourceId() {
+        return resourceId;
+    }
+
+    public void setResourceId(int resourceId) {
+        this.resourceId = resourceId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OutboxEvent that = (OutboxEvent) o;
+        return id == that.id && resourceId == that.resourceId && status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, resourceId, status);
+    }
+}
@@ -0,0 +1,128 @@
+package com.epam.microservices.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Promotion of a resource to the permanent bucket run in the background. A job is QUEUED until a worker claims
+ * it, RUNNING while the resource is promoted and SUCCEEDED or FAILED once it is done; a failed attempt puts it
+ * back to QUEUED until {@code nextAttemptAt} while attempts are left. {@code activeResourceId} holds the resource id
+ * while the job is QUEUED or RUNNING only; its unique index lets a resource have one active job at most.
+ */
+@Entity
+@Table(name = "promotion_job")
+public class PromotionJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    @Id
+    @Column(name="id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+    @Column(name="resource_id")
+    private int resourceId;
+    @Column(name="active_resource_id")
+    private Integer activeResourceId;
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    @Column(name="attempts")
+    private int attempts;
+    @Column(name="next_attempt_at")
+    private Instant nextAttemptAt;
+    @Column(name="created_at")
+    private Instant createdAt;
+    @Column(name="updated_at")
+    private Instant updatedAt;
+    @Column(name="error")
+    private String error;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int getResourceId() {
+        return resourceId;
+    }
+
+    public void setResourceId(int resourceId) {
+        this.resourceId = resourceId;
+        updateActiveResourceId();
+    }
+
+    public Integer getActiveResourceId() {
+        return activeResourceId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+        updateActiveResourceId();
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    private void updateActiveResourceId() {
+        activeResourceId = status == Status.QUEUED || status == Status.RUNNING ? resourceId : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PromotionJob that = (PromotionJob) o;
+        return id == that.id && resourceId == that.resourceId && status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, resourceId, status);
+    }
+}
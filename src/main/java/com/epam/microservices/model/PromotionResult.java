@@ -0,0 +1,40 @@
+package com.epam.microservices.model;
+
+import java.util.List;
+import java.util.Objects;
+
+public class PromotionResult {
+    private final List<Integer> promotedIds;
+    private final List<Integer> failedIds;
+
+    public PromotionResult(List<Integer> promotedIds, List<Integer> failedIds) {
+        this.promotedIds = promotedIds;
+        this.failedIds = failedIds;
+    }
+
+    public List<Integer> getPromotedIds() {
+        return promotedIds;
+    }
+
+    public List<Integer> getFailedIds() {
+        return failedIds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PromotionResult that = (PromotionResult) o;
+        return promotedIds.equals(that.promotedIds) && failedIds.equals(that.failedIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(promotedIds, failedIds);
+    }
+
+    @Override
+    public String toString() {
+        return "PromotionResult{promotedIds=" + promotedIds + ", failedIds=" + failedIds + "}";
+    }
+}
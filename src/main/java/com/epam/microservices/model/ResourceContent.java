@@ -0,0 +1,43 @@
+package com.epam.microservices.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+
+/**
+ * Body of a resource (or of a byte range of it) that is streamed to the client instead of being
+ * loaded into memory. {@link #writeTo(OutputStream)} may be called at most once; {@link #close()}
+ * releases the underlying connection when the content is never written.
+ */
+public abstract class ResourceContent implements Closeable {
+    private final String contentType;
+    private final ContentRange range;
+
+    protected ResourceContent(String contentType, ContentRange range) {
+        this.contentType = contentType;
+        this.range = range;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public ContentRange getRange() {
+        return range;
+    }
+
+    public long getContentLength() {
+        return range.getLength();
+    }
+
+    /**
+     * Returns the local file region holding the whole content, when there is one, so that it can be sent with
+     * sendfile instead of {@link #writeTo(OutputStream)}. Such content holds no connection to release.
+     */
+    public Optional<FileRegion> getFileRegion() {
+        return Optional.empty();
+    }
+
+    public abstract void writeTo(OutputStream outputStream) throws IOException;
+}
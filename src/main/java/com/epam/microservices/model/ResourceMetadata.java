@@ -0,0 +1,74 @@
+package com.epam.microservices.model;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Stored description of a resource, enough to answer HEAD and conditional requests without the content.
+ * Resources uploaded before the checksum was recorded have no validators.
+ */
+public class ResourceMetadata {
+    private final String sha256;
+    private final Long contentLength;
+    private final String contentType;
+    private final Instant lastModified;
+
+    public ResourceMetadata(String sha256, Long contentLength, String contentType, Instant lastModified) {
+        this.sha256 = sha256;
+        this.contentLength = contentLength;
+        this.contentType = contentType;
+        this.lastModified = lastModified;
+    }
+
+    public static ResourceMetadata of(FileEntity fileEntity) {
+        return new ResourceMetadata(fileEntity.getETag(), fileEntity.getContentLength(), fileEntity.getMimeType(),
+                fileEntity.getUploadedAt());
+    }
+
+    public boolean hasValidators() {
+        return sha256 != null && lastModified != null;
+    }
+
+    /**
+     * Returns the strong entity tag, quoted as it is sent in headers.
+     */
+    public String getETag() {
+        return sha256 != null ? "\"" + sha256 + "\"" : null;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public Long getContentLength() {
+        return contentLength;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ResourceMetadata that = (ResourceMetadata) o;
+        return Objects.equals(sha256, that.sha256) && Objects.equals(contentLength, that.contentLength)
+                && Objects.equals(contentType, that.contentType) && Objects.equals(lastModified, that.lastModified);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sha256, contentLength, contentType, lastModified);
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceMetadata{sha256=" + sha256 + ", contentLength=" + contentLength
+                + ", contentType=" + contentType + ", lastModified=" + lastModified + "}";
+    }
+}
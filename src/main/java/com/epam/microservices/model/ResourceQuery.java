@@ -0,0 +1,57 @@
+package com.epam.microservices.model;
+
+import java.util.Objects;
+
+/**
+ * One page of the resource listing: up to {@code limit} resources with ids greater than {@code afterId}, in id
+ * order. Null filters match every resource.
+ */
+public class ResourceQuery {
+    private final int afterId;
+    private final int limit;
+    private final String bucket;
+    private final String mimeType;
+
+    public ResourceQuery(int afterId, int limit, String bucket, String mimeType) {
+        this.afterId = afterId;
+        this.limit = limit;
+        this.bucket = bucket;
+        this.mimeType = mimeType;
+    }
+
+    public int getAfterId() {
+        return afterId;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ResourceQuery that = (ResourceQuery) o;
+        return afterId == that.afterId && limit == that.limit && Objects.equals(bucket, that.bucket)
+                && Objects.equals(mimeType, that.mimeType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(afterId, limit, bucket, mimeType);
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceQuery{afterId=" + afterId + ", limit=" + limit + ", bucket=" + bucket
+                + ", mimeType=" + mimeType + "}";
+    }
+}
@@ -0,0 +1,66 @@
+package com.epam.microservices.model;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Listing entry of a resource, read straight from its row without loading the entity.
+ */
+public class ResourceSummary {
+    private final int id;
+    private final String bucket;
+    private final String sha256;
+    private final Long contentLength;
+    private final String contentType;
+    private final Instant lastModified;
+
+    public ResourceSummary(int id, String bucket, String sha256, Long contentLength, String contentType,
+                           Instant lastModified) {
+        this.id = id;
+        this.bucket = bucket;
+        this.sha256 = sha256;
+        this.contentLength = contentLength;
+        this.contentType = contentType;
+        this.lastModified = lastModified;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public Long getContentLength() {
+        return contentLength;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ResourceSummary that = (ResourceSummary) o;
+        return id == that.id && Objects.equals(bucket, that.bucket) && Objects.equals(sha256, that.sha256)
+                && Objects.equals(contentLength, that.contentLength)
+                && Objects.equals(contentType, that.contentType)
+                && Objects.equals(lastModified, that.lastModified);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, bucket, sha256, contentLength, contentType, lastModified);
+    }
+}
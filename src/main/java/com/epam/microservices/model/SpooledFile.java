@@ -0,0 +1,30 @@
+package com.epam.microservices.model;
+
+import java.nio.file.Path;
+
+/**
+ * File part of a bulk upload spooled to a temporary file, so that it can be uploaded after the request is read.
+ */
+public class SpooledFile {
+    private final String fileName;
+    private final String contentType;
+    private final Path path;
+
+    public SpooledFile(String fileName, String contentType, Path path) {
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.path = path;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,61 @@
+package com.epam.microservices.model;
+
+import java.util.Objects;
+
+/**
+ * Outcome of one file of a bulk upload: the id of the created resource or the reason it was not created.
+ */
+public class UploadResult {
+    private final String fileName;
+    private final Integer id;
+    private final String error;
+
+    private UploadResult(String fileName, Integer id, String error) {
+        this.fileName = fileName;
+        this.id = id;
+        this.error = error;
+    }
+
+    public static UploadResult created(String fileName, int id) {
+        return new UploadResult(fileName, id, null);
+    }
+
+    public static UploadResult failed(String fileName, String error) {
+        return new UploadResult(fileName, null, error);
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isCreated() {
+        return id != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UploadResult that = (UploadResult) o;
+        return Objects.equals(fileName, that.fileName) && Objects.equals(id, that.id)
+                && Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileName, id, error);
+    }
+
+    @Override
+    public String toString() {
+        return "UploadResult{fileName=" + fileName + ", id=" + id + ", error=" + error + "}";
+    }
+}
@@ -0,0 +1,175 @@
+package com.epam.microservices.repository;
+
+import com.epam.microservices.model.BlobEntity;
+import com.epam.microservices.model.FileEntity;
+import org.hibernate.LockOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toMap;
+
+@Repository
+public class BlobRepository {
+    private static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+    private static final String SELECT_REFERENCED = "SELECT b FROM BlobEntity b "
+            + "WHERE b.sha256 = :sha256 AND b.bucket = :bucket AND b.refCount > 0 ORDER BY b.id";
+    private static final String SELECT_BY_STORAGE_IDS = "SELECT b FROM BlobEntity b "
+            + "WHERE b.bucket = :bucket AND b.storageId IN :storageIds";
+    private static final String SELECT_UNREFERENCED = "SELECT b FROM BlobEntity b WHERE b.refCount = 0 ORDER BY b.id";
+    private static final String DELETE_UNREFERENCED_BY_IDS = "DELETE FROM BlobEntity b "
+            + "WHERE b.id IN :ids AND b.refCount = 0";
+    private final Logger logger = LoggerFactory.getLogger(BlobRepository.class);
+    @PersistenceContext
+    protected EntityManager entityManager;
+
+    /**
+     * Adds a reference to a live blob with the given content in the bucket, if there is one.
+     */
+    @Transactional
+    public Optional<BlobEntity> reference(String sha256, String bucket) {
+        Optional<BlobEntity> blob = entityManager.createQuery(SELECT_REFERENCED, BlobEntity.class)
+                .setParameter("sha256", sha256)
+                .setParameter("bucket", bucket)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(1)
+                .getResultList()
+                .stream()
+                .findFirst();
+        blob.ifPresent(referencedBlob -> {
+            referencedBlob.setRefCount(referencedBlob.getRefCount() + 1);
+            logger.debug("Blob with storage_id={} in s3_bucket={} referenced {} times",
+                    referencedBlob.getStorageId(), bucket, referencedBlob.getRefCount());
+        });
+        return blob;
+    }
+
+    public Optional<BlobEntity> find(String bucket, int storageId) {
+        return entityManager.createQuery(SELECT_BY_STORAGE_IDS, BlobEntity.class)
+                .setParameter("bucket", bucket)
+                .setParameter("storageIds", List.of(storageId))
+                .setMaxResults(1)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    public boolean isReferenced(String sha256, String bucket) {
+        return !entityManager.createQuery(SELECT_REFERENCED, BlobEntity.class)
+                .setParameter("sha256", sha256)
+                .setParameter("bucket", bucket)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * Creates a blob with one reference. A garbage blob left under the same key is revived instead.
+     */
+    @Transactional
+    public BlobEntity create(String bucket, int storageId, String sha256) {
+        BlobEntity blob = lockByStorageIds(bucket, List.of(storageId)).stream().findFirst().orElseGet(() -> {
+            BlobEntity newBlob = new BlobEntity();
+            newBlob.setBucket(bucket);
+            newBlob.setStorageId(storageId);
+            entityManager.persist(newBlob);
+            return newBlob;
+        });
+        blob.setSha256(sha256);
+        blob.setRefCount(blob.getRefCount() + 1);
+        return blob;
+    }
+
+    /**
+     * Drops the references held by the entities; must run in the transaction that deletes or moves them.
+     * Entities stored before deduplication have no blob, a garbage blob is recorded for their objects.
+     *
+     * @return blobs no longer referenced, their objects can be removed
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<BlobEntity> release(List<FileEntity> fileEntities) {
+        Map<String, Map<Integer, Long>> referenceCounts = fileEntities.stream()
+                .collect(groupingBy(FileEntity::getBucket, groupingBy(FileEntity::getStorageId, counting())));
+        List<BlobEntity> unreferencedBlobs = new ArrayList<>();
+        referenceCounts.forEach((bucket, counts) -> {
+            Map<Integer, BlobEntity> blobs = lockByStorageIds(bucket, counts.keySet()).stream()
+                    .collect(toMap(BlobEntity::getStorageId, Function.identity(), (first, second) -> first));
+            counts.forEach((storageId, count) -> {
+                BlobEntity blob = blobs.get(storageId);
+                if (blob == null) {
+                    blob = new BlobEntity();
+                    blob.setBucket(bucket);
+                    blob.setStorageId(storageId);
+                    entityManager.persist(blob);
+                } else {
+                    blob.setRefCount((int) Math.max(0, blob.getRefCount() - count));
+                }
+                if (blob.getRefCount() == 0) {
+                    unreferencedBlobs.add(blob);
+                }
+            });
+        });
+        return unreferencedBlobs;
+    }
+
+    /**
+     * Gives back the references dropped by {@link #release(List)} for entities that are kept after all; must run in
+     * the transaction that released them.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void retain(List<FileEntity> fileEntities) {
+        Map<String, Map<Integer, Long>> referenceCounts = fileEntities.stream()
+                .collect(groupingBy(FileEntity::getBucket, groupingBy(FileEntity::getStorageId, counting())));
+        referenceCounts.forEach((bucket, counts) -> lockByStorageIds(bucket, counts.keySet()).stream()
+                .collect(toMap(BlobEntity::getStorageId, Function.identity(), (first, second) -> first))
+                .forEach((storageId, blob) -> blob.setRefCount((int) (blob.getRefCount() + counts.get(storageId)))));
+    }
+
+    /**
+     * Locks up to {@code limit} unreferenced blobs, skipping rows locked by reapers of other instances.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<BlobEntity> lockUnreferenced(int limit) {
+        return entityManager.createQuery(SELECT_UNREFERENCED, BlobEntity.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint(LOCK_TIMEOUT_HINT, LockOptions.SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Deletes blobs whose objects have been removed, unless they were revived in the meantime.
+     */
+    @Transactional
+    public void deleteUnreferenced(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        int deletedCount = entityManager.createQuery(DELETE_UNREFERENCED_BY_IDS)
+                .setParameter("ids", ids)
+                .executeUpdate();
+        logger.debug("{} unreferenced blobs deleted from database", deletedCount);
+    }
+
+    private List<BlobEntity> lockByStorageIds(String bucket, Collection<Integer> storageIds) {
+        return entityManager.createQuery(SELECT_BY_STORAGE_IDS, BlobEntity.class)
+                .setParameter("bucket", bucket)
+                .setParameter("storageIds", storageIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+}
@@ -0,0 +1,160 @@
+package com.epam.microservices.repository;
+
+import com.epam.microservices.config.dto.EntityCacheConfig;
+import com.epam.microservices.model.FileEntity;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import static com.epam.microservices.config.RabbitMQConfig.ENTITY_INVALIDATION_EXCHANGE_NAME;
+
+/**
+ * Bounded in-process cache of {@link FileEntity} by id. Changes are applied once the surrounding transaction
+ * commits and invalidations are broadcast to the other instances through a fanout exchange; entries also
+ * expire after a while so a lost broadcast cannot keep a stale entity forever.
+ */
+@Component
+public class FileEntityCache implements MeterBinder {
+    private static final String CACHE_NAME = "file.entity";
+    private static final String ID_SEPARATOR = ",";
+    private final Logger logger = LoggerFactory.getLogger(FileEntityCache.class);
+    private final String instanceId = UUID.randomUUID().toString();
+    @Autowired
+    private EntityCacheConfig config;
+    // Lazy: the template's connection factory binds every MeterBinder, this cache included, while it is created
+    @Autowired
+    @Lazy
+    private AmqpTemplate rabbitTemplate;
+    private IntFunction<FileEntity> loader;
+    private LoadingCache<Integer, FileEntity> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .recordStats()
+                .build(id -> loader.apply(id));
+    }
+
+    /**
+     * Sets how entities are loaded on a miss; the loader returns {@code null} for an absent entity.
+     */
+    public void setLoader(IntFunction<FileEntity> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Returns a copy of the cached entity, loading it on a miss. Absent entities are not cached and are counted as
+     * failed loads.
+     */
+    public Optional<FileEntity> get(int id) {
+        return Optional.ofNullable(cache.get(id)).map(FileEntityCache::copy);
+    }
+
+    public void put(FileEntity fileEntity) {
+        FileEntity cachedEntity = copy(fileEntity);
+        afterCommit(() -> cache.put(cachedEntity.getId(), cachedEntity));
+    }
+
+    /**
+     * Evicts the entity locally right away and again after commit, then tells the other instances to evict it.
+     */
+    public void invalidate(int id) {
+        cache.invalidate(id);
+        afterCommit(() -> {
+            cache.invalidate(id);
+            broadcastInvalidation(String.valueOf(id));
+        });
+    }
+
+    /**
+     * Same as {@link #invalidate(int)} for several entities, broadcast as a single message.
+     */
+    public void invalidateAll(Collection<Integer> ids) {
+        cache.invalidateAll(ids);
+        afterCommit(() -> {
+            cache.invalidateAll(ids);
+            broadcastInvalidation(ids.stream().map(String::valueOf).collect(Collectors.joining(ID_SEPARATOR)));
+        });
+    }
+
+    public void update(FileEntity fileEntity) {
+        put(fileEntity);
+        afterCommit(() -> broadcastInvalidation(String.valueOf(fileEntity.getId())));
+    }
+
+    @RabbitListener(queues = "#{entityInvalidationQueue.name}")
+    public void onInvalidation(Message message) {
+        if (instanceId.equals(message.getMessageProperties().getAppId())) {
+            return;
+        }
+        String ids = new String(message.getBody(), StandardCharsets.UTF_8);
+        Arrays.stream(ids.split(ID_SEPARATOR)).map(Integer::valueOf).forEach(cache::invalidate);
+        logger.debug("FileEntities with ids=[{}] evicted from cache by another instance", ids);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    private void broadcastInvalidation(String ids) {
+        try {
+            rabbitTemplate.convertAndSend(ENTITY_INVALIDATION_EXCHANGE_NAME, "", ids, message -> {
+                message.getMessageProperties().setAppId(instanceId);
+                return message;
+            });
+        } catch (AmqpException e) {
+            logger.warn("Unable to broadcast invalidation of fileEntities with ids=[{}]: {}", ids, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static FileEntity copy(FileEntity fileEntity) {
+        FileEntity copy = new FileEntity();
+        copy.setId(fileEntity.getId());
+        copy.setContentType(fileEntity.getContentType());
+        copy.setBucket(fileEntity.getBucket());
+        copy.setStorageId(fileEntity.getStorageId());
+        copy.setETag(fileEntity.getETag());
+        copy.setContentLength(fileEntity.getContentLength());
+        copy.setUploadedAt(fileEntity.getUploadedAt());
+        copy.setMimeType(fileEntity.getMimeType());
+        return copy;
+    }
+}
@@ -0,0 +1,132 @@
+package com.epam.microservices.repository;
+
+import com.epam.microservices.config.dto.CreateConfig;
+import com.epam.microservices.model.FileEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Group commit for fileEntity inserts: entities created by concurrent requests within the group commit window are
+ * inserted with one batch and one commit. The id is assigned before the entity is queued, so callers can go on
+ * with it while the insert is pending and wait for the returned future only before they depend on the row.
+ */
+@Component
+public class FileEntityWriter {
+    private static final String THREAD_NAME_PREFIX = "file-entity-writer-";
+    private final Logger logger = LoggerFactory.getLogger(FileEntityWriter.class);
+    private final BlockingQueue<PendingCreate> pendingCreates = new LinkedBlockingQueue<>();
+    @Autowired
+    private ResourceRepository repository;
+    @Autowired
+    private IdAllocator idAllocator;
+    @Autowired
+    private CreateConfig createConfig;
+    private ExecutorService writerExecutor;
+
+    @PostConstruct
+    public void init() {
+        writerExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+        writerExecutor.execute(this::write);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writerExecutor.shutdownNow();
+        List<PendingCreate> remaining = new ArrayList<>();
+        pendingCreates.drainTo(remaining);
+        remaining.forEach(pendingCreate -> pendingCreate.created.completeExceptionally(
+                new IllegalStateException("FileEntity writer is shut down")));
+    }
+
+    /**
+     * Assigns an id to the entity and queues its insert.
+     *
+     * @return future completed once the entity and its pending upload event are committed
+     */
+    public CompletableFuture<Void> create(FileEntity fileEntity) {
+        fileEntity.setId(idAllocator.allocate());
+        PendingCreate pendingCreate = new PendingCreate(fileEntity);
+        pendingCreates.add(pendingCreate);
+        return pendingCreate.created;
+    }
+
+    /**
+     * Waits for the first queued entity, then collects the ones queued within the window and commits them
+     * together. When the group commit fails, the entities are retried one by one so that only the offending
+     * create fails; whatever is thrown is caught, so the writer thread survives and no caller is left waiting.
+     */
+    void writeGroup() throws InterruptedException {
+        List<PendingCreate> group = new ArrayList<>();
+        group.add(pendingCreates.take());
+        long windowEnd = System.nanoTime() + createConfig.getGroupCommitWindow().toNanos();
+        while (group.size() < createConfig.getGroupCommitMaxSize()) {
+            PendingCreate pendingCreate = pendingCreates.poll(windowEnd - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (pendingCreate == null) {
+                break;
+            }
+            group.add(pendingCreate);
+        }
+        try {
+            repository.createAll(group.stream().map(pendingCreate -> pendingCreate.fileEntity).collect(toList()));
+            group.forEach(pendingCreate -> pendingCreate.created.complete(null));
+        } catch (Throwable e) {
+            if (group.size() == 1) {
+                fail(group.get(0), e);
+                return;
+            }
+            logger.warn("Unable to create {} fileEntities in database, creating them one by one: {}", group.size(),
+                    e.toString());
+            group.forEach(this::writeOne);
+        }
+    }
+
+    private void writeOne(PendingCreate pendingCreate) {
+        try {
+            repository.createAll(List.of(pendingCreate.fileEntity));
+            pendingCreate.created.complete(null);
+        } catch (Throwable e) {
+            fail(pendingCreate, e);
+        }
+    }
+
+    private void fail(PendingCreate pendingCreate, Throwable e) {
+        logger.error("Unable to create fileEntity with id={} in database: {}", pendingCreate.fileEntity.getId(),
+                e.toString());
+        pendingCreate.created.completeExceptionally(e);
+    }
+
+    private void write() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                writeGroup();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class PendingCreate {
+        private final FileEntity fileEntity;
+        private final CompletableFuture<Void> created = new CompletableFuture<>();
+
+        private PendingCreate(FileEntity fileEntity) {
+            this.fileEntity = fileEntity;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.epam.microservices.repository;
+
+import com.epam.microservices.config.dto.CreateConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Hands out fileEntity ids from blocks reserved in the id_block table, so the database is asked for ids once
+ * per block instead of once per insert. A block is reserved in its own transaction and is never handed out
+ * twice, even across instances; ids left in a block when the service stops are skipped.
+ */
+@Repository
+public class IdAllocator {
+    private static final String FILE_SEQUENCE = "file";
+    private static final String NAME = "name";
+    private static final String SIZE = "size";
+    private static final String RESERVE_BLOCK = "UPDATE id_block SET next_val = next_val + :size WHERE name = :name";
+    private static final String SELECT_NEXT_VALUE = "SELECT next_val FROM id_block WHERE name = :name";
+    private final Logger logger = LoggerFactory.getLogger(IdAllocator.class);
+    @PersistenceContext
+    protected EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private CreateConfig createConfig;
+    private TransactionTemplate blockTransactionTemplate;
+    private int nextId;
+    private int blockEnd;
+
+    @PostConstruct
+    public void init() {
+        blockTransactionTemplate = new TransactionTemplate(transactionManager);
+        blockTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public synchronized int allocate() {
+        if (nextId == blockEnd) {
+            int blockSize = createConfig.getIdBlockSize();
+            Number reservedEnd = blockTransactionTemplate.execute(status -> reserveBlock(blockSize));
+            blockEnd = reservedEnd.intValue();
+            nextId = blockEnd - blockSize;
+            logger.debug("Ids from {} to {} reserved for fileEntities", nextId, blockEnd - 1);
+        }
+        return nextId++;
+    }
+
+    private Number reserveBlock(int blockSize) {
+        entityManager.createNativeQuery(RESERVE_BLOCK)
+                .setParameter(SIZE, blockSize)
+                .setParameter(NAME, FILE_SEQUENCE)
+                .executeUpdate();
+        return (Number) entityManager.createNativeQuery(SELECT_NEXT_VALUE)
+                .setParameter(NAME, FILE_SEQUENCE)
+                .getSingleResult();
+    }
+}
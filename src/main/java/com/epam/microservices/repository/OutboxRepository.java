@@ -0,0 +1,137 @@
+package com.epam.microservices.repository;
+
+import com.epam.microservices.model.OutboxEvent;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import static com.epam.microservices.model.OutboxEvent.Status.PENDING;
+import static com.epam.microservices.model.OutboxEvent.Status.READY;
+import static com.epam.microservices.model.OutboxEvent.Status.SENT;
+
+@Repository
+public class OutboxRepository {
+    private static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+    private static final String SELECT_BY_STATUS = "SELECT e FROM OutboxEvent e WHERE e.status = :status ORDER BY e.id";
+    private static final String UPDATE_STATUS_BY_RESOURCE_ID = "UPDATE OutboxEvent e SET e.status = :status "
+            + "WHERE e.resourceId = :resourceId AND e.status = :currentStatus";
+    private static final String UPDATE_STATUS_BY_RESOURCE_IDS = "UPDATE OutboxEvent e SET e.status = :status "
+            + "WHERE e.resourceId IN :resourceIds AND e.status = :currentStatus";
+    private static final String INSERT_EVENT = "INSERT INTO outbox_event (resource_id, status, created_at) "
+            + "VALUES (?, ?, ?)";
+    private static final String DELETE_BY_RESOURCE_IDS = "DELETE FROM OutboxEvent e "
+            + "WHERE e.resourceId IN :resourceIds AND e.status = :status";
+    private static final String DELETE_BY_STATUS_CREATED_BEFORE = "DELETE FROM OutboxEvent e "
+            + "WHERE e.status = :status AND e.createdAt < :createdBefore";
+    private static final String UPDATE_STATUS_BY_IDS = "UPDATE OutboxEvent e SET e.status = :status WHERE e.id IN :ids";
+    private final Logger logger = LoggerFactory.getLogger(OutboxRepository.class);
+    @PersistenceContext
+    protected EntityManager entityManager;
+
+    /**
+     * Records PENDING upload events with one JDBC batch; must run in the transaction that creates the resources.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void createUploadEvents(Collection<Integer> resourceIds) {
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_EVENT)) {
+                for (Integer resourceId : resourceIds) {
+                    statement.setInt(1, resourceId);
+                    statement.setString(2, PENDING.name());
+                    statement.setTimestamp(3, createdAt);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    @Transactional
+    public void markReady(int resourceId) {
+        int updatedCount = entityManager.createQuery(UPDATE_STATUS_BY_RESOURCE_ID)
+                .setParameter("status", READY)
+                .setParameter("resourceId", resourceId)
+                .setParameter("currentStatus", PENDING)
+                .executeUpdate();
+        logger.debug("{} upload events of resource with id={} ready to be sent", updatedCount, resourceId);
+    }
+
+    @Transactional
+    public void markReady(Collection<Integer> resourceIds) {
+        if (resourceIds.isEmpty()) {
+            return;
+        }
+        int updatedCount = entityManager.createQuery(UPDATE_STATUS_BY_RESOURCE_IDS)
+                .setParameter("status", READY)
+                .setParameter("resourceIds", resourceIds)
+                .setParameter("currentStatus", PENDING)
+                .executeUpdate();
+        logger.debug("{} upload events ready to be sent", updatedCount);
+    }
+
+    /**
+     * Deletes the PENDING upload events of resources whose upload failed.
+     */
+    @Transactional
+    public void deletePending(Collection<Integer> resourceIds) {
+        if (resourceIds.isEmpty()) {
+            return;
+        }
+        int deletedCount = entityManager.createQuery(DELETE_BY_RESOURCE_IDS)
+                .setParameter("resourceIds", resourceIds)
+                .setParameter("status", PENDING)
+                .executeUpdate();
+        logger.debug("{} pending upload events deleted", deletedCount);
+    }
+
+    /**
+     * Deletes the events with the status created before {@code createdBefore}.
+     *
+     * @return number of deleted events
+     */
+    @Transactional
+    public int deleteCreatedBefore(OutboxEvent.Status status, Instant createdBefore) {
+        return entityManager.createQuery(DELETE_BY_STATUS_CREATED_BEFORE)
+                .setParameter("status", status)
+                .setParameter("createdBefore", createdBefore)
+                .executeUpdate();
+    }
+
+    /**
+     * Locks up to {@code limit} READY events, skipping rows locked by publishers of other instances.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<OutboxEvent> lockReady(int limit) {
+        return entityManager.createQuery(SELECT_BY_STATUS, OutboxEvent.class)
+                .setParameter("status", READY)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint(LOCK_TIMEOUT_HINT, LockOptions.SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markSent(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        entityManager.createQuery(UPDATE_STATUS_BY_IDS)
+                .setParameter("status", SENT)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,121 @@
+package com.epam.microservices.repository;
+
+import com.epam.microservices.model.PromotionJob;
+import org.hibernate.LockOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static com.epam.microservices.model.PromotionJob.Status.QUEUED;
+import static com.epam.microservices.model.PromotionJob.Status.RUNNING;
+
+@Repository
+public class PromotionJobRepository {
+    private static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+    private static final String SELECT_ACTIVE_BY_RESOURCE_ID = "SELECT j FROM PromotionJob j "
+            + "WHERE j.resourceId = :resourceId AND j.status IN :statuses ORDER BY j.id";
+    private static final String SELECT_DUE = "SELECT j FROM PromotionJob j "
+            + "WHERE j.status = :status AND j.nextAttemptAt <= :now ORDER BY j.nextAttemptAt, j.id";
+    private static final String UPDATE_STALE = "UPDATE PromotionJob j SET j.status = :status, j.updatedAt = :now "
+            + "WHERE j.status = :currentStatus AND j.updatedAt < :updatedBefore";
+    private static final String UPDATE_HEARTBEAT = "UPDATE PromotionJob j SET j.updatedAt = :now "
+            + "WHERE j.id IN :ids AND j.status = :status";
+    private final Logger logger = LoggerFactory.getLogger(PromotionJobRepository.class);
+    @PersistenceContext
+    protected EntityManager entityManager;
+
+    /**
+     * Queues a promotion of the resource, or returns the job already queued or running for it. A job queued for
+     * the resource at the same time by another instance fails the insert with a
+     * {@link org.springframework.dao.DataIntegrityViolationException}.
+     */
+    @Transactional
+    public PromotionJob enqueue(int resourceId) {
+        List<PromotionJob> activeJobs = entityManager.createQuery(SELECT_ACTIVE_BY_RESOURCE_ID, PromotionJob.class)
+                .setParameter("resourceId", resourceId)
+                .setParameter("statuses", List.of(QUEUED, RUNNING))
+                .setMaxResults(1)
+                .getResultList();
+        if (!activeJobs.isEmpty()) {
+            return activeJobs.get(0);
+        }
+        Instant now = Instant.now();
+        PromotionJob job = new PromotionJob();
+        job.setResourceId(resourceId);
+        job.setStatus(QUEUED);
+        job.setNextAttemptAt(now);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        entityManager.persist(job);
+        entityManager.flush();
+        logger.info("Promotion job with id={} queued for resource with id={}", job.getId(), resourceId);
+        return job;
+    }
+
+    public Optional<PromotionJob> read(long id) {
+        return Optional.ofNullable(entityManager.find(PromotionJob.class, id));
+    }
+
+    /**
+     * Marks up to {@code limit} QUEUED jobs that are due as RUNNING, skipping rows locked by pollers of other
+     * instances.
+     */
+    @Transactional
+    public List<PromotionJob> claimDue(int limit) {
+        Instant now = Instant.now();
+        List<PromotionJob> jobs = entityManager.createQuery(SELECT_DUE, PromotionJob.class)
+                .setParameter("status", QUEUED)
+                .setParameter("now", now)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint(LOCK_TIMEOUT_HINT, LockOptions.SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultList();
+        jobs.forEach(job -> {
+            job.setStatus(RUNNING);
+            job.setUpdatedAt(now);
+        });
+        return jobs;
+    }
+
+    /**
+     * Queues again the jobs left RUNNING since before {@code updatedBefore}, e.g. by a stopped instance.
+     */
+    @Transactional
+    public int requeueStale(Instant updatedBefore) {
+        return entityManager.createQuery(UPDATE_STALE)
+                .setParameter("status", QUEUED)
+                .setParameter("now", Instant.now())
+                .setParameter("currentStatus", RUNNING)
+                .setParameter("updatedBefore", updatedBefore)
+                .executeUpdate();
+    }
+
+    /**
+     * Refreshes {@code updatedAt} of the RUNNING jobs, so they are not taken for stale while they run.
+     */
+    @Transactional
+    public int heartbeat(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createQuery(UPDATE_HEARTBEAT)
+                .setParameter("now", Instant.now())
+                .setParameter("ids", ids)
+                .setParameter("status", RUNNING)
+                .executeUpdate();
+    }
+
+    @Transactional
+    public void update(PromotionJob job) {
+        entityManager.merge(job);
+    }
+}
@@ -1,41 +1,294 @@
 package com.epam.microservices.repository;
 
+import com.epam.microservices.model.BlobEntity;
+import com.epam.microservices.model.BucketMove;
+import com.epam.microservices.config.dto.ListConfig;
 import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.ResourceQuery;
+import com.epam.microservices.model.ResourceSummary;
+import io.micrometer.core.annotation.Timed;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Every public method is timed as {@code resource.repository} tagged by method and exception.
+ */
 @Repository
 public class ResourceRepository {
+    private static final String METER = "resource.repository";
+    private static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+    private static final String IDS = "ids";
+    private static final String AFTER_ID = "afterId";
+    private static final String BUCKET = "bucket";
+    private static final String MIME_TYPE = "mimeType";
+    private static final String SELECT_BY_IDS = "SELECT f FROM FileEntity f WHERE f.id IN :ids AND f.deleted = false";
+    private static final String SELECT_DELETED = "SELECT f FROM FileEntity f WHERE f.deleted = true ORDER BY f.id";
+    private static final String SELECT_PAGE = "SELECT NEW com.epam.microservices.model.ResourceSummary(f.id, "
+            + "f.bucket, f.eTag, f.contentLength, f.mimeType, f.uploadedAt) FROM FileEntity f "
+            + "WHERE f.deleted = false AND f.eTag IS NOT NULL AND f.id > :afterId";
+    private static final String BUCKET_FILTER = " AND f.bucket = :bucket";
+    private static final String MIME_TYPE_FILTER = " AND f.mimeType = :mimeType";
+    private static final String ORDER_BY_ID = " ORDER BY f.id";
+    private static final String DELETE_BY_IDS = "DELETE FROM FileEntity f WHERE f.id IN :ids";
+    private static final String INSERT_FILE = "INSERT INTO file (id, content_type, bucket, deleted, uploaded_at, "
+            + "mime_type) VALUES (?, ?, ?, false, ?, ?)";
+    private static final String MARK_DELETED_BY_IDS = "UPDATE FileEntity f SET f.deleted = true WHERE f.id IN :ids";
     private final Logger logger = LoggerFactory.getLogger(ResourceRepository.class);
     @PersistenceContext
     protected EntityManager entityManager;
+    @Autowired
+    private FileEntityCache cache;
+    @Autowired
+    private OutboxRepository outboxRepository;
+    @Autowired
+    private BlobRepository blobRepository;
+    @Autowired
+    private IdAllocator idAllocator;
+    @Autowired
+    private ListConfig listConfig;
+
+    @PostConstruct
+    public void init() {
+        cache.setLoader(this::find);
+    }
 
+    /**
+     * Inserts the entity together with its pending upload event.
+     */
+    @Timed(METER)
     @Transactional
     public void create(FileEntity fileEntity) {
-        entityManager.persist(fileEntity);
-        logger.info("FileEntity with id={} created in database", fileEntity.getId());
+        createAll(List.of(fileEntity));
+    }
+
+    /**
+     * Inserts the entities with one JDBC batch together with their pending upload events. Entities without an id
+     * get one from the {@link IdAllocator}.
+     */
+    @Timed(METER)
+    @Transactional
+    public void createAll(List<FileEntity> fileEntities) {
+        if (fileEntities.isEmpty()) {
+            return;
+        }
+        fileEntities.stream()
+                .filter(fileEntity -> fileEntity.getId() == 0)
+                .forEach(fileEntity -> fileEntity.setId(idAllocator.allocate()));
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_FILE)) {
+                for (FileEntity fileEntity : fileEntities) {
+                    statement.setInt(1, fileEntity.getId());
+                    statement.setString(2, fileEntity.getContentType());
+                    statement.setString(3, fileEntity.getBucket());
+                    statement.setTimestamp(4, fileEntity.getUploadedAt() != null
+                            ? Timestamp.from(fileEntity.getUploadedAt())
+                            : null);
+                    statement.setString(5, fileEntity.getMimeType());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+        List<Integer> ids = fileEntities.stream().map(FileEntity::getId).collect(toList());
+        outboxRepository.createUploadEvents(ids);
+        fileEntities.forEach(cache::put);
+        logger.debug("{} fileEntities created in database", fileEntities.size());
     }
 
+    @Timed(METER)
     public Optional<FileEntity> read(int id) {
-        logger.info("Getting fileEntity with id={} from database", id);
-        return Optional.ofNullable(entityManager.find(FileEntity.class, id));
+        return cache.get(id);
+    }
+
+    /**
+     * Loads all existing, not deleted entities with one query; unknown ids are skipped.
+     */
+    @Timed(METER)
+    public List<FileEntity> readAll(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return entityManager.createQuery(SELECT_BY_IDS, FileEntity.class)
+                .setParameter(IDS, ids)
+                .getResultList();
     }
 
+    /**
+     * Locks up to {@code limit} entities marked as deleted, skipping rows locked by reapers of other instances.
+     */
+    @Timed(METER)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<FileEntity> lockDeleted(int limit) {
+        return entityManager.createQuery(SELECT_DELETED, FileEntity.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint(LOCK_TIMEOUT_HINT, LockOptions.SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Hands the resources of the page to {@code consumer} while the rows are fetched, without loading entities.
+     * The page seeks past the cursor on an index on id, so reading it costs the same however deep the cursor is.
+     * The timing includes the consumer.
+     */
+    @Timed(METER)
+    @Transactional(readOnly = true)
+    public void readPage(ResourceQuery query, Consumer<ResourceSummary> consumer) {
+        try (Stream<ResourceSummary> page = createPageQuery(query).getResultStream()) {
+            page.forEach(consumer);
+        }
+    }
+
+    /**
+     * Deletes the entities and releases their blobs in one transaction.
+     *
+     * @return blobs no longer referenced by any entity
+     */
+    @Timed(METER)
     @Transactional
-    public void delete(FileEntity fileEntity) {
-        logger.info("Deleting fileEntity with id={} from database", fileEntity.getId());
-        entityManager.remove(entityManager.contains(fileEntity) ? fileEntity : entityManager.merge(fileEntity));
+    public List<BlobEntity> deleteAll(List<FileEntity> fileEntities) {
+        List<BlobEntity> unreferencedBlobs = blobRepository.release(fileEntities);
+        deleteReleased(fileEntities);
+        return unreferencedBlobs;
     }
 
+    /**
+     * Deletes the entities without touching their blobs; must run in the transaction that released them.
+     */
+    @Timed(METER)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteReleased(List<FileEntity> fileEntities) {
+        int deletedCount = executeForIds(DELETE_BY_IDS, fileEntities.stream().map(FileEntity::getId).collect(toList()));
+        logger.debug("{} fileEntities deleted from database", deletedCount);
+    }
+
+    /**
+     * Points the entity at the blob with the same content in the destination bucket and releases its current blob.
+     * A destination blob is created from the entity's object only when {@code copied} tells it is already there.
+     *
+     * @return blobs no longer referenced, or empty when the destination has no such blob and nothing was copied
+     */
+    @Timed(METER)
+    @Transactional
+    public Optional<List<BlobEntity>> moveToBucket(FileEntity fileEntity, String sha256, String destinationBucket,
+                                                   boolean copied) {
+        Optional<BlobEntity> destinationBlob = blobRepository.reference(sha256, destinationBucket);
+        if (destinationBlob.isEmpty() && !copied) {
+            return Optional.empty();
+        }
+        BlobEntity blob = destinationBlob.orElseGet(() ->
+                blobRepository.create(destinationBucket, fileEntity.getStorageId(), sha256));
+        List<BlobEntity> unreferencedBlobs = blobRepository.release(List.of(fileEntity));
+        fileEntity.setBucket(destinationBucket);
+        fileEntity.setStorageId(blob.getStorageId());
+        update(fileEntity);
+        return Optional.of(unreferencedBlobs);
+    }
+
+    /**
+     * Applies the moves of several entities to the destination bucket in one transaction. An entity stored before
+     * deduplication keeps its object key; the others are moved as by
+     * {@link #moveToBucket(FileEntity, String, String, boolean)} and, when that finds nothing to point at, keep
+     * their bucket.
+     *
+     * @return blobs no longer referenced
+     */
+    @Timed(METER)
+    @Transactional
+    public List<BlobEntity> moveAllToBucket(List<BucketMove> moves, String destinationBucket) {
+        List<BlobEntity> unreferencedBlobs = new ArrayList<>();
+        for (BucketMove move : moves) {
+            FileEntity fileEntity = move.getFileEntity();
+            if (move.isLegacy()) {
+                fileEntity.setBucket(destinationBucket);
+                update(fileEntity);
+            } else {
+                moveToBucket(fileEntity, move.getSha256(), destinationBucket, move.isCopied())
+                        .ifPresent(unreferencedBlobs::addAll);
+            }
+        }
+        logger.info("{} fileEntities moved to {}", moves.size(), destinationBucket);
+        return unreferencedBlobs;
+    }
+
+    /**
+     * Marks entities as deleted so they are no longer read; the rows are removed later with {@link #deleteAll(List)}.
+     */
+    @Timed(METER)
+    @Transactional
+    public int markDeleted(Collection<Integer> ids) {
+        int markedCount = executeForIds(MARK_DELETED_BY_IDS, ids);
+        logger.debug("{} fileEntities marked as deleted in database", markedCount);
+        return markedCount;
+    }
+
+    @Timed(METER)
     @Transactional
     public void update(FileEntity fileEntity){
-        logger.info("Updating fileEntity with id={} from database", fileEntity.getId());
+        logger.debug("Updating fileEntity with id={} from database", fileEntity.getId());
         entityManager.merge(fileEntity);
+        cache.update(fileEntity);
+    }
+
+    private int executeForIds(String statement, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int updatedCount = entityManager.createQuery(statement)
+                .setParameter(IDS, ids)
+                .executeUpdate();
+        cache.invalidateAll(ids);
+        return updatedCount;
+    }
+
+    private TypedQuery<ResourceSummary> createPageQuery(ResourceQuery query) {
+        StringBuilder statement = new StringBuilder(SELECT_PAGE);
+        if (query.getBucket() != null) {
+            statement.append(BUCKET_FILTER);
+        }
+        if (query.getMimeType() != null) {
+            statement.append(MIME_TYPE_FILTER);
+        }
+        TypedQuery<ResourceSummary> pageQuery = entityManager
+                .createQuery(statement.append(ORDER_BY_ID).toString(), ResourceSummary.class)
+                .setParameter(AFTER_ID, query.getAfterId())
+                .setHint(QueryHints.FETCH_SIZE, Math.min(query.getLimit(), listConfig.getFetchSize()))
+                .setMaxResults(query.getLimit());
+        if (query.getBucket() != null) {
+            pageQuery.setParameter(BUCKET, query.getBucket());
+        }
+        if (query.getMimeType() != null) {
+            pageQuery.setParameter(MIME_TYPE, query.getMimeType());
+        }
+        return pageQuery;
+    }
+
+    private FileEntity find(int id) {
+        logger.debug("Loading fileEntity with id={} from database", id);
+        FileEntity fileEntity = entityManager.find(FileEntity.class, id);
+        return fileEntity == null || fileEntity.isDeleted() ? null : fileEntity;
     }
 }
@@ -1,45 +1,181 @@
 package com.epam.microservices.service;
 
 import com.epam.microservices.client.ApiGatewayClient;
+import com.epam.microservices.config.dto.StorageCacheConfig;
 import com.epam.microservices.model.StorageModel;
 import com.epam.microservices.service.exception.NoBucketForStorageTypeException;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static com.epam.microservices.service.constant.StorageType.PERMANENT;
 
+/**
+ * Resolves bucket names from the storage list of the storage service. The list is cached and refreshed in the
+ * background, so uploads and promotions never wait for the storage service once it has been loaded; a stale
+ * list is served while a refresh is running or when it fails. The first load is awaited for a bounded time only,
+ * after which the default bucket is used. Resolutions are timed as
+ * {@code resource.storage.bucket.resolution} tagged by where the bucket came from (cache, load or fallback).
+ */
 @Component
 public class BucketNameGetter {
     private static final String PERMANENT_BUCKET = "permanent-resources";
     private static final String STAGING_BUCKET = "staging-resources";
+    private static final String STORAGE_SERVICE_CIRCUIT_BREAKER = "storageServiceCallCB";
+    private static final String THREAD_NAME_PREFIX = "storage-refresh-";
+    private static final String RESOLUTION_METER = "resource.storage.bucket.resolution";
+    private static final String FALLBACK_METER = "resource.storage.bucket.fallbacks";
+    private static final String STORAGE_TAG = "storage";
+    private static final String OUTCOME_TAG = "outcome";
+    private static final String CACHE = "cache";
+    private static final String LOAD = "load";
+    private static final String FALLBACK = "fallback";
+    private static final String ERROR = "error";
     private final Logger logger = LoggerFactory.getLogger(BucketNameGetter.class);
+    private final AtomicReference<CompletableFuture<StorageSnapshot>> refreshInFlight = new AtomicReference<>();
+    private volatile StorageSnapshot snapshot;
 
     @Autowired
     private ApiGatewayClient apiGatewayClient;
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    @Autowired
+    private StorageCacheConfig storageCacheConfig;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    private ScheduledExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+        long refreshIntervalMs = storageCacheConfig.getRefreshInterval().toMillis();
+        refreshExecutor.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
 
-    @CircuitBreaker(name = "storageServiceCallCB", fallbackMethod = "getDefaultBucket")
     public String getBucketForStorage(String storageType) {
-        logger.info("Getting storages for storage type={}", storageType);
-        List<StorageModel> storages = apiGatewayClient.getStorages();
-        String availableStorageTypes = storages.stream()
-                .map(StorageModel::getStorageType)
-                .collect(Collectors.joining(", "));
-        logger.info("Got available storages for storage type={}: [{}]", storageType, availableStorageTypes);
-        return storages.stream()
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = ERROR;
+        try {
+            StorageSnapshot currentSnapshot = snapshot;
+            String source = CACHE;
+            if (currentSnapshot == null) {
+                try {
+                    currentSnapshot = refresh().get(storageCacheConfig.getLoadTimeout().toMillis(),
+                            TimeUnit.MILLISECONDS);
+                    source = LOAD;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    outcome = FALLBACK;
+                    return getDefaultBucket(storageType, e);
+                } catch (ExecutionException | TimeoutException e) {
+                    outcome = FALLBACK;
+                    return getDefaultBucket(storageType, e);
+                }
+            } else if (currentSnapshot.isOlderThan(storageCacheConfig.getRefreshInterval())) {
+                refresh();
+            }
+            String bucket = findBucket(currentSnapshot, storageType);
+            outcome = source;
+            return bucket;
+        } finally {
+            sample.stop(Timer.builder(RESOLUTION_METER)
+                    .tag(STORAGE_TAG, storageType.toLowerCase())
+                    .tag(OUTCOME_TAG, outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    public String getDefaultBucket(String storageType, Exception e) {
+        logger.error("Get default bucket name for storage service call error: {}", e.getMessage());
+        Counter.builder(FALLBACK_METER)
+                .tag(STORAGE_TAG, storageType.toLowerCase())
+                .register(meterRegistry)
+                .increment();
+        return PERMANENT.getValue().equalsIgnoreCase(storageType) ? PERMANENT_BUCKET : STAGING_BUCKET;
+    }
+
+    private String findBucket(StorageSnapshot currentSnapshot, String storageType) {
+        return currentSnapshot.storages.stream()
                 .filter(storage -> storageType.equalsIgnoreCase(storage.getStorageType()))
                 .map(StorageModel::getBucket)
                 .findFirst()
                 .orElseThrow(() -> new NoBucketForStorageTypeException(storageType));
     }
 
-    public String getDefaultBucket(String storageType, Exception e) {
-        logger.error("Get default bucket name for storage service call error: {}", e.getMessage());
-        return PERMANENT.getValue().equalsIgnoreCase(storageType) ? PERMANENT_BUCKET : STAGING_BUCKET;
+    /**
+     * Starts loading the storage list unless a load is already running, in which case the running one is returned.
+     */
+    CompletableFuture<StorageSnapshot> refresh() {
+        CompletableFuture<StorageSnapshot> refresh = new CompletableFuture<>();
+        CompletableFuture<StorageSnapshot> runningRefresh = refreshInFlight.compareAndExchange(null, refresh);
+        if (runningRefresh != null) {
+            return runningRefresh;
+        }
+        try {
+            refreshExecutor.execute(() -> load(refresh));
+        } catch (RejectedExecutionException e) {
+            refreshInFlight.set(null);
+            refresh.completeExceptionally(e);
+        }
+        return refresh;
+    }
+
+    private void load(CompletableFuture<StorageSnapshot> refresh) {
+        try {
+            List<StorageModel> storages = circuitBreakerRegistry.circuitBreaker(STORAGE_SERVICE_CIRCUIT_BREAKER)
+                    .executeSupplier(apiGatewayClient::getStorages);
+            StorageSnapshot loadedSnapshot = new StorageSnapshot(storages, Instant.now());
+            snapshot = loadedSnapshot;
+            refreshInFlight.set(null);
+            refresh.complete(loadedSnapshot);
+            logger.debug("Got available storages: [{}]", storages.stream()
+                    .map(StorageModel::getStorageType)
+                    .collect(Collectors.joining(", ")));
+        } catch (Exception e) {
+            logger.warn("Unable to refresh storages, {} storage list is kept: {}",
+                    snapshot == null ? "no" : "cached", e.getMessage());
+            refreshInFlight.set(null);
+            refresh.completeExceptionally(e);
+        }
+    }
+
+    static class StorageSnapshot {
+        private final List<StorageModel> storages;
+        private final Instant loadedAt;
+
+        private StorageSnapshot(List<StorageModel> storages, Instant loadedAt) {
+            this.storages = storages;
+            this.loadedAt = loadedAt;
+        }
+
+        private boolean isOlderThan(Duration age) {
+            return loadedAt.plus(age).isBefore(Instant.now());
+        }
     }
 }
@@ -0,0 +1,158 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.config.dto.PromotionConfig;
+import com.epam.microservices.model.BlobEntity;
+import com.epam.microservices.model.BucketMove;
+import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.PromotionResult;
+import com.epam.microservices.repository.BlobRepository;
+import com.epam.microservices.repository.ResourceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.epam.microservices.service.constant.StorageType.PERMANENT;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Promotes resources to the permanent bucket in bulk: the objects are copied concurrently on a bounded pool,
+ * the bucket changes of all resources are applied in one transaction and the objects left behind are removed
+ * with batched deletes. A resource whose copy fails does not affect the others.
+ */
+@Component
+public class BulkPromoter {
+    private static final String THREAD_NAME_PREFIX = "promotion-";
+    private final Logger logger = LoggerFactory.getLogger(BulkPromoter.class);
+    @Autowired
+    private ResourceService service;
+    @Autowired
+    private ResourceRepository repository;
+    @Autowired
+    private BlobRepository blobRepository;
+    @Autowired
+    private S3Processor s3Processor;
+    @Autowired
+    private BucketNameGetter bucketNameGetter;
+    @Autowired
+    private PromotionConfig promotionConfig;
+    private ExecutorService copyExecutor;
+
+    @PostConstruct
+    public void init() {
+        copyExecutor = Executors.newFixedThreadPool(promotionConfig.getConcurrency(),
+                new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        copyExecutor.shutdownNow();
+    }
+
+    /**
+     * Promotes the resources that exist; unknown ids are skipped and resources already in the permanent bucket
+     * are reported as promoted.
+     */
+    public PromotionResult promote(List<Integer> ids) {
+        List<FileEntity> fileEntities = repository.readAll(new LinkedHashSet<>(ids));
+        String destinationBucket = bucketNameGetter.getBucketForStorage(PERMANENT.getValue());
+        List<Integer> promotedIds = new ArrayList<>();
+        List<Integer> failedIds = new ArrayList<>();
+        List<BucketMove> moves = new ArrayList<>();
+        for (FileEntity fileEntity : fileEntities) {
+            if (fileEntity.getBucket().equalsIgnoreCase(destinationBucket)) {
+                promotedIds.add(fileEntity.getId());
+            } else {
+                moves.add(newBucketMove(fileEntity, destinationBucket));
+            }
+        }
+
+        List<CompletableFuture<Void>> copies = moves.stream()
+                .map(move -> move.isCopied()
+                        ? CompletableFuture.runAsync(() -> s3Processor.copyResource(move.getOriginBucket(),
+                                destinationBucket, move.getFileEntity().getStorageId()), copyExecutor)
+                        : CompletableFuture.<Void>completedFuture(null))
+                .collect(toList());
+        List<BucketMove> copiedMoves = new ArrayList<>();
+        for (int i = 0; i < moves.size(); i++) {
+            BucketMove move = moves.get(i);
+            try {
+                copies.get(i).join();
+                copiedMoves.add(move);
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.error("Copy of resource with id={} to {} failed: {}", move.getFileEntity().getId(),
+                        destinationBucket, cause.getMessage());
+                failedIds.add(move.getFileEntity().getId());
+            }
+        }
+
+        List<BlobEntity> unreferencedBlobs = repository.moveAllToBucket(copiedMoves, destinationBucket);
+        List<BucketMove> appliedMoves = new ArrayList<>();
+        for (BucketMove move : copiedMoves) {
+            FileEntity fileEntity = move.getFileEntity();
+            if (destinationBucket.equals(fileEntity.getBucket())) {
+                appliedMoves.add(move);
+                promotedIds.add(fileEntity.getId());
+            } else if (promoteAlone(fileEntity.getId())) {
+                // The destination blob was released since it was checked
+                promotedIds.add(fileEntity.getId());
+            } else {
+                failedIds.add(fileEntity.getId());
+            }
+        }
+        deleteLegacyObjects(appliedMoves);
+        service.removeUnreferencedBlobs(unreferencedBlobs);
+        logger.info("{} of {} resources promoted to {}", promotedIds.size(), fileEntities.size(), destinationBucket);
+        return new PromotionResult(promotedIds, failedIds);
+    }
+
+    private BucketMove newBucketMove(FileEntity fileEntity, String destinationBucket) {
+        String originBucket = fileEntity.getBucket();
+        Optional<String> contentHash = blobRepository.find(originBucket, fileEntity.getStorageId())
+                .map(BlobEntity::getSha256);
+        boolean copied = contentHash.map(sha256 -> !blobRepository.isReferenced(sha256, destinationBucket))
+                .orElse(true);
+        return new BucketMove(fileEntity, originBucket, contentHash.orElse(null), copied);
+    }
+
+    private boolean promoteAlone(Integer id) {
+        try {
+            service.permanentResource(id);
+            return true;
+        } catch (Exception e) {
+            logger.error("Promotion of resource with id={} failed: {}", id, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Removes the origin objects of resources stored before deduplication, which nothing else references.
+     */
+    private void deleteLegacyObjects(List<BucketMove> moves) {
+        Map<String, List<Integer>> storageIdsByBucket = moves.stream()
+                .filter(BucketMove::isLegacy)
+                .collect(groupingBy(BucketMove::getOriginBucket,
+                        mapping(move -> move.getFileEntity().getStorageId(), toList())));
+        storageIdsByBucket.forEach((bucket, storageIds) -> {
+            List<Integer> failedStorageIds = s3Processor.deleteResources(bucket, storageIds);
+            if (!failedStorageIds.isEmpty()) {
+                logger.warn("Objects {} of promoted resources left in s3_bucket={}", failedStorageIds, bucket);
+            }
+        });
+    }
+}
@@ -0,0 +1,123 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.config.dto.BulkUploadConfig;
+import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.SpooledFile;
+import com.epam.microservices.model.UploadResult;
+import com.epam.microservices.repository.OutboxRepository;
+import com.epam.microservices.repository.ResourceRepository;
+import com.epam.microservices.service.exception.TooManyFilesException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.epam.microservices.service.constant.StorageType.STAGING;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Creates the resources of a bulk upload: the staging bucket is resolved once, all rows are inserted with one
+ * batch, the files are uploaded concurrently on a bounded pool and the upload events are released together.
+ * A file that fails does not affect the others; its row is removed again.
+ */
+@Component
+public class BulkUploader {
+    private static final String THREAD_NAME_PREFIX = "bulk-upload-";
+    private final Logger logger = LoggerFactory.getLogger(BulkUploader.class);
+    @Autowired
+    private ResourceService service;
+    @Autowired
+    private ResourceRepository repository;
+    @Autowired
+    private OutboxRepository outboxRepository;
+    @Autowired
+    private BucketNameGetter bucketNameGetter;
+    @Autowired
+    private BulkUploadConfig bulkUploadConfig;
+    private ExecutorService uploadExecutor;
+
+    @PostConstruct
+    public void init() {
+        uploadExecutor = Executors.newFixedThreadPool(bulkUploadConfig.getConcurrency(),
+                new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdownNow();
+    }
+
+    public int getMaxFiles() {
+        return bulkUploadConfig.getMaxFiles();
+    }
+
+    /**
+     * @return results in the order of the files
+     */
+    public List<UploadResult> upload(List<SpooledFile> files) {
+        if (files.size() > bulkUploadConfig.getMaxFiles()) {
+            throw new TooManyFilesException(bulkUploadConfig.getMaxFiles());
+        }
+        String stagingBucket = bucketNameGetter.getBucketForStorage(STAGING.getValue());
+        List<FileEntity> fileEntities = files.stream()
+                .map(file -> service.newFileEntity(file.getFileName(), file.getContentType(), stagingBucket))
+                .collect(toList());
+
+        repository.createAll(fileEntities);
+
+        List<CompletableFuture<Void>> uploads = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            SpooledFile file = files.get(i);
+            FileEntity fileEntity = fileEntities.get(i);
+            uploads.add(CompletableFuture.runAsync(() -> store(fileEntity, file), uploadExecutor));
+        }
+        List<UploadResult> results = new ArrayList<>();
+        List<FileEntity> failedEntities = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            String fileName = files.get(i).getFileName();
+            FileEntity fileEntity = fileEntities.get(i);
+            try {
+                uploads.get(i).join();
+                results.add(UploadResult.created(fileName, fileEntity.getId()));
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.error("Upload of {} as resource with id={} failed: {}", fileName, fileEntity.getId(),
+                        cause.getMessage());
+                results.add(UploadResult.failed(fileName, cause.getMessage()));
+                failedEntities.add(fileEntity);
+            }
+        }
+
+        outboxRepository.markReady(results.stream()
+                .filter(UploadResult::isCreated)
+                .map(UploadResult::getId)
+                .collect(toList()));
+        if (!failedEntities.isEmpty()) {
+            service.discard(failedEntities);
+        }
+        logger.info("{} of {} files of bulk upload stored in s3_bucket={}",
+                files.size() - failedEntities.size(), files.size(), stagingBucket);
+        return results;
+    }
+
+    private void store(FileEntity fileEntity, SpooledFile file) {
+        try (InputStream inputStream = Files.newInputStream(file.getPath())) {
+            service.store(fileEntity, inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.model.FileRegion;
+import com.epam.microservices.model.ResourceContent;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+
+/**
+ * Content recording its read once it is over: with the outcome and the number of bytes written when
+ * {@link #writeTo(OutputStream)} returns, or with the whole region when it is handed over to sendfile.
+ */
+class MeteredResourceContent extends ResourceContent {
+    private final ResourceContent content;
+    private final ReadListener onRead;
+
+    MeteredResourceContent(ResourceContent content, ReadListener onRead) {
+        super(content.getContentType(), content.getRange());
+        this.content = content;
+        this.onRead = onRead;
+    }
+
+    @Override
+    public Optional<FileRegion> getFileRegion() {
+        Optional<FileRegion> fileRegion = content.getFileRegion();
+        fileRegion.ifPresent(region -> onRead.onRead(true, region.getCount()));
+        return fileRegion;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+        boolean succeeded = false;
+        try {
+            content.writeTo(countingStream);
+            succeeded = true;
+        } finally {
+            onRead.onRead(succeeded, countingStream.getByteCount());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+
+    interface ReadListener {
+        void onRead(boolean succeeded, long bytes);
+    }
+}
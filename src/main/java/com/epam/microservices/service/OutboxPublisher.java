@@ -0,0 +1,97 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.config.dto.OutboxConfig;
+import com.epam.microservices.model.OutboxEvent;
+import com.epam.microservices.repository.OutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.epam.microservices.model.OutboxEvent.Status.PENDING;
+import static com.epam.microservices.model.OutboxEvent.Status.SENT;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Drains READY upload events from the outbox in batches. A batch stays locked until the broker has
+ * confirmed it and the events are marked SENT in the same transaction, so events are delivered at least once.
+ * SENT events, and PENDING ones whose upload never completed, are purged once they are past their retention.
+ */
+@Component
+public class OutboxPublisher {
+    private static final String THREAD_NAME_PREFIX = "outbox-publisher-";
+    private final Logger logger = LoggerFactory.getLogger(OutboxPublisher.class);
+    @Autowired
+    private OutboxRepository outboxRepository;
+    @Autowired
+    private RabbitMQSender rabbitMQSender;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private OutboxConfig outboxConfig;
+    private ScheduledExecutorService publisherExecutor;
+
+    @PostConstruct
+    public void init() {
+        publisherExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+        long publishIntervalMs = outboxConfig.getPublishInterval().toMillis();
+        publisherExecutor.scheduleWithFixedDelay(this::publish, publishIntervalMs, publishIntervalMs,
+                TimeUnit.MILLISECONDS);
+        long purgeIntervalMs = outboxConfig.getPurgeInterval().toMillis();
+        publisherExecutor.scheduleWithFixedDelay(this::purge, purgeIntervalMs, purgeIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publisherExecutor.shutdownNow();
+    }
+
+    /**
+     * Publishes batch by batch until a batch is not full.
+     */
+    public void publish() {
+        try {
+            int batchSize = outboxConfig.getBatchSize();
+            Integer sentCount;
+            do {
+                sentCount = transactionTemplate.execute(status -> publishBatch(batchSize));
+            } while (sentCount != null && sentCount == batchSize);
+        } catch (Exception e) {
+            logger.warn("Unable to publish upload events, they will be retried: {}", e.getMessage());
+        }
+    }
+
+    public void purge() {
+        try {
+            Instant now = Instant.now();
+            int sentCount = outboxRepository.deleteCreatedBefore(SENT, now.minus(outboxConfig.getSentRetention()));
+            int pendingCount = outboxRepository.deleteCreatedBefore(PENDING,
+                    now.minus(outboxConfig.getPendingRetention()));
+            logger.info("{} sent and {} stale pending upload events purged", sentCount, pendingCount);
+        } catch (Exception e) {
+            logger.warn("Unable to purge upload events, they will be purged later: {}", e.getMessage());
+        }
+    }
+
+    private int publishBatch(int batchSize) {
+        List<OutboxEvent> events = outboxRepository.lockReady(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        rabbitMQSender.sendUploadedResourceIds(events.stream().map(OutboxEvent::getResourceId).collect(toList()));
+        outboxRepository.markSent(events.stream().map(OutboxEvent::getId).collect(toList()));
+        logger.debug("{} upload events sent", events.size());
+        return events.size();
+    }
+}
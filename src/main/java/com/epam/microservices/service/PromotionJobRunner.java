@@ -0,0 +1,168 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.config.dto.PromotionConfig;
+import com.epam.microservices.model.PromotionJob;
+import com.epam.microservices.repository.PromotionJobRepository;
+import com.epam.microservices.repository.ResourceRepository;
+import com.epam.microservices.service.exception.PromotionJobNotFoundException;
+import com.epam.microservices.service.exception.ResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.epam.microservices.model.PromotionJob.Status.FAILED;
+import static com.epam.microservices.model.PromotionJob.Status.QUEUED;
+import static com.epam.microservices.model.PromotionJob.Status.SUCCEEDED;
+
+/**
+ * Runs promotions as background jobs stored in the database, so they survive restarts and are shared by all
+ * instances. A poller claims due jobs while workers are free; a failed attempt is retried with exponential
+ * backoff until the attempts run out. Running jobs are kept fresh with a heartbeat, so only jobs left RUNNING by a
+ * stopped instance are queued again once stale. Promoting a resource that is already permanent does nothing, so running a job twice is harmless.
+ */
+@Component
+public class PromotionJobRunner {
+    private static final String POLLER_THREAD_NAME_PREFIX = "promotion-job-poller-";
+    private static final String WORKER_THREAD_NAME_PREFIX = "promotion-job-";
+    private static final int MAX_BACKOFF_SHIFT = 20;
+    private final Logger logger = LoggerFactory.getLogger(PromotionJobRunner.class);
+    private final Set<Long> runningJobIds = ConcurrentHashMap.newKeySet();
+    @Autowired
+    private ResourceService service;
+    @Autowired
+    private ResourceRepository repository;
+    @Autowired
+    private PromotionJobRepository jobRepository;
+    @Autowired
+    private PromotionConfig promotionConfig;
+    private ScheduledExecutorService pollerExecutor;
+    private ExecutorService workerExecutor;
+
+    @PostConstruct
+    public void init() {
+        workerExecutor = Executors.newFixedThreadPool(promotionConfig.getWorkers(),
+                new CustomizableThreadFactory(WORKER_THREAD_NAME_PREFIX));
+        pollerExecutor = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory(POLLER_THREAD_NAME_PREFIX));
+        long pollIntervalMs = promotionConfig.getPollInterval().toMillis();
+        pollerExecutor.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        long heartbeatIntervalMs = promotionConfig.getHeartbeatInterval().toMillis();
+        pollerExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pollerExecutor.shutdownNow();
+        workerExecutor.shutdownNow();
+    }
+
+    /**
+     * Queues the promotion of an existing resource; a resource already queued or being promoted keeps its job.
+     */
+    public PromotionJob submit(Integer resourceId) {
+        repository.read(resourceId).orElseThrow(() -> new ResourceNotFoundException(resourceId));
+        try {
+            return jobRepository.enqueue(resourceId);
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Promotion of resource with id={} queued concurrently: {}", resourceId, e.getMessage());
+            return jobRepository.enqueue(resourceId);
+        }
+    }
+
+    public PromotionJob getJob(Long jobId) {
+        return jobRepository.read(jobId).orElseThrow(() -> new PromotionJobNotFoundException(jobId));
+    }
+
+    /**
+     * Queues stale jobs again, then hands as many due jobs to the workers as there are free ones.
+     */
+    public void poll() {
+        try {
+            int requeuedCount = jobRepository.requeueStale(Instant.now().minus(promotionConfig.getStaleAfter()));
+            if (requeuedCount > 0) {
+                logger.warn("{} stale promotion jobs queued again", requeuedCount);
+            }
+            int freeWorkers = promotionConfig.getWorkers() - runningJobIds.size();
+            if (freeWorkers <= 0) {
+                return;
+            }
+            for (PromotionJob job : jobRepository.claimDue(freeWorkers)) {
+                runningJobIds.add(job.getId());
+                workerExecutor.execute(() -> {
+                    try {
+                        run(job);
+                    } finally {
+                        runningJobIds.remove(job.getId());
+                    }
+                });
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to poll promotion jobs, polling is retried: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Refreshes the jobs run by this instance.
+     */
+    public void heartbeat() {
+        try {
+            jobRepository.heartbeat(Set.copyOf(runningJobIds));
+        } catch (Exception e) {
+            logger.warn("Unable to refresh running promotion jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Promotes the resource of the job and records the outcome of the attempt.
+     */
+    public void run(PromotionJob job) {
+        job.setAttempts(job.getAttempts() + 1);
+        try {
+            service.permanentResource(job.getResourceId());
+            job.setStatus(SUCCEEDED);
+            job.setError(null);
+            logger.info("Promotion job with id={} succeeded for resource with id={}", job.getId(),
+                    job.getResourceId());
+        } catch (ResourceNotFoundException e) {
+            job.setStatus(FAILED);
+            job.setError(e.getMessage());
+            logger.warn("Promotion job with id={} failed: {}", job.getId(), e.getMessage());
+        } catch (Exception e) {
+            job.setError(e.getMessage());
+            if (job.getAttempts() < promotionConfig.getMaxAttempts()) {
+                Duration backoff = getBackoff(job.getAttempts());
+                job.setStatus(QUEUED);
+                job.setNextAttemptAt(Instant.now().plus(backoff));
+                logger.warn("Promotion job with id={} failed attempt {}, retrying in {}: {}", job.getId(),
+                        job.getAttempts(), backoff, e.getMessage());
+            } else {
+                job.setStatus(FAILED);
+                logger.error("Promotion job with id={} failed after {} attempts: {}", job.getId(),
+                        job.getAttempts(), e.getMessage());
+            }
+        }
+        job.setUpdatedAt(Instant.now());
+        jobRepository.update(job);
+    }
+
+    Duration getBackoff(int attempts) {
+        Duration backoff = promotionConfig.getInitialBackoff()
+                .multipliedBy(1L << Math.min(attempts - 1, MAX_BACKOFF_SHIFT));
+        return backoff.compareTo(promotionConfig.getMaxBackoff()) > 0 ? promotionConfig.getMaxBackoff() : backoff;
+    }
+}
@@ -0,0 +1,131 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.ResourceContent;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Body of an object fetched with the non-blocking client, published as byte buffers. It is meant to be subscribed
+ * to by a non-blocking writer; {@link #writeTo(OutputStream)} bridges it to a blocking stream for callers that have
+ * one, requesting one buffer at a time.
+ */
+public class PublishedResourceContent extends ResourceContent {
+    private static final Object END = new Object();
+    private final Publisher<ByteBuffer> publisher;
+    private boolean consumed;
+
+    public PublishedResourceContent(String contentType, ContentRange range, Publisher<ByteBuffer> publisher) {
+        super(contentType, range);
+        this.publisher = publisher;
+    }
+
+    /**
+     * Hands the body over to {@code subscriber}; like {@link #writeTo(OutputStream)} this may be done only once.
+     */
+    public void subscribe(Subscriber<ByteBuffer> subscriber) {
+        consumed = true;
+        publisher.subscribe(subscriber);
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        Subscription[] subscription = new Subscription[1];
+        subscribe(new Subscriber<>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                signals.add(s);
+            }
+
+            @Override
+            public void onNext(ByteBuffer byteBuffer) {
+                signals.add(byteBuffer);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                signals.add(t);
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add(END);
+            }
+        });
+        try {
+            while (true) {
+                Object signal = signals.take();
+                if (signal instanceof Subscription) {
+                    subscription[0] = (Subscription) signal;
+                    subscription[0].request(1);
+                } else if (signal instanceof ByteBuffer) {
+                    write((ByteBuffer) signal, outputStream);
+                    subscription[0].request(1);
+                } else if (signal instanceof Throwable) {
+                    throw new IOException("Unable to read resource body", (Throwable) signal);
+                } else {
+                    break;
+                }
+            }
+            outputStream.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading resource body");
+        } catch (IOException e) {
+            if (subscription[0] != null) {
+                subscription[0].cancel();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the connection of a body that is never written.
+     */
+    @Override
+    public void close() {
+        if (!consumed) {
+            subscribe(new Subscriber<>() {
+                @Override
+                public void onSubscribe(Subscription s) {
+                    s.cancel();
+                }
+
+                @Override
+                public void onNext(ByteBuffer byteBuffer) {
+                    // Cancelled on subscribe, nothing is requested
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    // Nothing to release
+                }
+
+                @Override
+                public void onComplete() {
+                    // Nothing to release
+                }
+            });
+        }
+    }
+
+    private static void write(ByteBuffer byteBuffer, OutputStream outputStream) throws IOException {
+        if (byteBuffer.hasArray()) {
+            outputStream.write(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(),
+                    byteBuffer.remaining());
+        } else {
+            byte[] bytes = new byte[byteBuffer.remaining()];
+            byteBuffer.get(bytes);
+            outputStream.write(bytes);
+        }
+    }
+}
@@ -1,21 +1,61 @@
 package com.epam.microservices.service;
 
+import com.epam.microservices.config.dto.OutboxConfig;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class RabbitMQSender {
+    private static final String UPLOADED_RESOURCES_IDS_QUEUE = "uploaded_resourcesIds_queue";
+    private static final String PUBLISH_METER = "resource.messaging.publish";
+    private static final String BATCH_SIZE_METER = "resource.messaging.publish.batch.size";
+    private static final String QUEUE_TAG = "queue";
+    private static final String OUTCOME_TAG = "outcome";
+    private static final String SUCCESS = "success";
+    private static final String ERROR = "error";
     private final Logger logger = LoggerFactory.getLogger(RabbitMQSender.class);
     @Autowired
-    private AmqpTemplate rabbitTemplate;
+    private RabbitOperations rabbitTemplate;
+    @Autowired
+    private OutboxConfig outboxConfig;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    @Retryable
-    public void sendUploadedResourceId(Integer id) {
-        rabbitTemplate.convertAndSend("uploaded_resourcesIds_queue", String.valueOf(id));
-        logger.info("Resource with id={} uploaded to queue", id);
+    /**
+     * Publishes the ids on one channel and waits until the broker confirms all of them. The time until the last
+     * confirm is recorded as {@code resource.messaging.publish}.
+     *
+     * @throws org.springframework.amqp.AmqpException when a message is nacked or not confirmed in time
+     */
+    public void sendUploadedResourceIds(List<Integer> ids) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = ERROR;
+        try {
+            rabbitTemplate.invoke(operations -> {
+                ids.forEach(id -> operations.convertAndSend(UPLOADED_RESOURCES_IDS_QUEUE, String.valueOf(id)));
+                operations.waitForConfirmsOrDie(outboxConfig.getConfirmTimeout().toMillis());
+                return null;
+            });
+            outcome = SUCCESS;
+        } finally {
+            sample.stop(Timer.builder(PUBLISH_METER)
+                    .tag(QUEUE_TAG, UPLOADED_RESOURCES_IDS_QUEUE)
+                    .tag(OUTCOME_TAG, outcome)
+                    .register(meterRegistry));
+            DistributionSummary.builder(BATCH_SIZE_METER)
+                    .baseUnit("messages")
+                    .tag(QUEUE_TAG, UPLOADED_RESOURCES_IDS_QUEUE)
+                    .register(meterRegistry)
+                    .record(ids.size());
+        }
+        logger.info("Resources with ids={} uploaded to queue", ids);
     }
 }
@@ -0,0 +1,60 @@
+package com.epam.microservices.service;
+
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Logs per-request events of the hot path at most {@code eventsPerSecond} times a second and drops the rest, so
+ * past that rate a log call costs a couple of atomic increments. Each logged event carries the number of events
+ * dropped before it as the structured {@code suppressed} field.
+ */
+public class RateLimitedLogger {
+    private static final String SUPPRESSED = "suppressed";
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final Logger logger;
+    private final int eventsPerSecond;
+    private final LongSupplier nanoClock;
+    private final AtomicLong windowStart;
+    private final AtomicInteger windowEvents = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public RateLimitedLogger(Logger logger, int eventsPerSecond) {
+        this(logger, eventsPerSecond, System::nanoTime);
+    }
+
+    RateLimitedLogger(Logger logger, int eventsPerSecond, LongSupplier nanoClock) {
+        this.logger = logger;
+        this.eventsPerSecond = eventsPerSecond;
+        this.nanoClock = nanoClock;
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    public void info(String format, Object... arguments) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        if (!tryAcquire()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        Object[] withSuppressed = Arrays.copyOf(arguments, arguments.length + 1);
+        withSuppressed[arguments.length] = kv(SUPPRESSED, suppressed.getAndSet(0));
+        logger.info(format, withSuppressed);
+    }
+
+    private boolean tryAcquire() {
+        long now = nanoClock.getAsLong();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            windowEvents.set(0);
+        }
+        return windowEvents.incrementAndGet() <= eventsPerSecond;
+    }
+}
@@ -1,87 +1,454 @@
 package com.epam.microservices.service;
 
+import com.epam.microservices.config.dto.CreateConfig;
+import com.epam.microservices.config.dto.DeleteConfig;
+import com.epam.microservices.config.dto.ListConfig;
+import com.epam.microservices.model.BlobEntity;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.DeletionResult;
 import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.model.ResourceMetadata;
+import com.epam.microservices.model.ResourceQuery;
+import com.epam.microservices.model.ResourceSummary;
+import com.epam.microservices.repository.BlobRepository;
+import com.epam.microservices.repository.FileEntityWriter;
+import com.epam.microservices.repository.OutboxRepository;
 import com.epam.microservices.repository.ResourceRepository;
+import com.epam.microservices.service.cache.WarmStore;
+import com.epam.microservices.service.cache.WarmUpload;
+import com.epam.microservices.service.constant.StorageType;
+import com.epam.microservices.service.exception.IncorrectListRequestException;
 import com.epam.microservices.service.exception.IncorrectRangeException;
 import com.epam.microservices.service.exception.ResourceNotFoundException;
+import com.epam.microservices.service.exception.UnableToSaveFileException;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpRange;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import static com.epam.microservices.service.constant.StorageType.PERMANENT;
 import static com.epam.microservices.service.constant.StorageType.STAGING;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.partitioningBy;
+import static java.util.stream.Collectors.toList;
 
 @Service
 public class ResourceService {
+    private static final String CONTENT_DIGEST_ALGORITHM = "SHA-256";
+    private static final String AFTER = "after";
+    private static final String LIMIT = "limit";
+    private static final String STORAGE_TYPE = "storageType";
+    private final Logger logger = LoggerFactory.getLogger(ResourceService.class);
     @Autowired
     private ResourceRepository repository;
     @Autowired
+    private OutboxRepository outboxRepository;
+    @Autowired
+    private BlobRepository blobRepository;
+    @Autowired
     private S3Processor s3Processor;
     @Autowired
     private BucketNameGetter bucketNameGetter;
+    @Autowired
+    private DeleteConfig deleteConfig;
+    @Autowired
+    private FileEntityWriter fileEntityWriter;
+    @Autowired(required = false)
+    private S3AsyncProcessor s3AsyncProcessor;
+    @Autowired
+    private WarmStore warmStore;
+    @Autowired
+    private ListConfig listConfig;
+    @Autowired
+    private CreateConfig createConfig;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
-    public Integer create(MultipartFile file) {
-        FileEntity fileEntity = new FileEntity();
-        fileEntity.setContentType(FilenameUtils.getExtension(file.getOriginalFilename()));
+    /**
+     * Stores the resource content once per bucket: the upload is hashed while it is streamed and, when the
+     * bucket already holds the same content, the upload is discarded and the resource points at the stored object.
+     * The hash, length, MIME type and upload time are kept as the metadata of the resource. The entity is
+     * inserted by the group commit writer while the content is being uploaded. When storing fails, the entity and
+     * its pending upload event are deleted again, once the insert is over if it is still pending.
+     */
+    public Integer create(String fileName, String contentType, InputStream inputStream) {
         String stagingBucket = bucketNameGetter.getBucketForStorage(STAGING.getValue());
-        fileEntity.setBucket(stagingBucket);
+        FileEntity fileEntity = newFileEntity(fileName, contentType, stagingBucket);
 
-        repository.create(fileEntity);
+        CompletableFuture<Void> created = fileEntityWriter.create(fileEntity);
 
+        try {
+            store(fileEntity, inputStream, created);
+        } catch (RuntimeException e) {
+            created.thenRun(() -> discardQuietly(fileEntity));
+            throw e;
+        }
+        outboxRepository.markReady(fileEntity.getId());
+
+        return fileEntity.getId();
+    }
+
+    FileEntity newFileEntity(String fileName, String contentType, String bucket) {
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setContentType(FilenameUtils.getExtension(fileName));
+        fileEntity.setBucket(bucket);
+        fileEntity.setUploadedAt(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        fileEntity.setMimeType(getMimeType(fileName, contentType));
+        return fileEntity;
+    }
+
+    /**
+     * Uploads the content of a created entity, or points it at the stored object with the same content,
+     * and records its metadata.
+     */
+    void store(FileEntity fileEntity, InputStream inputStream) {
+        store(fileEntity, inputStream, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Same as {@link #store(FileEntity, InputStream)} for an entity whose insert may still be pending: the content
+     * is uploaded right away, the database is touched only once {@code created} completes. The content is also
+     * kept in the warm store, when enabled, for the reads that follow the upload event.
+     */
+    void store(FileEntity fileEntity, InputStream inputStream, CompletableFuture<Void> created) {
+        String stagingBucket = fileEntity.getBucket();
         int fileEntityId = fileEntity.getId();
-        s3Processor.putResource(file, stagingBucket, fileEntityId);
+        Optional<WarmUpload> warmUpload = warmStore.startUpload();
+        CountingInputStream countingInputStream = new CountingInputStream(
+                warmUpload.map(upload -> upload.capture(inputStream)).orElse(inputStream));
+        MessageDigest contentDigest = getContentDigest();
+        AtomicReference<String> contentHash = new AtomicReference<>();
+        AtomicReference<BlobEntity> storedBlob = new AtomicReference<>();
+        try {
+            boolean stored = s3Processor.putResource(new DigestInputStream(countingInputStream, contentDigest),
+                    fileEntity.getMimeType(), stagingBucket, fileEntityId, () -> {
+                        awaitCreated(created);
+                        contentHash.set(toHex(contentDigest.digest()));
+                        blobRepository.reference(contentHash.get(), stagingBucket).ifPresent(storedBlob::set);
+                        return storedBlob.get() == null;
+                    });
+            if (stored) {
+                blobRepository.create(stagingBucket, fileEntityId, contentHash.get());
+            } else {
+                fileEntity.setStorageId(storedBlob.get().getStorageId());
+                logger.info("Resource with id={} shares stored content with id={}", fileEntityId,
+                        fileEntity.getStorageId());
+            }
+            fileEntity.setETag(contentHash.get());
+            fileEntity.setContentLength(countingInputStream.getByteCount());
+            repository.update(fileEntity);
+            warmUpload.ifPresent(upload -> upload.commit(stagingBucket, fileEntity.getStorageId(),
+                    fileEntity.getMimeType()));
+        } finally {
+            warmUpload.ifPresent(WarmUpload::discard);
+        }
+    }
 
-        return fileEntityId;
+    /**
+     * Deletes entities whose upload failed, together with whatever part of their content was stored.
+     */
+    void discard(List<FileEntity> fileEntities) {
+        outboxRepository.deletePending(fileEntities.stream().map(FileEntity::getId).collect(toList()));
+        removeUnreferencedBlobs(repository.deleteAll(fileEntities));
     }
 
-    public byte[] getFileBytes(Integer id) {
+    /**
+     * Answers from the database only. Rows without an entity tag were never completed by an upload and are
+     * reported as missing.
+     */
+    public ResourceMetadata getResourceMetadata(Integer id) {
         return repository.read(id)
-                .map(fileEntity1 -> s3Processor.getFileBytesFromResource(fileEntity1.getBucket(), id))
+                .filter(fileEntity -> fileEntity.getETag() != null)
+                .map(ResourceMetadata::of)
                 .orElseThrow(() -> new ResourceNotFoundException(id));
     }
 
-    public byte[] getFileBytes(Integer id, List<Integer> range) {
-        byte[] bytes = getFileBytes(id);
-        int start = range.get(0);
-        int end = range.size() > 1 ? range.get(1) : bytes.length;
+    public ResourceContent getResource(Integer id) {
+        return repository.read(id)
+                .map(fileEntity -> s3Processor.getResource(fileEntity.getBucket(), fileEntity.getStorageId()))
+                .orElseThrow(() -> new ResourceNotFoundException(id));
+    }
+
+    public ResourceContent getResource(Integer id, HttpRange range) {
+        FileEntity fileEntity = repository.read(id).orElseThrow(() -> new ResourceNotFoundException(id));
+        long resourceLength = fileEntity.getContentLength() != null
+                ? fileEntity.getContentLength()
+                : s3Processor.getResourceLength(fileEntity.getBucket(), fileEntity.getStorageId());
+        return s3Processor.getResource(fileEntity.getBucket(), fileEntity.getStorageId(),
+                toContentRange(range, resourceLength));
+    }
+
+    /**
+     * Tells whether reads go through the non-blocking storage engine, see {@link #getResourceAsync(Integer)}.
+     */
+    public boolean isAsyncEngine() {
+        return s3AsyncProcessor != null;
+    }
 
-        if (!isRangeCorrect(bytes.length, start, end)) {
-            throw new IncorrectRangeException(start, end);
+    /**
+     * Opens the resource without holding the calling thread while the storage answers. Unknown ids are rejected
+     * right away; with the blocking engine the content is opened on the calling thread.
+     */
+    public CompletableFuture<ResourceContent> getResourceAsync(Integer id) {
+        FileEntity fileEntity = repository.read(id).orElseThrow(() -> new ResourceNotFoundException(id));
+        if (s3AsyncProcessor == null) {
+            return CompletableFuture.completedFuture(
+                    s3Processor.getResource(fileEntity.getBucket(), fileEntity.getStorageId()));
         }
-        return Arrays.copyOfRange(bytes, start, end);
+        return s3AsyncProcessor.getResource(fileEntity.getBucket(), fileEntity.getStorageId());
     }
 
-    public List<Integer> delete(List<Integer> ids) {
-        List<Integer> deletedIds = new ArrayList<>();
-        ids.forEach(id -> {
-            Optional<FileEntity> fileEntity = repository.read(id);
-            if (fileEntity.isPresent()) {
-                s3Processor.deleteResource(fileEntity.get().getBucket(), id);
-                repository.delete(fileEntity.get());
-                deletedIds.add(id);
+    public CompletableFuture<ResourceContent> getResourceAsync(Integer id, HttpRange range) {
+        FileEntity fileEntity = repository.read(id).orElseThrow(() -> new ResourceNotFoundException(id));
+        long resourceLength = fileEntity.getContentLength() != null
+                ? fileEntity.getContentLength()
+                : s3Processor.getResourceLength(fileEntity.getBucket(), fileEntity.getStorageId());
+        ContentRange contentRange = toContentRange(range, resourceLength);
+        if (s3AsyncProcessor == null) {
+            return CompletableFuture.completedFuture(
+                    s3Processor.getResource(fileEntity.getBucket(), fileEntity.getStorageId(), contentRange));
+        }
+        return s3AsyncProcessor.getResource(fileEntity.getBucket(), fileEntity.getStorageId(), contentRange);
+    }
+
+    /**
+     * Validates the listing parameters and resolves a storage type to its bucket, so that a bad request is
+     * rejected before any of the page is written. Missing parameters list from the start, with the default limit
+     * and without filters.
+     */
+    public ResourceQuery createQuery(Integer afterId, Integer limit, String bucket, String storageType,
+                                     String mimeType) {
+        if (afterId != null && afterId < 0) {
+            throw new IncorrectListRequestException(AFTER, afterId);
+        }
+        if (limit != null && (limit < 1 || limit > listConfig.getMaxLimit())) {
+            throw new IncorrectListRequestException(LIMIT, limit);
+        }
+        String queryBucket = bucket;
+        if (storageType != null) {
+            boolean knownStorageType = Arrays.stream(StorageType.values())
+                    .anyMatch(type -> type.getValue().equalsIgnoreCase(storageType));
+            if (!knownStorageType) {
+                throw new IncorrectListRequestException(STORAGE_TYPE, storageType);
             }
+            queryBucket = bucketNameGetter.getBucketForStorage(storageType);
+            if (bucket != null && !bucket.equals(queryBucket)) {
+                throw new IncorrectListRequestException(STORAGE_TYPE, storageType);
+            }
+        }
+        return new ResourceQuery(afterId != null ? afterId : 0, limit != null ? limit : listConfig.getDefaultLimit(),
+                queryBucket, mimeType);
+    }
+
+    /**
+     * Hands the resources of the page to {@code consumer} in id order, as they are read.
+     *
+     * @return cursor of the next page, or empty when this page is the last one
+     */
+    public Optional<Integer> listResources(ResourceQuery query, Consumer<ResourceSummary> consumer) {
+        AtomicInteger count = new AtomicInteger();
+        AtomicInteger lastId = new AtomicInteger();
+        repository.readPage(query, summary -> {
+            consumer.accept(summary);
+            count.incrementAndGet();
+            lastId.set(summary.getId());
+        });
+        return count.get() == query.getLimit() ? Optional.of(lastId.get()) : Optional.empty();
+    }
+
+    /**
+     * Deletes the resources that exist; unknown ids are skipped. In tombstone mode the rows are only marked as
+     * deleted and the objects are removed later by {@link #purgeDeleted(int)}. Otherwise objects no longer
+     * referenced by any resource are removed while their blobs stay locked; resources whose objects could not be
+     * removed are kept and reported as failed.
+     */
+    public DeletionResult delete(List<Integer> ids) {
+        List<FileEntity> fileEntities = repository.readAll(new LinkedHashSet<>(ids));
+        if (deleteConfig.isTombstone()) {
+            List<Integer> foundIds = fileEntities.stream().map(FileEntity::getId).collect(toList());
+            repository.markDeleted(foundIds);
+            return new DeletionResult(foundIds, List.of());
+        }
+        return transactionTemplate.execute(status -> deleteStored(fileEntities));
+    }
+
+    /**
+     * Deletes the rows of up to {@code limit} resources marked as deleted, then the objects no longer referenced.
+     * Rows locked by reapers of other instances are skipped, so each row is purged by one instance.
+     *
+     * @return number of purged resources
+     */
+    public int purgeDeleted(int limit) {
+        List<FileEntity> fileEntities = new ArrayList<>();
+        List<BlobEntity> unreferencedBlobs = transactionTemplate.execute(status -> {
+            fileEntities.addAll(repository.lockDeleted(limit));
+            return repository.deleteAll(fileEntities);
+        });
+        removeUnreferencedBlobs(unreferencedBlobs);
+        return fileEntities.size();
+    }
+
+    /**
+     * Removes the objects of up to {@code limit} blobs whose earlier removal failed or was interrupted. The blobs
+     * stay locked until their objects are removed, so reapers of other instances skip them.
+     *
+     * @return number of removed blobs
+     */
+    public int purgeUnreferencedBlobs(int limit) {
+        return transactionTemplate.execute(status -> {
+            List<BlobEntity> blobs = blobRepository.lockUnreferenced(limit);
+            return blobs.size() - removeUnreferencedBlobs(blobs).size();
         });
-        return deletedIds;
     }
 
     public void permanentResource(Integer id) {
         FileEntity fileEntity = repository.read(id).orElseThrow(() -> new ResourceNotFoundException(id));
         String originBucket = fileEntity.getBucket();
         String destinationBucket = bucketNameGetter.getBucketForStorage(PERMANENT.getValue());
-        if (!originBucket.equalsIgnoreCase(destinationBucket)) {
-            s3Processor.transferResource(originBucket, destinationBucket, id);
+        if (originBucket.equalsIgnoreCase(destinationBucket)) {
+            return;
+        }
+        Optional<String> contentHash = blobRepository.find(originBucket, fileEntity.getStorageId())
+                .map(BlobEntity::getSha256);
+        if (contentHash.isEmpty()) {
+            // Stored before deduplication, the object belongs to this resource alone
+            s3Processor.transferResource(originBucket, destinationBucket, fileEntity.getStorageId());
             fileEntity.setBucket(destinationBucket);
             repository.update(fileEntity);
+            return;
+        }
+        String sha256 = contentHash.get();
+        boolean copied = !blobRepository.isReferenced(sha256, destinationBucket);
+        if (copied) {
+            s3Processor.copyResource(originBucket, destinationBucket, fileEntity.getStorageId());
         }
+        List<BlobEntity> unreferencedBlobs = repository.moveToBucket(fileEntity, sha256, destinationBucket, copied)
+                .orElseGet(() -> {
+                    // The destination blob was released since it was checked
+                    s3Processor.copyResource(originBucket, destinationBucket, fileEntity.getStorageId());
+                    return repository.moveToBucket(fileEntity, sha256, destinationBucket, true).orElseThrow();
+                });
+        removeUnreferencedBlobs(unreferencedBlobs);
     }
 
-    private boolean isRangeCorrect(int length, int start, int end) {
-        return start >= 0 && start <= length - 1 && start != end;
+    private DeletionResult deleteStored(List<FileEntity> fileEntities) {
+        List<BlobEntity> failedBlobs = removeUnreferencedBlobs(blobRepository.release(fileEntities));
+        Map<Boolean, List<FileEntity>> entitiesByFailure = fileEntities.stream()
+                .collect(partitioningBy(fileEntity -> failedBlobs.stream().anyMatch(blob ->
+                        blob.getBucket().equals(fileEntity.getBucket())
+                                && blob.getStorageId() == fileEntity.getStorageId())));
+        List<FileEntity> failedEntities = entitiesByFailure.get(true);
+        if (!failedEntities.isEmpty()) {
+            logger.warn("{} resources kept, their objects could not be removed", failedEntities.size());
+            blobRepository.retain(failedEntities);
+        }
+        repository.deleteReleased(entitiesByFailure.get(false));
+        return new DeletionResult(entitiesByFailure.get(false).stream().map(FileEntity::getId).collect(toList()),
+                failedEntities.stream().map(FileEntity::getId).collect(toList()));
+    }
+
+    /**
+     * Removes the objects of the blobs from storage and then the blobs themselves.
+     *
+     * @return blobs whose objects could not be removed
+     */
+    List<BlobEntity> removeUnreferencedBlobs(List<BlobEntity> blobs) {
+        Map<String, List<BlobEntity>> blobsByBucket = blobs.stream().collect(groupingBy(BlobEntity::getBucket));
+        List<BlobEntity> failedBlobs = new ArrayList<>();
+        blobsByBucket.forEach((bucket, bucketBlobs) -> {
+            List<Integer> failedStorageIds = s3Processor.deleteResources(bucket,
+                    bucketBlobs.stream().map(BlobEntity::getStorageId).collect(toList()));
+            bucketBlobs.stream()
+                    .filter(blob -> failedStorageIds.contains(blob.getStorageId()))
+                    .forEach(failedBlobs::add);
+        });
+        blobRepository.deleteUnreferenced(blobs.stream()
+                .filter(blob -> !failedBlobs.contains(blob))
+                .map(BlobEntity::getId)
+                .collect(toList()));
+        return failedBlobs;
+    }
+
+    private String getMimeType(String fileName, String contentType) {
+        if (contentType != null) {
+            try {
+                return MediaType.parseMediaType(contentType).toString();
+            } catch (InvalidMediaTypeException e) {
+                logger.warn("Invalid content type of {} ignored: {}", fileName, e.getMessage());
+            }
+        }
+        return MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+    }
+
+    private void discardQuietly(FileEntity fileEntity) {
+        try {
+            discard(List.of(fileEntity));
+        } catch (RuntimeException e) {
+            logger.error("Unable to discard resource with id={} after its upload failed: {}", fileEntity.getId(),
+                    e.getMessage());
+        }
+    }
+
+    private void awaitCreated(CompletableFuture<Void> created) {
+        try {
+            created.get(createConfig.getInsertTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnableToSaveFileException(e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new UnableToSaveFileException(e);
+        }
+    }
+
+    private MessageDigest getContentDigest() {
+        try {
+            return MessageDigest.getInstance(CONTENT_DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] digest) {
+        return String.format("%064x", new BigInteger(1, digest));
+    }
+
+    private ContentRange toContentRange(HttpRange range, long resourceLength) {
+        long start = range.getRangeStart(resourceLength);
+        long end = range.getRangeEnd(resourceLength);
+        if (start >= resourceLength || start > end) {
+            throw new IncorrectRangeException(range.toString(), resourceLength);
+        }
+        return new ContentRange(start, end, resourceLength);
     }
 }
@@ -0,0 +1,92 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.ResourceContent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Storage engine on the non-blocking S3 client, selected with {@code aws.engine=async}. Reads complete
+ * on the client's event loop and their bodies are published without a thread per transfer; writes, copies and
+ * deletes stay on {@link S3Processor}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "aws", name = "engine", havingValue = "async")
+public class S3AsyncProcessor {
+    private static final String REQUESTS_METER = "resource.s3.requests";
+    private static final String OPERATION_TAG = "operation";
+    private static final String BUCKET_TAG = "bucket";
+    private static final String OUTCOME_TAG = "outcome";
+    private static final String SUCCESS = "success";
+    private static final String ERROR = "error";
+    private static final String GET = "get";
+    private static final String GET_RANGE = "get_range";
+    private static final String RANGE_PREFIX = "bytes=";
+    private static final String RESOURCE_ID = "id";
+    private static final String S3_BUCKET = "s3_bucket";
+    private static final String RANGE = "range";
+    private static final int STREAM_LOG_RATE = 10;
+    private final Logger logger = LoggerFactory.getLogger(S3AsyncProcessor.class);
+    private final RateLimitedLogger streamLogger = new RateLimitedLogger(logger, STREAM_LOG_RATE);
+    @Autowired
+    private S3AsyncClient s3AsyncClient;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public CompletableFuture<ResourceContent> getResource(String bucket, Integer resourceId) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(String.valueOf(resourceId))
+                .build();
+        return getObject(GET, request).thenApply(publisher -> {
+            streamLogger.info("Resource with {} opened for streaming from {}", kv(RESOURCE_ID, resourceId),
+                    kv(S3_BUCKET, bucket));
+            GetObjectResponse response = publisher.response();
+            return new PublishedResourceContent(getContentType(response), ContentRange.full(response.contentLength()),
+                    publisher);
+        });
+    }
+
+    public CompletableFuture<ResourceContent> getResource(String bucket, Integer resourceId, ContentRange range) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(String.valueOf(resourceId))
+                .range(RANGE_PREFIX + range.getStart() + "-" + range.getEnd())
+                .build();
+        return getObject(GET_RANGE, request).thenApply(publisher -> {
+            streamLogger.info("Resource with {} opened for streaming {} from {}", kv(RESOURCE_ID, resourceId),
+                    kv(RANGE, range), kv(S3_BUCKET, bucket));
+            return new PublishedResourceContent(getContentType(publisher.response()), range, publisher);
+        });
+    }
+
+    private CompletableFuture<ResponsePublisher<GetObjectResponse>> getObject(String operation,
+                                                                             GetObjectRequest request) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return s3AsyncClient.getObject(request, AsyncResponseTransformer.<GetObjectResponse>toPublisher())
+                .whenComplete((publisher, e) -> sample.stop(Timer.builder(REQUESTS_METER)
+                        .tag(OPERATION_TAG, operation)
+                        .tag(BUCKET_TAG, request.bucket())
+                        .tag(OUTCOME_TAG, e == null ? SUCCESS : ERROR)
+                        .register(meterRegistry)));
+    }
+
+    private String getContentType(GetObjectResponse response) {
+        return response.contentType() != null ? response.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+}
@@ -0,0 +1,153 @@
+package com.epam.microservices.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.epam.microservices.config.dto.ConcurrencyLimitConfig;
+import com.epam.microservices.service.exception.StorageOverloadedException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive limit on concurrent S3 calls (AIMD). A call that completes in time raises the limit by
+ * {@code 1 / limit}, i.e. by about one per limit-worth of calls; a throttling response or a call slower than
+ * the slow call threshold multiplies it by the backoff ratio, once for all the calls that were already in flight.
+ * Calls over the limit wait up to the queue timeout and are then rejected with
+ * {@link StorageOverloadedException}, so a throttling store slows the service down instead of parking every
+ * request thread.
+ */
+@Component
+public class S3ConcurrencyLimiter implements MeterBinder {
+    private static final Set<String> THROTTLING_ERROR_CODES = Set.of("SlowDown", "Throttling",
+            "ThrottlingException", "RequestLimitExceeded", "TooManyRequests", "ServiceUnavailable");
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private final Logger logger = LoggerFactory.getLogger(S3ConcurrencyLimiter.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    private final AtomicLong rejections = new AtomicLong();
+    @Autowired
+    private ConcurrencyLimitConfig config;
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+
+    @PostConstruct
+    public void init() {
+        limit = config.getInitialLimit();
+        lastDecreaseNanos = System.nanoTime();
+    }
+
+    public <T> T call(Supplier<T> s3Call) {
+        if (!config.isEnabled()) {
+            return s3Call.get();
+        }
+        acquire();
+        long startedAt = System.nanoTime();
+        boolean throttled = false;
+        try {
+            return s3Call.get();
+        } catch (AmazonServiceException e) {
+            throttled = isThrottling(e);
+            throw e;
+        } finally {
+            release(startedAt, throttled);
+        }
+    }
+
+    public void run(Runnable s3Call) {
+        call(() -> {
+            s3Call.run();
+            return null;
+        });
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("resource.s3.concurrency.limit", this, S3ConcurrencyLimiter::getLimit)
+                .register(registry);
+        Gauge.builder("resource.s3.concurrency.in.flight", this, S3ConcurrencyLimiter::getInFlight)
+                .register(registry);
+        FunctionCounter.builder("resource.s3.concurrency.rejections", this, S3ConcurrencyLimiter::getRejectionCount)
+                .register(registry);
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            long remainingNanos = config.getQueueTimeout().toNanos();
+            while (inFlight >= (int) limit) {
+                if (remainingNanos <= 0) {
+                    rejections.incrementAndGet();
+                    throw new StorageOverloadedException(config.getRetryAfter().toSeconds());
+                }
+                remainingNanos = permitReleased.awaitNanos(remainingNanos);
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageOverloadedException(config.getRetryAfter().toSeconds());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long startedAt, boolean throttled) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            inFlight--;
+            if (throttled || now - startedAt > config.getSlowCallThreshold().toNanos()) {
+                // Calls started before the last decrease saw the old limit and must not decrease it again
+                if (startedAt - lastDecreaseNanos >= 0) {
+                    limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+                    lastDecreaseNanos = now;
+                    logger.warn("S3 concurrency limit decreased to {}, throttled={}", (int) limit, throttled);
+                }
+            } else {
+                limit = Math.min(config.getMaxLimit(), limit + 1 / limit);
+            }
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isThrottling(AmazonServiceException e) {
+        return e.getStatusCode() == SERVICE_UNAVAILABLE || e.getStatusCode() == TOO_MANY_REQUESTS
+                || e.getErrorCode() != null && THROTTLING_ERROR_CODES.contains(e.getErrorCode());
+    }
+}
@@ -0,0 +1,117 @@
+package com.epam.microservices.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.epam.microservices.config.dto.CopyConfig;
+import com.epam.microservices.service.exception.StorageOverloadedException;
+import com.epam.microservices.service.exception.UnableToSaveFileException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Copies objects between buckets on the S3 side. Objects smaller than the multipart threshold are copied with a
+ * single request; larger ones as a multipart upload whose part ranges are copied concurrently (UploadPartCopy)
+ * through a pool shared by all copies, which also lifts the 5 GB limit of a single copy.
+ */
+@Component
+public class S3MultipartCopier {
+    private static final String THREAD_NAME_PREFIX = "s3-part-copy-";
+    private final Logger logger = LoggerFactory.getLogger(S3MultipartCopier.class);
+    @Autowired
+    private AmazonS3 s3;
+    @Autowired
+    private CopyConfig copyConfig;
+    @Autowired
+    private S3ConcurrencyLimiter limiter;
+    private ExecutorService partCopyExecutor;
+
+    @PostConstruct
+    public void init() {
+        partCopyExecutor = Executors.newFixedThreadPool(copyConfig.getThreads(),
+                new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partCopyExecutor.shutdown();
+    }
+
+    public void copy(String sourceBucket, String key, String destinationBucket) {
+        ObjectMetadata sourceMetadata = limiter.call(() -> s3.getObjectMetadata(sourceBucket, key));
+        if (sourceMetadata.getContentLength() < copyConfig.getMultipartThreshold().toBytes()) {
+            limiter.call(() -> s3.copyObject(sourceBucket, key, destinationBucket, key));
+            return;
+        }
+        copyInParts(sourceBucket, key, destinationBucket, sourceMetadata);
+    }
+
+    private void copyInParts(String sourceBucket, String key, String destinationBucket,
+                             ObjectMetadata sourceMetadata) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(sourceMetadata.getContentType());
+        metadata.setUserMetadata(sourceMetadata.getUserMetadata());
+        String uploadId = limiter.call(() -> s3.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(destinationBucket, key, metadata))).getUploadId();
+        long contentLength = sourceMetadata.getContentLength();
+        long partSize = copyConfig.getPartSize().toBytes();
+        List<CompletableFuture<PartETag>> parts = new ArrayList<>();
+        try {
+            for (long firstByte = 0; firstByte < contentLength; firstByte += partSize) {
+                CopyPartRequest request = new CopyPartRequest()
+                        .withSourceBucketName(sourceBucket)
+                        .withSourceKey(key)
+                        .withDestinationBucketName(destinationBucket)
+                        .withDestinationKey(key)
+                        .withUploadId(uploadId)
+                        .withPartNumber(parts.size() + 1)
+                        .withFirstByte(firstByte)
+                        .withLastByte(Math.min(firstByte + partSize, contentLength) - 1);
+                parts.add(CompletableFuture.supplyAsync(() -> limiter.call(() -> s3.copyPart(request)).getPartETag(),
+                        partCopyExecutor));
+            }
+            List<PartETag> partETags = parts.stream().map(CompletableFuture::join).collect(toList());
+            limiter.call(() -> s3.completeMultipartUpload(new CompleteMultipartUploadRequest(destinationBucket, key,
+                    uploadId, partETags)));
+            logger.debug("Object key={} copied to s3_bucket={} in {} parts", key, destinationBucket,
+                    partETags.size());
+        } catch (Exception e) {
+            abort(destinationBucket, key, uploadId, parts);
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof StorageOverloadedException) {
+                throw (StorageOverloadedException) cause;
+            }
+            throw new UnableToSaveFileException(e);
+        }
+    }
+
+    private void abort(String bucket, String key, String uploadId, List<CompletableFuture<PartETag>> parts) {
+        parts.forEach(part -> part.handle((partETag, e) -> partETag).join());
+        try {
+            s3.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+            logger.info("Multipart copy of object key={} to s3_bucket={} aborted", key, bucket);
+        } catch (SdkClientException e) {
+            logger.error("Unable to abort multipart copy of object key={} to s3_bucket={}: {}",
+                    key, bucket, e.getMessage());
+        }
+    }
+}
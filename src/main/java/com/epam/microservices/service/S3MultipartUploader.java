@@ -0,0 +1,251 @@
+package com.epam.microservices.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.epam.microservices.config.dto.UploadConfig;
+import com.epam.microservices.service.exception.StorageOverloadedException;
+import com.epam.microservices.service.exception.UnableToSaveFileException;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Uploads objects to S3 with a single PUT when they are smaller than the multipart threshold and as a
+ * multipart upload otherwise. Parts are read sequentially from the stream and sent concurrently through
+ * a pool shared by all uploads; at most {@code maxConcurrentParts} parts of one upload are held in memory.
+ */
+@Component
+public class S3MultipartUploader {
+    private static final String THREAD_NAME_PREFIX = "s3-part-upload-";
+    private static final long RETRY_INITIAL_INTERVAL_MS = 200;
+    private static final double RETRY_MULTIPLIER = 2;
+    private static final long RETRY_MAX_INTERVAL_MS = 2000;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final Map<Class<? extends Throwable>, Boolean> RETRYABLE_EXCEPTIONS =
+            Map.of(SdkClientException.class, true);
+    private final Logger logger = LoggerFactory.getLogger(S3MultipartUploader.class);
+    @Autowired
+    private AmazonS3 s3;
+    @Autowired
+    private UploadConfig uploadConfig;
+    @Autowired
+    private S3ConcurrencyLimiter limiter;
+    private ExecutorService partUploadExecutor;
+    private RetryTemplate partRetryTemplate;
+
+    @PostConstruct
+    public void init() {
+        int threads = uploadConfig.getThreads();
+        partUploadExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(threads * uploadConfig.getMaxConcurrentParts()),
+                new CustomizableThreadFactory(THREAD_NAME_PREFIX),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        partRetryTemplate = RetryTemplate.builder()
+                .exponentialBackoff(RETRY_INITIAL_INTERVAL_MS, RETRY_MULTIPLIER, RETRY_MAX_INTERVAL_MS)
+                .customPolicy(new SimpleRetryPolicy(uploadConfig.getPartMaxAttempts(), RETRYABLE_EXCEPTIONS, true) {
+                    @Override
+                    public boolean canRetry(RetryContext context) {
+                        return super.canRetry(context) && !isClientError(context.getLastThrowable());
+                    }
+                })
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partUploadExecutor.shutdown();
+    }
+
+    /**
+     * @param contentLength length of the stream or -1 when it is not known in advance
+     */
+    public void upload(String bucket, String key, InputStream inputStream, long contentLength,
+                       ObjectMetadata metadata) {
+        upload(bucket, key, inputStream, contentLength, metadata, () -> true);
+    }
+
+    /**
+     * Uploads the object only if {@code commitCondition} holds once the stream has been read to the end; otherwise
+     * nothing is stored and the parts sent so far are aborted. A multipart upload checks the condition as soon as
+     * the end of the stream is reached, before its last part is sent.
+     *
+     * @param contentLength length of the stream or -1 when it is not known in advance
+     * @return whether the object was stored
+     */
+    public boolean upload(String bucket, String key, InputStream inputStream, long contentLength,
+                          ObjectMetadata metadata, BooleanSupplier commitCondition) {
+        try {
+            if (contentLength >= 0 && contentLength < uploadConfig.getMultipartThreshold().toBytes()) {
+                byte[] bytes = IOUtils.toByteArray(inputStream, contentLength);
+                return putObject(bucket, key, bytes, bytes.length, metadata, commitCondition);
+            }
+            int threshold = Math.toIntExact(uploadConfig.getMultipartThreshold().toBytes());
+            ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(INITIAL_BUFFER_SIZE, threshold));
+            long headLength = IOUtils.copyLarge(inputStream, head, 0, threshold);
+            if (headLength < threshold) {
+                return putObject(bucket, key, head.toByteArray(), Math.toIntExact(headLength), metadata,
+                        commitCondition);
+            }
+            return uploadInParts(bucket, key, new SequenceInputStream(head.toInputStream(), inputStream), metadata,
+                    commitCondition);
+        } catch (IOException e) {
+            throw new UnableToSaveFileException(e);
+        }
+    }
+
+    private boolean putObject(String bucket, String key, byte[] bytes, int length, ObjectMetadata metadata,
+                              BooleanSupplier commitCondition) {
+        if (!commitCondition.getAsBoolean()) {
+            logger.debug("Object key={} not put to s3_bucket={}, commit condition not met", key, bucket);
+            return false;
+        }
+        metadata.setContentLength(length);
+        limiter.call(() ->
+                s3.putObject(new PutObjectRequest(bucket, key, new ByteArrayInputStream(bytes, 0, length), metadata)));
+        logger.debug("Object key={} of {} bytes put to s3_bucket={}", key, length, bucket);
+        return true;
+    }
+
+    private boolean uploadInParts(String bucket, String key, InputStream inputStream, ObjectMetadata metadata,
+                                  BooleanSupplier commitCondition) {
+        String uploadId = limiter.call(() ->
+                s3.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key, metadata))).getUploadId();
+        Semaphore partsInFlight = new Semaphore(uploadConfig.getMaxConcurrentParts());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<PartETag>> parts = new ArrayList<>();
+        try {
+            byte[] part = new byte[getPartSize()];
+            int partLength = IOUtils.read(inputStream, part);
+            while (partLength > 0 && failure.get() == null) {
+                partsInFlight.acquire();
+                // Reads ahead so the last part is known before it is sent
+                byte[] nextPart = partLength < part.length ? null : new byte[part.length];
+                int nextPartLength = nextPart == null ? 0 : IOUtils.read(inputStream, nextPart);
+                if (nextPartLength == 0 && !commitCondition.getAsBoolean()) {
+                    partsInFlight.release();
+                    abort(bucket, key, uploadId, parts);
+                    logger.debug("Object key={} not uploaded to s3_bucket={}, commit condition not met", key, bucket);
+                    return false;
+                }
+                PartUpload partUpload = new PartUpload(bucket, key, uploadId, parts.size() + 1, part, partLength);
+                parts.add(CompletableFuture.supplyAsync(() -> uploadPart(partUpload), partUploadExecutor)
+                        .whenComplete((partETag, e) -> {
+                            partsInFlight.release();
+                            if (e != null) {
+                                failure.compareAndSet(null, e);
+                            }
+                        }));
+                part = nextPart;
+                partLength = nextPartLength;
+            }
+            List<PartETag> partETags = parts.stream().map(CompletableFuture::join).collect(toList());
+            limiter.call(() ->
+                    s3.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags)));
+            logger.debug("Object key={} uploaded to s3_bucket={} in {} parts", key, bucket, partETags.size());
+            return true;
+        } catch (Exception e) {
+            abort(bucket, key, uploadId, parts);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof StorageOverloadedException) {
+                throw (StorageOverloadedException) cause;
+            }
+            throw new UnableToSaveFileException(e);
+        }
+    }
+
+    private PartETag uploadPart(PartUpload partUpload) {
+        return partRetryTemplate.execute(context -> limiter.call(() -> s3.uploadPart(new UploadPartRequest()
+                        .withBucketName(partUpload.bucket)
+                        .withKey(partUpload.key)
+                        .withUploadId(partUpload.uploadId)
+                        .withPartNumber(partUpload.partNumber)
+                        .withInputStream(new ByteArrayInputStream(partUpload.bytes, 0, partUpload.length))
+                        .withPartSize(partUpload.length)))
+                .getPartETag());
+    }
+
+    private void abort(String bucket, String key, String uploadId, List<CompletableFuture<PartETag>> parts) {
+        parts.forEach(part -> part.handle((partETag, e) -> partETag).join());
+        try {
+            s3.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+            logger.info("Multipart upload of object key={} to s3_bucket={} aborted", key, bucket);
+        } catch (SdkClientException e) {
+            logger.error("Unable to abort multipart upload of object key={} to s3_bucket={}: {}",
+                    key, bucket, e.getMessage());
+        }
+    }
+
+    /**
+     * Rejected requests (4xx other than timeouts and throttling) fail the same way on every attempt.
+     */
+    private static boolean isClientError(Throwable e) {
+        if (!(e instanceof AmazonServiceException)) {
+            return false;
+        }
+        HttpStatus status = HttpStatus.resolve(((AmazonServiceException) e).getStatusCode());
+        return status != null && status.is4xxClientError()
+                && status != HttpStatus.REQUEST_TIMEOUT && status != HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    private int getPartSize() {
+        return Math.toIntExact(uploadConfig.getPartSize().toBytes());
+    }
+
+    private static class PartUpload {
+        private final String bucket;
+        private final String key;
+        private final String uploadId;
+        private final int partNumber;
+        private final byte[] bytes;
+        private final int length;
+
+        private PartUpload(String bucket, String key, String uploadId, int partNumber, byte[] bytes, int length) {
+            this.bucket = bucket;
+            this.key = key;
+            this.uploadId = uploadId;
+            this.partNumber = partNumber;
+            this.bytes = bytes;
+            this.length = length;
+        }
+    }
+}
@@ -1,65 +1,392 @@
 package com.epam.microservices.service;
 
+import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
-import com.epam.microservices.service.exception.ResourceCantBeReachedException;
-import com.epam.microservices.service.exception.UnableToSaveFileException;
-import org.apache.commons.io.IOUtils;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.service.cache.BlockCache;
+import com.epam.microservices.service.cache.BlockCachedResourceContent;
+import com.epam.microservices.service.cache.FlightKey;
+import com.epam.microservices.service.cache.ObjectInfo;
+import com.epam.microservices.service.cache.SingleFlightFetcher;
+import com.epam.microservices.service.cache.WarmEntry;
+import com.epam.microservices.service.cache.WarmResourceContent;
+import com.epam.microservices.service.cache.WarmStore;
+import com.epam.microservices.service.exception.StorageOverloadedException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.io.input.CountingInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
+import static java.util.stream.Collectors.toList;
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Storage operations on S3. Every S3 request is timed as {@code resource.s3.requests} tagged by operation, bucket
+ * and outcome; uploads and downloads also record the bytes they move to or from S3 as {@code resource.s3.bytes}.
+ * Reads, whether served by S3 or by a local cache, are timed until their content is written as
+ * {@code resource.reads} and their size is recorded as {@code resource.read.bytes}, both tagged by source.
+ */
 @Component
 public class S3Processor {
+    private static final long UNKNOWN_LENGTH = -1;
+    private static final int MAX_KEYS_PER_DELETE = 1000;
+    private static final String REQUESTS_METER = "resource.s3.requests";
+    private static final String BYTES_METER = "resource.s3.bytes";
+    private static final String READS_METER = "resource.reads";
+    private static final String READ_BYTES_METER = "resource.read.bytes";
+    private static final String OPERATION_TAG = "operation";
+    private static final String BUCKET_TAG = "bucket";
+    private static final String OUTCOME_TAG = "outcome";
+    private static final String SOURCE_TAG = "source";
+    private static final String WARM_STORE_SOURCE = "warm_store";
+    private static final String BLOCK_CACHE_SOURCE = "block_cache";
+    private static final String SINGLE_FLIGHT_SOURCE = "single_flight";
+    private static final String S3_SOURCE = "s3";
+    private static final String UNKNOWN_SOURCE = "unknown";
+    private static final String SUCCESS = "success";
+    private static final String ERROR = "error";
+    private static final String PUT = "put";
+    private static final String GET = "get";
+    private static final String GET_RANGE = "get_range";
+    private static final String HEAD = "head";
+    private static final String DELETE_BATCH = "delete_batch";
+    private static final String COPY = "copy";
+    private static final String TRANSFER = "transfer";
+    private static final String RESOURCE_ID = "id";
+    private static final String S3_BUCKET = "s3_bucket";
+    private static final String RANGE = "range";
+    private static final int STREAM_LOG_RATE = 10;
     private final Logger logger = LoggerFactory.getLogger(S3Processor.class);
+    private final RateLimitedLogger streamLogger = new RateLimitedLogger(logger, STREAM_LOG_RATE);
     @Autowired
     private AmazonS3 s3;
+    @Autowired
+    private S3MultipartUploader uploader;
+    @Autowired
+    private S3MultipartCopier copier;
+    @Autowired
+    private BlockCache blockCache;
+    @Autowired
+    private SingleFlightFetcher singleFlightFetcher;
+    @Autowired
+    private WarmStore warmStore;
+    @Autowired
+    private S3ConcurrencyLimiter limiter;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    public void putResource(MultipartFile file, String bucket, Integer resourceId) {
-        try {
-            s3.putObject(bucket, String.valueOf(resourceId),
-                    file.getInputStream(), getUploadObjectMetadata(file));
+    /**
+     * Uploads a stream of unknown length; large streams are sent as multipart parts while they are read.
+     */
+    public void putResource(InputStream inputStream, String contentType, String bucket, Integer resourceId) {
+        putResource(inputStream, contentType, bucket, resourceId, () -> true);
+    }
+
+    /**
+     * Uploads a stream of unknown length and stores it only if {@code commitCondition} holds once the stream
+     * has been read to the end.
+     *
+     * @return whether the object was stored
+     */
+    public boolean putResource(InputStream inputStream, String contentType, String bucket, Integer resourceId,
+                               BooleanSupplier commitCondition) {
+        CountingInputStream countingStream = new CountingInputStream(inputStream);
+        boolean stored = timedCall(PUT, bucket, () -> uploader.upload(bucket, String.valueOf(resourceId),
+                countingStream, UNKNOWN_LENGTH, getUploadObjectMetadata(contentType), commitCondition));
+        recordBytes(PUT, bucket, countingStream.getByteCount());
+        if (stored) {
             logger.info("Resource with id={} uploaded to s3_bucket={}", resourceId, bucket);
-        } catch (Exception e) {
-            throw new UnableToSaveFileException(e);
+        } else {
+            logger.info("Resource with id={} not stored in s3_bucket={}", resourceId, bucket);
         }
+        return stored;
     }
 
-    public byte[] getFileBytesFromResource(String bucket, Integer resourceId) {
-        S3Object s3object = s3.getObject(bucket, String.valueOf(resourceId));
-        logger.info("Resource with id={} downloaded from s3_bucket={}", resourceId, bucket);
-        try {
-            return IOUtils.toByteArray(s3object.getObjectContent());
-        } catch (IOException e) {
-            throw new ResourceCantBeReachedException(resourceId);
+    public ResourceContent getResource(String bucket, Integer resourceId) {
+        return meteredRead(GET, bucket, () -> openResource(bucket, resourceId));
+    }
+
+    public ResourceContent getResource(String bucket, Integer resourceId, ContentRange range) {
+        return meteredRead(GET_RANGE, bucket, () -> openResource(bucket, resourceId, range));
+    }
+
+    public long getResourceLength(String bucket, Integer resourceId) {
+        return getResourceInfo(bucket, resourceId).getLength();
+    }
+
+    public ObjectInfo getResourceInfo(String bucket, Integer resourceId) {
+        return timedCall(HEAD, bucket, () -> blockCache.isEnabled()
+                ? getObjectInfo(bucket, resourceId)
+                : toObjectInfo(getObjectMetadata(bucket, resourceId)));
+    }
+
+    /**
+     * Deletes resources from the bucket with multi-object delete requests of up to 1000 keys each.
+     *
+     * @return ids of the resources that could not be deleted
+     */
+    public List<Integer> deleteResources(String bucket, List<Integer> resourceIds) {
+        List<Integer> failedIds = new ArrayList<>();
+        for (int from = 0; from < resourceIds.size(); from += MAX_KEYS_PER_DELETE) {
+            List<Integer> batch = resourceIds.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, resourceIds.size()));
+            batch.forEach(resourceId -> {
+                blockCache.invalidate(bucket, resourceId);
+                warmStore.invalidate(bucket, resourceId);
+            });
+            failedIds.addAll(timedCall(DELETE_BATCH, bucket, () -> deleteBatch(bucket, batch)));
         }
+        logger.info("{} resources deleted from s3_bucket={}, {} failed",
+                resourceIds.size() - failedIds.size(), bucket, failedIds.size());
+        return failedIds;
     }
 
-    public void deleteResource(String bucket, Integer resourceId) {
-        s3.deleteObject(bucket, String.valueOf(resourceId));
-        logger.info("Resource with id={} deleted from s3_bucket={}", resourceId, bucket);
+    public void copyResource(String originBucket, String destinationBucket, Integer resourceId) {
+        timedRun(COPY, destinationBucket, () -> copier.copy(originBucket, String.valueOf(resourceId),
+                destinationBucket));
+        logger.info("Resource with id={} copied to {}", resourceId, destinationBucket);
     }
 
     public void transferResource(String originBucket, String destinationBucket, Integer resourceId) {
         String key = String.valueOf(resourceId);
-        s3.copyObject(originBucket, key, destinationBucket, key);
-        logger.info("Resource with id={} copied to {}", resourceId, destinationBucket);
-        s3.deleteObject(originBucket, key);
+        timedRun(TRANSFER, destinationBucket, () -> {
+            copier.copy(originBucket, key, destinationBucket);
+            logger.info("Resource with id={} copied to {}", resourceId, destinationBucket);
+            blockCache.invalidate(originBucket, resourceId);
+            warmStore.invalidate(originBucket, resourceId);
+            limiter.run(() -> s3.deleteObject(originBucket, key));
+        });
         logger.info("Resource with id={} deleted from s3_bucket={}", resourceId, originBucket);
     }
 
-    private ObjectMetadata getUploadObjectMetadata(MultipartFile file) {
+    private ResourceContent openResource(String bucket, Integer resourceId) {
+        Optional<WarmEntry> warmEntry = warmStore.get(bucket, resourceId);
+        if (warmEntry.isPresent()) {
+            return new WarmResourceContent(warmStore, warmEntry.get(), ContentRange.full(warmEntry.get().getLength()),
+                    () -> openStoredResource(bucket, resourceId));
+        }
+        return openStoredResource(bucket, resourceId);
+    }
+
+    private ResourceContent openResource(String bucket, Integer resourceId, ContentRange range) {
+        Optional<WarmEntry> warmEntry = warmStore.get(bucket, resourceId);
+        if (warmEntry.isPresent()) {
+            return new WarmResourceContent(warmStore, warmEntry.get(), range,
+                    () -> openStoredResource(bucket, resourceId, range));
+        }
+        return openStoredResource(bucket, resourceId, range);
+    }
+
+    private ResourceContent openStoredResource(String bucket, Integer resourceId) {
+        if (blockCache.isEnabled()) {
+            ObjectInfo objectInfo = getObjectInfo(bucket, resourceId);
+            return getCachedResource(bucket, resourceId, objectInfo, ContentRange.full(objectInfo.getLength()));
+        }
+        if (singleFlightFetcher.isEnabled()) {
+            return singleFlightFetcher.fetch(new FlightKey(bucket, resourceId, null),
+                    () -> getObject(bucket, resourceId));
+        }
+        return new S3ResourceContent(getObject(bucket, resourceId));
+    }
+
+    private ResourceContent openStoredResource(String bucket, Integer resourceId, ContentRange range) {
+        if (blockCache.isEnabled()) {
+            return getCachedResource(bucket, resourceId, getObjectInfo(bucket, resourceId), range);
+        }
+        if (singleFlightFetcher.isEnabled()) {
+            return singleFlightFetcher.fetch(new FlightKey(bucket, resourceId, range),
+                    () -> getObjectRange(bucket, resourceId, range));
+        }
+        return new S3ResourceContent(getObjectRange(bucket, resourceId, range), range);
+    }
+
+    private List<Integer> deleteBatch(String bucket, List<Integer> resourceIds) {
+        List<DeleteObjectsRequest.KeyVersion> keys = resourceIds.stream()
+                .map(resourceId -> new DeleteObjectsRequest.KeyVersion(String.valueOf(resourceId)))
+                .collect(toList());
+        try {
+            limiter.call(() -> s3.deleteObjects(new DeleteObjectsRequest(bucket).withKeys(keys).withQuiet(true)));
+            return List.of();
+        } catch (MultiObjectDeleteException e) {
+            return e.getErrors().stream()
+                    .peek(error -> logger.warn("Resource with id={} not deleted from s3_bucket={}: {}",
+                            error.getKey(), bucket, error.getMessage()))
+                    .map(error -> Integer.valueOf(error.getKey()))
+                    .collect(toList());
+        } catch (SdkClientException | StorageOverloadedException e) {
+            logger.error("Unable to delete {} resources from s3_bucket={}: {}", resourceIds.size(), bucket,
+                    e.getMessage());
+            return resourceIds;
+        }
+    }
+
+    private ResourceContent getCachedResource(String bucket, Integer resourceId, ObjectInfo objectInfo,
+                                              ContentRange range) {
+        logger.debug("Resource with id={} served range={} through block cache", resourceId, range);
+        return new BlockCachedResourceContent(blockCache, bucket, resourceId, objectInfo.getContentType(), range,
+                (start, end) -> getObjectRange(bucket, resourceId, start, end));
+    }
+
+    private ObjectInfo getObjectInfo(String bucket, Integer resourceId) {
+        return blockCache.getObjectInfo(bucket, resourceId).orElseGet(() -> {
+            ObjectInfo objectInfo = toObjectInfo(getObjectMetadata(bucket, resourceId));
+            blockCache.putObjectInfo(bucket, resourceId, objectInfo);
+            return objectInfo;
+        });
+    }
+
+    private ObjectInfo toObjectInfo(ObjectMetadata metadata) {
+        return new ObjectInfo(S3ResourceContent.getContentType(metadata), metadata.getContentLength());
+    }
+
+    private ObjectMetadata getObjectMetadata(String bucket, Integer resourceId) {
+        return limiter.call(() -> s3.getObjectMetadata(bucket, String.valueOf(resourceId)));
+    }
+
+    private S3Object getObject(String bucket, Integer resourceId) {
+        S3Object s3object = countBytes(GET, bucket, timedCall(GET, bucket,
+                () -> limiter.call(() -> s3.getObject(bucket, String.valueOf(resourceId)))));
+        streamLogger.info("Resource with {} opened for streaming from {}", kv(RESOURCE_ID, resourceId),
+                kv(S3_BUCKET, bucket));
+        return s3object;
+    }
+
+    private S3Object getObjectRange(String bucket, Integer resourceId, ContentRange range) {
+        S3Object s3object = getObjectRange(bucket, resourceId, range.getStart(), range.getEnd());
+        streamLogger.info("Resource with {} opened for streaming {} from {}", kv(RESOURCE_ID, resourceId),
+                kv(RANGE, range), kv(S3_BUCKET, bucket));
+        return s3object;
+    }
+
+    private S3Object getObjectRange(String bucket, Integer resourceId, long start, long end) {
+        return countBytes(GET_RANGE, bucket, timedCall(GET_RANGE, bucket, () -> limiter.call(() ->
+                s3.getObject(new GetObjectRequest(bucket, String.valueOf(resourceId)).withRange(start, end)))));
+    }
+
+    /**
+     * Records the bytes read from the object body once it is closed, however much of it was read.
+     */
+    private S3Object countBytes(String operation, String bucket, S3Object s3Object) {
+        S3ObjectInputStream objectContent = s3Object.getObjectContent();
+        CountingInputStream countingStream = new CountingInputStream(objectContent) {
+            private boolean recorded;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!recorded) {
+                        recorded = true;
+                        recordBytes(operation, bucket, getByteCount());
+                    }
+                }
+            }
+        };
+        s3Object.setObjectContent(new S3ObjectInputStream(countingStream, objectContent.getHttpRequest()));
+        return s3Object;
+    }
+
+    /**
+     * Opens the content and wraps it to be timed and measured when it is written.
+     */
+    private ResourceContent meteredRead(String operation, String bucket, Supplier<ResourceContent> open) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ResourceContent content;
+        try {
+            content = open.get();
+        } catch (RuntimeException e) {
+            sample.stop(readTimer(operation, bucket, UNKNOWN_SOURCE, ERROR));
+            throw e;
+        }
+        String source = getSource(content);
+        return new MeteredResourceContent(content, (succeeded, bytes) -> {
+            sample.stop(readTimer(operation, bucket, source, succeeded ? SUCCESS : ERROR));
+            DistributionSummary.builder(READ_BYTES_METER)
+                    .baseUnit("bytes")
+                    .tag(OPERATION_TAG, operation)
+                    .tag(BUCKET_TAG, bucket)
+                    .tag(SOURCE_TAG, source)
+                    .register(meterRegistry)
+                    .record(bytes);
+        });
+    }
+
+    private Timer readTimer(String operation, String bucket, String source, String outcome) {
+        return Timer.builder(READS_METER)
+                .tag(OPERATION_TAG, operation)
+                .tag(BUCKET_TAG, bucket)
+                .tag(SOURCE_TAG, source)
+                .tag(OUTCOME_TAG, outcome)
+                .register(meterRegistry);
+    }
+
+    private String getSource(ResourceContent content) {
+        if (content instanceof WarmResourceContent) {
+            return WARM_STORE_SOURCE;
+        }
+        if (content instanceof BlockCachedResourceContent) {
+            return BLOCK_CACHE_SOURCE;
+        }
+        return content instanceof S3ResourceContent ? S3_SOURCE : SINGLE_FLIGHT_SOURCE;
+    }
+
+    private <T> T timedCall(String operation, String bucket, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = ERROR;
+        try {
+            T result = call.get();
+            outcome = SUCCESS;
+            return result;
+        } finally {
+            sample.stop(Timer.builder(REQUESTS_METER)
+                    .tag(OPERATION_TAG, operation)
+                    .tag(BUCKET_TAG, bucket)
+                    .tag(OUTCOME_TAG, outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private void timedRun(String operation, String bucket, Runnable call) {
+        timedCall(operation, bucket, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private void recordBytes(String operation, String bucket, long bytes) {
+        DistributionSummary.builder(BYTES_METER)
+                .baseUnit("bytes")
+                .tag(OPERATION_TAG, operation)
+                .tag(BUCKET_TAG, bucket)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    private ObjectMetadata getUploadObjectMetadata(String contentType) {
         ObjectMetadata objectMetadata = new ObjectMetadata();
         objectMetadata.setLastModified(Date.from(Instant.now()));
-        objectMetadata.setContentType(file.getContentType());
-        objectMetadata.setContentLength(file.getSize());
+        objectMetadata.setContentType(contentType);
         return objectMetadata;
     }
 
@@ -0,0 +1,64 @@
+package com.epam.microservices.service;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.ResourceContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class S3ResourceContent extends ResourceContent {
+    static final int BUFFER_SIZE = 64 * 1024;
+    private final Logger logger = LoggerFactory.getLogger(S3ResourceContent.class);
+    private final S3Object s3Object;
+    private boolean consumed;
+
+    public S3ResourceContent(S3Object s3Object) {
+        this(s3Object, ContentRange.full(s3Object.getObjectMetadata().getContentLength()));
+    }
+
+    public S3ResourceContent(S3Object s3Object, ContentRange range) {
+        super(getContentType(s3Object.getObjectMetadata()), range);
+        this.s3Object = s3Object;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        consumed = true;
+        S3ObjectInputStream inputStream = s3Object.getObjectContent();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            outputStream.flush();
+        } catch (IOException e) {
+            logger.warn("Streaming of s3_object={} aborted: {}", s3Object.getKey(), e.getMessage());
+            inputStream.abort();
+            throw e;
+        } finally {
+            s3Object.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!consumed) {
+            consumed = true;
+            s3Object.getObjectContent().abort();
+            s3Object.close();
+        }
+    }
+
+    public static String getContentType(ObjectMetadata objectMetadata) {
+        return objectMetadata.getContentType() != null
+                ? objectMetadata.getContentType()
+                : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+}
@@ -0,0 +1,64 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.config.dto.DeleteConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically removes the objects of unreferenced blobs left by failed deletions and, in tombstone delete mode,
+ * the rows and objects of resources marked as deleted. Every instance runs a reaper; batches are claimed with row
+ * locks that the reapers of other instances skip.
+ */
+@Component
+public class TombstoneReaper {
+    private static final String THREAD_NAME_PREFIX = "tombstone-reaper-";
+    private final Logger logger = LoggerFactory.getLogger(TombstoneReaper.class);
+    @Autowired
+    private ResourceService service;
+    @Autowired
+    private DeleteConfig deleteConfig;
+    private ScheduledExecutorService reaperExecutor;
+
+    @PostConstruct
+    public void init() {
+        reaperExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+        long reaperIntervalMs = deleteConfig.getReaperInterval().toMillis();
+        reaperExecutor.scheduleWithFixedDelay(this::reap, reaperIntervalMs, reaperIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reaperExecutor.shutdownNow();
+    }
+
+    /**
+     * Purges deleted resources, then unreferenced blobs, batch by batch until a batch is not full.
+     */
+    public void reap() {
+        try {
+            int batchSize = deleteConfig.getReaperBatchSize();
+            int purgedCount;
+            if (deleteConfig.isTombstone()) {
+                do {
+                    purgedCount = service.purgeDeleted(batchSize);
+                    logger.debug("{} deleted resources purged", purgedCount);
+                } while (purgedCount == batchSize);
+            }
+            do {
+                purgedCount = service.purgeUnreferencedBlobs(batchSize);
+                logger.debug("{} unreferenced blobs purged", purgedCount);
+            } while (purgedCount == batchSize);
+        } catch (Exception e) {
+            logger.error("Unable to purge deleted resources: {}", e.getMessage());
+        }
+    }
+}
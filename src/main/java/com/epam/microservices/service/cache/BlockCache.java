@@ -0,0 +1,322 @@
+package com.epam.microservices.service.cache;
+
+import com.epam.microservices.config.dto.BlockCacheConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Disk cache of fixed-size resource blocks keyed by (bucket, resource id, block index).
+ * Every block is a file of its own; the total size is bounded with a segmented LRU policy: new blocks
+ * enter the probation segment and are promoted to the protected segment on their second hit, so a
+ * single pass over a large resource cannot flush blocks that are read repeatedly.
+ * A block being fetched from the origin is claimed by its reader, so concurrent misses on the same block wait
+ * for that fetch instead of issuing GETs of their own.
+ */
+@Component
+public class BlockCache implements MeterBinder {
+    private static final String BLOCK_FILE_SUFFIX = ".blk";
+    private static final String CACHE_DIRECTORY = "block-cache";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String PIN_DIRECTORY = ".pins";
+    private static final double PROTECTED_SEGMENT_RATIO = 0.8;
+    private static final int MAX_OBJECT_INFOS = 10_000;
+    private final Logger logger = LoggerFactory.getLogger(BlockCache.class);
+    private final Object lock = new Object();
+    private final LinkedHashMap<BlockKey, Integer> probationSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<BlockKey, Integer> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, ObjectInfo> objectInfos = Collections.synchronizedMap(
+            new LinkedHashMap<String, ObjectInfo>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ObjectInfo> eldest) {
+                    return size() > MAX_OBJECT_INFOS;
+                }
+            });
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong coalescedFetches = new AtomicLong();
+    private final ConcurrentMap<BlockKey, CompletableFuture<Void>> pendingFetches = new ConcurrentHashMap<>();
+    private long probationSize;
+    private long protectedSize;
+    @Autowired
+    private BlockCacheConfig config;
+    private Path directory;
+    private FilePins filePins;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        directory = CacheDirectory.prepare(config.getDirectory(), CACHE_DIRECTORY);
+        filePins = new FilePins(directory.resolve(PIN_DIRECTORY));
+        logger.info("Block cache of {} initialized in {}", config.getMaxSize(), directory);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public int getBlockSize() {
+        return Math.toIntExact(config.getBlockSize().toBytes());
+    }
+
+    public Optional<ObjectInfo> getObjectInfo(String bucket, Integer resourceId) {
+        return Optional.ofNullable(objectInfos.get(getObjectKey(bucket, resourceId)));
+    }
+
+    public void putObjectInfo(String bucket, Integer resourceId, ObjectInfo objectInfo) {
+        objectInfos.put(getObjectKey(bucket, resourceId), objectInfo);
+    }
+
+    public boolean contains(BlockKey key) {
+        synchronized (lock) {
+            return probationSegment.containsKey(key) || protectedSegment.containsKey(key);
+        }
+    }
+
+    /**
+     * Returns the file holding the block and records the hit, or records a miss.
+     */
+    public Optional<Path> getBlock(BlockKey key) {
+        synchronized (lock) {
+            Integer size = probationSegment.remove(key);
+            if (size != null) {
+                probationSize -= size;
+                protectedSegment.put(key, size);
+                protectedSize += size;
+                demoteProtectedOverflow();
+            } else if (protectedSegment.get(key) == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+        }
+        hits.incrementAndGet();
+        return Optional.of(getBlockPath(key));
+    }
+
+    /**
+     * Returns a link to the block file that outlives its eviction long enough to be sent with sendfile.
+     */
+    public Optional<Path> pin(Path blockPath) {
+        return filePins.pin(blockPath);
+    }
+
+    public void putBlock(BlockKey key, byte[] bytes, int length) {
+        Path blockPath = getBlockPath(key);
+        Path tempPath = blockPath.resolveSibling(blockPath.getFileName() + "." + UUID.randomUUID() + TEMP_FILE_SUFFIX);
+        try {
+            Files.createDirectories(blockPath.getParent());
+            try (FileChannel channel = FileChannel.open(tempPath, CREATE_NEW, WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(tempPath, blockPath, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Unable to cache block={}: {}", key, e.getMessage());
+            deleteQuietly(tempPath);
+            return;
+        }
+        List<BlockKey> evicted;
+        synchronized (lock) {
+            Integer previousSize = probationSegment.put(key, length);
+            probationSize += length - (previousSize != null ? previousSize : 0);
+            Integer protectedEntrySize = protectedSegment.remove(key);
+            if (protectedEntrySize != null) {
+                protectedSize -= protectedEntrySize;
+            }
+            evicted = evictOverflow();
+        }
+        evicted.forEach(evictedKey -> deleteQuietly(getBlockPath(evictedKey)));
+    }
+
+    /**
+     * Claims the fetch of the block, returns false if another reader is already fetching it.
+     */
+    public boolean startFetch(BlockKey key) {
+        return pendingFetches.putIfAbsent(key, new CompletableFuture<>()) == null;
+    }
+
+    /**
+     * Releases the claim taken with {@link #startFetch}, waking up the readers waiting for the block.
+     */
+    public void finishFetch(BlockKey key) {
+        CompletableFuture<Void> pendingFetch = pendingFetches.remove(key);
+        if (pendingFetch != null) {
+            pendingFetch.complete(null);
+        }
+    }
+
+    /**
+     * Waits for the pending fetch of the block, returns false if the block is not being fetched.
+     */
+    public boolean awaitFetch(BlockKey key) throws IOException {
+        CompletableFuture<Void> pendingFetch = pendingFetches.get(key);
+        if (pendingFetch == null) {
+            return false;
+        }
+        coalescedFetches.incrementAndGet();
+        try {
+            pendingFetch.get(config.getFetchWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for block " + key);
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Pending fetch of block={} did not complete: {}", key, e.toString());
+        }
+        return true;
+    }
+
+    public void invalidate(String bucket, Integer resourceId) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (lock) {
+            probationSize -= removeBlocks(probationSegment, bucket, resourceId);
+            protectedSize -= removeBlocks(protectedSegment, bucket, resourceId);
+        }
+        objectInfos.remove(getObjectKey(bucket, resourceId));
+        try {
+            FileSystemUtils.deleteRecursively(directory.resolve(bucket).resolve(String.valueOf(resourceId)));
+        } catch (IOException e) {
+            logger.warn("Unable to delete cached blocks of resource with id={} from s3_bucket={}: {}",
+                    resourceId, bucket, e.getMessage());
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getCoalescedFetchCount() {
+        return coalescedFetches.get();
+    }
+
+    public long getSize() {
+        synchronized (lock) {
+            return probationSize + protectedSize;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("resource.block.cache.requests", this, BlockCache::getHitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("resource.block.cache.requests", this, BlockCache::getMissCount)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("resource.block.cache.evictions", this, BlockCache::getEvictionCount)
+                .register(registry);
+        FunctionCounter.builder("resource.block.cache.coalesced", this, BlockCache::getCoalescedFetchCount)
+                .register(registry);
+        Gauge.builder("resource.block.cache.size", this, BlockCache::getSize)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private List<BlockKey> evictOverflow() {
+        List<BlockKey> evicted = new ArrayList<>();
+        long maxSize = config.getMaxSize().toBytes();
+        while (probationSize + protectedSize > maxSize) {
+            LinkedHashMap<BlockKey, Integer> segment = probationSegment.isEmpty() ? protectedSegment : probationSegment;
+            Map.Entry<BlockKey, Integer> eldest = segment.entrySet().iterator().next();
+            segment.remove(eldest.getKey());
+            if (segment == probationSegment) {
+                probationSize -= eldest.getValue();
+            } else {
+                protectedSize -= eldest.getValue();
+            }
+            evicted.add(eldest.getKey());
+            evictions.incrementAndGet();
+        }
+        return evicted;
+    }
+
+    private void demoteProtectedOverflow() {
+        long maxProtectedSize = (long) (config.getMaxSize().toBytes() * PROTECTED_SEGMENT_RATIO);
+        while (protectedSize > maxProtectedSize) {
+            Map.Entry<BlockKey, Integer> eldest = protectedSegment.entrySet().iterator().next();
+            protectedSegment.remove(eldest.getKey());
+            protectedSize -= eldest.getValue();
+            probationSegment.put(eldest.getKey(), eldest.getValue());
+            probationSize += eldest.getValue();
+        }
+    }
+
+    private long removeBlocks(LinkedHashMap<BlockKey, Integer> segment, String bucket, Integer resourceId) {
+        long removedSize = 0;
+        Iterator<Map.Entry<BlockKey, Integer>> iterator = segment.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<BlockKey, Integer> entry = iterator.next();
+            if (entry.getKey().belongsTo(bucket, resourceId)) {
+                removedSize += entry.getValue();
+                iterator.remove();
+            }
+        }
+        return removedSize;
+    }
+
+    private Path getBlockPath(BlockKey key) {
+        return directory.resolve(key.getBucket())
+                .resolve(String.valueOf(key.getResourceId()))
+                .resolve(key.getBlockIndex() + BLOCK_FILE_SUFFIX);
+    }
+
+    private String getObjectKey(String bucket, Integer resourceId) {
+        return bucket + "/" + resourceId;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Unable to delete cache file {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.epam.microservices.service.cache;
+
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.FileRegion;
+import com.epam.microservices.model.ResourceContent;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Serves a resource range block by block from the {@link BlockCache}. Every run of missing blocks is
+ * fetched from the origin with a single ranged GET and cached while it is written to the client, so
+ * only one block is held in memory at a time. A missing block another request is fetching is waited for
+ * rather than fetched again.
+ */
+public class BlockCachedResourceContent extends ResourceContent {
+    private final BlockCache blockCache;
+    private final String bucket;
+    private final Integer resourceId;
+    private final RangeFetcher rangeFetcher;
+
+    public BlockCachedResourceContent(BlockCache blockCache, String bucket, Integer resourceId, String contentType,
+                                      ContentRange range, RangeFetcher rangeFetcher) {
+        super(contentType, range);
+        this.blockCache = blockCache;
+        this.bucket = bucket;
+        this.resourceId = resourceId;
+        this.rangeFetcher = rangeFetcher;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (getContentLength() <= 0) {
+            return;
+        }
+        int blockSize = blockCache.getBlockSize();
+        long lastBlock = getRange().getEnd() / blockSize;
+        long block = getRange().getStart() / blockSize;
+        WritableByteChannel outputChannel = Channels.newChannel(outputStream);
+        while (block <= lastBlock) {
+            BlockKey blockKey = getBlockKey(block);
+            Optional<Path> cachedBlock = blockCache.getBlock(blockKey);
+            if (cachedBlock.isEmpty() && blockCache.awaitFetch(blockKey)) {
+                cachedBlock = blockCache.getBlock(blockKey);
+            }
+            if (cachedBlock.isPresent() && writeCachedBlock(cachedBlock.get(), block, blockSize, outputChannel)) {
+                block++;
+            } else {
+                block = fetchBlocks(block, lastBlock, blockSize, outputStream);
+            }
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * A range lying within one cached block is sent straight from a pinned link of the block file, so the block
+     * may be evicted before Tomcat opens it.
+     */
+    @Override
+    public Optional<FileRegion> getFileRegion() {
+        if (getContentLength() <= 0) {
+            return Optional.empty();
+        }
+        int blockSize = blockCache.getBlockSize();
+        long block = getRange().getStart() / blockSize;
+        BlockKey blockKey = getBlockKey(block);
+        if (getRange().getEnd() / blockSize != block || !blockCache.contains(blockKey)) {
+            return Optional.empty();
+        }
+        long position = getRange().getStart() - block * blockSize;
+        return blockCache.getBlock(blockKey)
+                .flatMap(blockCache::pin)
+                .map(blockPath -> new FileRegion(blockPath, position, getContentLength()));
+    }
+
+    @Override
+    public void close() {
+        // Blocks are opened lazily in writeTo, there is nothing to release
+    }
+
+    private boolean writeCachedBlock(Path blockPath, long block, int blockSize, WritableByteChannel outputChannel)
+            throws IOException {
+        long blockStart = block * blockSize;
+        long position = Math.max(getRange().getStart(), blockStart) - blockStart;
+        long count = Math.min(getRange().getEnd(), blockStart + blockSize - 1) - blockStart - position + 1;
+        try (FileChannel blockChannel = FileChannel.open(blockPath, READ)) {
+            while (count > 0) {
+                long transferred = blockChannel.transferTo(position, count, outputChannel);
+                position += transferred;
+                count -= transferred;
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Fetches the run of missing blocks starting at {@code firstBlock} and returns the index of the block after it.
+     * The run stops before a block that another request is already fetching.
+     */
+    private long fetchBlocks(long firstBlock, long lastBlock, int blockSize, OutputStream outputStream)
+            throws IOException {
+        List<BlockKey> claimedBlocks = new ArrayList<>();
+        if (blockCache.startFetch(getBlockKey(firstBlock))) {
+            claimedBlocks.add(getBlockKey(firstBlock));
+        }
+        long runEnd = firstBlock;
+        while (runEnd < lastBlock && !blockCache.contains(getBlockKey(runEnd + 1))
+                && blockCache.startFetch(getBlockKey(runEnd + 1))) {
+            claimedBlocks.add(getBlockKey(++runEnd));
+        }
+        try {
+            return fetchRun(firstBlock, runEnd, blockSize, outputStream, claimedBlocks);
+        } finally {
+            claimedBlocks.forEach(blockCache::finishFetch);
+        }
+    }
+
+    private long fetchRun(long firstBlock, long runEnd, int blockSize, OutputStream outputStream,
+                          List<BlockKey> claimedBlocks) throws IOException {
+        long resourceLength = getRange().getResourceLength();
+        long fetchStart = firstBlock * blockSize;
+        long fetchEnd = Math.min((runEnd + 1) * blockSize, resourceLength) - 1;
+        S3Object s3Object = rangeFetcher.fetch(fetchStart, fetchEnd);
+        S3ObjectInputStream inputStream = s3Object.getObjectContent();
+        byte[] buffer = new byte[blockSize];
+        try {
+            for (long block = firstBlock; block <= runEnd; block++) {
+                long blockStart = block * blockSize;
+                int blockLength = (int) Math.min(blockSize, resourceLength - blockStart);
+                IOUtils.readFully(inputStream, buffer, 0, blockLength);
+                BlockKey blockKey = getBlockKey(block);
+                blockCache.putBlock(blockKey, buffer, blockLength);
+                if (claimedBlocks.remove(blockKey)) {
+                    blockCache.finishFetch(blockKey);
+                }
+                long from = Math.max(getRange().getStart(), blockStart) - blockStart;
+                long to = Math.min(getRange().getEnd(), blockStart + blockLength - 1) - blockStart;
+                outputStream.write(buffer, (int) from, (int) (to - from + 1));
+            }
+        } catch (IOException e) {
+            inputStream.abort();
+            throw e;
+        } finally {
+            s3Object.close();
+        }
+        return runEnd + 1;
+    }
+
+    private BlockKey getBlockKey(long block) {
+        return new BlockKey(bucket, resourceId, block);
+    }
+}
@@ -0,0 +1,49 @@
+package com.epam.microservices.service.cache;
+
+import java.util.Objects;
+
+public class BlockKey {
+    private final String bucket;
+    private final Integer resourceId;
+    private final long blockIndex;
+
+    public BlockKey(String bucket, Integer resourceId, long blockIndex) {
+        this.bucket = bucket;
+        this.resourceId = resourceId;
+        this.blockIndex = blockIndex;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public Integer getResourceId() {
+        return resourceId;
+    }
+
+    public long getBlockIndex() {
+        return blockIndex;
+    }
+
+    public boolean belongsTo(String bucket, Integer resourceId) {
+        return this.bucket.equals(bucket) && this.resourceId.equals(resourceId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BlockKey blockKey = (BlockKey) o;
+        return blockIndex == blockKey.blockIndex && bucket.equals(blockKey.bucket) && resourceId.equals(blockKey.resourceId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bucket, resourceId, blockIndex);
+    }
+
+    @Override
+    public String toString() {
+        return bucket + "/" + resourceId + "#" + blockIndex;
+    }
+}
@@ -0,0 +1,40 @@
+package com.epam.microservices.service.cache;
+
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+
+/**
+ * Working directory of a file-backed cache. The cache owns a named subdirectory of the configured location and
+ * marks it as its own, so clearing leftovers of a previous run never touches files it did not create.
+ */
+final class CacheDirectory {
+    private static final String MARKER_FILE = ".resource-service-cache";
+    private static final String FOREIGN_DIRECTORY_MESSAGE_PATTERN =
+            "Directory {0} exists and was not created by the resource service";
+
+    private CacheDirectory() {
+    }
+
+    /**
+     * Returns an empty {@code owner} subdirectory of {@code location}, removing whatever a previous run left in it.
+     *
+     * @throws IllegalStateException when the subdirectory exists but carries no ownership marker
+     */
+    static Path prepare(String location, String owner) throws IOException {
+        Path directory = Paths.get(location).resolve(owner);
+        if (Files.exists(directory)) {
+            if (!Files.exists(directory.resolve(MARKER_FILE))) {
+                throw new IllegalStateException(MessageFormat.format(FOREIGN_DIRECTORY_MESSAGE_PATTERN, directory));
+            }
+            FileSystemUtils.deleteRecursively(directory);
+        }
+        Files.createDirectories(directory);
+        Files.createFile(directory.resolve(MARKER_FILE));
+        return directory;
+    }
+}
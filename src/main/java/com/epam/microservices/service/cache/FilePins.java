@@ -0,0 +1,73 @@
+package com.epam.microservices.service.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hard links to cache files handed over to sendfile. Tomcat opens a sendfile region only after the handler has
+ * returned, when the cache may already have evicted the file; the link keeps its bytes reachable for a lease long
+ * enough for Tomcat to open it. Expired links are removed whenever a new one is made.
+ */
+class FilePins {
+    private static final String PIN_FILE_SUFFIX = ".pin";
+    private static final Duration LEASE = Duration.ofMinutes(1);
+    private final Logger logger = LoggerFactory.getLogger(FilePins.class);
+    private final Queue<Pin> pins = new ConcurrentLinkedQueue<>();
+    private final Path directory;
+
+    FilePins(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Links the file into the pin directory, returns empty when the file is already gone or cannot be linked.
+     */
+    Optional<Path> pin(Path path) {
+        releaseExpired();
+        Path link = directory.resolve(UUID.randomUUID() + PIN_FILE_SUFFIX);
+        try {
+            Files.createLink(link, path);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("Unable to pin file {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+        pins.add(new Pin(link, System.nanoTime() + LEASE.toNanos()));
+        return Optional.of(link);
+    }
+
+    private void releaseExpired() {
+        long now = System.nanoTime();
+        Pin pin;
+        while ((pin = pins.peek()) != null && now - pin.expiresAt >= 0) {
+            if (pins.remove(pin)) {
+                try {
+                    Files.deleteIfExists(pin.link);
+                } catch (IOException e) {
+                    logger.warn("Unable to delete pinned file {}: {}", pin.link, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static final class Pin {
+        private final Path link;
+        private final long expiresAt;
+
+        private Pin(Path link, long expiresAt) {
+            this.link = link;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.epam.microservices.service.cache;
+
+import com.epam.microservices.model.ContentRange;
+
+import java.util.Objects;
+
+public class FlightKey {
+    private final String bucket;
+    private final Integer resourceId;
+    private final ContentRange range;
+
+    /**
+     * @param range requested range or null for the whole object
+     */
+    public FlightKey(String bucket, Integer resourceId, ContentRange range) {
+        this.bucket = bucket;
+        this.resourceId = resourceId;
+        this.range = range;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public Integer getResourceId() {
+        return resourceId;
+    }
+
+    public ContentRange getRange() {
+        return range;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FlightKey flightKey = (FlightKey) o;
+        return bucket.equals(flightKey.bucket) && resourceId.equals(flightKey.resourceId)
+                && Objects.equals(range, flightKey.range);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bucket, resourceId, range);
+    }
+
+    @Override
+    public String toString() {
+        return bucket + "/" + resourceId + (range != null ? "#" + range : "");
+    }
+}
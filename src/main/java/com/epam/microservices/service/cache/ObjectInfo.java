@@ -0,0 +1,19 @@
+package com.epam.microservices.service.cache;
+
+public class ObjectInfo {
+    private final String contentType;
+    private final long length;
+
+    public ObjectInfo(String contentType, long length) {
+        this.contentType = contentType;
+        this.length = length;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getLength() {
+        return length;
+    }
+}
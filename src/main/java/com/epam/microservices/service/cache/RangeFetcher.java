@@ -0,0 +1,12 @@
+package com.epam.microservices.service.cache;
+
+import com.amazonaws.services.s3.model.S3Object;
+
+@FunctionalInterface
+public interface RangeFetcher {
+
+    /**
+     * Opens the inclusive byte range of the origin object.
+     */
+    S3Object fetch(long start, long end);
+}
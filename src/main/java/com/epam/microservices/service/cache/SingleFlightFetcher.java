@@ -0,0 +1,345 @@
+package com.epam.microservices.service.cache;
+
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.epam.microservices.config.dto.SingleFlightConfig;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.service.S3ResourceContent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Shares one S3 GET between concurrent reads of the same object and range. The first read opens the object and a
+ * background thread spools its body to a temporary file; every read of the same key arriving before the body is
+ * complete joins the flight and streams the spool file as it grows, so each reader goes at its own pace and a slow
+ * client does not hold the others back. The spool file is deleted once the last reader is done, and a flight whose
+ * readers all went away stops fetching.
+ */
+@Component
+public class SingleFlightFetcher implements MeterBinder {
+    private static final String THREAD_NAME_PREFIX = "s3-fetch-";
+    private static final String SPOOL_FILE_SUFFIX = ".spool";
+    private static final String SPOOL_DIRECTORY = "single-flight";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private final Logger logger = LoggerFactory.getLogger(SingleFlightFetcher.class);
+    private final ConcurrentMap<FlightKey, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    @Autowired
+    private SingleFlightConfig config;
+    private ThreadPoolExecutor spoolExecutor;
+    private Path directory;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        directory = CacheDirectory.prepare(config.getDirectory(), SPOOL_DIRECTORY);
+        spoolExecutor = new ThreadPoolExecutor(0, config.getThreads(), KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (spoolExecutor != null) {
+            spoolExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Returns the content of the object, joining the fetch of a concurrent read of the same key when there is one
+     * and otherwise fetching it with {@code getObject}. When no spool thread is free the object is streamed
+     * directly, without sharing.
+     *
+     * @param key object and range fetched by {@code getObject}; a null range stands for the whole object
+     */
+    public ResourceContent fetch(FlightKey key, Supplier<S3Object> getObject) {
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight == null) {
+                Flight newFlight = new Flight(key);
+                flight = flights.putIfAbsent(key, newFlight);
+                if (flight == null) {
+                    return newFlight.start(getObject);
+                }
+            }
+            Optional<ResourceContent> content = flight.join();
+            if (content.isPresent()) {
+                coalesced.incrementAndGet();
+                logger.debug("Read of {} joined a running fetch", key);
+                return content.get();
+            }
+            flights.remove(key, flight);
+        }
+    }
+
+    public long getFetchCount() {
+        return fetches.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("resource.single.flight.requests", this, SingleFlightFetcher::getFetchCount)
+                .tag("result", "fetched")
+                .register(registry);
+        FunctionCounter.builder("resource.single.flight.requests", this, SingleFlightFetcher::getCoalescedCount)
+                .tag("result", "coalesced")
+                .register(registry);
+        Gauge.builder("resource.single.flight.in.flight", this, SingleFlightFetcher::getInFlightCount)
+                .register(registry);
+    }
+
+    private class Flight {
+        private final FlightKey key;
+        private final CompletableFuture<Void> opened = new CompletableFuture<>();
+        private final Object lock = new Object();
+        private Path spoolFile;
+        private String contentType;
+        private ContentRange range;
+        private long written;
+        private int readers;
+        private boolean done;
+        private boolean deleted;
+        private IOException failure;
+
+        private Flight(FlightKey key) {
+            this.key = key;
+        }
+
+        private ResourceContent start(Supplier<S3Object> getObject) {
+            S3Object s3Object;
+            try {
+                s3Object = getObject.get();
+            } catch (RuntimeException e) {
+                fail(e);
+                throw e;
+            }
+            contentType = S3ResourceContent.getContentType(s3Object.getObjectMetadata());
+            range = key.getRange() != null
+                    ? key.getRange()
+                    : ContentRange.full(s3Object.getObjectMetadata().getContentLength());
+            try {
+                spoolFile = Files.createTempFile(directory, String.valueOf(key.getResourceId()), SPOOL_FILE_SUFFIX);
+                readers = 1;
+                spoolExecutor.execute(() -> spool(s3Object));
+            } catch (IOException | RejectedExecutionException e) {
+                logger.warn("Unable to share fetch of {}, streaming it directly: {}", key, e.getMessage());
+                deleteSpoolFile();
+                fail(e);
+                return new S3ResourceContent(s3Object, range);
+            }
+            fetches.incrementAndGet();
+            opened.complete(null);
+            return new SpooledContent(this);
+        }
+
+        /**
+         * @return content reading the spool file, or empty when the flight could not start or is already over
+         */
+        private Optional<ResourceContent> join() {
+            try {
+                opened.join();
+            } catch (CompletionException e) {
+                return Optional.empty();
+            }
+            synchronized (lock) {
+                if (deleted) {
+                    return Optional.empty();
+                }
+                readers++;
+                return Optional.of(new SpooledContent(this));
+            }
+        }
+
+        private void fail(Exception e) {
+            flights.remove(key, this);
+            opened.completeExceptionally(e);
+        }
+
+        private void spool(S3Object s3Object) {
+            S3ObjectInputStream inputStream = s3Object.getObjectContent();
+            IOException spoolFailure = null;
+            try (FileChannel spoolChannel = FileChannel.open(spoolFile, WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                    while (byteBuffer.hasRemaining()) {
+                        spoolChannel.write(byteBuffer);
+                    }
+                    if (!advance(read)) {
+                        logger.debug("Fetch of {} abandoned by all readers", key);
+                        spoolFailure = new IOException("Fetch of " + key + " abandoned");
+                        inputStream.abort();
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Fetch of {} failed: {}", key, e.getMessage());
+                spoolFailure = e;
+                inputStream.abort();
+            } finally {
+                flights.remove(key, this);
+                finish(spoolFailure);
+                closeQuietly(s3Object);
+            }
+        }
+
+        /**
+         * @return whether anybody still reads the flight
+         */
+        private boolean advance(int length) {
+            synchronized (lock) {
+                written += length;
+                lock.notifyAll();
+                return readers > 0;
+            }
+        }
+
+        private void finish(IOException spoolFailure) {
+            synchronized (lock) {
+                done = true;
+                failure = spoolFailure;
+                lock.notifyAll();
+                if (readers == 0) {
+                    deleteSpoolFile();
+                }
+            }
+        }
+
+        private void release() {
+            synchronized (lock) {
+                readers--;
+                if (readers == 0 && done) {
+                    deleteSpoolFile();
+                }
+            }
+        }
+
+        /**
+         * Waits until bytes past {@code position} are spooled and returns the spooled length.
+         */
+        private long awaitSpooled(long position) throws IOException {
+            synchronized (lock) {
+                while (written <= position && !done) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for fetch of " + key);
+                    }
+                }
+                if (written > position) {
+                    return written;
+                }
+                throw failure != null
+                        ? failure
+                        : new IOException("Fetch of " + key + " ended after " + written + " bytes");
+            }
+        }
+
+        private void deleteSpoolFile() {
+            deleted = true;
+            if (spoolFile == null) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(spoolFile);
+            } catch (IOException e) {
+                logger.warn("Unable to delete spool file {}: {}", spoolFile, e.getMessage());
+            }
+        }
+
+        private void closeQuietly(S3Object s3Object) {
+            try {
+                s3Object.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close s3_object={}: {}", s3Object.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private static class SpooledContent extends ResourceContent {
+        private final Flight flight;
+        private boolean released;
+
+        private SpooledContent(Flight flight) {
+            super(flight.contentType, flight.range);
+            this.flight = flight;
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            try (FileChannel spoolChannel = FileChannel.open(flight.spoolFile, READ)) {
+                WritableByteChannel outputChannel = Channels.newChannel(outputStream);
+                long position = 0;
+                long length = getContentLength();
+                while (position < length) {
+                    long spooled = flight.awaitSpooled(position);
+                    while (position < spooled) {
+                        position += spoolChannel.transferTo(position, spooled - position, outputChannel);
+                    }
+                }
+                outputStream.flush();
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                flight.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.epam.microservices.service.cache;
+
+import java.nio.file.Path;
+
+/**
+ * Copy of a freshly uploaded object kept on local disk by the {@link WarmStore}.
+ */
+public class WarmEntry {
+    private final Path path;
+    private final long length;
+    private final String contentType;
+
+    public WarmEntry(Path path, long length, String contentType) {
+        this.path = path;
+        this.length = length;
+        this.contentType = contentType;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,72 @@
+package com.epam.microservices.service.cache;
+
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.FileRegion;
+import com.epam.microservices.model.ResourceContent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Serves a resource or a range of it from the {@link WarmStore}. When the entry expires before it is written,
+ * the content is read from the origin instead.
+ */
+public class WarmResourceContent extends ResourceContent {
+    private final WarmStore warmStore;
+    private final WarmEntry entry;
+    private final Supplier<ResourceContent> origin;
+
+    public WarmResourceContent(WarmStore warmStore, WarmEntry entry, ContentRange range,
+                               Supplier<ResourceContent> origin) {
+        super(entry.getContentType(), range);
+        this.warmStore = warmStore;
+        this.entry = entry;
+        this.origin = origin;
+    }
+
+    /**
+     * The region points to a pinned link of the entry file, so the entry may expire before Tomcat opens it.
+     */
+    @Override
+    public Optional<FileRegion> getFileRegion() {
+        return warmStore.pin(entry)
+                .map(pinnedPath -> new FileRegion(pinnedPath, getRange().getStart(), getContentLength()));
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        FileChannel entryChannel;
+        try {
+            entryChannel = FileChannel.open(entry.getPath(), READ);
+        } catch (NoSuchFileException e) {
+            try (ResourceContent originContent = origin.get()) {
+                originContent.writeTo(outputStream);
+            }
+            return;
+        }
+        try (entryChannel) {
+            WritableByteChannel outputChannel = Channels.newChannel(outputStream);
+            long position = getRange().getStart();
+            long count = getContentLength();
+            while (count > 0) {
+                long transferred = entryChannel.transferTo(position, count, outputChannel);
+                position += transferred;
+                count -= transferred;
+            }
+            outputStream.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        // The entry file is opened lazily in writeTo, there is nothing to release
+    }
+}
@@ -0,0 +1,129 @@
+package com.epam.microservices.service.cache;
+
+import com.epam.microservices.config.dto.WarmStoreConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Short-lived, size-bounded store of freshly uploaded objects on local disk. Uploads are copied here while they
+ * are streamed to the storage, so the reads that follow an upload event are served locally instead of by a cold
+ * GET. Entries expire a while after the upload and the least recently used ones are evicted past the size limit;
+ * their files are deleted with them. Hits and misses are reported as the {@code warm.store} cache.
+ */
+@Component
+public class WarmStore implements MeterBinder {
+    private static final String CACHE_NAME = "warm.store";
+    private static final String STORE_DIRECTORY = "warm-store";
+    private static final String PIN_DIRECTORY = "pins";
+    private final Logger logger = LoggerFactory.getLogger(WarmStore.class);
+    @Autowired
+    private WarmStoreConfig config;
+    private Cache<String, WarmEntry> entries;
+    private Path directory;
+    private FilePins filePins;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        directory = CacheDirectory.prepare(config.getDirectory(), STORE_DIRECTORY);
+        filePins = new FilePins(directory.resolve(PIN_DIRECTORY));
+        entries = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxSize().toBytes())
+                .weigher((String key, WarmEntry entry) -> (int) Math.min(entry.getLength(), Integer.MAX_VALUE))
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .scheduler(Scheduler.systemScheduler())
+                .executor(Runnable::run)
+                .removalListener((String key, WarmEntry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        deleteQuietly(entry.getPath());
+                    }
+                })
+                .recordStats()
+                .build();
+        logger.info("Warm store of {} initialized in {}", config.getMaxSize(), directory);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Starts a local copy of an upload, or returns empty when the store is disabled.
+     */
+    public Optional<WarmUpload> startUpload() {
+        if (entries == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new WarmUpload(this, directory, config.getMaxEntrySize().toBytes()));
+    }
+
+    /**
+     * Returns the local copy of the object and records the hit, or records a miss.
+     */
+    public Optional<WarmEntry> get(String bucket, Integer resourceId) {
+        if (entries == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(entries.getIfPresent(getObjectKey(bucket, resourceId)))
+                .filter(entry -> Files.isRegularFile(entry.getPath()));
+    }
+
+    /**
+     * Returns a link to the entry file that outlives its expiry long enough to be sent with sendfile.
+     */
+    public Optional<Path> pin(WarmEntry entry) {
+        return filePins.pin(entry.getPath());
+    }
+
+    public void invalidate(String bucket, Integer resourceId) {
+        if (entries != null) {
+            entries.invalidate(getObjectKey(bucket, resourceId));
+        }
+    }
+
+    public long getSize() {
+        return entries != null ? entries.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L) : 0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (entries != null) {
+            CaffeineCacheMetrics.monitor(registry, entries, CACHE_NAME);
+        }
+    }
+
+    void put(String bucket, Integer resourceId, WarmEntry entry) {
+        entries.put(getObjectKey(bucket, resourceId), entry);
+        logger.debug("Resource with id={} of s3_bucket={} kept warm", resourceId, bucket);
+    }
+
+    void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Unable to delete warm store file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private String getObjectKey(String bucket, Integer resourceId) {
+        return bucket + "/" + resourceId;
+    }
+}
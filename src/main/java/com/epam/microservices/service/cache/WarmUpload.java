@@ -0,0 +1,109 @@
+package com.epam.microservices.service.cache;
+
+import org.apache.commons.io.input.TeeInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Local copy of an upload, written while the upload is streamed to the storage and handed to the
+ * {@link WarmStore} once committed. The copy is given up, without ever failing the upload, when it grows over the
+ * entry size limit or cannot be written.
+ */
+public class WarmUpload extends OutputStream {
+    private static final String UPLOAD_FILE_PREFIX = "upload-";
+    private static final String UPLOAD_FILE_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final Logger logger = LoggerFactory.getLogger(WarmUpload.class);
+    private final WarmStore warmStore;
+    private final Path directory;
+    private final long maxLength;
+    private Path path;
+    private OutputStream outputStream;
+    private long length;
+    private boolean abandoned;
+
+    WarmUpload(WarmStore warmStore, Path directory, long maxLength) {
+        this.warmStore = warmStore;
+        this.directory = directory;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns a stream reading {@code inputStream} and copying what it reads to this upload.
+     */
+    public InputStream capture(InputStream inputStream) {
+        return new TeeInputStream(inputStream, this);
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int count) {
+        if (abandoned) {
+            return;
+        }
+        if (length + count > maxLength) {
+            logger.debug("Upload over {} bytes is not kept warm", maxLength);
+            discard();
+            return;
+        }
+        try {
+            if (outputStream == null) {
+                path = Files.createTempFile(directory, UPLOAD_FILE_PREFIX, UPLOAD_FILE_SUFFIX);
+                outputStream = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+            }
+            outputStream.write(bytes, offset, count);
+            length += count;
+        } catch (IOException e) {
+            logger.warn("Unable to keep upload warm: {}", e.getMessage());
+            discard();
+        }
+    }
+
+    /**
+     * Keeps the copy as the content of the object; an upload given up or already committed is ignored.
+     */
+    public void commit(String bucket, Integer resourceId, String contentType) {
+        if (abandoned || outputStream == null) {
+            return;
+        }
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            logger.warn("Unable to keep upload warm: {}", e.getMessage());
+            discard();
+            return;
+        }
+        abandoned = true;
+        warmStore.put(bucket, resourceId, new WarmEntry(path, length, contentType));
+        path = null;
+    }
+
+    /**
+     * Deletes the copy unless it was committed.
+     */
+    public void discard() {
+        abandoned = true;
+        if (outputStream != null) {
+            try {
+                outputStream.close();
+            } catch (IOException e) {
+                logger.debug("Unable to close warm upload {}: {}", path, e.getMessage());
+            }
+        }
+        if (path != null) {
+            warmStore.deleteQuietly(path);
+            path = null;
+        }
+    }
+}
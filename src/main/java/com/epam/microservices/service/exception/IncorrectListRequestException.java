@@ -0,0 +1,11 @@
+package com.epam.microservices.service.exception;
+
+import java.text.MessageFormat;
+
+public class IncorrectListRequestException extends RuntimeException {
+    private static final String ERROR_MESSAGE_PATTERN = "Incorrect value ''{1}'' of list parameter ''{0}''";
+
+    public IncorrectListRequestException(String parameter, Object value) {
+        super(MessageFormat.format(ERROR_MESSAGE_PATTERN, parameter, value));
+    }
+}
@@ -1,15 +1,22 @@
 package com.epam.microservices.service.exception;
 
 import java.text.MessageFormat;
+import java.util.Optional;
 
 public class IncorrectRangeException extends RuntimeException {
-    private static final String ERROR_MESSAGE_PATTERN = "Incorrect range {0} - {1}";
-    private final int start;
-    private final int end;
-
-    public IncorrectRangeException(int start, int end) {
-        super(MessageFormat.format(ERROR_MESSAGE_PATTERN, start, end));
-        this.start = start;
-        this.end = end;
+    private static final String ERROR_MESSAGE_PATTERN = "Incorrect range {0}";
+    private final Long resourceLength;
+
+    public IncorrectRangeException(String range) {
+        this(range, null);
+    }
+
+    public IncorrectRangeException(String range, Long resourceLength) {
+        super(MessageFormat.format(ERROR_MESSAGE_PATTERN, range));
+        this.resourceLength = resourceLength;
+    }
+
+    public Optional<Long> getResourceLength() {
+        return Optional.ofNullable(resourceLength);
     }
 }
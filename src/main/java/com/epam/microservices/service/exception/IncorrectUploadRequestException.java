@@ -0,0 +1,11 @@
+package com.epam.microservices.service.exception;
+
+import java.text.MessageFormat;
+
+public class IncorrectUploadRequestException extends RuntimeException {
+    private static final String ERROR_MESSAGE_PATTERN = "Multipart request with file part ''{0}'' expected";
+
+    public IncorrectUploadRequestException(String partName) {
+        super(MessageFormat.format(ERROR_MESSAGE_PATTERN, partName));
+    }
+}
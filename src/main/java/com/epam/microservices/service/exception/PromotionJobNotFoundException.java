@@ -0,0 +1,11 @@
+package com.epam.microservices.service.exception;
+
+import java.text.MessageFormat;
+
+public class PromotionJobNotFoundException extends RuntimeException {
+    private static final String ERROR_MESSAGE_PATTERN = "Promotion job with id {0} not found";
+
+    public PromotionJobNotFoundException(long jobId) {
+        super(MessageFormat.format(ERROR_MESSAGE_PATTERN, jobId));
+    }
+}
@@ -0,0 +1,17 @@
+package com.epam.microservices.service.exception;
+
+import java.text.MessageFormat;
+
+public class StorageOverloadedException extends RuntimeException {
+    private static final String ERROR_MESSAGE_PATTERN = "Storage is overloaded, retry in {0} seconds";
+    private final long retryAfterSeconds;
+
+    public StorageOverloadedException(long retryAfterSeconds) {
+        super(MessageFormat.format(ERROR_MESSAGE_PATTERN, retryAfterSeconds));
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
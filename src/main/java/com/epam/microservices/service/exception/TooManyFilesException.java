@@ -0,0 +1,11 @@
+package com.epam.microservices.service.exception;
+
+import java.text.MessageFormat;
+
+public class TooManyFilesException extends RuntimeException {
+    private static final String ERROR_MESSAGE_PATTERN = "At most {0} files can be uploaded in one request";
+
+    public TooManyFilesException(int maxFiles) {
+        super(MessageFormat.format(ERROR_MESSAGE_PATTERN, maxFiles));
+    }
+}
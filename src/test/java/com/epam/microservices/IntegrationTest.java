@@ -1,24 +1,46 @@
 package com.epam.microservices;
 
+import com.amazonaws.services.s3.model.S3Object;
 import com.epam.microservices.controller.ResourceController;
+import com.epam.microservices.model.BlobEntity;
+import com.epam.microservices.model.ContentRange;
 import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.PromotionJob;
+import com.epam.microservices.repository.BlobRepository;
+import com.epam.microservices.repository.FileEntityWriter;
+import com.epam.microservices.repository.OutboxRepository;
 import com.epam.microservices.repository.ResourceRepository;
 import com.epam.microservices.service.BucketNameGetter;
-import com.epam.microservices.service.RabbitMQSender;
+import com.epam.microservices.service.PromotionJobRunner;
 import com.epam.microservices.service.ResourceService;
 import com.epam.microservices.service.S3Processor;
+import com.epam.microservices.service.S3ResourceContent;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
 
 import static com.epam.microservices.service.constant.StorageType.PERMANENT;
 import static com.epam.microservices.service.constant.StorageType.STAGING;
@@ -29,7 +51,8 @@ import static org.mockito.Mockito.*;
 @SpringBootTest
 class IntegrationTest {
     private static final String ID = "id";
-    private static final String RANGE = "range";
+    private static final String FAILED_ID = "failedId";
+    private static final String CONTENT_SHA256 = "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81";
     @SpyBean
     private ResourceService service;
     @MockBean
@@ -39,113 +62,176 @@ class IntegrationTest {
     @MockBean
     private BucketNameGetter bucketNameGetter;
     @MockBean
-    private RabbitMQSender rabbitMQSender;
+    private OutboxRepository outboxRepository;
+    @MockBean
+    private BlobRepository blobRepository;
+    @MockBean
+    private FileEntityWriter fileEntityWriter;
     @Autowired
     private ResourceController controller;
+    @Autowired
+    private PromotionJobRunner promotionJobRunner;
 
     @Test
     void createTest() {
-        MultipartFile file = mock(MultipartFile.class);
+        MockHttpServletRequest request = multipartRequest("track.mp3", "audio/mpeg", new byte[]{1, 2, 3});
         Integer id = 3;
         Map<String, Integer> expectedResult = Map.of(ID, id);
         String bucket = "staging-bucket";
 
         when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn(bucket);
-        doNothing().when(s3Processor).putResource(file, bucket, id);
-        doAnswer(invocation -> {
-            Object[] args = invocation.getArguments();
-            ((FileEntity) args[0]).setId(id);
-            return null;
-        }).when(repository).create(any(FileEntity.class));
-        doNothing().when(rabbitMQSender).sendUploadedResourceId(id);
-
-        assertEquals(expectedResult, controller.create(file));
-        verify(service).create(file);
-        verifyNoMoreInteractions(service);
+        when(s3Processor.putResource(any(InputStream.class), eq("audio/mpeg"), eq(bucket), eq(id),
+                any(BooleanSupplier.class))).thenAnswer(invocation -> {
+            ((InputStream) invocation.getArgument(0)).readAllBytes();
+            return invocation.getArgument(4, BooleanSupplier.class).getAsBoolean();
+        });
+        when(fileEntityWriter.create(any(FileEntity.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, FileEntity.class).setId(id);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertEquals(expectedResult, controller.create(request));
+        verify(service).create(eq("track.mp3"), eq("audio/mpeg"), any(InputStream.class));
         verify(bucketNameGetter).getBucketForStorage(STAGING.getValue());
         verifyNoMoreInteractions(bucketNameGetter);
-        verify(s3Processor).putResource(file, bucket, id);
+        verify(s3Processor).putResource(any(InputStream.class), eq("audio/mpeg"), eq(bucket), eq(id),
+                any(BooleanSupplier.class));
         verifyNoMoreInteractions(s3Processor);
-        verify(repository).create(any(FileEntity.class));
+        verify(fileEntityWriter).create(argThat(fileEntity -> "mp3".equals(fileEntity.getContentType())));
+        verify(repository).update(argThat(fileEntity -> CONTENT_SHA256.equals(fileEntity.getETag())
+                && fileEntity.getContentLength() == 3 && "audio/mpeg".equals(fileEntity.getMimeType())));
         verifyNoMoreInteractions(repository);
-        verify(rabbitMQSender).sendUploadedResourceId(id);
-        verifyNoMoreInteractions(rabbitMQSender);
+        verify(blobRepository).reference(CONTENT_SHA256, bucket);
+        verify(blobRepository).create(bucket, id, CONTENT_SHA256);
+        verifyNoMoreInteractions(blobRepository);
+        verify(outboxRepository).markReady(id);
     }
 
     @Test
-    void readWithRangeTest() {
+    void readWithRangeTest() throws IOException {
         int id = 3;
-        Map<String, String> headers = Map.of(RANGE, "0 - 3");
-        byte[] fileBytes = new byte[]{1, 2, 3, 4, 5};
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "0 - 3");
         byte[] expectedFileBytes = new byte[]{1, 2, 3};
-        List<Integer> range = List.of(0, 3);
+        HttpRange range = HttpRange.createByteRange(0, 2);
+        ContentRange contentRange = new ContentRange(0, 2, 5);
         String bucket = "staging-bucket";
         FileEntity fileEntity = new FileEntity();
         fileEntity.setId(id);
         fileEntity.setBucket(bucket);
+        fileEntity.setETag(CONTENT_SHA256);
+        fileEntity.setContentLength(5L);
+        fileEntity.setMimeType("audio/mpeg");
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(expectedFileBytes));
 
         when(repository.read(id)).thenReturn(Optional.of(fileEntity));
-        when(s3Processor.getFileBytesFromResource(bucket, id)).thenReturn(fileBytes);
+        when(s3Processor.getResource(bucket, id, contentRange)).thenReturn(new S3ResourceContent(s3Object, contentRange));
 
-        ResponseEntity<byte[]> responseEntity = controller.read(id, headers);
+        ResponseEntity<StreamingResponseBody> responseEntity = controller.read(id, headers, new MockHttpServletRequest(),
+                new MockHttpServletResponse());
         assertEquals(HttpStatus.PARTIAL_CONTENT, responseEntity.getStatusCode());
-        assertArrayEquals(expectedFileBytes, responseEntity.getBody());
-        verify(service).getFileBytes(id, range);
-        verify(service).getFileBytes(id);
+        assertEquals("bytes 0-2/5", responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(expectedFileBytes, readBody(responseEntity));
+        verify(service).getResourceMetadata(id);
+        verify(service).isAsyncEngine();
+        verify(service).getResource(id, range);
         verifyNoMoreInteractions(service);
-        verify(repository).read(id);
+        verify(repository, times(2)).read(id);
         verifyNoMoreInteractions(repository);
-        verify(s3Processor).getFileBytesFromResource(bucket, id);
+        verify(s3Processor).getResource(bucket, id, contentRange);
         verifyNoMoreInteractions(s3Processor);
     }
 
     @Test
-    void readWithoutRangeTest() {
+    void readWithoutRangeTest() throws IOException {
         int id = 3;
-        Map<String, String> headers = Map.of();
+        HttpHeaders headers = new HttpHeaders();
         byte[] fileBytes = new byte[]{1, 2, 3, 4, 5};
         String bucket = "staging-bucket";
         FileEntity fileEntity = new FileEntity();
         fileEntity.setId(id);
         fileEntity.setBucket(bucket);
+        fileEntity.setETag(CONTENT_SHA256);
+        fileEntity.setContentLength((long) fileBytes.length);
+        fileEntity.setMimeType("audio/mpeg");
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(fileBytes));
+        s3Object.getObjectMetadata().setContentLength(fileBytes.length);
 
         when(repository.read(id)).thenReturn(Optional.of(fileEntity));
-        when(s3Processor.getFileBytesFromResource(bucket, id)).thenReturn(fileBytes);
+        when(s3Processor.getResource(bucket, id)).thenReturn(new S3ResourceContent(s3Object));
 
-        ResponseEntity<byte[]> responseEntity = controller.read(id, headers);
+        ResponseEntity<StreamingResponseBody> responseEntity = controller.read(id, headers, new MockHttpServletRequest(),
+                new MockHttpServletResponse());
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
-        assertArrayEquals(fileBytes, responseEntity.getBody());
-        verify(service).getFileBytes(id);
+        assertEquals(fileBytes.length, responseEntity.getHeaders().getContentLength());
+        assertArrayEquals(fileBytes, readBody(responseEntity));
+        verify(service).getResourceMetadata(id);
+        verify(service).isAsyncEngine();
+        verify(service).getResource(id);
         verifyNoMoreInteractions(service);
-        verify(repository).read(id);
+        verify(repository, times(2)).read(id);
         verifyNoMoreInteractions(repository);
-        verify(s3Processor).getFileBytesFromResource(bucket, id);
+        verify(s3Processor).getResource(bucket, id);
         verifyNoMoreInteractions(s3Processor);
     }
 
+    @Test
+    void readNotModifiedTest() {
+        int id = 3;
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch("\"" + CONTENT_SHA256 + "\"");
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setId(id);
+        fileEntity.setBucket("staging-bucket");
+        fileEntity.setETag(CONTENT_SHA256);
+        fileEntity.setContentLength(3L);
+        fileEntity.setMimeType("audio/mpeg");
+        fileEntity.setUploadedAt(Instant.parse("2022-10-01T10:15:30Z"));
+
+        when(repository.read(id)).thenReturn(Optional.of(fileEntity));
+
+        ResponseEntity<StreamingResponseBody> responseEntity = controller.read(id, headers, new MockHttpServletRequest(),
+                new MockHttpServletResponse());
+        assertEquals(HttpStatus.NOT_MODIFIED, responseEntity.getStatusCode());
+        verify(service).getResourceMetadata(id);
+        verifyNoMoreInteractions(service);
+        verifyNoInteractions(s3Processor);
+    }
+
     @Test
     void deleteTest() {
         List<Integer> ids = List.of(1, 2, 3);
-        List<Integer> deletedIds = List.of(1, 3);
-        Map<String, List<Integer>> expectedResult = Map.of(ID, deletedIds);
+        Map<String, List<Integer>> expectedResult = Map.of(ID, List.of(1), FAILED_ID, List.of(3));
         String bucket = "bucket";
-        FileEntity fileEntity = new FileEntity();
-        fileEntity.setBucket(bucket);
+        FileEntity first = new FileEntity();
+        first.setId(1);
+        first.setBucket(bucket);
+        first.setStorageId(1);
+        FileEntity third = new FileEntity();
+        third.setId(3);
+        third.setBucket(bucket);
+        third.setStorageId(3);
+
+        BlobEntity firstBlob = blob(11, bucket, 1);
+        BlobEntity thirdBlob = blob(13, bucket, 3);
 
-        when(repository.read(1)).thenReturn(Optional.of(fileEntity));
-        when(repository.read(2)).thenReturn(Optional.empty());
-        when(repository.read(3)).thenReturn(Optional.of(fileEntity));
-        doNothing().when(repository).delete(any(FileEntity.class));
-        doNothing().when(s3Processor).deleteResource(eq(bucket), any(Integer.class));
+        when(repository.readAll(Set.of(1, 2, 3))).thenReturn(List.of(first, third));
+        when(blobRepository.release(List.of(first, third))).thenReturn(List.of(firstBlob, thirdBlob));
+        when(s3Processor.deleteResources(bucket, List.of(1, 3))).thenReturn(List.of(3));
 
         assertEquals(expectedResult, controller.delete(ids));
         verify(service).delete(ids);
-        verifyNoMoreInteractions(service);
-        verify(repository, times(3)).read(anyInt());
-        verify(repository, times(2)).delete(any());
+        verify(repository).readAll(Set.of(1, 2, 3));
+        verify(repository).deleteReleased(List.of(first));
         verifyNoMoreInteractions(repository);
-        verify(s3Processor, times(2)).deleteResource(eq(bucket), any(Integer.class));
+        verify(s3Processor).deleteResources(bucket, List.of(1, 3));
         verifyNoMoreInteractions(s3Processor);
+        verify(blobRepository).release(List.of(first, third));
+        verify(blobRepository).deleteUnreferenced(List.of(11L));
+        verify(blobRepository).retain(List.of(third));
+        verifyNoMoreInteractions(blobRepository);
     }
 
     @Test
@@ -163,16 +249,57 @@ class IntegrationTest {
         doNothing().when(s3Processor).transferResource(stagingBucket, permanentBucket, id);
         doNothing().when(repository).update(any(FileEntity.class));
 
-        controller.permanentResource(id);
+        ResponseEntity<Map<String, Object>> responseEntity = controller.permanentResource(id);
+        assertEquals(HttpStatus.ACCEPTED, responseEntity.getStatusCode());
+        Long jobId = (Long) responseEntity.getBody().get("jobId");
+        assertEquals(PromotionJob.Status.QUEUED, controller.readPromotion(jobId).get("status"));
+        verifyNoInteractions(s3Processor);
+
+        promotionJobRunner.run(promotionJobRunner.getJob(jobId));
+
+        assertEquals(PromotionJob.Status.SUCCEEDED, controller.readPromotion(jobId).get("status"));
         verify(service).permanentResource(id);
         verifyNoMoreInteractions(service);
-        verify(repository).read(id);
+        verify(repository, times(2)).read(id);
         verify(repository).update(any(FileEntity.class));
         verifyNoMoreInteractions(repository);
         verify(bucketNameGetter).getBucketForStorage(PERMANENT.getValue());
         verifyNoMoreInteractions(bucketNameGetter);
         verify(s3Processor).transferResource(stagingBucket, permanentBucket, id);
         verifyNoMoreInteractions(s3Processor);
+        verify(blobRepository).find(stagingBucket, id);
+        verifyNoMoreInteractions(blobRepository);
+    }
+
+    private BlobEntity blob(long id, String bucket, int storageId) {
+        BlobEntity blob = new BlobEntity();
+        blob.setId(id);
+        blob.setBucket(bucket);
+        blob.setStorageId(storageId);
+        return blob;
+    }
+
+    private byte[] readBody(ResponseEntity<StreamingResponseBody> responseEntity) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        responseEntity.getBody().writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private MockHttpServletRequest multipartRequest(String fileName, String contentType, byte[] content) {
+        String boundary = "resource-boundary";
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
+        byte[] body = new byte[head.length() + content.length + tail.length()];
+        System.arraycopy(head.getBytes(StandardCharsets.US_ASCII), 0, body, 0, head.length());
+        System.arraycopy(content, 0, body, head.length(), content.length);
+        System.arraycopy(tail.getBytes(StandardCharsets.US_ASCII), 0, body, head.length() + content.length, tail.length());
+
+        MockHttpServletRequest request = new MockHttpServletRequest(HttpMethod.POST.name(), "/resources");
+        request.setContentType("multipart/form-data; boundary=" + boundary);
+        request.setContent(body);
+        return request;
     }
 
 }
@@ -0,0 +1,228 @@
+package com.epam.microservices.controller;
+
+import com.epam.microservices.config.dto.AsyncClientConfig;
+import com.epam.microservices.controller.exception.ErrorHandler;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.service.PublishedResourceContent;
+import com.epam.microservices.service.exception.IncorrectRangeException;
+import com.epam.microservices.service.exception.StorageOverloadedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class AsyncContentWriterTest {
+    @Spy
+    private AsyncClientConfig config = new AsyncClientConfig();
+    @Spy
+    private ErrorHandler errorHandler = new ErrorHandler();
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private AsyncContentWriter writer;
+
+    @Test
+    void writePublishedContentTest() {
+        MockHttpServletRequest request = asyncRequest();
+        BodyResponse response = new BodyResponse();
+        ResourceContent content = new PublishedResourceContent("audio/mpeg", new ContentRange(0, 4, 10),
+                publisherOf(new byte[]{1, 2}, new byte[]{3, 4, 5}));
+
+        writer.write(request, response, CompletableFuture.completedFuture(content), this::head);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        assertEquals("bytes 0-4/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, response.body.toByteArray());
+        assertFalse(request.isAsyncStarted());
+    }
+
+    @Test
+    void writeBlockingContentTest() throws IOException {
+        MockHttpServletRequest request = asyncRequest();
+        BodyResponse response = new BodyResponse();
+        ResourceContent content = mock(ResourceContent.class);
+
+        when(content.getRange()).thenReturn(ContentRange.full(10));
+
+        writer.write(request, response, CompletableFuture.completedFuture(content), this::head);
+
+        verify(content).writeTo(any(OutputStream.class));
+        verify(content).close();
+        assertFalse(request.isAsyncStarted());
+    }
+
+    @Test
+    void writeMissingContentTest() {
+        MockHttpServletRequest request = asyncRequest();
+        BodyResponse response = new BodyResponse();
+
+        writer.write(request, response,
+                CompletableFuture.failedFuture(NoSuchKeyException.builder().message("missing").build()), this::head);
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        assertFalse(request.isAsyncStarted());
+    }
+
+    @Test
+    void writeOverloadedStorageTest() {
+        MockHttpServletRequest request = asyncRequest();
+        BodyResponse response = new BodyResponse();
+
+        writer.write(request, response, CompletableFuture.failedFuture(new StorageOverloadedException(2)),
+                this::head);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+        assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(response.body.size() > 0);
+        assertFalse(request.isAsyncStarted());
+    }
+
+    @Test
+    void writeUnsatisfiableRangeTest() {
+        MockHttpServletRequest request = asyncRequest();
+        BodyResponse response = new BodyResponse();
+        IncorrectRangeException e = new IncorrectRangeException("bytes=20-30", 10L);
+
+        writer.write(request, response, CompletableFuture.failedFuture(new CompletionException(e)), this::head);
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertFalse(request.isAsyncStarted());
+    }
+
+    @Test
+    void writeFailedHeadTest() {
+        MockHttpServletRequest request = asyncRequest();
+        BodyResponse response = new BodyResponse();
+        ResourceContent content = mock(ResourceContent.class);
+
+        writer.write(request, response, CompletableFuture.completedFuture(content), opened -> {
+            throw new IllegalStateException("No range");
+        });
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), response.getStatus());
+        assertFalse(request.isAsyncStarted());
+    }
+
+    @Test
+    void writeFailedContentTest() {
+        MockHttpServletRequest request = asyncRequest();
+        BodyResponse response = new BodyResponse();
+        ResourceContent content = new PublishedResourceContent("audio/mpeg", ContentRange.full(10),
+                subscriber -> subscriber.onError(new IOException("Connection reset")));
+
+        writer.write(request, response, CompletableFuture.completedFuture(content), this::head);
+
+        assertEquals(HttpStatus.BAD_GATEWAY.value(), response.getStatus());
+        assertEquals(0, response.body.size());
+        assertFalse(request.isAsyncStarted());
+    }
+
+    private ResponseEntity<Void> head(ResourceContent content) {
+        ContentRange range = content.getRange();
+        return ResponseEntity.status(range.isFull() ? HttpStatus.OK : HttpStatus.PARTIAL_CONTENT)
+                .header(HttpHeaders.CONTENT_RANGE, range.toHeaderValue())
+                .build();
+    }
+
+    private MockHttpServletRequest asyncRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    /**
+     * Emits the chunks synchronously as they are requested.
+     */
+    private Publisher<ByteBuffer> publisherOf(byte[]... chunks) {
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            private int next;
+            private boolean done;
+
+            @Override
+            public void request(long n) {
+                for (long i = 0; i < n && !done; i++) {
+                    if (next < chunks.length) {
+                        subscriber.onNext(ByteBuffer.wrap(chunks[next++]));
+                    } else {
+                        done = true;
+                        subscriber.onComplete();
+                    }
+                }
+            }
+
+            @Override
+            public void cancel() {
+                done = true;
+            }
+        });
+    }
+
+    /**
+     * Response whose output stream supports non-blocking writes and is always ready.
+     */
+    private static class BodyResponse extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                try {
+                    writeListener.onWritePossible();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        };
+
+        private BodyResponse() {
+            super(new MockHttpServletResponse());
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+    }
+}
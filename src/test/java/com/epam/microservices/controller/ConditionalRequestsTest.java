@@ -0,0 +1,86 @@
+package com.epam.microservices.controller;
+
+import com.epam.microservices.model.ResourceMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConditionalRequestsTest {
+    private static final String ETAG = "\"0123\"";
+    private static final Instant LAST_MODIFIED = Instant.parse("2022-10-01T10:15:30Z");
+    private static final ResourceMetadata METADATA = new ResourceMetadata("0123", 10L, "audio/mpeg", LAST_MODIFIED);
+
+    private static Stream<Arguments> isNotModifiedTestCases() {
+        return Stream.of(
+                Arguments.of("NoConditions", new HttpHeaders(), false),
+                Arguments.of("MatchingETag", headers(HttpHeaders.IF_NONE_MATCH, "\"other\", " + ETAG), true),
+                Arguments.of("MatchingWeakETag", headers(HttpHeaders.IF_NONE_MATCH, "W/" + ETAG), true),
+                Arguments.of("AnyETag", headers(HttpHeaders.IF_NONE_MATCH, "*"), true),
+                Arguments.of("OtherETag", headers(HttpHeaders.IF_NONE_MATCH, "\"other\""), false),
+                Arguments.of("NotModifiedSince", dateHeaders(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED), true),
+                Arguments.of("ModifiedSince",
+                        dateHeaders(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED.minusSeconds(1)), false),
+                Arguments.of("ETagOverridesDate", etagAndDateHeaders(), false)
+        );
+    }
+
+    @ParameterizedTest(name = "IsNotModified_{0}_Test")
+    @MethodSource(value = "isNotModifiedTestCases")
+    void isNotModifiedTest(String name, HttpHeaders headers, boolean expected) {
+        assertEquals(expected, ConditionalRequests.isNotModified(headers, METADATA));
+    }
+
+    private static Stream<Arguments> isRangeApplicableTestCases() {
+        return Stream.of(
+                Arguments.of("NoIfRange", new HttpHeaders(), true),
+                Arguments.of("MatchingETag", headers(HttpHeaders.IF_RANGE, ETAG), true),
+                Arguments.of("WeakETag", headers(HttpHeaders.IF_RANGE, "W/" + ETAG), false),
+                Arguments.of("OtherETag", headers(HttpHeaders.IF_RANGE, "\"other\""), false),
+                Arguments.of("ExactDate", dateHeaders(HttpHeaders.IF_RANGE, LAST_MODIFIED), true),
+                Arguments.of("OtherDate", dateHeaders(HttpHeaders.IF_RANGE, LAST_MODIFIED.plusSeconds(1)), false),
+                Arguments.of("InvalidDate", headers(HttpHeaders.IF_RANGE, "yesterday"), false)
+        );
+    }
+
+    @ParameterizedTest(name = "IsRangeApplicable_{0}_Test")
+    @MethodSource(value = "isRangeApplicableTestCases")
+    void isRangeApplicableTest(String name, HttpHeaders headers, boolean expected) {
+        assertEquals(expected, ConditionalRequests.isRangeApplicable(headers, METADATA));
+    }
+
+    @Test
+    void resourceWithoutValidatorsTest() {
+        ResourceMetadata metadata = new ResourceMetadata(null, null, null, null);
+
+        assertFalse(ConditionalRequests.isNotModified(headers(HttpHeaders.IF_NONE_MATCH, "*"), metadata));
+        assertFalse(ConditionalRequests.isRangeApplicable(headers(HttpHeaders.IF_RANGE, ETAG), metadata));
+        assertTrue(ConditionalRequests.isRangeApplicable(new HttpHeaders(), metadata));
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(name, value);
+        return headers;
+    }
+
+    private static HttpHeaders dateHeaders(String name, Instant date) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setDate(name, date.toEpochMilli());
+        return headers;
+    }
+
+    private static HttpHeaders etagAndDateHeaders() {
+        HttpHeaders headers = dateHeaders(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED);
+        headers.setIfNoneMatch("\"other\"");
+        return headers;
+    }
+}
@@ -0,0 +1,38 @@
+package com.epam.microservices.controller;
+
+import com.epam.microservices.service.exception.IncorrectRangeException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpRange;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RangeHeaderParserTest {
+
+    private static Stream<Arguments> parseTestCases() {
+        return Stream.of(
+                Arguments.of("ByteRangeWithStartAndEnd", "bytes=0-99", HttpRange.createByteRange(0, 99)),
+                Arguments.of("ByteRangeWithStart", "bytes=100-", HttpRange.createByteRange(100)),
+                Arguments.of("SuffixByteRange", "bytes=-100", HttpRange.createSuffixRange(100)),
+                Arguments.of("LegacyRangeWithStartAndEnd", "0 - 3", HttpRange.createByteRange(0, 2)),
+                Arguments.of("LegacyRangeWithStart", "1", HttpRange.createByteRange(1))
+        );
+    }
+
+    @ParameterizedTest(name = "Parse_{0}_Test")
+    @MethodSource(value = "parseTestCases")
+    void parseTest(String name, String rangeHeader, HttpRange expectedRange) {
+        assertEquals(expectedRange, RangeHeaderParser.parse(rangeHeader));
+    }
+
+    @ParameterizedTest(name = "ParseException_{0}_Test")
+    @ValueSource(strings = {"bytes=0-1,5-6", "bytes=5-1", "bytes=a-", "-3 - 2", "2 - 2", "range"})
+    void parseExceptionTest(String rangeHeader) {
+        assertThrows(IncorrectRangeException.class, () -> RangeHeaderParser.parse(rangeHeader));
+    }
+}
@@ -1,93 +1,555 @@
 package com.epam.microservices.controller;
 
-import com.epam.microservices.service.RabbitMQSender;
+import com.epam.microservices.controller.exception.ErrorHandler;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.DeletionResult;
+import com.epam.microservices.model.FileRegion;
+import com.epam.microservices.model.PromotionJob;
+import com.epam.microservices.model.PromotionResult;
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.model.ResourceMetadata;
+import com.epam.microservices.model.ResourceQuery;
+import com.epam.microservices.model.ResourceSummary;
+import com.epam.microservices.model.SpooledFile;
+import com.epam.microservices.model.UploadResult;
+import com.epam.microservices.service.BulkPromoter;
+import com.epam.microservices.service.BulkUploader;
+import com.epam.microservices.service.PromotionJobRunner;
 import com.epam.microservices.service.ResourceService;
+import com.epam.microservices.service.exception.IncorrectUploadRequestException;
+import com.epam.microservices.service.exception.TooManyFilesException;
+import com.epam.microservices.service.exception.UnableToSaveFileException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith({MockitoExtension.class, SpringExtension.class})
 class ResourceControllerTest {
     private static final String ID = "id";
-    private static final String RANGE = "range";
+    private static final String FAILED_ID = "failedId";
+    private static final ResourceMetadata METADATA = new ResourceMetadata(
+            "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81", 10L, "audio/mpeg",
+            Instant.parse("2022-10-01T10:15:30Z"));
     @MockBean
     private ResourceService service;
     @MockBean
-    private RabbitMQSender rabbitMQSender;
+    private BulkUploader bulkUploader;
+    @MockBean
+    private BulkPromoter bulkPromoter;
+    @MockBean
+    private PromotionJobRunner promotionJobRunner;
+    @MockBean
+    private AsyncContentWriter asyncContentWriter;
+    @Captor
+    private ArgumentCaptor<Function<ResourceContent, ResponseEntity<Void>>> headCaptor;
+    @Spy
+    private ServletFileUpload servletFileUpload = new ServletFileUpload();
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
     @InjectMocks
     private ResourceController controller;
 
     @Test
     void createTest() {
-        MultipartFile file = mock(MultipartFile.class);
+        MockHttpServletRequest request = multipartRequest("track.mp3", "audio/mpeg", new byte[]{1, 2, 3});
         Integer id = 3;
         Map<String, Integer> expectedResult = Map.of(ID, id);
 
-        when(service.create(file)).thenReturn(id);
-        doNothing().when(rabbitMQSender).sendUploadedResourceId(id);
+        when(service.create(eq("track.mp3"), eq("audio/mpeg"), any(InputStream.class))).thenReturn(id);
+
+        assertEquals(expectedResult, controller.create(request));
+        verify(service).create(eq("track.mp3"), eq("audio/mpeg"), any(InputStream.class));
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    void createAllTest() {
+        MockHttpServletRequest request = multipartRequest("track.mp3", "audio/mpeg", new byte[]{1, 2, 3});
+        List<Path> spooledPaths = new ArrayList<>();
+
+        when(bulkUploader.getMaxFiles()).thenReturn(10);
+        when(bulkUploader.upload(anyList())).thenAnswer(invocation -> {
+            List<SpooledFile> files = invocation.getArgument(0);
+            files.forEach(file -> spooledPaths.add(file.getPath()));
+            assertEquals("track.mp3", files.get(0).getFileName());
+            assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(files.get(0).getPath()));
+            return List.of(UploadResult.created("track.mp3", 3));
+        });
+
+        assertEquals(Map.of("resources", List.of(Map.of("fileName", "track.mp3", ID, 3))),
+                controller.createAll(request));
+        assertEquals(1, spooledPaths.size());
+        assertFalse(Files.exists(spooledPaths.get(0)));
+    }
+
+    @Test
+    void createAllTooManyFilesTest() {
+        MockHttpServletRequest request = multipartRequest("track.mp3", "audio/mpeg", new byte[]{1, 2, 3});
+
+        when(bulkUploader.getMaxFiles()).thenReturn(0);
+
+        assertThrows(TooManyFilesException.class, () -> controller.createAll(request));
+        verify(bulkUploader, never()).upload(anyList());
+    }
+
+    @Test
+    void createAllFileTooLargeTest() {
+        MockHttpServletRequest request = multipartRequest("track.mp3", "audio/mpeg", new byte[]{1, 2, 3});
+        servletFileUpload.setFileSizeMax(2);
+
+        when(bulkUploader.getMaxFiles()).thenReturn(10);
+
+        UnableToSaveFileException e = assertThrows(UnableToSaveFileException.class,
+                () -> controller.createAll(request));
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, new ErrorHandler().unableToSaveFileException(e).getStatusCode());
+        verify(bulkUploader, never()).upload(anyList());
+    }
+
+    @Test
+    void permanentResourceTest() {
+        Integer id = 3;
+        PromotionJob job = promotionJob(7, id);
+
+        when(promotionJobRunner.submit(id)).thenReturn(job);
+
+        ResponseEntity<Map<String, Object>> responseEntity = controller.permanentResource(id);
+
+        assertEquals(HttpStatus.ACCEPTED, responseEntity.getStatusCode());
+        assertEquals(URI.create("/resources/promotions/7"), responseEntity.getHeaders().getLocation());
+        assertEquals(7L, responseEntity.getBody().get("jobId"));
+        assertEquals(PromotionJob.Status.QUEUED, responseEntity.getBody().get("status"));
+        verify(promotionJobRunner).submit(id);
+        verifyNoMoreInteractions(promotionJobRunner);
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    void readPromotionTest() {
+        PromotionJob job = promotionJob(7, 3);
+        job.setAttempts(1);
+        job.setError("S3 is down");
+
+        when(promotionJobRunner.getJob(7L)).thenReturn(job);
+
+        Map<String, Object> result = controller.readPromotion(7L);
+
+        assertEquals(List.of("jobId", "resourceId", "status", "attempts", "error", "createdAt", "updatedAt"),
+                new ArrayList<>(result.keySet()));
+        assertEquals(3, result.get("resourceId"));
+        assertEquals(1, result.get("attempts"));
+        assertEquals("S3 is down", result.get("error"));
+    }
+
+    @Test
+    void permanentResourcesTest() {
+        List<Integer> ids = List.of(1, 2, 3);
+        Map<String, List<Integer>> expectedResult = Map.of(ID, List.of(1, 3), FAILED_ID, List.of(2));
+
+        when(bulkPromoter.promote(ids)).thenReturn(new PromotionResult(List.of(1, 3), List.of(2)));
+
+        assertEquals(expectedResult, controller.permanentResources(ids));
+        verify(bulkPromoter).promote(ids);
+        verifyNoMoreInteractions(bulkPromoter);
+    }
+
+    @Test
+    void createWithoutMultipartBodyTest() {
+        MockHttpServletRequest request = new MockHttpServletRequest(HttpMethod.POST.name(), "/resources");
+
+        assertThrows(IncorrectUploadRequestException.class, () -> controller.create(request));
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    void readWithRangeTest() throws IOException {
+        int id = 3;
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=0-4");
+        ContentRange contentRange = new ContentRange(0, 4, 10);
+        ResourceContent content = mock(ResourceContent.class);
+
+        when(content.getContentType()).thenReturn("audio/mpeg");
+        when(content.getContentLength()).thenReturn(contentRange.getLength());
+        when(content.getRange()).thenReturn(contentRange);
+        when(service.getResourceMetadata(id)).thenReturn(METADATA);
+        when(service.getResource(id, HttpRange.createByteRange(0, 4))).thenReturn(content);
+
+        ResponseEntity<StreamingResponseBody> responseEntity = controller.read(id, headers,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        assertEquals(HttpStatus.PARTIAL_CONTENT, responseEntity.getStatusCode());
+        assertEquals(5, responseEntity.getHeaders().getContentLength());
+        assertEquals("bytes 0-4/10", responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals("bytes", responseEntity.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        readBody(responseEntity);
+        verify(content).writeTo(any(OutputStream.class));
+        verify(service).getResourceMetadata(id);
+        verify(service).isAsyncEngine();
+        verify(service).getResource(id, HttpRange.createByteRange(0, 4));
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    void readWithoutRangeTest() throws IOException {
+        int id = 3;
+        HttpHeaders headers = new HttpHeaders();
+        long contentLength = 5;
+        ResourceContent content = mock(ResourceContent.class);
+
+        when(content.getContentType()).thenReturn("audio/mpeg");
+        when(content.getContentLength()).thenReturn(contentLength);
+        when(service.getResourceMetadata(id)).thenReturn(METADATA);
+        when(service.getResource(id)).thenReturn(content);
+
+        ResponseEntity<StreamingResponseBody> responseEntity = controller.read(id, headers,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(contentLength, responseEntity.getHeaders().getContentLength());
+        assertEquals(MediaType.parseMediaType("audio/mpeg"), responseEntity.getHeaders().getContentType());
+        assertEquals(METADATA.getETag(), responseEntity.getHeaders().getETag());
+        assertEquals(METADATA.getLastModified().toEpochMilli(), responseEntity.getHeaders().getLastModified());
+        assertEquals("public, max-age=31536000, immutable", responseEntity.getHeaders().getCacheControl());
+        assertNull(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        readBody(responseEntity);
+        verify(content).writeTo(any(OutputStream.class));
+        verify(service).getResourceMetadata(id);
+        verify(service).isAsyncEngine();
+        verify(service).getResource(id);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    void readWithoutValidatorsTest() {
+        int id = 3;
+        ResourceContent content = mock(ResourceContent.class);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch("*");
+
+        when(content.getContentType()).thenReturn("audio/mpeg");
+        when(service.getResourceMetadata(id)).thenReturn(new ResourceMetadata(null, null, null, null));
+        when(service.getResource(id)).thenReturn(content);
+
+        ResponseEntity<StreamingResponseBody> responseEntity = controller.read(id, headers,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNull(responseEntity.getHeaders().getETag());
+        assertNull(responseEntity.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void readNotModifiedTest() {
+        int id = 3;
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(METADATA.getETag());
+
+        when(service.getResourceMetadata(id)).thenReturn(METADATA);
 
-        assertEquals(expectedResult, controller.create(file));
-        verify(service).create(file);
+        ResponseEntity<StreamingResponseBody> responseEntity = controller.read(id, headers,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        assertEquals(HttpStatus.NOT_MODIFIED, responseEntity.getStatusCode());
+        assertEquals(METADATA.getETag(), responseEntity.getHeaders().getETag());
+        assertNull(responseEntity.getBody());
+        verify(service).getResourceMetadata(id);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    void readWithStaleIfRangeTest() {
+        int id = 3;
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=0-4");
+        headers.set(HttpHeaders.IF_RANGE, "\"stale\"");
+        ResourceContent content = mock(ResourceContent.class);
+
+        when(content.getContentType()).thenReturn("audio/mpeg");
+        when(content.getContentLength()).thenReturn(10L);
+        when(service.getResourceMetadata(id)).thenReturn(METADATA);
+        when(service.getResource(id)).thenReturn(content);
+
+        ResponseEntity<StreamingResponseBody> responseEntity = controller.read(id, headers,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(10, responseEntity.getHeaders().getContentLength());
+        verify(service).getResourceMetadata(id);
+        verify(service).isAsyncEngine();
+        verify(service).getResource(id);
         verifyNoMoreInteractions(service);
-        verify(rabbitMQSender).sendUploadedResourceId(id);
-        verifyNoMoreInteractions(rabbitMQSender);
     }
 
     @Test
-    void readWithRangeTest() {
+    void readWithSendfileTest() {
         int id = 3;
-        Map<String, String> headers = Map.of(RANGE, "0 - 5");
-        byte[] fileBytes = new byte[]{1, 2, 3, 4, 5};
-        List<Integer> range = List.of(0, 5);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=0-4");
+        ContentRange contentRange = new ContentRange(0, 4, 10);
+        ResourceContent content = mock(ResourceContent.class);
+        Path blockPath = Path.of("blocks", "3", "0");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
 
-        when(service.getFileBytes(id, range)).thenReturn(fileBytes);
+        when(content.getContentType()).thenReturn("audio/mpeg");
+        when(content.getContentLength()).thenReturn(contentRange.getLength());
+        when(content.getRange()).thenReturn(contentRange);
+        when(content.getFileRegion()).thenReturn(Optional.of(new FileRegion(blockPath, 2, 5)));
+        when(service.getResourceMetadata(id)).thenReturn(METADATA);
+        when(service.getResource(id, HttpRange.createByteRange(0, 4))).thenReturn(content);
 
-        ResponseEntity<byte[]> responseEntity = controller.read(id, headers);
+        ResponseEntity<StreamingResponseBody> responseEntity = controller.read(id, headers, request,
+                new MockHttpServletResponse());
         assertEquals(HttpStatus.PARTIAL_CONTENT, responseEntity.getStatusCode());
-        assertArrayEquals(fileBytes, responseEntity.getBody());
-        verify(service).getFileBytes(id, range);
+        assertEquals(5, responseEntity.getHeaders().getContentLength());
+        assertEquals("bytes 0-4/10", responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertNull(responseEntity.getBody());
+        assertEquals(blockPath.toAbsolutePath().toString(),
+                request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(7L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void readWithAsyncEngineTest() {
+        int id = 3;
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=0-4");
+        ContentRange contentRange = new ContentRange(0, 4, 10);
+        ResourceContent content = mock(ResourceContent.class);
+        CompletableFuture<ResourceContent> openedContent = CompletableFuture.completedFuture(content);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        when(content.getContentType()).thenReturn("audio/mpeg");
+        when(content.getContentLength()).thenReturn(contentRange.getLength());
+        when(content.getRange()).thenReturn(contentRange);
+        when(service.getResourceMetadata(id)).thenReturn(METADATA);
+        when(service.isAsyncEngine()).thenReturn(true);
+        when(service.getResourceAsync(id, HttpRange.createByteRange(0, 4))).thenReturn(openedContent);
+
+        assertNull(controller.read(id, headers, request, response));
+        verify(asyncContentWriter).write(eq(request), eq(response), eq(openedContent), headCaptor.capture());
+        ResponseEntity<Void> responseEntity = headCaptor.getValue().apply(content);
+        assertEquals(HttpStatus.PARTIAL_CONTENT, responseEntity.getStatusCode());
+        assertEquals(5, responseEntity.getHeaders().getContentLength());
+        assertEquals("bytes 0-4/10", responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(METADATA.getETag(), responseEntity.getHeaders().getETag());
+        verify(service).getResourceMetadata(id);
+        verify(service).isAsyncEngine();
+        verify(service).getResourceAsync(id, HttpRange.createByteRange(0, 4));
         verifyNoMoreInteractions(service);
     }
 
     @Test
-    void readWithoutRangeTest() {
+    void readWithAsyncEngineKeepsWriterStatusTest() throws Exception {
+        int id = 3;
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        when(service.getResourceMetadata(id)).thenReturn(METADATA);
+        when(service.isAsyncEngine()).thenReturn(true);
+        when(service.getResourceAsync(id, HttpRange.createByteRange(0, 4)))
+                .thenReturn(new CompletableFuture<>());
+        doAnswer(invocation -> {
+            // The content was opened and the head written before the handler returned
+            HttpServletResponse response = invocation.getArgument(1);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes 0-4/10");
+            return null;
+        }).when(asyncContentWriter).write(any(), any(), any(), any());
+
+        mockMvc.perform(get("/resources/{id}", id).header(HttpHeaders.RANGE, "bytes=0-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-4/10"));
+    }
+
+    @Test
+    void headTest() {
         int id = 3;
-        Map<String, String> headers = Map.of();
-        byte[] fileBytes = new byte[]{1, 2, 3, 4, 5};
 
-        when(service.getFileBytes(id)).thenReturn(fileBytes);
+        when(service.getResourceMetadata(id)).thenReturn(METADATA);
 
-        ResponseEntity<byte[]> responseEntity = controller.read(id, headers);
+        ResponseEntity<Void> responseEntity = controller.head(id, new HttpHeaders());
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
-        assertArrayEquals(fileBytes, responseEntity.getBody());
-        verify(service).getFileBytes(id);
+        assertEquals(10, responseEntity.getHeaders().getContentLength());
+        assertEquals(MediaType.parseMediaType("audio/mpeg"), responseEntity.getHeaders().getContentType());
+        assertEquals(METADATA.getETag(), responseEntity.getHeaders().getETag());
+        assertEquals("bytes", responseEntity.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        verify(service).getResourceMetadata(id);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    void headNotModifiedTest() {
+        int id = 3;
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfModifiedSince(METADATA.getLastModified().toEpochMilli());
+
+        when(service.getResourceMetadata(id)).thenReturn(METADATA);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.head(id, headers).getStatusCode());
+        verify(service).getResourceMetadata(id);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    void listTest() throws IOException {
+        ResourceQuery query = new ResourceQuery(2, 2, "staging-bucket", null);
+        ResourceSummary summary = new ResourceSummary(3, "staging-bucket", METADATA.getSha256(), 10L, "audio/mpeg",
+                METADATA.getLastModified());
+
+        when(service.createQuery(2, 2, null, "staging", null)).thenReturn(query);
+        when(service.listResources(eq(query), any())).thenAnswer(invocation -> {
+            Consumer<ResourceSummary> consumer = invocation.getArgument(1);
+            consumer.accept(summary);
+            consumer.accept(new ResourceSummary(5, "staging-bucket", null, null, null, null));
+            return Optional.of(5);
+        });
+
+        ResponseEntity<StreamingResponseBody> response = controller.list(2, 2, null, "staging", null);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getBody().writeTo(outputStream);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        JsonNode page = objectMapper.readTree(outputStream.toByteArray());
+        assertEquals(2, page.get("resources").size());
+        JsonNode first = page.get("resources").get(0);
+        assertEquals(3, first.get(ID).asInt());
+        assertEquals("staging-bucket", first.get("bucket").asText());
+        assertEquals(10L, first.get("contentLength").asLong());
+        assertEquals("audio/mpeg", first.get("contentType").asText());
+        assertEquals(METADATA.getSha256(), first.get("sha256").asText());
+        assertEquals(5, page.get("resources").get(1).get(ID).asInt());
+        assertEquals(5, page.get("nextCursor").asInt());
+        verify(service).createQuery(2, 2, null, "staging", null);
+        verify(service).listResources(eq(query), any());
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    void listLastPageTest() throws IOException {
+        ResourceQuery query = new ResourceQuery(0, 100, null, null);
+
+        when(service.createQuery(null, null, null, null, null)).thenReturn(query);
+        when(service.listResources(eq(query), any())).thenReturn(Optional.empty());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        controller.list(null, null, null, null, null).getBody().writeTo(outputStream);
+
+        JsonNode page = objectMapper.readTree(outputStream.toByteArray());
+        assertEquals(0, page.get("resources").size());
+        assertTrue(page.get("nextCursor").isNull());
+    }
+
+    @Test
+    void readMetadataTest() {
+        int id = 3;
+        Map<String, Object> expectedResult = new LinkedHashMap<>();
+        expectedResult.put(ID, id);
+        expectedResult.put("contentLength", 10L);
+        expectedResult.put("contentType", "audio/mpeg");
+        expectedResult.put("sha256", METADATA.getSha256());
+        expectedResult.put("lastModified", METADATA.getLastModified());
+
+        when(service.getResourceMetadata(id)).thenReturn(METADATA);
+
+        assertEquals(expectedResult, controller.readMetadata(id));
+        verify(service).getResourceMetadata(id);
         verifyNoMoreInteractions(service);
     }
 
     @Test
     void deleteTest() {
         List<Integer> ids = List.of(1, 2, 3);
-        List<Integer> deletedIds = List.of(1, 3);
-        Map<String, List<Integer>> expectedResult = Map.of(ID, deletedIds);
+        List<Integer> deletedIds = List.of(1);
+        List<Integer> failedIds = List.of(3);
+        Map<String, List<Integer>> expectedResult = Map.of(ID, deletedIds, FAILED_ID, failedIds);
 
-        when(service.delete(ids)).thenReturn(deletedIds);
+        when(service.delete(ids)).thenReturn(new DeletionResult(deletedIds, failedIds));
 
         assertEquals(expectedResult, controller.delete(ids));
         verify(service).delete(ids);
         verifyNoMoreInteractions(service);
     }
 
+    private byte[] readBody(ResponseEntity<StreamingResponseBody> responseEntity) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        responseEntity.getBody().writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private PromotionJob promotionJob(long jobId, int resourceId) {
+        PromotionJob job = new PromotionJob();
+        job.setId(jobId);
+        job.setResourceId(resourceId);
+        job.setStatus(PromotionJob.Status.QUEUED);
+        job.setCreatedAt(Instant.parse("2022-10-01T10:15:30Z"));
+        job.setUpdatedAt(Instant.parse("2022-10-01T10:15:30Z"));
+        return job;
+    }
+
+    private MockHttpServletRequest multipartRequest(String fileName, String contentType, byte[] content) {
+        String boundary = "resource-boundary";
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
+        byte[] body = new byte[head.length() + content.length + tail.length()];
+        System.arraycopy(head.getBytes(StandardCharsets.US_ASCII), 0, body, 0, head.length());
+        System.arraycopy(content, 0, body, head.length(), content.length);
+        System.arraycopy(tail.getBytes(StandardCharsets.US_ASCII), 0, body, head.length() + content.length,
+                tail.length());
+
+        MockHttpServletRequest request = new MockHttpServletRequest(HttpMethod.POST.name(), "/resources");
+        request.setContentType("multipart/form-data; boundary=" + boundary);
+        request.setContent(body);
+        return request;
+    }
+
 }
@@ -0,0 +1,78 @@
+package com.epam.microservices.repository;
+
+import com.epam.microservices.model.BlobEntity;
+import com.epam.microservices.model.FileEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class BlobRepositoryTest {
+    private static final String SHA256 = "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81";
+    @Autowired
+    private BlobRepository repository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testCreateAndReference() {
+        String bucket = "blob-bucket";
+
+        assertFalse(repository.isReferenced(SHA256, bucket));
+        assertEquals(Optional.empty(), repository.reference(SHA256, bucket));
+
+        BlobEntity blob = repository.create(bucket, 10, SHA256);
+
+        assertEquals(1, blob.getRefCount());
+        assertTrue(repository.isReferenced(SHA256, bucket));
+        Optional<BlobEntity> referencedBlob = repository.reference(SHA256, bucket);
+        assertTrue(referencedBlob.isPresent());
+        assertEquals(10, referencedBlob.get().getStorageId());
+        assertEquals(2, referencedBlob.get().getRefCount());
+        assertEquals(Optional.of(2), repository.find(bucket, 10).map(BlobEntity::getRefCount));
+    }
+
+    @Test
+    void testDeleteUnreferencedKeepsReferencedBlob() {
+        String bucket = "garbage-bucket";
+        BlobEntity blob = repository.create(bucket, 20, SHA256);
+
+        repository.deleteUnreferenced(List.of(blob.getId()));
+
+        assertTrue(repository.find(bucket, 20).isPresent());
+        assertFalse(transactionTemplate.execute(status -> repository.lockUnreferenced(10)).contains(blob));
+    }
+
+    @Test
+    void testRetainGivesBackReleasedReference() {
+        String bucket = "retain-bucket";
+        repository.create(bucket, 30, SHA256);
+        repository.reference(SHA256, bucket);
+        FileEntity first = fileEntity(bucket, 30);
+        FileEntity second = fileEntity(bucket, 30);
+
+        List<BlobEntity> unreferencedBlobs = transactionTemplate.execute(status -> {
+            List<BlobEntity> releasedBlobs = repository.release(List.of(first, second));
+            repository.retain(List.of(second));
+            return releasedBlobs;
+        });
+
+        assertEquals(1, unreferencedBlobs.size());
+        assertEquals(Optional.of(1), repository.find(bucket, 30).map(BlobEntity::getRefCount));
+    }
+
+    private FileEntity fileEntity(String bucket, int storageId) {
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setBucket(bucket);
+        fileEntity.setStorageId(storageId);
+        return fileEntity;
+    }
+}
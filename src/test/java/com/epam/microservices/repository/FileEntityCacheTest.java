@@ -0,0 +1,148 @@
+package com.epam.microservices.repository;
+
+import com.epam.microservices.config.dto.EntityCacheConfig;
+import com.epam.microservices.model.FileEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static com.epam.microservices.config.RabbitMQConfig.ENTITY_INVALIDATION_EXCHANGE_NAME;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class FileEntityCacheTest {
+    @MockBean
+    private AmqpTemplate rabbitTemplate;
+    @Spy
+    private EntityCacheConfig config = new EntityCacheConfig();
+    @InjectMocks
+    private FileEntityCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache.init();
+    }
+
+    @Test
+    void getLoadsEntityOnceTest() {
+        int id = 1;
+        cache.setLoader(countingLoader(fileEntity(id, "permanent-bucket")));
+
+        Optional<FileEntity> first = cache.get(id);
+        Optional<FileEntity> second = cache.get(id);
+
+        assertEquals(first, second);
+        assertNotSame(first.get(), second.get());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getDoesNotCacheAbsentEntityTest() {
+        int id = 100;
+        cache.setLoader(countingLoader(null));
+
+        assertTrue(cache.get(id).isEmpty());
+        assertTrue(cache.get(id).isEmpty());
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void putReplacesCachedEntityTest() {
+        int id = 1;
+        FileEntity fileEntity = fileEntity(id, "staging-bucket");
+        cache.setLoader(countingLoader(null));
+
+        cache.put(fileEntity);
+        fileEntity.setBucket("changed-bucket");
+
+        assertEquals(Optional.of(fileEntity(id, "staging-bucket")), cache.get(id));
+        assertEquals(0, loads.get());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void invalidateEvictsAndBroadcastsTest() {
+        int id = 1;
+        cache.setLoader(countingLoader(null));
+        cache.put(fileEntity(id, "staging-bucket"));
+
+        cache.invalidate(id);
+
+        assertTrue(cache.get(id).isEmpty());
+        assertEquals(1, loads.get());
+        verify(rabbitTemplate).convertAndSend(eq(ENTITY_INVALIDATION_EXCHANGE_NAME), eq(""), eq(String.valueOf(id)),
+                any(MessagePostProcessor.class));
+    }
+
+    @Test
+    void onInvalidationFromAnotherInstanceEvictsTest() {
+        int id = 1;
+        cache.setLoader(countingLoader(null));
+        cache.put(fileEntity(id, "staging-bucket"));
+
+        cache.onInvalidation(invalidationMessage(id, "another-instance"));
+
+        assertTrue(cache.get(id).isEmpty());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void bindToPublishesLoadMetricsTest() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        cache.setLoader(countingLoader(fileEntity(1, "staging-bucket")));
+
+        cache.get(1);
+        cache.setLoader(countingLoader(null));
+        cache.get(2);
+
+        assertEquals(1, registry.get("cache.load").tags("cache", "file.entity", "result", "success")
+                .functionCounter().count());
+        assertEquals(1, registry.get("cache.load").tags("cache", "file.entity", "result", "failure")
+                .functionCounter().count());
+        assertTrue(registry.get("cache.load.duration").tag("cache", "file.entity").timeGauge().value() > 0);
+    }
+
+    private IntFunction<FileEntity> countingLoader(FileEntity fileEntity) {
+        return id -> {
+            loads.incrementAndGet();
+            return fileEntity;
+        };
+    }
+
+    private FileEntity fileEntity(int id, String bucket) {
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setId(id);
+        fileEntity.setContentType("mp3");
+        fileEntity.setBucket(bucket);
+        return fileEntity;
+    }
+
+    private Message invalidationMessage(int id, String appId) {
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setAppId(appId);
+        return new Message(String.valueOf(id).getBytes(StandardCharsets.UTF_8), messageProperties);
+    }
+}
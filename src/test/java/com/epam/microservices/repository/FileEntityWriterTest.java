@@ -0,0 +1,124 @@
+package com.epam.microservices.repository;
+
+import com.epam.microservices.config.dto.CreateConfig;
+import com.epam.microservices.model.FileEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class FileEntityWriterTest {
+    @MockBean
+    private ResourceRepository repository;
+    @MockBean
+    private IdAllocator idAllocator;
+    @Spy
+    private CreateConfig createConfig = new CreateConfig();
+    @InjectMocks
+    private FileEntityWriter writer;
+
+    @Test
+    void writeGroupTest() throws InterruptedException {
+        FileEntity first = fileEntity();
+        FileEntity second = fileEntity();
+
+        when(idAllocator.allocate()).thenReturn(3, 4);
+
+        CompletableFuture<Void> firstCreated = writer.create(first);
+        CompletableFuture<Void> secondCreated = writer.create(second);
+
+        assertEquals(3, first.getId());
+        assertEquals(4, second.getId());
+        assertFalse(firstCreated.isDone());
+        writer.writeGroup();
+        assertTrue(firstCreated.isDone() && !firstCreated.isCompletedExceptionally());
+        assertTrue(secondCreated.isDone() && !secondCreated.isCompletedExceptionally());
+        verify(repository).createAll(List.of(first, second));
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void writeGroupMaxSizeTest() throws InterruptedException {
+        FileEntity first = fileEntity();
+        FileEntity second = fileEntity();
+        createConfig.setGroupCommitMaxSize(1);
+
+        when(idAllocator.allocate()).thenReturn(3, 4);
+
+        CompletableFuture<Void> firstCreated = writer.create(first);
+        CompletableFuture<Void> secondCreated = writer.create(second);
+        writer.writeGroup();
+
+        assertTrue(firstCreated.isDone());
+        assertFalse(secondCreated.isDone());
+        verify(repository).createAll(List.of(first));
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void writeGroupFailureTest() throws InterruptedException {
+        FileEntity fileEntity = fileEntity();
+
+        when(idAllocator.allocate()).thenReturn(3);
+        doThrow(new IllegalStateException("Connection is closed")).when(repository).createAll(anyList());
+
+        CompletableFuture<Void> created = writer.create(fileEntity);
+        writer.writeGroup();
+
+        assertTrue(created.isCompletedExceptionally());
+    }
+
+    @Test
+    void writeGroupFailureFailsOnlyOffendingCreateTest() throws InterruptedException {
+        FileEntity first = fileEntity();
+        FileEntity second = fileEntity();
+
+        when(idAllocator.allocate()).thenReturn(3, 4);
+        doThrow(new IllegalStateException("Duplicate id 3")).when(repository).createAll(List.of(first, second));
+        doThrow(new IllegalStateException("Duplicate id 3")).when(repository).createAll(List.of(first));
+
+        CompletableFuture<Void> firstCreated = writer.create(first);
+        CompletableFuture<Void> secondCreated = writer.create(second);
+        writer.writeGroup();
+
+        assertTrue(firstCreated.isCompletedExceptionally());
+        assertTrue(secondCreated.isDone() && !secondCreated.isCompletedExceptionally());
+        verify(repository).createAll(List.of(first, second));
+        verify(repository).createAll(List.of(first));
+        verify(repository).createAll(List.of(second));
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void writeGroupErrorTest() throws InterruptedException {
+        FileEntity fileEntity = fileEntity();
+
+        when(idAllocator.allocate()).thenReturn(3);
+        doThrow(new NoClassDefFoundError("org/h2/Driver")).when(repository).createAll(anyList());
+
+        CompletableFuture<Void> created = writer.create(fileEntity);
+        writer.writeGroup();
+
+        assertTrue(created.isCompletedExceptionally());
+    }
+
+    private FileEntity fileEntity() {
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setContentType("mp3");
+        fileEntity.setBucket("staging-bucket");
+        return fileEntity;
+    }
+}
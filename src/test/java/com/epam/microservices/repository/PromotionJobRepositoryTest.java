@@ -0,0 +1,79 @@
+package com.epam.microservices.repository;
+
+import com.epam.microservices.model.PromotionJob;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
+import java.util.List;
+
+import static com.epam.microservices.model.PromotionJob.Status.QUEUED;
+import static com.epam.microservices.model.PromotionJob.Status.RUNNING;
+import static com.epam.microservices.model.PromotionJob.Status.SUCCEEDED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class PromotionJobRepositoryTest {
+    @Autowired
+    private PromotionJobRepository repository;
+
+    @Test
+    void testEnqueueKeepsActiveJob() {
+        PromotionJob job = repository.enqueue(100);
+
+        assertEquals(QUEUED, job.getStatus());
+        assertEquals(job.getId(), repository.enqueue(100).getId());
+
+        job.setStatus(SUCCEEDED);
+        repository.update(job);
+
+        assertTrue(repository.enqueue(100).getId() != job.getId());
+    }
+
+    @Test
+    void testSecondActiveJobIsRejected() {
+        PromotionJob job = repository.enqueue(102);
+        PromotionJob duplicate = new PromotionJob();
+        duplicate.setResourceId(102);
+        duplicate.setStatus(QUEUED);
+        duplicate.setNextAttemptAt(job.getNextAttemptAt());
+        duplicate.setCreatedAt(job.getCreatedAt());
+        duplicate.setUpdatedAt(job.getUpdatedAt());
+
+        assertThrows(DataIntegrityViolationException.class, () -> repository.update(duplicate));
+        assertEquals(job.getId(), repository.enqueue(102).getId());
+    }
+
+    @Test
+    void testHeartbeatKeepsRunningJobFresh() throws InterruptedException {
+        PromotionJob job = repository.enqueue(103);
+        repository.claimDue(100);
+        Instant claimedAt = repository.read(job.getId()).orElseThrow().getUpdatedAt();
+        Thread.sleep(20);
+
+        assertEquals(1, repository.heartbeat(List.of(job.getId())));
+        repository.requeueStale(claimedAt.plusMillis(10));
+
+        assertEquals(RUNNING, repository.read(job.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testClaimDueAndRequeueStale() {
+        PromotionJob job = repository.enqueue(101);
+
+        List<PromotionJob> claimedJobs = repository.claimDue(100);
+
+        assertTrue(claimedJobs.stream().anyMatch(claimedJob -> claimedJob.getId() == job.getId()));
+        assertEquals(RUNNING, repository.read(job.getId()).orElseThrow().getStatus());
+        assertEquals(0, repository.claimDue(100).stream().filter(claimedJob -> claimedJob.getId() == job.getId())
+                .count());
+
+        repository.requeueStale(Instant.now().plusSeconds(1));
+
+        assertEquals(QUEUED, repository.read(job.getId()).orElseThrow().getStatus());
+    }
+}
@@ -1,19 +1,32 @@
 package com.epam.microservices.repository;
 
 import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.ResourceQuery;
+import com.epam.microservices.model.ResourceSummary;
+import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
+@TestMethodOrder(MethodOrderer.MethodName.class)
 class ResourceRepositoryTest {
     @Autowired
     private ResourceRepository repository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     @Test
     void testCreate() {
@@ -32,6 +45,38 @@ class ResourceRepositoryTest {
         assertEquals(bucket, fileEntity.getBucket());
     }
 
+    @Test
+    void testCreateAll() {
+        Instant uploadedAt = Instant.parse("2022-10-01T10:15:30Z");
+        List<FileEntity> fileEntities = List.of(fileEntity("first.mp3", uploadedAt),
+                fileEntity("second.mp3", uploadedAt));
+
+        repository.createAll(fileEntities);
+
+        assertEquals(fileEntities.get(0).getId() + 1, fileEntities.get(1).getId());
+        for (FileEntity fileEntity : fileEntities) {
+            Optional<FileEntity> createdEntity = repository.read(fileEntity.getId());
+            assertTrue(createdEntity.isPresent());
+            assertEquals("staging-bucket", createdEntity.get().getBucket());
+            assertEquals("audio/mpeg", createdEntity.get().getMimeType());
+            assertEquals(uploadedAt, createdEntity.get().getUploadedAt());
+        }
+    }
+
+    @Test
+    void testLockDeleted() {
+        FileEntity deletedEntity = fileEntity("deleted.mp3", Instant.parse("2022-10-01T10:15:30Z"));
+
+        List<Integer> lockedIds = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            repository.create(deletedEntity);
+            repository.markDeleted(List.of(deletedEntity.getId()));
+            return repository.lockDeleted(10).stream().map(FileEntity::getId).collect(Collectors.toList());
+        });
+
+        assertEquals(List.of(deletedEntity.getId()), lockedIds);
+    }
+
     @Test
     void testRead() {
         int id = 1;
@@ -56,4 +101,72 @@ class ResourceRepositoryTest {
         assertEquals(Optional.empty(), fileEntityOptional);
     }
 
+    @Test
+    void testReadAll() {
+        List<FileEntity> fileEntities = repository.readAll(Set.of(1, 2, 100));
+
+        assertEquals(Set.of(1, 2), fileEntities.stream().map(FileEntity::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testReadPage() {
+        List<ResourceSummary> page = new ArrayList<>();
+
+        repository.readPage(new ResourceQuery(0, 2, null, null), page::add);
+
+        assertEquals(List.of(1, 2), page.stream().map(ResourceSummary::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testReadPageFiltered() {
+        List<ResourceSummary> permanentPage = new ArrayList<>();
+        List<ResourceSummary> mpegPage = new ArrayList<>();
+        Instant uploadedAt = Instant.parse("2022-10-01T10:15:30Z");
+        List<FileEntity> fileEntities = List.of(fileEntity("first.mp3", uploadedAt),
+                fileEntity("second.mp3", uploadedAt));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            repository.createAll(fileEntities);
+            fileEntities.forEach(this::complete);
+            repository.readPage(new ResourceQuery(0, 10, "permanent-bucket", null), permanentPage::add);
+            repository.readPage(new ResourceQuery(0, 10, "staging-bucket", "audio/mpeg"), mpegPage::add);
+        });
+
+        assertEquals(List.of(1), permanentPage.stream().map(ResourceSummary::getId).collect(Collectors.toList()));
+        assertEquals(fileEntities.stream().map(FileEntity::getId).collect(Collectors.toList()),
+                mpegPage.stream().map(ResourceSummary::getId).collect(Collectors.toList()));
+        assertTrue(mpegPage.stream().allMatch(summary -> "audio/mpeg".equals(summary.getContentType())
+                && "staging-bucket".equals(summary.getBucket())));
+    }
+
+    @Test
+    void testReadPageSkipsPendingRow() {
+        List<ResourceSummary> page = new ArrayList<>();
+        FileEntity pendingEntity = fileEntity("pending.mp3", Instant.parse("2022-10-01T10:15:30Z"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            repository.create(pendingEntity);
+            repository.readPage(new ResourceQuery(0, 10, "staging-bucket", null), page::add);
+        });
+
+        assertEquals(List.of(2), page.stream().map(ResourceSummary::getId).collect(Collectors.toList()));
+    }
+
+    private void complete(FileEntity fileEntity) {
+        fileEntity.setETag("039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81");
+        fileEntity.setContentLength(10L);
+        repository.update(fileEntity);
+    }
+
+    private FileEntity fileEntity(String fileName, Instant uploadedAt) {
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setContentType(fileName.substring(fileName.lastIndexOf('.') + 1));
+        fileEntity.setBucket("staging-bucket");
+        fileEntity.setMimeType("audio/mpeg");
+        fileEntity.setUploadedAt(uploadedAt);
+        return fileEntity;
+    }
+
 }
@@ -1,68 +1,142 @@
 package com.epam.microservices.service;
 
 import com.epam.microservices.client.ApiGatewayClient;
+import com.epam.microservices.config.dto.StorageCacheConfig;
 import com.epam.microservices.model.StorageModel;
 import com.epam.microservices.service.exception.NoBucketForStorageTypeException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 
 import static com.epam.microservices.service.constant.StorageType.PERMANENT;
 import static com.epam.microservices.service.constant.StorageType.STAGING;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith({MockitoExtension.class, SpringExtension.class})
 class BucketNameGetterTest {
+    private static final String STAGING_BUCKET = "staging-resources";
+    private static final String PERMANENT_BUCKET = "permanent-resources";
     @MockBean
     private ApiGatewayClient apiGatewayClient;
+    @Spy
+    private StorageCacheConfig storageCacheConfig = new StorageCacheConfig();
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private BucketNameGetter bucketNameGetter;
 
-    @Test
-    void getBucketForStorageTest() {
-        String stagingBucket = "staging-resources";
-        String permanentBucket = "permanent-resources";
+    @BeforeEach
+    void setUp() {
+        // A real registry: the default implementation is final and cannot be spied on
+        ReflectionTestUtils.setField(bucketNameGetter, "circuitBreakerRegistry", CircuitBreakerRegistry.ofDefaults());
+        bucketNameGetter.init();
+    }
 
-        StorageModel stagingStorage = new StorageModel();
-        stagingStorage.setId(1);
-        stagingStorage.setStorageType(STAGING.getValue());
-        stagingStorage.setBucket(stagingBucket);
+    @AfterEach
+    void tearDown() {
+        bucketNameGetter.shutdown();
+    }
 
-        StorageModel permanentStorage = new StorageModel();
-        permanentStorage.setId(1);
-        permanentStorage.setStorageType(PERMANENT.getValue());
-        permanentStorage.setBucket(permanentBucket);
+    @Test
+    void getBucketForStorageTest() {
+        when(apiGatewayClient.getStorages()).thenReturn(List.of(stagingStorage(), permanentStorage()));
 
-        when(apiGatewayClient.getStorages()).thenReturn(List.of(stagingStorage, permanentStorage));
-        assertEquals(stagingBucket, bucketNameGetter.getBucketForStorage(STAGING.getValue()));
+        assertEquals(STAGING_BUCKET, bucketNameGetter.getBucketForStorage(STAGING.getValue()));
+        assertEquals(PERMANENT_BUCKET, bucketNameGetter.getBucketForStorage(PERMANENT.getValue()));
         verify(apiGatewayClient).getStorages();
         verifyNoMoreInteractions(apiGatewayClient);
     }
 
     @Test
     void getBucketForStorageExceptionTest() {
-        String stagingBucket = "staging-resources";
+        when(apiGatewayClient.getStorages()).thenReturn(List.of(stagingStorage()));
 
-        StorageModel stagingStorage = new StorageModel();
-        stagingStorage.setId(1);
-        stagingStorage.setStorageType(STAGING.getValue());
-        stagingStorage.setBucket(stagingBucket);
-
-        when(apiGatewayClient.getStorages()).thenReturn(List.of(stagingStorage));
         assertThrows(NoBucketForStorageTypeException.class,
                 () -> bucketNameGetter.getBucketForStorage(PERMANENT.getValue()));
         verify(apiGatewayClient).getStorages();
         verifyNoMoreInteractions(apiGatewayClient);
     }
 
+    @Test
+    void getBucketForStorageWithoutCachedStoragesFallbackTest() {
+        when(apiGatewayClient.getStorages()).thenThrow(new RuntimeException("storage service is down"));
+
+        assertEquals(STAGING_BUCKET, bucketNameGetter.getBucketForStorage(STAGING.getValue()));
+        assertEquals(1, meterRegistry.get("resource.storage.bucket.fallbacks").counter().count());
+    }
+
+    @Test
+    void getBucketForStorageFallsBackWhenFirstLoadTimesOutTest() {
+        CountDownLatch storagesReturned = new CountDownLatch(1);
+        storageCacheConfig.setLoadTimeout(Duration.ofMillis(50));
+        when(apiGatewayClient.getStorages()).thenAnswer(invocation -> {
+            storagesReturned.await();
+            return List.of(stagingStorage());
+        });
+
+        try {
+            assertEquals(STAGING_BUCKET, bucketNameGetter.getBucketForStorage(STAGING.getValue()));
+            assertEquals(1, meterRegistry.get("resource.storage.bucket.fallbacks").counter().count());
+        } finally {
+            storagesReturned.countDown();
+        }
+    }
+
+    @Test
+    void getBucketForStorageKeepsCachedStoragesOnRefreshFailureTest() {
+        String cachedBucket = "cached-staging-bucket";
+        StorageModel stagingStorage = stagingStorage();
+        stagingStorage.setBucket(cachedBucket);
+        when(apiGatewayClient.getStorages())
+                .thenReturn(List.of(stagingStorage))
+                .thenThrow(new RuntimeException("storage service is down"));
+        bucketNameGetter.getBucketForStorage(STAGING.getValue());
+
+        assertThrows(CompletionException.class, () -> bucketNameGetter.refresh().join());
+        assertEquals(cachedBucket, bucketNameGetter.getBucketForStorage(STAGING.getValue()));
+    }
+
+    @Test
+    void refreshCollapsesConcurrentCallsTest() throws InterruptedException {
+        CountDownLatch storagesRequested = new CountDownLatch(1);
+        CountDownLatch storagesReturned = new CountDownLatch(1);
+        when(apiGatewayClient.getStorages()).thenAnswer(invocation -> {
+            storagesRequested.countDown();
+            storagesReturned.await();
+            return List.of(stagingStorage());
+        });
+
+        CompletableFuture<?> firstRefresh = bucketNameGetter.refresh();
+        storagesRequested.await();
+        CompletableFuture<?> secondRefresh = bucketNameGetter.refresh();
+        storagesReturned.countDown();
+
+        assertSame(firstRefresh, secondRefresh);
+        firstRefresh.join();
+        verify(apiGatewayClient).getStorages();
+        verifyNoMoreInteractions(apiGatewayClient);
+    }
+
     @Test
     void getDefaultBucketForPermanentTest() {
         assertEquals("permanent-resources",
@@ -74,4 +148,20 @@ class BucketNameGetterTest {
         assertEquals("staging-resources",
                 bucketNameGetter.getDefaultBucket(STAGING.getValue(), new RuntimeException()));
     }
+
+    private StorageModel stagingStorage() {
+        StorageModel stagingStorage = new StorageModel();
+        stagingStorage.setId(1);
+        stagingStorage.setStorageType(STAGING.getValue());
+        stagingStorage.setBucket(STAGING_BUCKET);
+        return stagingStorage;
+    }
+
+    private StorageModel permanentStorage() {
+        StorageModel permanentStorage = new StorageModel();
+        permanentStorage.setId(2);
+        permanentStorage.setStorageType(PERMANENT.getValue());
+        permanentStorage.setBucket(PERMANENT_BUCKET);
+        return permanentStorage;
+    }
 }
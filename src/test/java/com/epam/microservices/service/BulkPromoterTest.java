@@ -0,0 +1,132 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.config.dto.PromotionConfig;
+import com.epam.microservices.model.BlobEntity;
+import com.epam.microservices.model.BucketMove;
+import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.PromotionResult;
+import com.epam.microservices.repository.BlobRepository;
+import com.epam.microservices.repository.ResourceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.epam.microservices.service.constant.StorageType.PERMANENT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class BulkPromoterTest {
+    private static final String STAGING_BUCKET = "staging-bucket";
+    private static final String PERMANENT_BUCKET = "permanent-bucket";
+    private static final String CONTENT_SHA256 = "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81";
+    @MockBean
+    private ResourceService service;
+    @MockBean
+    private ResourceRepository repository;
+    @MockBean
+    private BlobRepository blobRepository;
+    @MockBean
+    private S3Processor s3Processor;
+    @MockBean
+    private BucketNameGetter bucketNameGetter;
+    @Spy
+    private PromotionConfig promotionConfig = new PromotionConfig();
+    @InjectMocks
+    private BulkPromoter bulkPromoter;
+
+    @BeforeEach
+    void setUp() {
+        promotionConfig.setConcurrency(2);
+        bulkPromoter.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkPromoter.shutdown();
+    }
+
+    @Test
+    void promoteTest() {
+        FileEntity promoted = fileEntity(1, PERMANENT_BUCKET);
+        FileEntity legacy = fileEntity(2, STAGING_BUCKET);
+        FileEntity hashed = fileEntity(3, STAGING_BUCKET);
+        FileEntity failing = fileEntity(4, STAGING_BUCKET);
+        BlobEntity stagingBlob = blob(3, STAGING_BUCKET);
+
+        when(repository.readAll(Set.of(1, 2, 3, 4, 5))).thenReturn(List.of(promoted, legacy, hashed, failing));
+        when(bucketNameGetter.getBucketForStorage(PERMANENT.getValue())).thenReturn(PERMANENT_BUCKET);
+        when(blobRepository.find(STAGING_BUCKET, 2)).thenReturn(Optional.empty());
+        when(blobRepository.find(STAGING_BUCKET, 3)).thenReturn(Optional.of(stagingBlob));
+        when(blobRepository.find(STAGING_BUCKET, 4)).thenReturn(Optional.of(blob(4, STAGING_BUCKET)));
+        when(blobRepository.isReferenced(CONTENT_SHA256, PERMANENT_BUCKET)).thenReturn(false);
+        doThrow(new IllegalStateException("S3 is down"))
+                .when(s3Processor).copyResource(STAGING_BUCKET, PERMANENT_BUCKET, 4);
+        when(repository.moveAllToBucket(anyList(), eq(PERMANENT_BUCKET))).thenAnswer(invocation -> {
+            List<BucketMove> moves = invocation.getArgument(0);
+            moves.forEach(move -> move.getFileEntity().setBucket(PERMANENT_BUCKET));
+            return List.of(stagingBlob);
+        });
+        when(s3Processor.deleteResources(STAGING_BUCKET, List.of(2))).thenReturn(List.of());
+
+        PromotionResult result = bulkPromoter.promote(List.of(1, 2, 3, 4, 5));
+
+        assertEquals(new PromotionResult(List.of(1, 2, 3), List.of(4)), result);
+        verify(s3Processor).copyResource(STAGING_BUCKET, PERMANENT_BUCKET, 2);
+        verify(s3Processor).copyResource(STAGING_BUCKET, PERMANENT_BUCKET, 3);
+        verify(s3Processor).copyResource(STAGING_BUCKET, PERMANENT_BUCKET, 4);
+        verify(repository).moveAllToBucket(argThat(moves -> moves.size() == 2
+                && moves.get(0).isLegacy() && moves.get(0).getFileEntity().getId() == 2
+                && CONTENT_SHA256.equals(moves.get(1).getSha256()) && moves.get(1).isCopied()), eq(PERMANENT_BUCKET));
+        verify(s3Processor).deleteResources(STAGING_BUCKET, List.of(2));
+        verify(service).removeUnreferencedBlobs(List.of(stagingBlob));
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    void promoteWithReleasedDestinationBlobTest() {
+        FileEntity fileEntity = fileEntity(3, STAGING_BUCKET);
+
+        when(repository.readAll(Set.of(3))).thenReturn(List.of(fileEntity));
+        when(bucketNameGetter.getBucketForStorage(PERMANENT.getValue())).thenReturn(PERMANENT_BUCKET);
+        when(blobRepository.find(STAGING_BUCKET, 3)).thenReturn(Optional.of(blob(3, STAGING_BUCKET)));
+        when(blobRepository.isReferenced(CONTENT_SHA256, PERMANENT_BUCKET)).thenReturn(true);
+        when(repository.moveAllToBucket(anyList(), eq(PERMANENT_BUCKET))).thenReturn(List.of());
+
+        PromotionResult result = bulkPromoter.promote(List.of(3));
+
+        assertEquals(new PromotionResult(List.of(3), List.of()), result);
+        verify(s3Processor, never()).copyResource(any(), any(), any());
+        verify(service).permanentResource(3);
+        verify(service).removeUnreferencedBlobs(List.of());
+    }
+
+    private FileEntity fileEntity(int id, String bucket) {
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setId(id);
+        fileEntity.setContentType("mp3");
+        fileEntity.setBucket(bucket);
+        return fileEntity;
+    }
+
+    private BlobEntity blob(int storageId, String bucket) {
+        BlobEntity blob = new BlobEntity();
+        blob.setId(storageId);
+        blob.setBucket(bucket);
+        blob.setStorageId(storageId);
+        blob.setSha256(CONTENT_SHA256);
+        blob.setRefCount(1);
+        return blob;
+    }
+}
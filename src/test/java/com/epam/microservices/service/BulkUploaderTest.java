@@ -0,0 +1,115 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.config.dto.BulkUploadConfig;
+import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.SpooledFile;
+import com.epam.microservices.model.UploadResult;
+import com.epam.microservices.repository.OutboxRepository;
+import com.epam.microservices.repository.ResourceRepository;
+import com.epam.microservices.service.exception.TooManyFilesException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.epam.microservices.service.constant.StorageType.STAGING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class BulkUploaderTest {
+    private static final String BUCKET = "staging-bucket";
+    @MockBean
+    private ResourceService service;
+    @MockBean
+    private ResourceRepository repository;
+    @MockBean
+    private OutboxRepository outboxRepository;
+    @MockBean
+    private BucketNameGetter bucketNameGetter;
+    @Spy
+    private BulkUploadConfig bulkUploadConfig = new BulkUploadConfig();
+    @InjectMocks
+    private BulkUploader bulkUploader;
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        bulkUploadConfig.setConcurrency(2);
+        bulkUploadConfig.setMaxFiles(3);
+        bulkUploader.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkUploader.shutdown();
+    }
+
+    @Test
+    void uploadTest() throws IOException {
+        List<SpooledFile> files = List.of(spooledFile("first.mp3"), spooledFile("second.mp3"),
+                spooledFile("third.mp3"));
+        FileEntity first = fileEntity("mp3");
+        FileEntity second = fileEntity("mp3");
+        FileEntity third = fileEntity("mp3");
+
+        when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn(BUCKET);
+        when(service.newFileEntity(any(), eq("audio/mpeg"), eq(BUCKET))).thenReturn(first, second, third);
+        doAnswer(invocation -> {
+            List<FileEntity> fileEntities = invocation.getArgument(0);
+            for (int i = 0; i < fileEntities.size(); i++) {
+                fileEntities.get(i).setId(i + 1);
+            }
+            return null;
+        }).when(repository).createAll(List.of(first, second, third));
+        doThrow(new IllegalStateException("S3 is down")).when(service).store(eq(second), any(InputStream.class));
+
+        List<UploadResult> results = bulkUploader.upload(files);
+
+        assertEquals(List.of(UploadResult.created("first.mp3", 1), UploadResult.failed("second.mp3", "S3 is down"),
+                UploadResult.created("third.mp3", 3)), results);
+        verify(bucketNameGetter).getBucketForStorage(STAGING.getValue());
+        verify(repository).createAll(List.of(first, second, third));
+        verify(service).store(eq(first), any(InputStream.class));
+        verify(service).store(eq(third), any(InputStream.class));
+        verify(service).discard(List.of(second));
+        verify(outboxRepository).markReady(List.of(1, 3));
+        verifyNoMoreInteractions(outboxRepository);
+    }
+
+    @Test
+    void uploadTooManyFilesTest() throws IOException {
+        List<SpooledFile> files = List.of(spooledFile("1.mp3"), spooledFile("2.mp3"), spooledFile("3.mp3"),
+                spooledFile("4.mp3"));
+
+        assertThrows(TooManyFilesException.class, () -> bulkUploader.upload(files));
+        verifyNoInteractions(repository, outboxRepository, service);
+    }
+
+    private SpooledFile spooledFile(String fileName) throws IOException {
+        Path path = Files.write(directory.resolve(fileName), new byte[]{1, 2, 3});
+        return new SpooledFile(fileName, "audio/mpeg", path);
+    }
+
+    private FileEntity fileEntity(String contentType) {
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setContentType(contentType);
+        fileEntity.setBucket(BUCKET);
+        return fileEntity;
+    }
+}
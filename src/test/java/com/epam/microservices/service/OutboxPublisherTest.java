@@ -0,0 +1,111 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.config.dto.OutboxConfig;
+import com.epam.microservices.model.OutboxEvent;
+import com.epam.microservices.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class OutboxPublisherTest {
+    @MockBean
+    private OutboxRepository outboxRepository;
+    @MockBean
+    private RabbitMQSender rabbitMQSender;
+    @MockBean
+    private TransactionTemplate transactionTemplate;
+    @Spy
+    private OutboxConfig outboxConfig = new OutboxConfig();
+    @InjectMocks
+    private OutboxPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        outboxConfig.setBatchSize(2);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void publishTest() {
+        when(outboxRepository.lockReady(2))
+                .thenReturn(List.of(event(1L, 10), event(2L, 20)))
+                .thenReturn(List.of(event(3L, 30)));
+
+        publisher.publish();
+
+        verify(rabbitMQSender).sendUploadedResourceIds(List.of(10, 20));
+        verify(rabbitMQSender).sendUploadedResourceIds(List.of(30));
+        verifyNoMoreInteractions(rabbitMQSender);
+        verify(outboxRepository, times(2)).lockReady(2);
+        verify(outboxRepository).markSent(List.of(1L, 2L));
+        verify(outboxRepository).markSent(List.of(3L));
+        verifyNoMoreInteractions(outboxRepository);
+    }
+
+    @Test
+    void publishNothingTest() {
+        when(outboxRepository.lockReady(2)).thenReturn(List.of());
+
+        publisher.publish();
+
+        verifyNoInteractions(rabbitMQSender);
+        verify(outboxRepository).lockReady(2);
+        verifyNoMoreInteractions(outboxRepository);
+    }
+
+    @Test
+    void publishNotConfirmedTest() {
+        when(outboxRepository.lockReady(2)).thenReturn(List.of(event(1L, 10)));
+        doThrow(new AmqpTimeoutException("not confirmed")).when(rabbitMQSender).sendUploadedResourceIds(List.of(10));
+
+        assertDoesNotThrow(() -> publisher.publish());
+        verify(outboxRepository).lockReady(2);
+        verifyNoMoreInteractions(outboxRepository);
+    }
+
+    @Test
+    void purgeTest() {
+        outboxConfig.setSentRetention(Duration.ofHours(1));
+        outboxConfig.setPendingRetention(Duration.ofDays(2));
+        Instant start = Instant.now();
+
+        publisher.purge();
+
+        verify(outboxRepository).deleteCreatedBefore(eq(OutboxEvent.Status.SENT), argThat(createdBefore ->
+                !createdBefore.isBefore(start.minus(Duration.ofHours(1)))
+                        && createdBefore.isBefore(start.minus(Duration.ofMinutes(59)))));
+        verify(outboxRepository).deleteCreatedBefore(eq(OutboxEvent.Status.PENDING), argThat(createdBefore ->
+                !createdBefore.isBefore(start.minus(Duration.ofDays(2)))
+                        && createdBefore.isBefore(start.minus(Duration.ofDays(1)))));
+        verifyNoMoreInteractions(outboxRepository);
+        verifyNoInteractions(rabbitMQSender);
+    }
+
+    private OutboxEvent event(long id, int resourceId) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setResourceId(resourceId);
+        event.setStatus(OutboxEvent.Status.READY);
+        return event;
+    }
+}
@@ -0,0 +1,169 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.config.dto.PromotionConfig;
+import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.PromotionJob;
+import com.epam.microservices.repository.PromotionJobRepository;
+import com.epam.microservices.repository.ResourceRepository;
+import com.epam.microservices.service.exception.PromotionJobNotFoundException;
+import com.epam.microservices.service.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static com.epam.microservices.model.PromotionJob.Status.FAILED;
+import static com.epam.microservices.model.PromotionJob.Status.QUEUED;
+import static com.epam.microservices.model.PromotionJob.Status.SUCCEEDED;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class PromotionJobRunnerTest {
+    @MockBean
+    private ResourceService service;
+    @MockBean
+    private ResourceRepository repository;
+    @MockBean
+    private PromotionJobRepository jobRepository;
+    @Spy
+    private PromotionConfig promotionConfig = new PromotionConfig();
+    @InjectMocks
+    private PromotionJobRunner runner;
+
+    @Test
+    void submitTest() {
+        PromotionJob job = promotionJob(7, 3);
+
+        when(repository.read(3)).thenReturn(Optional.of(new FileEntity()));
+        when(jobRepository.enqueue(3)).thenReturn(job);
+
+        assertSame(job, runner.submit(3));
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    void submitQueuedConcurrentlyTest() {
+        PromotionJob job = promotionJob(7, 3);
+
+        when(repository.read(3)).thenReturn(Optional.of(new FileEntity()));
+        when(jobRepository.enqueue(3))
+                .thenThrow(new DataIntegrityViolationException("promotion_job_active_resource_id_idx"))
+                .thenReturn(job);
+
+        assertSame(job, runner.submit(3));
+        verify(jobRepository, times(2)).enqueue(3);
+    }
+
+    @Test
+    void submitNotFoundTest() {
+        when(repository.read(3)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> runner.submit(3));
+        verifyNoInteractions(jobRepository);
+    }
+
+    @Test
+    void getJobNotFoundTest() {
+        when(jobRepository.read(7)).thenReturn(Optional.empty());
+
+        assertThrows(PromotionJobNotFoundException.class, () -> runner.getJob(7L));
+    }
+
+    @Test
+    void runTest() {
+        PromotionJob job = promotionJob(7, 3);
+
+        runner.run(job);
+
+        assertEquals(SUCCEEDED, job.getStatus());
+        assertEquals(1, job.getAttempts());
+        verify(service).permanentResource(3);
+        verify(jobRepository).update(job);
+    }
+
+    @Test
+    void runRetriedWithBackoffTest() {
+        PromotionJob job = promotionJob(7, 3);
+        job.setAttempts(1);
+        Instant startedAt = Instant.now();
+
+        doThrow(new IllegalStateException("S3 is down")).when(service).permanentResource(3);
+
+        runner.run(job);
+
+        assertEquals(QUEUED, job.getStatus());
+        assertEquals(2, job.getAttempts());
+        assertEquals("S3 is down", job.getError());
+        assertFalse(job.getNextAttemptAt().isBefore(startedAt.plusSeconds(2)));
+        verify(jobRepository).update(job);
+    }
+
+    @Test
+    void runFailedAfterLastAttemptTest() {
+        PromotionJob job = promotionJob(7, 3);
+        job.setAttempts(promotionConfig.getMaxAttempts() - 1);
+
+        doThrow(new IllegalStateException("S3 is down")).when(service).permanentResource(3);
+
+        runner.run(job);
+
+        assertEquals(FAILED, job.getStatus());
+        verify(jobRepository).update(job);
+    }
+
+    @Test
+    void runForDeletedResourceTest() {
+        PromotionJob job = promotionJob(7, 3);
+
+        doThrow(new ResourceNotFoundException(3)).when(service).permanentResource(3);
+
+        runner.run(job);
+
+        assertEquals(FAILED, job.getStatus());
+        assertEquals(1, job.getAttempts());
+    }
+
+    @Test
+    void heartbeatRefreshesRunningJobsTest() {
+        ReflectionTestUtils.setField(runner, "workerExecutor", mock(ExecutorService.class));
+
+        when(jobRepository.claimDue(promotionConfig.getWorkers())).thenReturn(List.of(promotionJob(7, 3)));
+
+        runner.poll();
+        runner.heartbeat();
+
+        verify(jobRepository).heartbeat(Set.of(7L));
+    }
+
+    @Test
+    void getBackoffTest() {
+        promotionConfig.setInitialBackoff(Duration.ofSeconds(1));
+        promotionConfig.setMaxBackoff(Duration.ofSeconds(10));
+
+        assertEquals(Duration.ofSeconds(1), runner.getBackoff(1));
+        assertEquals(Duration.ofSeconds(4), runner.getBackoff(3));
+        assertEquals(Duration.ofSeconds(10), runner.getBackoff(5));
+        assertEquals(Duration.ofSeconds(10), runner.getBackoff(100));
+    }
+
+    private PromotionJob promotionJob(long jobId, int resourceId) {
+        PromotionJob job = new PromotionJob();
+        job.setId(jobId);
+        job.setResourceId(resourceId);
+        job.setStatus(PromotionJob.Status.RUNNING);
+        return job;
+    }
+}
@@ -1,33 +1,59 @@
 package com.epam.microservices.service;
 
+import com.epam.microservices.config.dto.OutboxConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
-import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.*;
 
 @ExtendWith({MockitoExtension.class, SpringExtension.class})
 class RabbitMQSenderTest {
     @MockBean
-    private AmqpTemplate rabbitTemplate;
+    private RabbitOperations rabbitTemplate;
+    @Spy
+    private OutboxConfig outboxConfig = new OutboxConfig();
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
     @InjectMocks
     private RabbitMQSender rabbitMQSender;
 
     @Test
-    void sendUploadedResourceIdTest() {
-        int id = 1;
+    void sendUploadedResourceIdsTest() {
+        List<Integer> ids = List.of(1, 2);
+
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitTemplate));
 
-        doNothing().when(rabbitTemplate).convertAndSend(anyString(), eq(String.valueOf(id)));
+        assertDoesNotThrow(() -> rabbitMQSender.sendUploadedResourceIds(ids));
+        verify(rabbitTemplate).convertAndSend(anyString(), eq("1"));
+        verify(rabbitTemplate).convertAndSend(anyString(), eq("2"));
+        verify(rabbitTemplate).waitForConfirmsOrDie(outboxConfig.getConfirmTimeout().toMillis());
+    }
+
+    @Test
+    void sendUploadedResourceIdsNotConfirmedTest() {
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitTemplate));
+        doThrow(new AmqpTimeoutException("not confirmed")).when(rabbitTemplate).waitForConfirmsOrDie(anyLong());
 
-        assertDoesNotThrow(() -> rabbitMQSender.sendUploadedResourceId(id));
-        verify(rabbitTemplate).convertAndSend(anyString(), eq(String.valueOf(id)));
+        assertThrows(AmqpTimeoutException.class, () -> rabbitMQSender.sendUploadedResourceIds(List.of(1)));
+        assertEquals(1, meterRegistry.get("resource.messaging.publish").tag("outcome", "error").timer().count());
     }
 }
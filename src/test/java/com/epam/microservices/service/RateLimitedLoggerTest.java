@@ -0,0 +1,62 @@
+package com.epam.microservices.service;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+import static net.logstash.logback.argument.StructuredArguments.kv;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class RateLimitedLoggerTest {
+    private static final String FORMAT = "Resource with {} opened";
+
+    @Test
+    void infoDropsEventsOverRateTest() {
+        Logger logger = mock(Logger.class);
+        AtomicLong clock = new AtomicLong();
+        RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(logger, 2, clock::get);
+
+        when(logger.isInfoEnabled()).thenReturn(true);
+
+        for (int i = 0; i < 5; i++) {
+            rateLimitedLogger.info(FORMAT, kv("id", i));
+        }
+        assertEquals(2, infoArguments(logger).size());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        rateLimitedLogger.info(FORMAT, kv("id", 5));
+        List<Object[]> loggedArguments = infoArguments(logger);
+        assertEquals(3, loggedArguments.size());
+        assertEquals("suppressed=0", loggedArguments.get(0)[1].toString());
+        assertEquals("suppressed=3", loggedArguments.get(2)[1].toString());
+        assertEquals("id=5", loggedArguments.get(2)[0].toString());
+    }
+
+    @Test
+    void infoDisabledTest() {
+        Logger logger = mock(Logger.class);
+        RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(logger, 2);
+
+        when(logger.isInfoEnabled()).thenReturn(false);
+
+        rateLimitedLogger.info(FORMAT, kv("id", 1));
+        verify(logger).isInfoEnabled();
+        verifyNoMoreInteractions(logger);
+    }
+
+    /**
+     * Returns the arguments of every info call, read from the invocations since varargs do not match reliably.
+     */
+    private List<Object[]> infoArguments(Logger logger) {
+        return mockingDetails(logger).getInvocations().stream()
+                .filter(invocation -> "info".equals(invocation.getMethod().getName()))
+                .filter(invocation -> FORMAT.equals(invocation.getRawArguments()[0]))
+                .map(invocation -> (Object[]) invocation.getRawArguments()[1])
+                .collect(toList());
+    }
+}
@@ -1,22 +1,52 @@
 package com.epam.microservices.service;
 
+import com.amazonaws.SdkClientException;
+import com.epam.microservices.config.dto.CreateConfig;
+import com.epam.microservices.config.dto.DeleteConfig;
+import com.epam.microservices.config.dto.ListConfig;
+import com.epam.microservices.model.BlobEntity;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.DeletionResult;
 import com.epam.microservices.model.FileEntity;
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.model.ResourceMetadata;
+import com.epam.microservices.model.ResourceQuery;
+import com.epam.microservices.model.ResourceSummary;
+import com.epam.microservices.repository.BlobRepository;
+import com.epam.microservices.repository.FileEntityWriter;
+import com.epam.microservices.repository.OutboxRepository;
 import com.epam.microservices.repository.ResourceRepository;
+import com.epam.microservices.service.cache.WarmStore;
+import com.epam.microservices.service.cache.WarmUpload;
+import com.epam.microservices.service.exception.IncorrectListRequestException;
 import com.epam.microservices.service.exception.IncorrectRangeException;
 import com.epam.microservices.service.exception.ResourceNotFoundException;
+import com.epam.microservices.service.exception.UnableToSaveFileException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpRange;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
-import org.springframework.web.multipart.MultipartFile;
-
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static com.epam.microservices.service.constant.StorageType.PERMANENT;
@@ -26,204 +56,538 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith({MockitoExtension.class, SpringExtension.class})
 class ResourceServiceTest {
+    private static final String CONTENT_SHA256 = "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81";
     @MockBean
     private ResourceRepository repository;
     @MockBean
+    private OutboxRepository outboxRepository;
+    @MockBean
+    private BlobRepository blobRepository;
+    @MockBean
     private S3Processor s3Processor;
     @MockBean
     private BucketNameGetter bucketNameGetter;
+    @MockBean
+    private FileEntityWriter fileEntityWriter;
+    @MockBean
+    private WarmStore warmStore;
+    @MockBean
+    private TransactionTemplate transactionTemplate;
+    @Spy
+    private CreateConfig createConfig = new CreateConfig();
+    @Spy
+    private DeleteConfig deleteConfig = new DeleteConfig();
+    @Spy
+    private ListConfig listConfig = new ListConfig();
     @InjectMocks
     private ResourceService service;
 
     @Test
     void testCreate() {
-        MultipartFile file = mock(MultipartFile.class);
+        InputStream inputStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
         int id = 3;
         String bucket = "staging-bucket";
 
         when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn(bucket);
-        doNothing().when(s3Processor).putResource(file, bucket, id);
-        doAnswer(invocation -> {
-            Object[] args = invocation.getArguments();
-            ((FileEntity) args[0]).setId(id);
-            return null;
-        }).when(repository).create(any(FileEntity.class));
-
-        assertEquals(id, service.create(file));
-        verify(repository).create(any(FileEntity.class));
+        when(s3Processor.putResource(any(InputStream.class), eq("audio/mpeg"), eq(bucket), eq(id),
+                any(BooleanSupplier.class))).thenAnswer(invocation -> {
+            ((InputStream) invocation.getArgument(0)).readAllBytes();
+            return invocation.getArgument(4, BooleanSupplier.class).getAsBoolean();
+        });
+        when(blobRepository.reference(CONTENT_SHA256, bucket)).thenReturn(Optional.empty());
+        when(fileEntityWriter.create(any(FileEntity.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, FileEntity.class).setId(id);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertEquals(id, service.create("track.mp3", "audio/mpeg", inputStream));
+        verify(fileEntityWriter).create(argThat(fileEntity -> "mp3".equals(fileEntity.getContentType())
+                && bucket.equals(fileEntity.getBucket()) && fileEntity.getUploadedAt() != null));
+        verify(repository).update(argThat(fileEntity -> fileEntity.getStorageId() == id
+                && CONTENT_SHA256.equals(fileEntity.getETag()) && fileEntity.getContentLength() == 3
+                && "audio/mpeg".equals(fileEntity.getMimeType())));
         verifyNoMoreInteractions(repository);
         verify(bucketNameGetter).getBucketForStorage(STAGING.getValue());
         verifyNoMoreInteractions(bucketNameGetter);
-        verify(s3Processor).putResource(file, bucket, id);
+        verify(s3Processor).putResource(any(InputStream.class), eq("audio/mpeg"), eq(bucket), eq(id),
+                any(BooleanSupplier.class));
         verifyNoMoreInteractions(s3Processor);
+        verify(blobRepository).reference(CONTENT_SHA256, bucket);
+        verify(blobRepository).create(bucket, id, CONTENT_SHA256);
+        verifyNoMoreInteractions(blobRepository);
+        verify(outboxRepository).markReady(id);
+        verifyNoMoreInteractions(outboxRepository);
     }
 
     @Test
-    void testGetFileBytes() {
+    void testCreateKeepsUploadWarm() {
+        InputStream inputStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        WarmUpload warmUpload = mock(WarmUpload.class);
+        int id = 3;
+        String bucket = "staging-bucket";
+
+        when(warmStore.startUpload()).thenReturn(Optional.of(warmUpload));
+        when(warmUpload.capture(inputStream)).thenReturn(inputStream);
+        when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn(bucket);
+        when(s3Processor.putResource(any(InputStream.class), eq("audio/mpeg"), eq(bucket), eq(id),
+                any(BooleanSupplier.class))).thenAnswer(invocation -> {
+            ((InputStream) invocation.getArgument(0)).readAllBytes();
+            return invocation.getArgument(4, BooleanSupplier.class).getAsBoolean();
+        });
+        when(blobRepository.reference(CONTENT_SHA256, bucket)).thenReturn(Optional.empty());
+        when(fileEntityWriter.create(any(FileEntity.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, FileEntity.class).setId(id);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertEquals(id, service.create("track.mp3", "audio/mpeg", inputStream));
+        verify(warmUpload).capture(inputStream);
+        verify(warmUpload).commit(bucket, id, "audio/mpeg");
+        verify(warmUpload).discard();
+        verifyNoMoreInteractions(warmUpload);
+    }
+
+    @Test
+    void testCreateDuplicate() {
+        InputStream inputStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        int id = 3;
+        String bucket = "staging-bucket";
+
+        when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn(bucket);
+        when(s3Processor.putResource(any(InputStream.class), eq("audio/mpeg"), eq(bucket), eq(id),
+                any(BooleanSupplier.class))).thenAnswer(invocation -> {
+            ((InputStream) invocation.getArgument(0)).readAllBytes();
+            return invocation.getArgument(4, BooleanSupplier.class).getAsBoolean();
+        });
+        when(blobRepository.reference(CONTENT_SHA256, bucket)).thenReturn(Optional.of(blob(7, bucket, 1)));
+        when(fileEntityWriter.create(any(FileEntity.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, FileEntity.class).setId(id);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertEquals(id, service.create("track.mp3", "audio/mpeg", inputStream));
+        verify(fileEntityWriter).create(any(FileEntity.class));
+        verify(repository).update(argThat(fileEntity -> fileEntity.getId() == id && fileEntity.getStorageId() == 1
+                && CONTENT_SHA256.equals(fileEntity.getETag()) && fileEntity.getContentLength() == 3));
+        verifyNoMoreInteractions(repository);
+        verify(blobRepository).reference(CONTENT_SHA256, bucket);
+        verifyNoMoreInteractions(blobRepository);
+        verify(outboxRepository).markReady(id);
+        verifyNoMoreInteractions(outboxRepository);
+    }
+
+    @Test
+    void testCreateNotCommitted() {
+        InputStream inputStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        int id = 3;
+        String bucket = "staging-bucket";
+
+        when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn(bucket);
+        when(s3Processor.putResource(any(InputStream.class), eq("audio/mpeg"), eq(bucket), eq(id),
+                any(BooleanSupplier.class))).thenAnswer(invocation -> {
+            ((InputStream) invocation.getArgument(0)).readAllBytes();
+            return invocation.getArgument(4, BooleanSupplier.class).getAsBoolean();
+        });
+        when(fileEntityWriter.create(any(FileEntity.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, FileEntity.class).setId(id);
+            return CompletableFuture.failedFuture(new IllegalStateException("Connection is closed"));
+        });
+
+        assertThrows(UnableToSaveFileException.class, () -> service.create("track.mp3", "audio/mpeg", inputStream));
+        verifyNoInteractions(repository);
+        verifyNoInteractions(blobRepository);
+        verifyNoInteractions(outboxRepository);
+    }
+
+    @Test
+    void testCreateUploadFailureDiscardsEntity() {
+        InputStream inputStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        int id = 3;
+        String bucket = "staging-bucket";
+
+        when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn(bucket);
+        when(s3Processor.putResource(any(InputStream.class), eq("audio/mpeg"), eq(bucket), eq(id),
+                any(BooleanSupplier.class))).thenThrow(new SdkClientException("Unable to execute HTTP request"));
+        when(fileEntityWriter.create(any(FileEntity.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, FileEntity.class).setId(id);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertThrows(SdkClientException.class, () -> service.create("track.mp3", "audio/mpeg", inputStream));
+        verify(outboxRepository).deletePending(List.of(id));
+        verify(repository).deleteAll(argThat(fileEntities -> fileEntities.size() == 1
+                && fileEntities.get(0).getId() == id));
+        verify(outboxRepository, never()).markReady(id);
+    }
+
+    @Test
+    void testCreateInsertTimesOut() {
+        InputStream inputStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        int id = 3;
+        String bucket = "staging-bucket";
+        createConfig.setInsertTimeout(Duration.ofMillis(10));
+
+        when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn(bucket);
+        when(s3Processor.putResource(any(InputStream.class), eq("audio/mpeg"), eq(bucket), eq(id),
+                any(BooleanSupplier.class))).thenAnswer(invocation -> {
+            ((InputStream) invocation.getArgument(0)).readAllBytes();
+            return invocation.getArgument(4, BooleanSupplier.class).getAsBoolean();
+        });
+        when(fileEntityWriter.create(any(FileEntity.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, FileEntity.class).setId(id);
+            return new CompletableFuture<Void>();
+        });
+
+        assertThrows(UnableToSaveFileException.class, () -> service.create("track.mp3", "audio/mpeg", inputStream));
+        verifyNoInteractions(repository);
+        verifyNoInteractions(blobRepository);
+    }
+
+    @Test
+    void testGetResource() {
         int id = 3;
         String bucket = "bucket";
-        byte[] fileBytes = {0, 1, 2};
+        ResourceContent content = mock(ResourceContent.class);
         FileEntity fileEntity = new FileEntity();
         fileEntity.setId(id);
         fileEntity.setBucket(bucket);
+        fileEntity.setStorageId(1);
 
         when(repository.read(id)).thenReturn(Optional.of(fileEntity));
-        when(s3Processor.getFileBytesFromResource(bucket, id)).thenReturn(fileBytes);
+        when(s3Processor.getResource(bucket, 1)).thenReturn(content);
 
-        assertArrayEquals(fileBytes, service.getFileBytes(id));
+        assertSame(content, service.getResource(id));
         verify(repository).read(id);
         verifyNoMoreInteractions(repository);
-        verify(s3Processor).getFileBytesFromResource(bucket, id);
+        verify(s3Processor).getResource(bucket, 1);
         verifyNoMoreInteractions(s3Processor);
     }
 
-    private static Stream<Arguments> getFileBytesWithRangeTestCases() {
-        return Stream.of(
-                Arguments.of("FromRangeWithStartAndEnd",
-                        List.of(0, 2),
-                        new byte[]{0, 1, 2},
-                        new byte[]{0, 1}),
-
-                Arguments.of("FromRangeWithStart",
-                        List.of(1),
-                        new byte[]{0, 1, 2},
-                        new byte[]{1, 2})
-        );
-    }
-
-    @ParameterizedTest(name = "GetFileBytesWithRange_{0}_Test")
-    @MethodSource(value = "getFileBytesWithRangeTestCases")
-    void testGetFileBytesWithRange(String name,
-                                   List<Integer> range,
-                                   byte[] fileBytes,
-                                   byte[] fileBytesFromRange) {
+    @Test
+    void testGetResourceAsyncWithBlockingEngine() {
         int id = 3;
         String bucket = "bucket";
+        ResourceContent content = mock(ResourceContent.class);
         FileEntity fileEntity = new FileEntity();
         fileEntity.setId(id);
         fileEntity.setBucket(bucket);
+        fileEntity.setStorageId(1);
 
         when(repository.read(id)).thenReturn(Optional.of(fileEntity));
-        when(s3Processor.getFileBytesFromResource(bucket, id)).thenReturn(fileBytes);
+        when(s3Processor.getResource(bucket, 1)).thenReturn(content);
 
-        assertArrayEquals(fileBytesFromRange, service.getFileBytes(id, range));
+        assertFalse(service.isAsyncEngine());
+        assertSame(content, service.getResourceAsync(id).join());
         verify(repository).read(id);
         verifyNoMoreInteractions(repository);
-        verify(s3Processor).getFileBytesFromResource(bucket, id);
+        verify(s3Processor).getResource(bucket, 1);
         verifyNoMoreInteractions(s3Processor);
     }
 
-    private static Stream<Arguments> getFileBytesWithRangeExceptionTestCases() {
+    @Test
+    void testGetResourceMetadata() {
+        int id = 3;
+        Instant uploadedAt = Instant.parse("2022-10-01T10:15:30Z");
+        FileEntity fileEntity = fileEntity(id, "bucket");
+        fileEntity.setETag(CONTENT_SHA256);
+        fileEntity.setContentLength(3L);
+        fileEntity.setUploadedAt(uploadedAt);
+        fileEntity.setMimeType("audio/mpeg");
+
+        when(repository.read(id)).thenReturn(Optional.of(fileEntity));
+
+        assertEquals(new ResourceMetadata(CONTENT_SHA256, 3L, "audio/mpeg", uploadedAt),
+                service.getResourceMetadata(id));
+        verify(repository).read(id);
+        verifyNoMoreInteractions(repository);
+        verifyNoInteractions(s3Processor);
+    }
+
+    @Test
+    void testGetIncompleteResourceMetadata() {
+        int id = 3;
+        FileEntity fileEntity = fileEntity(id, "bucket");
+
+        when(repository.read(id)).thenReturn(Optional.of(fileEntity));
+
+        assertThrows(ResourceNotFoundException.class, () -> service.getResourceMetadata(id));
+        verify(repository).read(id);
+        verifyNoMoreInteractions(repository);
+        verifyNoInteractions(s3Processor);
+    }
+
+    @Test
+    void testCreateWithoutContentType() {
+        InputStream inputStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        String bucket = "staging-bucket";
+
+        when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn(bucket);
+        when(s3Processor.putResource(any(), any(), any(), any(), any())).thenReturn(true);
+        when(fileEntityWriter.create(any(FileEntity.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        service.create("track.mp3", null, inputStream);
+
+        verify(fileEntityWriter).create(argThat(fileEntity -> "audio/mpeg".equals(fileEntity.getMimeType())));
+    }
+
+    @Test
+    void testGetResourceWithRangeOfKnownLength() {
+        int id = 3;
+        String bucket = "bucket";
+        ContentRange contentRange = new ContentRange(1, 2, 3);
+        ResourceContent content = mock(ResourceContent.class);
+        FileEntity fileEntity = fileEntity(id, bucket);
+        fileEntity.setContentLength(3L);
+
+        when(repository.read(id)).thenReturn(Optional.of(fileEntity));
+        when(s3Processor.getResource(bucket, id, contentRange)).thenReturn(content);
+
+        assertSame(content, service.getResource(id, HttpRange.createByteRange(1)));
+        verify(s3Processor).getResource(bucket, id, contentRange);
+        verifyNoMoreInteractions(s3Processor);
+    }
+
+    @Test
+    void testGetResourceWithResourceNotFoundException() {
+        int id = 3;
+
+        when(repository.read(id)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> service.getResource(id));
+        verify(repository).read(id);
+        verifyNoMoreInteractions(repository);
+        verifyNoInteractions(s3Processor);
+    }
+
+    private static Stream<Arguments> getResourceWithRangeTestCases() {
         return Stream.of(
-                Arguments.of("FromRangeWithNegativeStart",
-                        List.of(-3, 2),
-                        new byte[]{0, 1, 2}),
+                Arguments.of("FromRangeWithStartAndEnd",
+                        HttpRange.createByteRange(0, 1),
+                        new ContentRange(0, 1, 3)),
+
+                Arguments.of("FromRangeWithStart",
+                        HttpRange.createByteRange(1),
+                        new ContentRange(1, 2, 3)),
 
-                Arguments.of("FromRangeStartGraterThanBytesLength",
-                        List.of(3),
-                        new byte[]{0, 1, 2}),
+                Arguments.of("FromRangeWithEndAfterResourceEnd",
+                        HttpRange.createByteRange(1, 10),
+                        new ContentRange(1, 2, 3)),
 
-                Arguments.of("FromRangeEqualsStartAndEnd",
-                        List.of(2, 2),
-                        new byte[]{0, 1, 2})
+                Arguments.of("FromSuffixRange",
+                        HttpRange.createSuffixRange(2),
+                        new ContentRange(1, 2, 3))
         );
     }
 
-    @ParameterizedTest(name = "GetFileBytesWithRangeException_{0}_Test")
-    @MethodSource(value = "getFileBytesWithRangeExceptionTestCases")
-    void testGetFileBytesWithRangeException(String name,
-                                            List<Integer> range,
-                                            byte[] fileBytes) {
+    @ParameterizedTest(name = "GetResourceWithRange_{0}_Test")
+    @MethodSource(value = "getResourceWithRangeTestCases")
+    void testGetResourceWithRange(String name,
+                                  HttpRange range,
+                                  ContentRange contentRange) {
         int id = 3;
         String bucket = "bucket";
+        ResourceContent content = mock(ResourceContent.class);
         FileEntity fileEntity = new FileEntity();
         fileEntity.setId(id);
         fileEntity.setBucket(bucket);
 
         when(repository.read(id)).thenReturn(Optional.of(fileEntity));
-        when(s3Processor.getFileBytesFromResource(bucket, id)).thenReturn(fileBytes);
+        when(s3Processor.getResourceLength(bucket, id)).thenReturn(3L);
+        when(s3Processor.getResource(bucket, id, contentRange)).thenReturn(content);
 
-        assertThrows(IncorrectRangeException.class, () -> service.getFileBytes(id, range));
+        assertSame(content, service.getResource(id, range));
         verify(repository).read(id);
         verifyNoMoreInteractions(repository);
-        verify(s3Processor).getFileBytesFromResource(bucket, id);
+        verify(s3Processor).getResourceLength(bucket, id);
+        verify(s3Processor).getResource(bucket, id, contentRange);
         verifyNoMoreInteractions(s3Processor);
     }
 
-    @Test
-    void testGetFileBytesWithResourceNotFoundException() {
+    private static Stream<Arguments> getResourceWithRangeExceptionTestCases() {
+        return Stream.of(
+                Arguments.of("FromRangeStartGraterThanResourceLength",
+                        HttpRange.createByteRange(3)),
+
+                Arguments.of("FromEmptySuffixRange",
+                        HttpRange.createSuffixRange(0))
+        );
+    }
+
+    @ParameterizedTest(name = "GetResourceWithRangeException_{0}_Test")
+    @MethodSource(value = "getResourceWithRangeExceptionTestCases")
+    void testGetResourceWithRangeException(String name,
+                                           HttpRange range) {
         int id = 3;
+        String bucket = "bucket";
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setId(id);
+        fileEntity.setBucket(bucket);
 
-        when(repository.read(id)).thenReturn(Optional.empty());
+        when(repository.read(id)).thenReturn(Optional.of(fileEntity));
+        when(s3Processor.getResourceLength(bucket, id)).thenReturn(3L);
 
-        assertThrows(ResourceNotFoundException.class, () -> service.getFileBytes(id));
+        IncorrectRangeException exception =
+                assertThrows(IncorrectRangeException.class, () -> service.getResource(id, range));
+        assertEquals(Optional.of(3L), exception.getResourceLength());
         verify(repository).read(id);
         verifyNoMoreInteractions(repository);
-        verifyNoInteractions(s3Processor);
+        verify(s3Processor).getResourceLength(bucket, id);
+        verifyNoMoreInteractions(s3Processor);
     }
 
     @Test
     void testDeleteEmptyIds() {
         List<Integer> ids = List.of();
-        List<Integer> deletesIds = List.of();
 
-        assertEquals(service.delete(ids), deletesIds);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(repository.readAll(Set.of())).thenReturn(List.of());
+
+        assertEquals(new DeletionResult(List.of(), List.of()), service.delete(ids));
+        verifyNoInteractions(s3Processor);
     }
 
     @Test
     void testNotExistedIds() {
         int id = 1;
         List<Integer> ids = List.of(id);
-        List<Integer> deletesIds = List.of();
 
-        when(repository.read(id)).thenReturn(Optional.empty());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(repository.readAll(Set.of(id))).thenReturn(List.of());
 
-        assertEquals(service.delete(ids), deletesIds);
-        verify(repository).read(id);
+        assertEquals(new DeletionResult(List.of(), List.of()), service.delete(ids));
+        verify(repository).readAll(Set.of(id));
+        verify(repository).deleteReleased(List.of());
         verifyNoMoreInteractions(repository);
         verifyNoInteractions(s3Processor);
     }
 
     @Test
     void testExistedIds() {
-        int id = 1;
-        String bucket = "bucket";
-        List<Integer> ids = List.of(id);
-        List<Integer> deletesIds = List.of(id);
-        FileEntity fileEntity = new FileEntity();
-        fileEntity.setId(id);
-        fileEntity.setBucket(bucket);
+        String stagingBucket = "staging-bucket";
+        String permanentBucket = "permanent-bucket";
+        List<Integer> ids = List.of(1, 2, 3, 4, 5, 1);
+        FileEntity first = fileEntity(1, stagingBucket);
+        FileEntity second = fileEntity(2, permanentBucket);
+        FileEntity fourth = fileEntity(4, stagingBucket);
+        FileEntity fifth = fileEntity(5, stagingBucket);
+        fifth.setStorageId(4);
+        List<FileEntity> fileEntities = List.of(first, second, fourth, fifth);
+        BlobEntity firstBlob = blob(11, stagingBucket, 1);
+        BlobEntity secondBlob = blob(12, permanentBucket, 2);
+        BlobEntity fourthBlob = blob(14, stagingBucket, 4);
+
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(repository.readAll(Set.of(1, 2, 3, 4, 5))).thenReturn(fileEntities);
+        when(blobRepository.release(fileEntities)).thenReturn(List.of(firstBlob, secondBlob, fourthBlob));
+        when(s3Processor.deleteResources(stagingBucket, List.of(1, 4))).thenReturn(List.of(4));
+        when(s3Processor.deleteResources(permanentBucket, List.of(2))).thenReturn(List.of());
+
+        assertEquals(new DeletionResult(List.of(1, 2), List.of(4, 5)), service.delete(ids));
+        verify(repository).readAll(Set.of(1, 2, 3, 4, 5));
+        verify(repository).deleteReleased(List.of(first, second));
+        verifyNoMoreInteractions(repository);
+        verify(s3Processor).deleteResources(stagingBucket, List.of(1, 4));
+        verify(s3Processor).deleteResources(permanentBucket, List.of(2));
+        verifyNoMoreInteractions(s3Processor);
+        verify(blobRepository).release(fileEntities);
+        verify(blobRepository).deleteUnreferenced(argThat(blobIds -> blobIds.size() == 2
+                && blobIds.containsAll(List.of(11L, 12L))));
+        verify(blobRepository).retain(List.of(fourth, fifth));
+        verifyNoMoreInteractions(blobRepository);
+    }
 
-        when(repository.read(id)).thenReturn(Optional.of(fileEntity));
-        doNothing().when(s3Processor).deleteResource(bucket, id);
-        doNothing().when(repository).delete(fileEntity);
+    @Test
+    void testSharedContentKeptOnDelete() {
+        String bucket = "staging-bucket";
+        FileEntity fileEntity = fileEntity(2, bucket);
+        fileEntity.setStorageId(1);
 
-        assertEquals(service.delete(ids), deletesIds);
-        verify(repository).read(id);
-        verify(repository).delete(fileEntity);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(repository.readAll(Set.of(2))).thenReturn(List.of(fileEntity));
+        when(blobRepository.release(List.of(fileEntity))).thenReturn(List.of());
+
+        assertEquals(new DeletionResult(List.of(2), List.of()), service.delete(List.of(2)));
+        verifyNoInteractions(s3Processor);
+        verify(repository).deleteReleased(List.of(fileEntity));
+        verify(blobRepository).deleteUnreferenced(List.of());
+    }
+
+    @Test
+    void testDeleteWithTombstones() {
+        List<Integer> ids = List.of(1, 2);
+
+        when(deleteConfig.isTombstone()).thenReturn(true);
+        when(repository.readAll(Set.of(1, 2))).thenReturn(List.of(fileEntity(1, "staging-bucket")));
+        when(repository.markDeleted(List.of(1))).thenReturn(1);
+
+        assertEquals(new DeletionResult(List.of(1), List.of()), service.delete(ids));
+        verify(repository).readAll(Set.of(1, 2));
+        verify(repository).markDeleted(List.of(1));
+        verifyNoMoreInteractions(repository);
+        verifyNoInteractions(s3Processor);
+    }
+
+    @Test
+    void purgeDeletedTest() {
+        String bucket = "staging-bucket";
+        int limit = 10;
+        List<FileEntity> fileEntities = List.of(fileEntity(1, bucket), fileEntity(2, bucket));
+
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(repository.lockDeleted(limit)).thenReturn(fileEntities);
+        when(repository.deleteAll(fileEntities)).thenReturn(List.of(blob(11, bucket, 1), blob(12, bucket, 2)));
+        when(s3Processor.deleteResources(bucket, List.of(1, 2))).thenReturn(List.of(2));
+
+        assertEquals(2, service.purgeDeleted(limit));
+        verify(repository).lockDeleted(limit);
+        verify(repository).deleteAll(fileEntities);
         verifyNoMoreInteractions(repository);
-        verify(s3Processor).deleteResource(bucket, id);
+        verify(s3Processor).deleteResources(bucket, List.of(1, 2));
         verifyNoMoreInteractions(s3Processor);
+        verify(blobRepository).deleteUnreferenced(List.of(11L));
+        verifyNoMoreInteractions(blobRepository);
     }
 
     @Test
-    void permanentResourceTest() {
+    void purgeUnreferencedBlobsTest() {
+        String bucket = "staging-bucket";
+        int limit = 10;
+
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(blobRepository.lockUnreferenced(limit)).thenReturn(List.of(blob(11, bucket, 1), blob(12, bucket, 2)));
+        when(s3Processor.deleteResources(bucket, List.of(1, 2))).thenReturn(List.of(1));
+
+        assertEquals(1, service.purgeUnreferencedBlobs(limit));
+        verify(s3Processor).deleteResources(bucket, List.of(1, 2));
+        verifyNoMoreInteractions(s3Processor);
+        verify(blobRepository).lockUnreferenced(limit);
+        verify(blobRepository).deleteUnreferenced(List.of(12L));
+        verifyNoMoreInteractions(blobRepository);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void permanentLegacyResourceTest() {
         int id = 1;
         String stagingBucket = "staging-bucket";
         String permanentBucket = "permanent-bucket";
-
-        FileEntity fileEntity = new FileEntity();
-        fileEntity.setId(id);
-        fileEntity.setBucket(stagingBucket);
+        FileEntity fileEntity = fileEntity(id, stagingBucket);
 
         when(repository.read(id)).thenReturn(Optional.of(fileEntity));
         when(bucketNameGetter.getBucketForStorage(PERMANENT.getValue())).thenReturn(permanentBucket);
+        when(blobRepository.find(stagingBucket, id)).thenReturn(Optional.empty());
         doNothing().when(s3Processor).transferResource(stagingBucket, permanentBucket, id);
         doNothing().when(repository).update(any(FileEntity.class));
 
         service.permanentResource(id);
         verify(repository).read(id);
-        verify(repository).update(any(FileEntity.class));
+        verify(repository).update(argThat(updated -> permanentBucket.equals(updated.getBucket())));
         verifyNoMoreInteractions(repository);
         verify(bucketNameGetter).getBucketForStorage(PERMANENT.getValue());
         verifyNoMoreInteractions(bucketNameGetter);
@@ -231,6 +595,53 @@ class ResourceServiceTest {
         verifyNoMoreInteractions(s3Processor);
     }
 
+    @Test
+    void permanentResourceTest() {
+        int id = 1;
+        String stagingBucket = "staging-bucket";
+        String permanentBucket = "permanent-bucket";
+        FileEntity fileEntity = fileEntity(id, stagingBucket);
+        BlobEntity stagingBlob = blob(11, stagingBucket, id);
+
+        when(repository.read(id)).thenReturn(Optional.of(fileEntity));
+        when(bucketNameGetter.getBucketForStorage(PERMANENT.getValue())).thenReturn(permanentBucket);
+        when(blobRepository.find(stagingBucket, id)).thenReturn(Optional.of(stagingBlob));
+        when(blobRepository.isReferenced(CONTENT_SHA256, permanentBucket)).thenReturn(false);
+        when(repository.moveToBucket(fileEntity, CONTENT_SHA256, permanentBucket, true))
+                .thenReturn(Optional.of(List.of(stagingBlob)));
+        when(s3Processor.deleteResources(stagingBucket, List.of(id))).thenReturn(List.of());
+
+        service.permanentResource(id);
+        verify(repository).read(id);
+        verify(repository).moveToBucket(fileEntity, CONTENT_SHA256, permanentBucket, true);
+        verifyNoMoreInteractions(repository);
+        verify(s3Processor).copyResource(stagingBucket, permanentBucket, id);
+        verify(s3Processor).deleteResources(stagingBucket, List.of(id));
+        verifyNoMoreInteractions(s3Processor);
+        verify(blobRepository).deleteUnreferenced(List.of(11L));
+    }
+
+    @Test
+    void permanentDuplicateResourceTest() {
+        int id = 2;
+        String stagingBucket = "staging-bucket";
+        String permanentBucket = "permanent-bucket";
+        FileEntity fileEntity = fileEntity(id, stagingBucket);
+        fileEntity.setStorageId(1);
+
+        when(repository.read(id)).thenReturn(Optional.of(fileEntity));
+        when(bucketNameGetter.getBucketForStorage(PERMANENT.getValue())).thenReturn(permanentBucket);
+        when(blobRepository.find(stagingBucket, 1)).thenReturn(Optional.of(blob(11, stagingBucket, 1)));
+        when(blobRepository.isReferenced(CONTENT_SHA256, permanentBucket)).thenReturn(true);
+        when(repository.moveToBucket(fileEntity, CONTENT_SHA256, permanentBucket, false))
+                .thenReturn(Optional.of(List.of()));
+
+        service.permanentResource(id);
+        verify(repository).moveToBucket(fileEntity, CONTENT_SHA256, permanentBucket, false);
+        verifyNoInteractions(s3Processor);
+        verify(blobRepository).deleteUnreferenced(List.of());
+    }
+
     @Test
     void permanentResourceNotFoundTest() {
         int id = 1;
@@ -262,4 +673,76 @@ class ResourceServiceTest {
         verifyNoMoreInteractions(bucketNameGetter);
         verifyNoMoreInteractions(s3Processor);
     }
+
+    @Test
+    void createQueryTest() {
+        String bucket = "staging-bucket";
+        when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn(bucket);
+
+        assertEquals(new ResourceQuery(0, listConfig.getDefaultLimit(), null, null),
+                service.createQuery(null, null, null, null, null));
+        assertEquals(new ResourceQuery(10, 50, bucket, "audio/mpeg"),
+                service.createQuery(10, 50, null, STAGING.getValue(), "audio/mpeg"));
+        verify(bucketNameGetter).getBucketForStorage(STAGING.getValue());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void createQueryWithIncorrectParametersTest() {
+        when(bucketNameGetter.getBucketForStorage(STAGING.getValue())).thenReturn("staging-bucket");
+
+        assertThrows(IncorrectListRequestException.class,
+                () -> service.createQuery(-1, null, null, null, null));
+        assertThrows(IncorrectListRequestException.class,
+                () -> service.createQuery(null, 0, null, null, null));
+        assertThrows(IncorrectListRequestException.class,
+                () -> service.createQuery(null, listConfig.getMaxLimit() + 1, null, null, null));
+        assertThrows(IncorrectListRequestException.class,
+                () -> service.createQuery(null, null, null, "archive", null));
+        assertThrows(IncorrectListRequestException.class,
+                () -> service.createQuery(null, null, "permanent-bucket", STAGING.getValue(), null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listResourcesTest() {
+        List<ResourceSummary> summaries = List.of(summary(3), summary(7));
+        doAnswer(invocation -> {
+            summaries.forEach(invocation.<Consumer<ResourceSummary>>getArgument(1));
+            return null;
+        }).when(repository).readPage(any(ResourceQuery.class), any(Consumer.class));
+        List<ResourceSummary> fullPage = new ArrayList<>();
+        List<ResourceSummary> lastPage = new ArrayList<>();
+
+        Optional<Integer> nextCursor = service.listResources(new ResourceQuery(0, 2, null, null), fullPage::add);
+        Optional<Integer> noCursor = service.listResources(new ResourceQuery(0, 3, null, null), lastPage::add);
+
+        assertEquals(Optional.of(7), nextCursor);
+        assertEquals(Optional.empty(), noCursor);
+        assertEquals(summaries, fullPage);
+        assertEquals(summaries, lastPage);
+    }
+
+    private ResourceSummary summary(int id) {
+        return new ResourceSummary(id, "staging-bucket", CONTENT_SHA256, 12L, "audio/mpeg",
+                Instant.parse("2022-10-01T10:15:30Z"));
+    }
+
+    private BlobEntity blob(long id, String bucket, int storageId) {
+        BlobEntity blob = new BlobEntity();
+        blob.setId(id);
+        blob.setBucket(bucket);
+        blob.setStorageId(storageId);
+        blob.setSha256(CONTENT_SHA256);
+        blob.setRefCount(1);
+        return blob;
+    }
+
+    private FileEntity fileEntity(int id, String bucket) {
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setId(id);
+        fileEntity.setContentType("mp3");
+        fileEntity.setBucket(bucket);
+        return fileEntity;
+    }
 }
@@ -0,0 +1,113 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.ResourceContent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class S3AsyncProcessorTest {
+    @MockBean
+    private S3AsyncClient s3AsyncClient;
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private S3AsyncProcessor s3AsyncProcessor;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getResourceTest() {
+        String bucket = "bucket";
+        int resourceId = 3;
+        ResponsePublisher<GetObjectResponse> publisher = publisher(GetObjectResponse.builder()
+                .contentType("audio/mpeg")
+                .contentLength(10L)
+                .build());
+        GetObjectRequest request = GetObjectRequest.builder().bucket(bucket).key("3").build();
+
+        when(s3AsyncClient.getObject(eq(request), any(AsyncResponseTransformer.class)))
+                .thenReturn(CompletableFuture.completedFuture(publisher));
+
+        ResourceContent content = s3AsyncProcessor.getResource(bucket, resourceId).join();
+        assertTrue(content instanceof PublishedResourceContent);
+        assertEquals("audio/mpeg", content.getContentType());
+        assertEquals(ContentRange.full(10), content.getRange());
+        verify(s3AsyncClient).getObject(eq(request), any(AsyncResponseTransformer.class));
+        verifyNoMoreInteractions(s3AsyncClient);
+        assertEquals(1, meterRegistry.get("resource.s3.requests")
+                .tags("operation", "get", "bucket", bucket, "outcome", "success")
+                .timer().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getResourceWithRangeTest() {
+        String bucket = "bucket";
+        int resourceId = 3;
+        ContentRange range = new ContentRange(2, 5, 10);
+        ResponsePublisher<GetObjectResponse> publisher = publisher(GetObjectResponse.builder()
+                .contentLength(4L)
+                .build());
+        GetObjectRequest request = GetObjectRequest.builder().bucket(bucket).key("3").range("bytes=2-5").build();
+
+        when(s3AsyncClient.getObject(eq(request), any(AsyncResponseTransformer.class)))
+                .thenReturn(CompletableFuture.completedFuture(publisher));
+
+        ResourceContent content = s3AsyncProcessor.getResource(bucket, resourceId, range).join();
+        assertEquals("application/octet-stream", content.getContentType());
+        assertEquals(range, content.getRange());
+        assertEquals(4, content.getContentLength());
+        assertEquals(1, meterRegistry.get("resource.s3.requests")
+                .tags("operation", "get_range", "bucket", bucket, "outcome", "success")
+                .timer().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getResourceFailedTest() {
+        String bucket = "bucket";
+        NoSuchKeyException exception = NoSuchKeyException.builder().message("missing").build();
+
+        when(s3AsyncClient.getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class)))
+                .thenReturn(CompletableFuture.failedFuture(exception));
+
+        CompletableFuture<ResourceContent> content = s3AsyncProcessor.getResource(bucket, 3);
+        CompletionException thrown = assertThrows(CompletionException.class, content::join);
+        assertEquals(exception, thrown.getCause());
+        assertEquals(1, meterRegistry.get("resource.s3.requests")
+                .tags("operation", "get", "bucket", bucket, "outcome", "error")
+                .timer().count());
+    }
+
+    private ResponsePublisher<GetObjectResponse> publisher(GetObjectResponse response) {
+        SdkPublisher<ByteBuffer> body = subscriber -> {
+            // The body is never subscribed to
+        };
+        return new ResponsePublisher<>(response, body);
+    }
+}
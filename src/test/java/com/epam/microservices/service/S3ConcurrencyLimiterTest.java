@@ -0,0 +1,128 @@
+package com.epam.microservices.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.epam.microservices.config.dto.ConcurrencyLimitConfig;
+import com.epam.microservices.service.exception.StorageOverloadedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class S3ConcurrencyLimiterTest {
+    @Spy
+    private ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+    @InjectMocks
+    private S3ConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        config.setInitialLimit(10);
+        config.setMinLimit(2);
+        config.setMaxLimit(20);
+        config.setBackoffRatio(0.5);
+        config.setQueueTimeout(Duration.ofMillis(50));
+        config.setRetryAfter(Duration.ofSeconds(3));
+        limiter.init();
+    }
+
+    @Test
+    void callIncreasesLimitTest() {
+        for (int i = 0; i < 20; i++) {
+            assertEquals("ok", limiter.call(() -> "ok"));
+        }
+
+        assertEquals(11, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void throttlingResponseDecreasesLimitTest() {
+        AmazonServiceException slowDown = new AmazonServiceException("Please reduce your request rate");
+        slowDown.setStatusCode(503);
+        slowDown.setErrorCode("SlowDown");
+
+        assertThrows(AmazonServiceException.class, () -> limiter.run(() -> {
+            throw slowDown;
+        }));
+
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void otherErrorDoesNotDecreaseLimitTest() {
+        AmazonServiceException notFound = new AmazonServiceException("Not Found");
+        notFound.setStatusCode(404);
+
+        assertThrows(AmazonServiceException.class, () -> limiter.run(() -> {
+            throw notFound;
+        }));
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void limitDoesNotDropBelowMinimumTest() {
+        AmazonServiceException throttling = new AmazonServiceException("Too Many Requests");
+        throttling.setStatusCode(429);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(AmazonServiceException.class, () -> limiter.run(() -> {
+                throw throttling;
+            }));
+        }
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void callOverLimitRejectedAfterQueueTimeoutTest() throws Exception {
+        config.setInitialLimit(1);
+        limiter.init();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> inFlight = CompletableFuture.runAsync(() -> limiter.run(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        started.await();
+
+        StorageOverloadedException e = assertThrows(StorageOverloadedException.class,
+                () -> limiter.call(() -> "rejected"));
+        release.countDown();
+        inFlight.join();
+
+        assertEquals(3, e.getRetryAfterSeconds());
+        assertEquals(1, limiter.getRejectionCount());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void disabledLimiterPassesCallsThroughTest() {
+        config.setEnabled(false);
+        config.setInitialLimit(0);
+        limiter.init();
+
+        assertEquals("ok", limiter.call(() -> "ok"));
+        assertEquals(0, limiter.getLimit());
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
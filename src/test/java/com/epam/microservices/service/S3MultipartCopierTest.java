@@ -0,0 +1,148 @@
+package com.epam.microservices.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.epam.microservices.config.dto.CopyConfig;
+import com.epam.microservices.service.exception.StorageOverloadedException;
+import com.epam.microservices.service.exception.UnableToSaveFileException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class S3MultipartCopierTest {
+    private static final String SOURCE_BUCKET = "staging-bucket";
+    private static final String DESTINATION_BUCKET = "permanent-bucket";
+    private static final String KEY = "3";
+    private static final String UPLOAD_ID = "uploadId";
+    @MockBean
+    private AmazonS3 s3;
+    @MockBean
+    private S3ConcurrencyLimiter limiter;
+    @Spy
+    private CopyConfig copyConfig = new CopyConfig();
+    @InjectMocks
+    private S3MultipartCopier copier;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(limiter.call(any())).thenAnswer(invocation -> invocation.getArgument(0, Supplier.class).get());
+        lenient().doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(limiter).run(any());
+        copyConfig.setMultipartThreshold(DataSize.ofBytes(8));
+        copyConfig.setPartSize(DataSize.ofBytes(4));
+        copyConfig.setThreads(2);
+        copier.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        copier.shutdown();
+    }
+
+    @Test
+    void copySmallObjectWithSingleCopyTest() {
+        when(s3.getObjectMetadata(SOURCE_BUCKET, KEY)).thenReturn(objectMetadata(7));
+        when(s3.copyObject(SOURCE_BUCKET, KEY, DESTINATION_BUCKET, KEY)).thenReturn(new CopyObjectResult());
+
+        copier.copy(SOURCE_BUCKET, KEY, DESTINATION_BUCKET);
+
+        verify(s3).getObjectMetadata(SOURCE_BUCKET, KEY);
+        verify(s3).copyObject(SOURCE_BUCKET, KEY, DESTINATION_BUCKET, KEY);
+        verifyNoMoreInteractions(s3);
+    }
+
+    @Test
+    void copyLargeObjectInPartsTest() {
+        when(s3.getObjectMetadata(SOURCE_BUCKET, KEY)).thenReturn(objectMetadata(10));
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(initiateResult());
+        when(s3.copyPart(any(CopyPartRequest.class))).thenAnswer(invocation -> {
+            CopyPartResult result = new CopyPartResult();
+            result.setPartNumber(invocation.getArgument(0, CopyPartRequest.class).getPartNumber());
+            result.setETag("etag");
+            return result;
+        });
+        when(s3.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(new CompleteMultipartUploadResult());
+
+        copier.copy(SOURCE_BUCKET, KEY, DESTINATION_BUCKET);
+
+        verify(s3).initiateMultipartUpload(argThat((InitiateMultipartUploadRequest request) ->
+                DESTINATION_BUCKET.equals(request.getBucketName())
+                        && "audio/mpeg".equals(request.getObjectMetadata().getContentType())));
+        verify(s3).copyPart(argThat(request -> isPart(request, 1, 0, 3)));
+        verify(s3).copyPart(argThat(request -> isPart(request, 2, 4, 7)));
+        verify(s3).copyPart(argThat(request -> isPart(request, 3, 8, 9)));
+        verify(s3).completeMultipartUpload(argThat(request -> request.getPartETags().size() == 3
+                && UPLOAD_ID.equals(request.getUploadId())));
+        verify(s3, never()).copyObject(any(), any(), any(), any());
+    }
+
+    @Test
+    void copyLargeObjectAbortsOnFailedPartTest() {
+        when(s3.getObjectMetadata(SOURCE_BUCKET, KEY)).thenReturn(objectMetadata(10));
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(initiateResult());
+        when(s3.copyPart(any(CopyPartRequest.class))).thenThrow(new SdkClientException("timeout"));
+
+        assertThrows(UnableToSaveFileException.class, () -> copier.copy(SOURCE_BUCKET, KEY, DESTINATION_BUCKET));
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3, never()).completeMultipartUpload(any());
+    }
+
+    @Test
+    void copyLargeObjectAbortsWhenStorageOverloadedTest() {
+        when(s3.getObjectMetadata(SOURCE_BUCKET, KEY)).thenReturn(objectMetadata(10));
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(initiateResult());
+        when(s3.copyPart(any(CopyPartRequest.class))).thenThrow(new StorageOverloadedException(1));
+
+        assertThrows(StorageOverloadedException.class, () -> copier.copy(SOURCE_BUCKET, KEY, DESTINATION_BUCKET));
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3, never()).completeMultipartUpload(any());
+    }
+
+    private boolean isPart(CopyPartRequest request, int partNumber, long firstByte, long lastByte) {
+        return request.getPartNumber() == partNumber && request.getFirstByte() == firstByte
+                && request.getLastByte() == lastByte && SOURCE_BUCKET.equals(request.getSourceBucketName())
+                && DESTINATION_BUCKET.equals(request.getDestinationBucketName());
+    }
+
+    private ObjectMetadata objectMetadata(long contentLength) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(contentLength);
+        metadata.setContentType("audio/mpeg");
+        return metadata;
+    }
+
+    private InitiateMultipartUploadResult initiateResult() {
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setUploadId(UPLOAD_ID);
+        return result;
+    }
+}
@@ -0,0 +1,249 @@
+package com.epam.microservices.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.epam.microservices.config.dto.UploadConfig;
+import com.epam.microservices.service.exception.UnableToSaveFileException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class S3MultipartUploaderTest {
+    private static final String BUCKET = "bucket";
+    private static final String KEY = "3";
+    private static final String UPLOAD_ID = "uploadId";
+    @MockBean
+    private AmazonS3 s3;
+    @MockBean
+    private S3ConcurrencyLimiter limiter;
+    @Spy
+    private UploadConfig uploadConfig = new UploadConfig();
+    @InjectMocks
+    private S3MultipartUploader uploader;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(limiter.call(any())).thenAnswer(invocation -> invocation.getArgument(0, Supplier.class).get());
+        lenient().doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(limiter).run(any());
+        uploadConfig.setMultipartThreshold(DataSize.ofBytes(8));
+        uploadConfig.setPartSize(DataSize.ofBytes(4));
+        uploadConfig.setMaxConcurrentParts(2);
+        uploadConfig.setThreads(2);
+        uploadConfig.setPartMaxAttempts(2);
+        uploader.init();
+    }
+
+    @Test
+    void uploadSmallObjectWithSinglePutTest() {
+        byte[] bytes = {0, 1, 2};
+
+        when(s3.putObject(any(PutObjectRequest.class))).thenReturn(new PutObjectResult());
+
+        uploader.upload(BUCKET, KEY, new ByteArrayInputStream(bytes), bytes.length, new ObjectMetadata());
+
+        verify(s3).putObject(argThat((PutObjectRequest request) ->
+                request.getMetadata().getContentLength() == bytes.length));
+        verifyNoMoreInteractions(s3);
+    }
+
+    @Test
+    void uploadStreamOfUnknownLengthWithSinglePutTest() {
+        byte[] bytes = {0, 1, 2};
+
+        when(s3.putObject(any(PutObjectRequest.class))).thenReturn(new PutObjectResult());
+
+        uploader.upload(BUCKET, KEY, new ByteArrayInputStream(bytes), -1, new ObjectMetadata());
+
+        verify(s3).putObject(argThat((PutObjectRequest request) ->
+                request.getMetadata().getContentLength() == bytes.length));
+        verifyNoMoreInteractions(s3);
+    }
+
+    @Test
+    void uploadStreamOfUnknownLengthBelowThresholdWithSinglePutTest() {
+        byte[] bytes = {0, 1, 2, 3, 4, 5};
+
+        when(s3.putObject(any(PutObjectRequest.class))).thenReturn(new PutObjectResult());
+
+        uploader.upload(BUCKET, KEY, new ByteArrayInputStream(bytes), -1, new ObjectMetadata());
+
+        verify(s3).putObject(argThat((PutObjectRequest request) ->
+                request.getMetadata().getContentLength() == bytes.length));
+        verifyNoMoreInteractions(s3);
+    }
+
+    @Test
+    void uploadLargeObjectInPartsTest() {
+        byte[] bytes = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(initiateMultipartUploadResult());
+        when(s3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag" + request.getPartNumber());
+            return result;
+        });
+        when(s3.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(new CompleteMultipartUploadResult());
+
+        uploader.upload(BUCKET, KEY, new ByteArrayInputStream(bytes), bytes.length, new ObjectMetadata());
+
+        verify(s3).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        verify(s3, times(3)).uploadPart(any(UploadPartRequest.class));
+        verify(s3).completeMultipartUpload(argThat((CompleteMultipartUploadRequest request) ->
+                request.getPartETags().size() == 3
+                        && request.getPartETags().get(0).getPartNumber() == 1
+                        && "etag3".equals(request.getPartETags().get(2).getETag())));
+        verifyNoMoreInteractions(s3);
+    }
+
+    @Test
+    void uploadLargeObjectRetriesFailedPartTest() {
+        byte[] bytes = {0, 1, 2, 3, 4, 5, 6, 7};
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(1);
+        result.setETag("etag");
+
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(initiateMultipartUploadResult());
+        when(s3.uploadPart(any(UploadPartRequest.class)))
+                .thenThrow(new SdkClientException("Connection reset"))
+                .thenReturn(result);
+        when(s3.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(new CompleteMultipartUploadResult());
+
+        uploader.upload(BUCKET, KEY, new ByteArrayInputStream(bytes), bytes.length, new ObjectMetadata());
+
+        verify(s3, times(3)).uploadPart(any(UploadPartRequest.class));
+        verify(s3).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(s3, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void uploadLargeObjectDoesNotRetryRejectedPartTest() {
+        byte[] bytes = {0, 1, 2, 3, 4, 5, 6, 7};
+        AmazonS3Exception rejected = new AmazonS3Exception("Invalid part");
+        rejected.setStatusCode(400);
+
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(initiateMultipartUploadResult());
+        when(s3.uploadPart(any(UploadPartRequest.class))).thenThrow(rejected);
+
+        assertThrows(UnableToSaveFileException.class, () ->
+                uploader.upload(BUCKET, KEY, new ByteArrayInputStream(bytes), bytes.length, new ObjectMetadata()));
+
+        verify(s3, times(2)).uploadPart(any(UploadPartRequest.class));
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void uploadLargeObjectAbortsOnPartFailureTest() {
+        byte[] bytes = {0, 1, 2, 3, 4, 5, 6, 7};
+
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(initiateMultipartUploadResult());
+        when(s3.uploadPart(any(UploadPartRequest.class))).thenThrow(new SdkClientException("Connection reset"));
+
+        assertThrows(UnableToSaveFileException.class, () ->
+                uploader.upload(BUCKET, KEY, new ByteArrayInputStream(bytes), bytes.length, new ObjectMetadata()));
+
+        verify(s3).abortMultipartUpload(argThat((AbortMultipartUploadRequest request) ->
+                UPLOAD_ID.equals(request.getUploadId())));
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void uploadSmallObjectNotPutWhenCommitConditionFailsTest() {
+        byte[] bytes = {0, 1, 2};
+
+        assertFalse(uploader.upload(BUCKET, KEY, new ByteArrayInputStream(bytes), -1, new ObjectMetadata(),
+                () -> false));
+
+        verifyNoInteractions(s3);
+    }
+
+    @Test
+    void uploadLargeObjectAbortedWhenCommitConditionFailsTest() {
+        byte[] bytes = {0, 1, 2, 3, 4, 5, 6, 7};
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(1);
+        result.setETag("etag");
+
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(initiateMultipartUploadResult());
+        when(s3.uploadPart(any(UploadPartRequest.class))).thenReturn(result);
+
+        assertFalse(uploader.upload(BUCKET, KEY, inputStream, -1, new ObjectMetadata(),
+                () -> false));
+
+        verify(s3, times(1)).uploadPart(any(UploadPartRequest.class));
+        verify(s3).abortMultipartUpload(argThat((AbortMultipartUploadRequest request) ->
+                UPLOAD_ID.equals(request.getUploadId())));
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void uploadLargeObjectChecksCommitConditionBeforeLastPartTest() {
+        byte[] bytes = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        AtomicInteger checks = new AtomicInteger();
+
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(initiateMultipartUploadResult());
+        when(s3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag" + request.getPartNumber());
+            return result;
+        });
+
+        assertFalse(uploader.upload(BUCKET, KEY, new ByteArrayInputStream(bytes), bytes.length, new ObjectMetadata(),
+                () -> checks.incrementAndGet() < 0));
+
+        assertEquals(1, checks.get());
+        verify(s3, times(2)).uploadPart(any(UploadPartRequest.class));
+        verify(s3, never()).uploadPart(argThat((UploadPartRequest request) -> request.getPartNumber() == 3));
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    private InitiateMultipartUploadResult initiateMultipartUploadResult() {
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setUploadId(UPLOAD_ID);
+        return result;
+    }
+}
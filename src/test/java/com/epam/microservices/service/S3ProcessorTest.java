@@ -1,83 +1,312 @@
 package com.epam.microservices.service;
 
+import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsResult;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
 import com.amazonaws.services.s3.model.ObjectMetadata;
-import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.ResourceContent;
+import com.epam.microservices.service.cache.BlockCache;
+import com.epam.microservices.service.cache.FlightKey;
+import com.epam.microservices.service.cache.ObjectInfo;
+import com.epam.microservices.service.cache.SingleFlightFetcher;
+import com.epam.microservices.service.cache.WarmEntry;
+import com.epam.microservices.service.cache.WarmStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith({MockitoExtension.class, SpringExtension.class})
 class S3ProcessorTest {
     @MockBean
     private AmazonS3 s3;
+    @MockBean
+    private S3ConcurrencyLimiter limiter;
+    @MockBean
+    private S3MultipartUploader uploader;
+    @MockBean
+    private S3MultipartCopier copier;
+    @MockBean
+    private BlockCache blockCache;
+    @MockBean
+    private SingleFlightFetcher singleFlightFetcher;
+    @MockBean
+    private WarmStore warmStore;
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private S3Processor s3Processor;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(limiter.call(any())).thenAnswer(invocation -> invocation.getArgument(0, Supplier.class).get());
+        lenient().doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(limiter).run(any());
+    }
+
     @Test
-    void putResourceTest() throws IOException {
-        MultipartFile file = mock(MultipartFile.class);
+    void putResourceTest() {
+        InputStream inputStream = mock(InputStream.class);
         String bucket = "bucket";
         int resourceId = 3;
 
-        when(file.getContentType()).thenReturn("audio/mp3");
-        when(file.getSize()).thenReturn(64L);
-        when(file.getInputStream()).thenReturn(mock(InputStream.class));
-        when(s3.putObject(anyString(), anyString(), any(InputStream.class), any(ObjectMetadata.class)))
-                .thenReturn(new PutObjectResult());
+        when(uploader.upload(eq(bucket), eq(String.valueOf(resourceId)), any(InputStream.class), eq(-1L),
+                any(ObjectMetadata.class), any(BooleanSupplier.class))).thenReturn(true);
 
-        s3Processor.putResource(file, bucket, resourceId);
+        s3Processor.putResource(inputStream, "audio/mp3", bucket, resourceId);
 
-        verify(file).getContentType();
-        verify(file).getSize();
-        verify(file).getInputStream();
-        verifyNoMoreInteractions(file);
-        verify(s3).putObject(anyString(), anyString(), any(InputStream.class), any(ObjectMetadata.class));
-        verifyNoMoreInteractions(s3);
+        verify(uploader).upload(eq(bucket), eq(String.valueOf(resourceId)), any(InputStream.class), eq(-1L),
+                argThat((ObjectMetadata metadata) -> "audio/mp3".equals(metadata.getContentType())),
+                any(BooleanSupplier.class));
+        verifyNoMoreInteractions(uploader);
+        verifyNoInteractions(s3);
+        assertEquals(1, meterRegistry.get("resource.s3.requests")
+                .tags("operation", "put", "bucket", bucket, "outcome", "success")
+                .timer().count());
     }
 
     @Test
-    void getFileBytesFromResourceTest() {
+    void putResourceNotStoredTest() {
+        InputStream inputStream = mock(InputStream.class);
+        String bucket = "bucket";
+        int resourceId = 3;
+        BooleanSupplier commitCondition = () -> false;
+
+        when(uploader.upload(eq(bucket), eq(String.valueOf(resourceId)), any(InputStream.class), eq(-1L),
+                any(ObjectMetadata.class), eq(commitCondition))).thenReturn(false);
+
+        assertFalse(s3Processor.putResource(inputStream, "audio/mp3", bucket, resourceId, commitCondition));
+        verifyNoInteractions(s3);
+    }
+
+    @Test
+    void getResourceTest() throws IOException {
         int resourceId = 1;
         String bucket = "bucket";
         byte[] fileBytes = {0, 1, 2};
         S3Object s3Object = new S3Object();
         s3Object.setObjectContent(new ByteArrayInputStream(fileBytes));
+        s3Object.getObjectMetadata().setContentLength(fileBytes.length);
+        s3Object.getObjectMetadata().setContentType("audio/mpeg");
 
         when(s3.getObject(bucket, String.valueOf(resourceId))).thenReturn(s3Object);
 
-        assertArrayEquals(fileBytes, s3Processor.getFileBytesFromResource(bucket, resourceId));
+        ResourceContent content = s3Processor.getResource(bucket, resourceId);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        content.writeTo(outputStream);
+
+        assertEquals(fileBytes.length, content.getContentLength());
+        assertEquals("audio/mpeg", content.getContentType());
+        assertArrayEquals(fileBytes, outputStream.toByteArray());
         verify(s3).getObject(bucket, String.valueOf(resourceId));
         verifyNoMoreInteractions(s3);
+        assertEquals(1, meterRegistry.get("resource.reads")
+                .tags("operation", "get", "bucket", bucket, "source", "s3", "outcome", "success")
+                .timer().count());
+        assertEquals(fileBytes.length, meterRegistry.get("resource.read.bytes")
+                .tags("operation", "get", "source", "s3")
+                .summary().totalAmount());
+        assertEquals(fileBytes.length, meterRegistry.get("resource.s3.bytes")
+                .tags("operation", "get")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void getResourceFromWarmStoreTest(@TempDir Path directory) throws IOException {
+        int resourceId = 1;
+        String bucket = "bucket";
+        Path entryPath = Files.write(directory.resolve("entry"), new byte[]{0, 1, 2, 3, 4});
+
+        when(warmStore.get(bucket, resourceId)).thenReturn(Optional.of(new WarmEntry(entryPath, 5, "audio/mpeg")));
+
+        ResourceContent content = s3Processor.getResource(bucket, resourceId, new ContentRange(1, 3, 5));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        content.writeTo(outputStream);
+
+        assertEquals("audio/mpeg", content.getContentType());
+        assertArrayEquals(new byte[]{1, 2, 3}, outputStream.toByteArray());
+        verifyNoInteractions(s3, blockCache, singleFlightFetcher);
+        assertEquals(3, meterRegistry.get("resource.read.bytes")
+                .tags("operation", "get_range", "source", "warm_store")
+                .summary().totalAmount());
+        assertTrue(meterRegistry.find("resource.s3.bytes").summaries().isEmpty());
+        assertTrue(meterRegistry.find("resource.s3.requests").timers().isEmpty());
+    }
+
+    @Test
+    void getResourceWithRangeTest() throws IOException {
+        int resourceId = 1;
+        String bucket = "bucket";
+        byte[] rangeBytes = {1, 2};
+        ContentRange range = new ContentRange(1, 2, 5);
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(rangeBytes));
+
+        when(s3.getObject(any(GetObjectRequest.class))).thenReturn(s3Object);
+
+        ResourceContent content = s3Processor.getResource(bucket, resourceId, range);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        content.writeTo(outputStream);
+
+        assertEquals(range, content.getRange());
+        assertEquals(rangeBytes.length, content.getContentLength());
+        assertArrayEquals(rangeBytes, outputStream.toByteArray());
+        verify(s3).getObject(argThat((GetObjectRequest request) -> bucket.equals(request.getBucketName())
+                && String.valueOf(resourceId).equals(request.getKey())
+                && request.getRange()[0] == 1 && request.getRange()[1] == 2));
+        verifyNoMoreInteractions(s3);
+    }
+
+    @Test
+    void getResourceWithRangeSharedFetchTest() {
+        int resourceId = 1;
+        String bucket = "bucket";
+        ContentRange range = new ContentRange(1, 2, 5);
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(new byte[]{1, 2}));
+
+        when(singleFlightFetcher.isEnabled()).thenReturn(true);
+        when(singleFlightFetcher.fetch(eq(new FlightKey(bucket, resourceId, range)), any())).thenAnswer(invocation ->
+                new S3ResourceContent(invocation.<Supplier<S3Object>>getArgument(1).get(), range));
+        when(s3.getObject(any(GetObjectRequest.class))).thenReturn(s3Object);
+
+        ResourceContent content = s3Processor.getResource(bucket, resourceId, range);
+
+        assertEquals(range, content.getRange());
+        verify(singleFlightFetcher).fetch(eq(new FlightKey(bucket, resourceId, range)), any());
+        verify(s3).getObject(any(GetObjectRequest.class));
+        verifyNoMoreInteractions(s3);
     }
 
     @Test
-    void deleteResourceTest() {
+    void getResourceLengthTest() {
+        int resourceId = 1;
         String bucket = "bucket";
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(42);
+
+        when(s3.getObjectMetadata(bucket, String.valueOf(resourceId))).thenReturn(objectMetadata);
+
+        assertEquals(42, s3Processor.getResourceLength(bucket, resourceId));
+        verify(s3).getObjectMetadata(bucket, String.valueOf(resourceId));
+        verifyNoMoreInteractions(s3);
+    }
+
+    @Test
+    void getResourceInfoTest() {
         int resourceId = 1;
+        String bucket = "bucket";
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(42);
+        objectMetadata.setContentType("audio/mpeg");
+
+        when(s3.getObjectMetadata(bucket, String.valueOf(resourceId))).thenReturn(objectMetadata);
+
+        ObjectInfo objectInfo = s3Processor.getResourceInfo(bucket, resourceId);
+        assertEquals(42, objectInfo.getLength());
+        assertEquals("audio/mpeg", objectInfo.getContentType());
+        verify(s3).getObjectMetadata(bucket, String.valueOf(resourceId));
+        verifyNoMoreInteractions(s3);
+    }
 
-        doNothing().when(s3).deleteObject(bucket, String.valueOf(resourceId));
+    @Test
+    void getResourceThroughBlockCacheTest() {
+        int resourceId = 1;
+        String bucket = "bucket";
+        ObjectInfo objectInfo = new ObjectInfo("audio/mpeg", 10);
 
-        s3Processor.deleteResource(bucket, resourceId);
+        when(blockCache.isEnabled()).thenReturn(true);
+        when(blockCache.getObjectInfo(bucket, resourceId)).thenReturn(Optional.of(objectInfo));
 
-        verify(s3).deleteObject(bucket, String.valueOf(resourceId));
+        ResourceContent content = s3Processor.getResource(bucket, resourceId, new ContentRange(2, 5, 10));
+
+        verify(blockCache).getObjectInfo(bucket, resourceId);
+        assertEquals(4, content.getContentLength());
+        assertEquals("audio/mpeg", content.getContentType());
+        verifyNoInteractions(s3);
+    }
+
+    @Test
+    void deleteResourcesTest() {
+        String bucket = "bucket";
+        List<Integer> resourceIds = IntStream.rangeClosed(1, 1001).boxed().collect(Collectors.toList());
+        MultiObjectDeleteException.DeleteError error = new MultiObjectDeleteException.DeleteError();
+        error.setKey("1001");
+        error.setMessage("Access Denied");
+
+        when(s3.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(new DeleteObjectsResult(List.of()))
+                .thenThrow(new MultiObjectDeleteException(List.of(error), List.of()));
+
+        assertEquals(List.of(1001), s3Processor.deleteResources(bucket, resourceIds));
+        verify(s3).deleteObjects(argThat(request -> request.getKeys().size() == 1000
+                && bucket.equals(request.getBucketName()) && request.getQuiet()));
+        verify(s3).deleteObjects(argThat(request -> request.getKeys().size() == 1
+                && "1001".equals(request.getKeys().get(0).getKey())));
         verifyNoMoreInteractions(s3);
+        verify(blockCache, times(1001)).invalidate(eq(bucket), anyInt());
+    }
+
+    @Test
+    void deleteResourcesClientErrorTest() {
+        String bucket = "bucket";
+        List<Integer> resourceIds = List.of(1, 2);
+
+        when(s3.deleteObjects(any(DeleteObjectsRequest.class))).thenThrow(new SdkClientException("timeout"));
+
+        assertEquals(resourceIds, s3Processor.deleteResources(bucket, resourceIds));
+    }
+
+    @Test
+    void copyResourceTest() {
+        String originBucket = "originBucket";
+        String destinationBucket = "destinationBucket";
+        int resourceId = 3;
+        String key = String.valueOf(resourceId);
+
+        s3Processor.copyResource(originBucket, destinationBucket, resourceId);
+
+        verify(copier).copy(originBucket, key, destinationBucket);
+        verifyNoMoreInteractions(copier);
+        verifyNoInteractions(s3);
+        verifyNoInteractions(blockCache);
     }
 
     @Test
@@ -87,12 +316,12 @@ class S3ProcessorTest {
         int resourceId = 3;
         String key = String.valueOf(resourceId);
 
-        when(s3.copyObject(originBucket, key, destinationBucket, key)).thenReturn(new CopyObjectResult());
         doNothing().when(s3).deleteObject(originBucket, key);
 
         s3Processor.transferResource(originBucket, destinationBucket, resourceId);
 
-        verify(s3).copyObject(originBucket, key, destinationBucket, key);
+        verify(copier).copy(originBucket, key, destinationBucket);
+        verify(blockCache).invalidate(originBucket, resourceId);
         verify(s3).deleteObject(originBucket, key);
         verifyNoMoreInteractions(s3);
     }
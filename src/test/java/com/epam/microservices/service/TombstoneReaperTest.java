@@ -0,0 +1,58 @@
+package com.epam.microservices.service;
+
+import com.epam.microservices.config.dto.DeleteConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, SpringExtension.class})
+class TombstoneReaperTest {
+    @MockBean
+    private ResourceService service;
+    @Spy
+    private DeleteConfig deleteConfig = new DeleteConfig();
+    @InjectMocks
+    private TombstoneReaper reaper;
+
+    @Test
+    void reapUntilBatchIsNotFullTest() {
+        deleteConfig.setTombstone(true);
+        deleteConfig.setReaperBatchSize(2);
+
+        when(service.purgeDeleted(2)).thenReturn(2, 2, 1);
+        when(service.purgeUnreferencedBlobs(2)).thenReturn(2, 0);
+
+        reaper.reap();
+
+        verify(service, times(3)).purgeDeleted(2);
+        verify(service, times(2)).purgeUnreferencedBlobs(2);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    void reapUnreferencedBlobsOnlyWithoutTombstoneTest() {
+        deleteConfig.setReaperBatchSize(2);
+
+        when(service.purgeUnreferencedBlobs(2)).thenReturn(1);
+
+        reaper.reap();
+
+        verify(service).purgeUnreferencedBlobs(2);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    void reapFailureTest() {
+        deleteConfig.setTombstone(true);
+        when(service.purgeDeleted(anyInt())).thenThrow(new RuntimeException("database is down"));
+
+        assertDoesNotThrow(() -> reaper.reap());
+    }
+}
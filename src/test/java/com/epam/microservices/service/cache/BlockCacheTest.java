@@ -0,0 +1,232 @@
+package com.epam.microservices.service.cache;
+
+import com.amazonaws.services.s3.model.S3Object;
+import com.epam.microservices.config.dto.BlockCacheConfig;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.FileRegion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class BlockCacheTest {
+    private static final String BUCKET = "bucket";
+    private static final int RESOURCE_ID = 3;
+    private static final String CACHE_DIRECTORY = "block-cache";
+    private static final byte[] RESOURCE_BYTES = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+    @TempDir
+    Path cacheDirectory;
+    @Spy
+    private BlockCacheConfig config = new BlockCacheConfig();
+    @InjectMocks
+    private BlockCache blockCache;
+    private final List<long[]> fetchedRanges = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config.setEnabled(true);
+        config.setDirectory(cacheDirectory.toString());
+        config.setBlockSize(DataSize.ofBytes(4));
+        config.setMaxSize(DataSize.ofBytes(64));
+        blockCache.init();
+    }
+
+    @Test
+    void fullReadIsServedFromCacheAfterFirstReadTest() throws IOException {
+        ContentRange range = ContentRange.full(RESOURCE_BYTES.length);
+
+        assertArrayEquals(RESOURCE_BYTES, read(range));
+        assertArrayEquals(RESOURCE_BYTES, read(range));
+
+        assertEquals(1, fetchedRanges.size());
+        assertArrayEquals(new long[]{0, 9}, fetchedRanges.get(0));
+        assertEquals(1, blockCache.getMissCount());
+        assertEquals(3, blockCache.getHitCount());
+        assertEquals(RESOURCE_BYTES.length, blockCache.getSize());
+    }
+
+    @Test
+    void rangedReadFetchesOnlyMissingBlocksTest() throws IOException {
+        assertArrayEquals(new byte[]{5, 6, 7, 8}, read(new ContentRange(5, 8, RESOURCE_BYTES.length)));
+        assertArrayEquals(new byte[]{2, 3, 4, 5}, read(new ContentRange(2, 5, RESOURCE_BYTES.length)));
+
+        assertEquals(2, fetchedRanges.size());
+        assertArrayEquals(new long[]{4, 9}, fetchedRanges.get(0));
+        assertArrayEquals(new long[]{0, 3}, fetchedRanges.get(1));
+    }
+
+    @Test
+    void evictionKeepsCacheWithinMaxSizeTest() {
+        config.setMaxSize(DataSize.ofBytes(8));
+
+        blockCache.putBlock(new BlockKey(BUCKET, RESOURCE_ID, 0), RESOURCE_BYTES, 4);
+        blockCache.putBlock(new BlockKey(BUCKET, RESOURCE_ID, 1), RESOURCE_BYTES, 4);
+        blockCache.getBlock(new BlockKey(BUCKET, RESOURCE_ID, 0));
+        blockCache.putBlock(new BlockKey(BUCKET, RESOURCE_ID, 2), RESOURCE_BYTES, 4);
+
+        assertEquals(8, blockCache.getSize());
+        assertEquals(1, blockCache.getEvictionCount());
+        assertTrue(blockCache.contains(new BlockKey(BUCKET, RESOURCE_ID, 0)));
+        assertFalse(blockCache.contains(new BlockKey(BUCKET, RESOURCE_ID, 1)));
+        assertTrue(blockCache.contains(new BlockKey(BUCKET, RESOURCE_ID, 2)));
+    }
+
+    @Test
+    void initKeepsDirectoryNotOwnedByCacheTest() throws IOException {
+        Path foreignDirectory = Files.createDirectories(cacheDirectory.resolve("foreign").resolve(CACHE_DIRECTORY));
+        Path foreignFile = Files.createFile(foreignDirectory.resolve("data"));
+        config.setDirectory(foreignDirectory.getParent().toString());
+
+        assertThrows(IllegalStateException.class, () -> blockCache.init());
+        assertTrue(Files.exists(foreignFile));
+    }
+
+    @Test
+    void initClearsBlocksOfPreviousRunTest() throws IOException {
+        BlockKey key = new BlockKey(BUCKET, RESOURCE_ID, 0);
+        blockCache.putBlock(key, RESOURCE_BYTES, 4);
+
+        blockCache.init();
+
+        assertFalse(Files.exists(cacheDirectory.resolve(CACHE_DIRECTORY).resolve(BUCKET)));
+    }
+
+    @Test
+    void invalidateRemovesAllBlocksOfResourceTest() {
+        BlockKey key = new BlockKey(BUCKET, RESOURCE_ID, 0);
+        BlockKey otherResourceKey = new BlockKey(BUCKET, RESOURCE_ID + 1, 0);
+        blockCache.putBlock(key, RESOURCE_BYTES, 4);
+        blockCache.putBlock(otherResourceKey, RESOURCE_BYTES, 4);
+        blockCache.putObjectInfo(BUCKET, RESOURCE_ID, new ObjectInfo("audio/mpeg", RESOURCE_BYTES.length));
+
+        blockCache.invalidate(BUCKET, RESOURCE_ID);
+
+        assertFalse(blockCache.contains(key));
+        assertTrue(blockCache.contains(otherResourceKey));
+        assertTrue(blockCache.getObjectInfo(BUCKET, RESOURCE_ID).isEmpty());
+        assertFalse(Files.exists(cacheDirectory.resolve(CACHE_DIRECTORY).resolve(BUCKET)
+                .resolve(String.valueOf(RESOURCE_ID))));
+        assertEquals(4, blockCache.getSize());
+    }
+
+    @Test
+    void rangeWithinCachedBlockIsServedFromBlockFileTest() throws IOException {
+        ContentRange range = new ContentRange(5, 6, RESOURCE_BYTES.length);
+        assertTrue(content(range).getFileRegion().isEmpty());
+        read(range);
+
+        FileRegion fileRegion = content(range).getFileRegion().orElseThrow();
+
+        assertEquals(1, fileRegion.getPosition());
+        assertEquals(2, fileRegion.getCount());
+        byte[] blockBytes = Files.readAllBytes(fileRegion.getPath());
+        assertArrayEquals(new byte[]{5, 6}, Arrays.copyOfRange(blockBytes, 1, 3));
+        assertEquals(1, blockCache.getMissCount());
+        assertEquals(1, blockCache.getHitCount());
+    }
+
+    @Test
+    void blockFileRegionOutlivesEvictionTest() throws IOException {
+        ContentRange range = new ContentRange(0, 3, RESOURCE_BYTES.length);
+        read(range);
+
+        FileRegion fileRegion = content(range).getFileRegion().orElseThrow();
+        blockCache.invalidate(BUCKET, RESOURCE_ID);
+
+        assertArrayEquals(new byte[]{0, 1, 2, 3}, Files.readAllBytes(fileRegion.getPath()));
+    }
+
+    @Test
+    void rangeAcrossBlocksIsNotServedFromBlockFileTest() throws IOException {
+        ContentRange range = new ContentRange(2, 5, RESOURCE_BYTES.length);
+        read(range);
+
+        assertTrue(content(range).getFileRegion().isEmpty());
+    }
+
+    @Test
+    void concurrentMissesShareOneFetchTest() throws Exception {
+        ContentRange range = new ContentRange(0, 3, RESOURCE_BYTES.length);
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        BlockCachedResourceContent firstContent = new BlockCachedResourceContent(blockCache, BUCKET, RESOURCE_ID,
+                "audio/mpeg", range, (start, end) -> {
+            fetchStarted.countDown();
+            awaitUninterruptibly(releaseFetch);
+            return fetch(start, end);
+        });
+        CompletableFuture<byte[]> firstRead = CompletableFuture.supplyAsync(() -> readUnchecked(firstContent));
+        fetchStarted.await();
+        AtomicReference<byte[]> secondRead = new AtomicReference<>();
+        Thread secondReader = new Thread(() -> secondRead.set(readUnchecked(content(range))));
+        secondReader.start();
+        while (secondReader.getState() != Thread.State.TIMED_WAITING && secondReader.isAlive()) {
+            Thread.onSpinWait();
+        }
+        releaseFetch.countDown();
+        secondReader.join();
+
+        assertArrayEquals(new byte[]{0, 1, 2, 3}, firstRead.get());
+        assertArrayEquals(new byte[]{0, 1, 2, 3}, secondRead.get());
+        assertEquals(1, fetchedRanges.size());
+        assertEquals(1, blockCache.getCoalescedFetchCount());
+    }
+
+    private BlockCachedResourceContent content(ContentRange range) {
+        return new BlockCachedResourceContent(blockCache, BUCKET, RESOURCE_ID, "audio/mpeg", range, this::fetch);
+    }
+
+    private byte[] read(ContentRange range) throws IOException {
+        BlockCachedResourceContent content = content(range);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        content.writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private byte[] readUnchecked(BlockCachedResourceContent content) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            content.writeTo(outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private S3Object fetch(long start, long end) {
+        fetchedRanges.add(new long[]{start, end});
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(
+                Arrays.copyOfRange(RESOURCE_BYTES, (int) start, (int) end + 1)));
+        return s3Object;
+    }
+}
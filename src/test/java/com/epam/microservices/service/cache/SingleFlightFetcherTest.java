@@ -0,0 +1,171 @@
+package com.epam.microservices.service.cache;
+
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.S3Object;
+import com.epam.microservices.config.dto.SingleFlightConfig;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.ResourceContent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class SingleFlightFetcherTest {
+    private static final String BUCKET = "bucket";
+    private static final int RESOURCE_ID = 3;
+    private static final String SPOOL_DIRECTORY = "single-flight";
+    private static final String SPOOL_FILE_SUFFIX = ".spool";
+    private static final byte[] RESOURCE_BYTES = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+    @TempDir
+    Path spoolDirectory;
+    @Spy
+    private SingleFlightConfig config = new SingleFlightConfig();
+    @InjectMocks
+    private SingleFlightFetcher fetcher;
+    private final AtomicInteger getObjectCalls = new AtomicInteger();
+    private final CountDownLatch bodyReleased = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config.setDirectory(spoolDirectory.toString());
+        config.setThreads(2);
+        fetcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fetcher.shutdown();
+    }
+
+    @Test
+    void concurrentReadsShareOneFetchTest() throws IOException {
+        FlightKey key = new FlightKey(BUCKET, RESOURCE_ID, null);
+
+        ResourceContent first = fetcher.fetch(key, this::getObject);
+        ResourceContent second = fetcher.fetch(key, this::getObject);
+        bodyReleased.countDown();
+
+        assertArrayEquals(RESOURCE_BYTES, read(first));
+        assertArrayEquals(RESOURCE_BYTES, read(second));
+        assertEquals("audio/mpeg", second.getContentType());
+        assertEquals(ContentRange.full(RESOURCE_BYTES.length), second.getRange());
+        assertEquals(1, getObjectCalls.get());
+        assertEquals(1, fetcher.getFetchCount());
+        assertEquals(1, fetcher.getCoalescedCount());
+    }
+
+    @Test
+    void readsOfDifferentRangesAreNotSharedTest() throws IOException {
+        ContentRange range = new ContentRange(0, 4, RESOURCE_BYTES.length);
+
+        ResourceContent full = fetcher.fetch(new FlightKey(BUCKET, RESOURCE_ID, null), this::getObject);
+        ResourceContent ranged = fetcher.fetch(new FlightKey(BUCKET, RESOURCE_ID, range), this::getObject);
+        bodyReleased.countDown();
+        full.close();
+        ranged.close();
+
+        assertEquals(2, getObjectCalls.get());
+        assertEquals(0, fetcher.getCoalescedCount());
+    }
+
+    @Test
+    void failedFetchIsNotSharedTest() {
+        FlightKey key = new FlightKey(BUCKET, RESOURCE_ID, null);
+        Supplier<S3Object> notFound = () -> {
+            throw new AmazonS3Exception("Not Found");
+        };
+
+        assertThrows(AmazonS3Exception.class, () -> fetcher.fetch(key, notFound));
+        assertEquals(0, fetcher.getInFlightCount());
+        assertEquals(0, fetcher.getFetchCount());
+    }
+
+    @Test
+    void spoolFileDeletedAfterLastReaderTest() throws Exception {
+        FlightKey key = new FlightKey(BUCKET, RESOURCE_ID, null);
+
+        ResourceContent first = fetcher.fetch(key, this::getObject);
+        ResourceContent second = fetcher.fetch(key, this::getObject);
+        bodyReleased.countDown();
+        read(first);
+        second.close();
+
+        assertTrue(awaitNoSpoolFiles());
+    }
+
+    private S3Object getObject() {
+        getObjectCalls.incrementAndGet();
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new BlockingInputStream(RESOURCE_BYTES, bodyReleased));
+        s3Object.getObjectMetadata().setContentLength(RESOURCE_BYTES.length);
+        s3Object.getObjectMetadata().setContentType("audio/mpeg");
+        return s3Object;
+    }
+
+    private byte[] read(ResourceContent content) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        content.writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private boolean awaitNoSpoolFiles() throws Exception {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            try (Stream<Path> files = Files.list(spoolDirectory.resolve(SPOOL_DIRECTORY))) {
+                if (files.noneMatch(path -> path.toString().endsWith(SPOOL_FILE_SUFFIX))) {
+                    return true;
+                }
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    private static class BlockingInputStream extends InputStream {
+        private final InputStream body;
+        private final CountDownLatch released;
+
+        private BlockingInputStream(byte[] bytes, CountDownLatch released) {
+            this.body = new ByteArrayInputStream(bytes);
+            this.released = released;
+        }
+
+        @Override
+        public int read() throws IOException {
+            awaitRelease();
+            return body.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            awaitRelease();
+            return body.read(b, off, len);
+        }
+
+        private void awaitRelease() throws IOException {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+}
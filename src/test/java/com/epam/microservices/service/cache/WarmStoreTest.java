@@ -0,0 +1,163 @@
+package com.epam.microservices.service.cache;
+
+import com.epam.microservices.config.dto.WarmStoreConfig;
+import com.epam.microservices.model.ContentRange;
+import com.epam.microservices.model.FileRegion;
+import com.epam.microservices.model.ResourceContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WarmStoreTest {
+    private static final String BUCKET = "bucket";
+    private static final int RESOURCE_ID = 3;
+    private static final String STORE_DIRECTORY = "warm-store";
+    private static final String UPLOAD_FILE_SUFFIX = ".part";
+    private static final byte[] RESOURCE_BYTES = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+    @TempDir
+    Path storeDirectory;
+    @Spy
+    private WarmStoreConfig config = new WarmStoreConfig();
+    @InjectMocks
+    private WarmStore warmStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config.setEnabled(true);
+        config.setDirectory(storeDirectory.toString());
+        config.setMaxSize(DataSize.ofBytes(64));
+        config.setMaxEntrySize(DataSize.ofBytes(16));
+        warmStore.init();
+    }
+
+    @Test
+    void committedUploadIsServedLocallyTest() throws IOException {
+        upload(RESOURCE_BYTES).commit(BUCKET, RESOURCE_ID, "audio/mpeg");
+
+        WarmEntry entry = warmStore.get(BUCKET, RESOURCE_ID).orElseThrow();
+        assertEquals(RESOURCE_BYTES.length, entry.getLength());
+        assertEquals("audio/mpeg", entry.getContentType());
+        assertArrayEquals(RESOURCE_BYTES, Files.readAllBytes(entry.getPath()));
+        assertTrue(warmStore.get(BUCKET, RESOURCE_ID + 1).isEmpty());
+        assertEquals(RESOURCE_BYTES.length, warmStore.getSize());
+    }
+
+    @Test
+    void discardedUploadIsNotKeptTest() throws IOException {
+        upload(RESOURCE_BYTES).discard();
+
+        assertTrue(warmStore.get(BUCKET, RESOURCE_ID).isEmpty());
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void uploadOverEntrySizeIsNotKeptTest() throws IOException {
+        byte[] largeBytes = new byte[32];
+        WarmUpload upload = upload(largeBytes);
+        upload.commit(BUCKET, RESOURCE_ID, "audio/mpeg");
+
+        assertTrue(warmStore.get(BUCKET, RESOURCE_ID).isEmpty());
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void invalidateDeletesEntryFileTest() throws IOException {
+        upload(RESOURCE_BYTES).commit(BUCKET, RESOURCE_ID, "audio/mpeg");
+
+        warmStore.invalidate(BUCKET, RESOURCE_ID);
+
+        assertTrue(warmStore.get(BUCKET, RESOURCE_ID).isEmpty());
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void disabledStoreKeepsNothingTest() throws IOException {
+        WarmStore disabledStore = new WarmStore();
+        WarmStoreConfig disabledConfig = new WarmStoreConfig();
+        disabledConfig.setDirectory(storeDirectory.resolve("disabled").toString());
+        ReflectionTestUtils.setField(disabledStore, "config", disabledConfig);
+        disabledStore.init();
+
+        assertTrue(disabledStore.startUpload().isEmpty());
+        assertTrue(disabledStore.get(BUCKET, RESOURCE_ID).isEmpty());
+    }
+
+    @Test
+    void rangeIsServedFromEntryTest() throws IOException {
+        upload(RESOURCE_BYTES).commit(BUCKET, RESOURCE_ID, "audio/mpeg");
+        WarmEntry entry = warmStore.get(BUCKET, RESOURCE_ID).orElseThrow();
+        WarmResourceContent content = new WarmResourceContent(warmStore, entry,
+                new ContentRange(2, 5, RESOURCE_BYTES.length), () -> fail("origin must not be read"));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        content.writeTo(outputStream);
+
+        assertArrayEquals(new byte[]{2, 3, 4, 5}, outputStream.toByteArray());
+        assertEquals(2, content.getFileRegion().orElseThrow().getPosition());
+        assertEquals(4, content.getFileRegion().orElseThrow().getCount());
+    }
+
+    @Test
+    void fileRegionOutlivesEntryExpiryTest() throws IOException {
+        upload(RESOURCE_BYTES).commit(BUCKET, RESOURCE_ID, "audio/mpeg");
+        WarmEntry entry = warmStore.get(BUCKET, RESOURCE_ID).orElseThrow();
+        WarmResourceContent content = new WarmResourceContent(warmStore, entry,
+                ContentRange.full(RESOURCE_BYTES.length), () -> fail("origin must not be read"));
+
+        FileRegion fileRegion = content.getFileRegion().orElseThrow();
+        warmStore.invalidate(BUCKET, RESOURCE_ID);
+
+        assertFalse(Files.exists(entry.getPath()));
+        assertArrayEquals(RESOURCE_BYTES, Files.readAllBytes(fileRegion.getPath()));
+    }
+
+    @Test
+    void expiredEntryIsReadFromOriginTest() throws IOException {
+        upload(RESOURCE_BYTES).commit(BUCKET, RESOURCE_ID, "audio/mpeg");
+        WarmEntry entry = warmStore.get(BUCKET, RESOURCE_ID).orElseThrow();
+        ResourceContent origin = mock(ResourceContent.class);
+        WarmResourceContent content = new WarmResourceContent(warmStore, entry,
+                ContentRange.full(RESOURCE_BYTES.length), () -> origin);
+        warmStore.invalidate(BUCKET, RESOURCE_ID);
+
+        OutputStream outputStream = new ByteArrayOutputStream();
+        content.writeTo(outputStream);
+
+        assertTrue(content.getFileRegion().isEmpty());
+        verify(origin).writeTo(outputStream);
+        verify(origin).close();
+    }
+
+    private WarmUpload upload(byte[] bytes) throws IOException {
+        WarmUpload upload = warmStore.startUpload().orElseThrow();
+        try (InputStream inputStream = upload.capture(new ByteArrayInputStream(bytes))) {
+            inputStream.readAllBytes();
+        }
+        return upload;
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(storeDirectory.resolve(STORE_DIRECTORY))) {
+            return files.filter(path -> path.toString().endsWith(UPLOAD_FILE_SUFFIX)).count();
+        }
+    }
+}
@@ -0,0 +1,3 @@
+CREATE INDEX file_deleted_id_idx ON file (`deleted`, `id`);
+CREATE INDEX file_bucket_deleted_id_idx ON file (`bucket`, `deleted`, `id`);
+CREATE INDEX file_mime_type_deleted_id_idx ON file (`mime_type`, `deleted`, `id`);
@@ -0,0 +1 @@
+CREATE INDEX outbox_event_status_created_at_idx ON outbox_event (`status`, `created_at`);
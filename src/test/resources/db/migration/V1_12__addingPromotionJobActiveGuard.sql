@@ -0,0 +1,5 @@
+ALTER TABLE promotion_job ADD COLUMN `active_resource_id` INT;
+
+UPDATE promotion_job SET `active_resource_id` = `resource_id` WHERE `status` IN ('QUEUED', 'RUNNING');
+
+CREATE UNIQUE INDEX promotion_job_active_resource_id_idx ON promotion_job (`active_resource_id`);
@@ -0,0 +1,5 @@
+UPDATE file
+SET `etag`           = '039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81',
+    `content_length` = 10,
+    `uploaded_at`    = '2022-10-01 10:15:30'
+WHERE `id` IN (1, 2);
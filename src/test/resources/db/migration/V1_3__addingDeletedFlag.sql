@@ -0,0 +1,2 @@
+ALTER TABLE file
+    ADD COLUMN `deleted` BOOLEAN DEFAULT FALSE NOT NULL;
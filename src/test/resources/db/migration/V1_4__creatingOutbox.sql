@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS outbox_event
+(
+    `id`          BIGINT AUTO_INCREMENT NOT NULL PRIMARY KEY,
+    `resource_id` INT                   NOT NULL,
+    `status`      VARCHAR(16)           NOT NULL,
+    `created_at`  TIMESTAMP             NOT NULL
+);
+
+CREATE INDEX outbox_event_status_idx ON outbox_event (`status`, `id`);
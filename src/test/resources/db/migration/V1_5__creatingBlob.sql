@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS content_blob
+(
+    `id`         BIGINT AUTO_INCREMENT NOT NULL PRIMARY KEY,
+    `bucket`     VARCHAR(45)           NOT NULL,
+    `storage_id` INT                   NOT NULL,
+    `sha256`     CHAR(64),
+    `ref_count`  INT                   NOT NULL
+);
+
+CREATE INDEX content_blob_sha256_idx ON content_blob (`sha256`, `bucket`);
+CREATE INDEX content_blob_storage_id_idx ON content_blob (`bucket`, `storage_id`);
+
+ALTER TABLE file
+    ADD COLUMN `storage_id` INT;
@@ -0,0 +1,6 @@
+ALTER TABLE file
+    ADD COLUMN `etag` CHAR(64);
+ALTER TABLE file
+    ADD COLUMN `content_length` BIGINT;
+ALTER TABLE file
+    ADD COLUMN `uploaded_at` TIMESTAMP;
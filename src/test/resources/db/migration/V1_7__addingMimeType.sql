@@ -0,0 +1,2 @@
+ALTER TABLE file
+    ADD COLUMN `mime_type` VARCHAR(255);
@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS id_block
+(
+    `name`     VARCHAR(45) NOT NULL PRIMARY KEY,
+    `next_val` BIGINT      NOT NULL
+);
+
+INSERT INTO id_block (`name`, `next_val`)
+SELECT 'file', COALESCE(MAX(`id`), 0) + 1
+FROM file;
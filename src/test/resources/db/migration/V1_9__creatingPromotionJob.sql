@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS promotion_job
+(
+    `id`              BIGINT AUTO_INCREMENT NOT NULL PRIMARY KEY,
+    `resource_id`     INT                   NOT NULL,
+    `status`          VARCHAR(16)           NOT NULL,
+    `attempts`        INT                   NOT NULL,
+    `next_attempt_at` TIMESTAMP             NOT NULL,
+    `created_at`      TIMESTAMP             NOT NULL,
+    `updated_at`      TIMESTAMP             NOT NULL,
+    `error`           VARCHAR(1024)
+);
+
+CREATE INDEX promotion_job_status_idx ON promotion_job (`status`, `next_attempt_at`);
+CREATE INDEX promotion_job_resource_id_idx ON promotion_job (`resource_id`, `status`);